@@ -0,0 +1,72 @@
+package pipe.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pipe.actions.gui.PipeApplicationModel;
+import pipe.controllers.GUIAnimator;
+import pipe.controllers.application.PipeApplicationController;
+import pipe.historyActions.AnimationHistoryImpl;
+import uk.ac.imperial.pipe.animation.PetriNetAnimator;
+import uk.ac.imperial.pipe.models.petrinet.PetriNet;
+import uk.ac.imperial.pipe.models.petrinet.Transition;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures firing a transition through the GUI animator, including recording it in the
+ * animation history and recomputing the enabled transitions
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class AnimationBenchmark {
+    /**
+     * Number of places in the ring model
+     */
+    @Param({"10", "100", "1000"})
+    public int places;
+
+    /**
+     * Number of tokens in the ring model
+     */
+    @Param({"10"})
+    public int tokens;
+
+    private PetriNetAnimator petriNetAnimator;
+
+    private GUIAnimator animator;
+
+    /**
+     * Starts every iteration from the initial marking with an empty history
+     * so that iterations measure the same work
+     */
+    @Setup(Level.Iteration)
+    public void setUp() {
+        PetriNet petriNet = BenchmarkModels.ring(places, tokens);
+        petriNetAnimator = new PetriNetAnimator(petriNet);
+        PipeApplicationController applicationController =
+                new PipeApplicationController(new PipeApplicationModel("benchmark"));
+        animator = new GUIAnimator(petriNetAnimator, new AnimationHistoryImpl(), applicationController);
+        animator.startAnimation();
+    }
+
+    @Benchmark
+    public Transition fireTransition() {
+        Transition transition = petriNetAnimator.getRandomEnabledTransition();
+        animator.fireTransition(transition);
+        return transition;
+    }
+}
@@ -0,0 +1,91 @@
+package pipe.benchmarks;
+
+import uk.ac.imperial.pipe.exceptions.PetriNetComponentException;
+import uk.ac.imperial.pipe.models.petrinet.ColoredToken;
+import uk.ac.imperial.pipe.models.petrinet.DiscretePlace;
+import uk.ac.imperial.pipe.models.petrinet.DiscreteTransition;
+import uk.ac.imperial.pipe.models.petrinet.InboundNormalArc;
+import uk.ac.imperial.pipe.models.petrinet.NormalRate;
+import uk.ac.imperial.pipe.models.petrinet.OutboundNormalArc;
+import uk.ac.imperial.pipe.models.petrinet.PetriNet;
+import uk.ac.imperial.pipe.models.petrinet.Place;
+import uk.ac.imperial.pipe.models.petrinet.PlaceablePetriNetComponent;
+import uk.ac.imperial.pipe.models.petrinet.Transition;
+
+import java.awt.Color;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Scalable Petri nets used as benchmark inputs
+ */
+public final class BenchmarkModels {
+    /**
+     * Token used in every model
+     */
+    public static final String TOKEN = "Default";
+
+    /**
+     * Number of components laid out on each row
+     */
+    private static final int COLUMNS = 10;
+
+    /**
+     * Distance between laid out components
+     */
+    private static final int SPACING = 80;
+
+    /**
+     * Private constructor for utility class
+     */
+    private BenchmarkModels() {
+    }
+
+    /**
+     * Creates a ring of places connected by timed transitions with all tokens starting on the
+     * first place. Its state space has (places + tokens - 1) choose tokens states, so both
+     * parameters scale it.
+     *
+     * @param places number of places, and transitions, in the ring
+     * @param tokens number of tokens circulating around the ring
+     * @return ring net
+     */
+    public static PetriNet ring(int places, int tokens) {
+        try {
+            PetriNet petriNet = new PetriNet();
+            petriNet.addToken(new ColoredToken(TOKEN, Color.BLACK));
+            Place[] ring = new Place[places];
+            for (int i = 0; i < places; i++) {
+                ring[i] = new DiscretePlace("P" + i, "P" + i);
+                layout(ring[i], 2 * i);
+                petriNet.add(ring[i]);
+            }
+            ring[0].setTokenCount(TOKEN, tokens);
+
+            Map<String, String> weights = Collections.singletonMap(TOKEN, "1");
+            for (int i = 0; i < places; i++) {
+                Transition transition = new DiscreteTransition("T" + i, "T" + i);
+                transition.setTimed(true);
+                transition.setRate(new NormalRate(Integer.toString(1 + i % 3)));
+                layout(transition, 2 * i + 1);
+                petriNet.add(transition);
+                petriNet.add(new InboundNormalArc(ring[i], transition, weights));
+                petriNet.add(new OutboundNormalArc(transition, ring[(i + 1) % places], weights));
+            }
+            return petriNet;
+        } catch (PetriNetComponentException e) {
+            throw new IllegalStateException("Could not build benchmark model", e);
+        }
+    }
+
+    /**
+     * Lays the component out on a grid so that the net can be painted
+     *
+     * @param component component to position
+     * @param index     position of the component on the grid
+     */
+    private static void layout(PlaceablePetriNetComponent component, int index) {
+        component.setX(SPACING * (index % COLUMNS));
+        component.setY(SPACING * (index / COLUMNS));
+    }
+}
@@ -0,0 +1,115 @@
+package pipe.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pipe.gui.statespace.BatchSizer;
+import pipe.gui.statespace.BatchedParallelStateSpaceExplorer;
+import pipe.gui.statespace.ExplorationProgress;
+import pipe.gui.statespace.MarkingCodec;
+import pipe.reachability.algorithm.ExplorerUtilities;
+import pipe.reachability.algorithm.OnTheFlyVanishingExplorer;
+import pipe.reachability.algorithm.StateSpaceExplorer;
+import pipe.reachability.algorithm.UnboundedExplorerUtilities;
+import pipe.reachability.algorithm.parallel.MassiveParallelStateSpaceExplorer;
+import pipe.reachability.algorithm.sequential.SequentialStateSpaceExplorer;
+import uk.ac.imperial.pipe.models.petrinet.PetriNet;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the sequential explorer and the library's massively parallel explorer with the
+ * batched parallel explorer used by the GUI, with a fixed and an adaptive batch size and with
+ * its visited states spilled to disk, across thread counts and batch sizes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExplorationBenchmark {
+    /**
+     * Number of places in the ring model
+     */
+    @Param({"8", "12"})
+    public int places;
+
+    /**
+     * Number of tokens in the ring model
+     */
+    @Param({"6"})
+    public int tokens;
+
+    /**
+     * Number of exploration threads, 1 uses the sequential explorer
+     */
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    /**
+     * Number of states each thread explores before its results are merged,
+     * ignored by the adaptive batch size which tunes it whilst exploring
+     */
+    @Param({"10", "100", "1000"})
+    public int statesPerThread;
+
+    private PetriNet petriNet;
+
+    @Setup
+    public void setUp() {
+        petriNet = BenchmarkModels.ring(places, tokens);
+    }
+
+    @Benchmark
+    public StateSpaceExplorer.StateSpaceExplorerResults explore() throws Exception {
+        ExplorerUtilities utilities = new UnboundedExplorerUtilities(petriNet);
+        OnTheFlyVanishingExplorer vanishingExplorer = new OnTheFlyVanishingExplorer(utilities);
+        StateSpaces.DiscardingStateProcessor processor = new StateSpaces.DiscardingStateProcessor();
+        StateSpaceExplorer explorer = threads == 1 ?
+                new SequentialStateSpaceExplorer(utilities, vanishingExplorer, processor) :
+                new MassiveParallelStateSpaceExplorer(utilities, vanishingExplorer, processor, threads,
+                        statesPerThread);
+        return explorer.generate(utilities.getCurrentState());
+    }
+
+    @Benchmark
+    public StateSpaceExplorer.StateSpaceExplorerResults exploreBatchedFixed() throws Exception {
+        return exploreBatched(BatchSizer.fixed(statesPerThread), false);
+    }
+
+    @Benchmark
+    public StateSpaceExplorer.StateSpaceExplorerResults exploreBatchedAdaptive() throws Exception {
+        return exploreBatched(BatchSizer.adaptive(), false);
+    }
+
+    @Benchmark
+    public StateSpaceExplorer.StateSpaceExplorerResults exploreBatchedSpillToDisk() throws Exception {
+        return exploreBatched(BatchSizer.fixed(statesPerThread), true);
+    }
+
+    /**
+     * Explores the ring with the batched parallel explorer, packing the visited states as the GUI does
+     *
+     * @param batchSizer  decides the number of states each thread expands per round
+     * @param spillToDisk if true the visited states and frontier are kept on disk
+     * @return exploration results
+     */
+    private StateSpaceExplorer.StateSpaceExplorerResults exploreBatched(BatchSizer batchSizer, boolean spillToDisk)
+            throws Exception {
+        ExplorerUtilities utilities = new UnboundedExplorerUtilities(petriNet);
+        OnTheFlyVanishingExplorer vanishingExplorer = new OnTheFlyVanishingExplorer(utilities);
+        StateSpaces.DiscardingStateProcessor processor = new StateSpaces.DiscardingStateProcessor();
+        StateSpaceExplorer explorer = new BatchedParallelStateSpaceExplorer(utilities, vanishingExplorer, processor,
+                threads, batchSizer, new ExplorationProgress(), spillToDisk, MarkingCodec.forPetriNet(petriNet));
+        return explorer.generate(utilities.getCurrentState());
+    }
+}
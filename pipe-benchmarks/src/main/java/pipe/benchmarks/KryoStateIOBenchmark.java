@@ -0,0 +1,230 @@
+package pipe.benchmarks;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pipe.gui.io.CompactStateIO;
+import pipe.gui.io.KryoStateSpaceReader;
+import pipe.gui.io.StateSpaceReader;
+import pipe.gui.io.StreamingStateReader;
+import pipe.gui.statespace.CompactStateSpace;
+import uk.ac.imperial.io.KryoStateIO;
+import uk.ac.imperial.io.StateWriter;
+import uk.ac.imperial.pipe.models.petrinet.PetriNet;
+import uk.ac.imperial.utils.Pair;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing and streaming back the transition binaries of a state space, in the Kryo
+ * format, the compact format, and the compact format deflated in blocks. Deflated binaries can
+ * only be compressed and decompressed as files, so those benchmarks include the disk access.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class KryoStateIOBenchmark {
+    /**
+     * Kryo binaries
+     */
+    private static final String KRYO = "kryo";
+
+    /**
+     * Compact binaries
+     */
+    private static final String COMPACT = "compact";
+
+    /**
+     * Compact binaries deflated in blocks
+     */
+    private static final String DEFLATED = "compact-deflated";
+
+    /**
+     * Number of places in the ring model
+     */
+    @Param({"8", "12"})
+    public int places;
+
+    /**
+     * Number of tokens in the ring model
+     */
+    @Param({"6"})
+    public int tokens;
+
+    /**
+     * Format of the binaries
+     */
+    @Param({KRYO, COMPACT, DEFLATED})
+    public String format;
+
+    /**
+     * Writes and parses the transitions in the chosen format
+     */
+    private StateWriter stateIO;
+
+    /**
+     * Reads records back in the chosen format
+     */
+    private StateSpaceReader stateReader;
+
+    /**
+     * Transition binaries read back by {@link #read()}
+     */
+    private byte[] transitions;
+
+    /**
+     * Deflated transition binaries read back by {@link #read()}, null unless the format is deflated
+     */
+    private Path deflated;
+
+    /**
+     * Successors of each state as passed to the writer by the explorers
+     */
+    private List<Map<Integer, Pair<Double, Collection<String>>>> successors;
+
+    @Setup
+    public void setUp() throws Exception {
+        PetriNet petriNet = BenchmarkModels.ring(places, tokens);
+        byte[] kryoTransitions = StateSpaces.explore(petriNet)[0];
+        CompactStateSpace stateSpace = StateSpaces.compact(kryoTransitions);
+        successors = new ArrayList<>(stateSpace.getStateCount());
+        for (int state = 0; state < stateSpace.getStateCount(); state++) {
+            Map<Integer, Pair<Double, Collection<String>>> rates = new HashMap<>();
+            for (int edge = stateSpace.getRowOffsets()[state]; edge < stateSpace.getRowOffsets()[state + 1]; edge++) {
+                rates.put(stateSpace.getTargets()[edge],
+                        new Pair<>(stateSpace.getRates()[edge], stateSpace.getLabel(edge)));
+            }
+            successors.add(rates);
+        }
+
+        if (format.equals(KRYO)) {
+            stateIO = new KryoStateIO();
+            stateReader = new KryoStateSpaceReader();
+            transitions = kryoTransitions;
+            return;
+        }
+        CompactStateIO compactStateIO = CompactStateIO.forPetriNet(petriNet, null);
+        stateIO = compactStateIO;
+        stateReader = compactStateIO;
+        transitions = writeCompact(kryoTransitions.length);
+        if (format.equals(DEFLATED)) {
+            deflated = compress(transitions);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (deflated != null) {
+            Files.deleteIfExists(deflated);
+        }
+    }
+
+    @Benchmark
+    public long write() throws IOException {
+        if (format.equals(KRYO)) {
+            Output output = new Output(transitions.length, -1);
+            writeTransitions(output);
+            return output.total();
+        }
+        byte[] binary = writeCompact(transitions.length);
+        if (format.equals(COMPACT)) {
+            return binary.length;
+        }
+        Path compressed = compress(binary);
+        try {
+            return Files.size(compressed);
+        } finally {
+            Files.deleteIfExists(compressed);
+        }
+    }
+
+    @Benchmark
+    public int read() throws IOException {
+        if (!format.equals(DEFLATED)) {
+            return countSuccessors(new Input(transitions));
+        }
+        Path decompressed = Files.createTempFile("benchmark-inflated", ".bin");
+        try {
+            CompactStateIO.decompress(deflated, decompressed);
+            try (InputStream stream = Files.newInputStream(decompressed)) {
+                return countSuccessors(new Input(stream));
+            }
+        } finally {
+            Files.deleteIfExists(decompressed);
+        }
+    }
+
+    /**
+     * @param capacity initial size of the buffer
+     * @return compact binary of every transition, starting with its header
+     */
+    private byte[] writeCompact(int capacity) {
+        Output output = new Output(capacity, -1);
+        ((CompactStateIO) stateIO).writeHeader(output);
+        writeTransitions(output);
+        return output.toBytes();
+    }
+
+    /**
+     * @param output output to write every transition to
+     */
+    private void writeTransitions(Output output) {
+        for (int state = 0; state < successors.size(); state++) {
+            stateIO.transitionTo(output, state, successors.get(state));
+        }
+    }
+
+    /**
+     * @param binary uncompressed compact binary
+     * @return temporary file holding the binary deflated in blocks
+     */
+    private static Path compress(byte[] binary) throws IOException {
+        Path uncompressed = Files.createTempFile("benchmark-compact", ".bin");
+        Path compressed = Files.createTempFile("benchmark-deflated", ".bin");
+        try {
+            Files.write(uncompressed, binary);
+            CompactStateIO.compress(uncompressed, compressed);
+            return compressed;
+        } finally {
+            Files.deleteIfExists(uncompressed);
+        }
+    }
+
+    /**
+     * @param input input at the start of a transition binary
+     * @return number of successors of every record in the binary
+     */
+    private int countSuccessors(Input input) throws IOException {
+        stateReader.skipHeader(input);
+        int count = 0;
+        try (StreamingStateReader.RecordStream records = new StreamingStateReader(stateReader).iterateRecords(input)) {
+            while (records.hasNext()) {
+                count += records.next().successors.size();
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,90 @@
+package pipe.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pipe.actions.gui.PipeApplicationModel;
+import pipe.controllers.application.PipeApplicationController;
+import pipe.gui.PetriNetTab;
+
+import javax.swing.event.UndoableEditEvent;
+import javax.swing.event.UndoableEditListener;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures painting a Petri net tab, with all of its place, transition and arc views,
+ * into an off screen image without a display
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PaintingBenchmark {
+    /**
+     * Number of places, and transitions, in the ring model
+     */
+    @Param({"10", "100", "1000"})
+    public int places;
+
+    private PetriNetTab tab;
+
+    private BufferedImage image;
+
+    private Graphics2D graphics;
+
+    @Setup
+    public void setUp() {
+        PipeApplicationController applicationController =
+                new PipeApplicationController(new PipeApplicationModel("benchmark"));
+        tab = new PetriNetTab();
+        applicationController.registerTab(BenchmarkModels.ring(places, 1), tab, new Observer() {
+            @Override
+            public void update(Observable o, Object arg) {
+                // animation history is not displayed
+            }
+        }, new UndoableEditListener() {
+            @Override
+            public void undoableEditHappened(UndoableEditEvent e) {
+                // nothing is edited
+            }
+        }, new PropertyChangeListener() {
+            @Override
+            public void propertyChange(PropertyChangeEvent evt) {
+                // zoom is not changed
+            }
+        });
+        Dimension size = tab.getPreferredSize();
+        tab.setSize(size);
+        image = new BufferedImage(Math.max(1, size.width), Math.max(1, size.height), BufferedImage.TYPE_INT_RGB);
+        graphics = image.createGraphics();
+    }
+
+    @TearDown
+    public void tearDown() {
+        graphics.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage paint() {
+        tab.paintAll(graphics);
+        return image;
+    }
+}
@@ -0,0 +1,81 @@
+package pipe.benchmarks;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import pipe.gui.io.KryoStateSpaceReader;
+import pipe.gui.io.StreamingStateReader;
+import pipe.gui.statespace.CompactStateSpace;
+import pipe.gui.statespace.CompactStateSpaceBuilder;
+import pipe.reachability.algorithm.ExplorerUtilities;
+import pipe.reachability.algorithm.OnTheFlyVanishingExplorer;
+import pipe.reachability.algorithm.UnboundedExplorerUtilities;
+import pipe.reachability.algorithm.sequential.SequentialStateSpaceExplorer;
+import uk.ac.imperial.io.KryoStateIO;
+import uk.ac.imperial.io.StateIOProcessor;
+import uk.ac.imperial.io.StateProcessor;
+import uk.ac.imperial.pipe.models.petrinet.PetriNet;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.Record;
+import uk.ac.imperial.utils.Pair;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Explores benchmark models into in memory binaries so that benchmarks of the later
+ * stages of analysis do not measure exploration or disk access
+ */
+public final class StateSpaces {
+    /**
+     * Private constructor for utility class
+     */
+    private StateSpaces() {
+    }
+
+    /**
+     * @param petriNet net to explore
+     * @return Kryo transition binaries followed by Kryo state binaries
+     */
+    public static byte[][] explore(PetriNet petriNet) throws Exception {
+        ByteArrayOutputStream transitions = new ByteArrayOutputStream();
+        ByteArrayOutputStream states = new ByteArrayOutputStream();
+        try (Output transitionOutput = new Output(transitions);
+             Output stateOutput = new Output(states)) {
+            ExplorerUtilities utilities = new UnboundedExplorerUtilities(petriNet);
+            StateProcessor processor = new StateIOProcessor(new KryoStateIO(), transitionOutput, stateOutput);
+            new SequentialStateSpaceExplorer(utilities, new OnTheFlyVanishingExplorer(utilities), processor)
+                    .generate(utilities.getCurrentState());
+        }
+        return new byte[][]{transitions.toByteArray(), states.toByteArray()};
+    }
+
+    /**
+     * @param transitions Kryo transition binaries
+     * @return compact state space read from the binaries
+     */
+    public static CompactStateSpace compact(final byte[] transitions) {
+        return CompactStateSpaceBuilder.build(new Iterable<Record>() {
+            @Override
+            public Iterator<Record> iterator() {
+                return new StreamingStateReader(new KryoStateSpaceReader()).iterateRecords(new Input(transitions));
+            }
+        });
+    }
+
+    /**
+     * Processor that discards the explored state space so that only exploration is measured
+     */
+    public static final class DiscardingStateProcessor implements StateProcessor {
+        @Override
+        public void processTransitions(int state, Map<Integer, Pair<Double, Collection<String>>> successorRates) {
+            // discarded
+        }
+
+        @Override
+        public void processState(ClassifiedState state, int id) {
+            // discarded
+        }
+    }
+}
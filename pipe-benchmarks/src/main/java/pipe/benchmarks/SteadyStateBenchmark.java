@@ -0,0 +1,79 @@
+package pipe.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pipe.gui.solver.SteadyStateSolvers;
+import pipe.gui.statespace.CompactStateSpace;
+import uk.ac.imperial.state.Record;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures solving the steady state of explored models with each registered solver
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SteadyStateBenchmark {
+    /**
+     * Number of places in the ring model
+     */
+    @Param({"8", "12"})
+    public int places;
+
+    /**
+     * Number of tokens in the ring model
+     */
+    @Param({"6"})
+    public int tokens;
+
+    /**
+     * Number of solver threads
+     */
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    /**
+     * Name of the registered steady state solver
+     */
+    @Param({"Parallel Gauss-Seidel", "Jacobi", "Gauss-Seidel", "SOR (tuned)", "Power method", "BiCGSTAB"})
+    public String solver;
+
+    private List<Record> records;
+
+    private ExecutorService executorService;
+
+    @Setup
+    public void setUp() throws Exception {
+        CompactStateSpace stateSpace = StateSpaces.compact(StateSpaces.explore(BenchmarkModels.ring(places, tokens))[0]);
+        records = stateSpace.asRecordList();
+        executorService = Executors.newFixedThreadPool(threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Benchmark
+    public Map<Integer, Double> solve() {
+        return SteadyStateSolvers.create(solver, threads, executorService).solve(records);
+    }
+}
@@ -0,0 +1,118 @@
+package pipe.actions.gui;
+
+import pipe.controllers.GUIAnimator;
+import pipe.controllers.PetriNetController;
+import pipe.controllers.application.PipeApplicationController;
+import pipe.gui.statespace.ExplorationProgress;
+import pipe.gui.statespace.GuidedSearch;
+import pipe.utilities.gui.GuiUtils;
+import uk.ac.imperial.pipe.exceptions.PetriNetComponentNotFoundException;
+import uk.ac.imperial.pipe.models.petrinet.PetriNet;
+import uk.ac.imperial.pipe.models.petrinet.Transition;
+import uk.ac.imperial.pipe.visitor.ClonePetriNet;
+
+import javax.swing.*;
+import java.awt.event.ActionEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * This action searches for a short firing sequence from the current marking to a
+ * target marking entered by the user when animation mode is on. The sequence found is
+ * loaded into the animation history so that it can be replayed by stepping forward.
+ */
+public class FindMarkingAction extends AnimateAction {
+    /**
+     * Main PIPE application controller
+     */
+    private final PipeApplicationController applicationController;
+
+    /**
+     * Constructor
+     * @param name image name
+     * @param tooltip tooltip message
+     * @param keystroke shortcut keystroke
+     * @param applicationController main PIPE application controller
+     */
+    public FindMarkingAction(String name, String tooltip, String keystroke,
+                             PipeApplicationController applicationController) {
+        super(name, tooltip, keystroke);
+        this.applicationController = applicationController;
+    }
+
+    /**
+     * Asks for the target marking and searches for it in the background
+     * @param event
+     */
+    @Override
+    public void actionPerformed(ActionEvent event) {
+        final PetriNetController petriNetController = applicationController.getActivePetriNetController();
+        final PetriNet petriNet = petriNetController.getPetriNet();
+        String marking = JOptionPane.showInputDialog("Enter the marking to find, e.g. P0=1, P1=0", "");
+        if (marking == null) {
+            return;
+        }
+        final GuidedSearch search;
+        try {
+            Map<String, Map<String, Integer>> target = GuidedSearch.parseMarking(petriNet, marking);
+            search = GuidedSearch.forPetriNet(ClonePetriNet.clone(petriNet), target);
+        } catch (IllegalArgumentException e) {
+            GuiUtils.displayErrorMessage(null, e.getMessage());
+            return;
+        }
+
+        setEnabled(false);
+        SwingWorker<List<String>, Void> worker = new SwingWorker<List<String>, Void>() {
+            @Override
+            protected List<String> doInBackground() {
+                return search.search(new ExplorationProgress());
+            }
+
+            @Override
+            protected void done() {
+                setEnabled(petriNetController.isInAnimationMode());
+                try {
+                    loadSequence(petriNetController, get(), search);
+                } catch (InterruptedException | ExecutionException e) {
+                    GuiUtils.displayErrorMessage(null, "Error searching for the marking: " + e.getMessage());
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    /**
+     * Loads the firing sequence found into the animator and tells the user how to replay it
+     * @param petriNetController controller of the searched Petri net
+     * @param sequence ids of the transitions found, or null if the marking was not found
+     * @param search finished search
+     */
+    private void loadSequence(PetriNetController petriNetController, List<String> sequence, GuidedSearch search) {
+        if (sequence == null) {
+            String reason = search.isMaxStatesReached() ? "Gave up searching" : "The marking is not reachable";
+            JOptionPane.showMessageDialog(null,
+                    reason + " after exploring " + search.getStatesExplored() + " states");
+            return;
+        }
+        PetriNet petriNet = petriNetController.getPetriNet();
+        List<Transition> transitions = new ArrayList<>();
+        try {
+            for (String id : sequence) {
+                transitions.add(petriNet.getComponent(id, Transition.class));
+            }
+        } catch (PetriNetComponentNotFoundException e) {
+            GuiUtils.displayErrorMessage(null, "The Petri net changed during the search: " + e.getMessage());
+            return;
+        }
+        if (!petriNetController.isInAnimationMode()) {
+            return;
+        }
+        GUIAnimator animator = petriNetController.getAnimator();
+        animator.loadStepsForward(transitions);
+        JOptionPane.showMessageDialog(null,
+                "Found a sequence of " + transitions.size() + " transitions after exploring " +
+                        search.getStatesExplored() + " states, step forward to replay it");
+    }
+}
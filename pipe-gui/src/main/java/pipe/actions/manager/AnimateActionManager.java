@@ -36,6 +36,11 @@ public final class AnimateActionManager implements ActionManager {
      * Fires multiple random transitions
      */
     private final AnimateAction multipleRandomAction;
+
+    /**
+     * Searches for a firing sequence reaching a marking
+     */
+    private final AnimateAction findMarkingAction;
     
     private final PropertyChangeListener listener;
     
@@ -57,6 +62,8 @@ public final class AnimateActionManager implements ActionManager {
                 new RandomAnimateAction("Random", "Randomly fire a transition", "5", applicationController, stepforwardAction, stepbackwardAction);
         multipleRandomAction = new MultiRandomAnimateAction("Animate", "Randomly fire a number of transitions", "7", stepbackwardAction,
                 applicationController);
+        findMarkingAction = new FindMarkingAction("Find marking", "Find a firing sequence reaching a marking", "8",
+                applicationController);
         listener = new PropertyChangeListener() {
         	@Override
         	public void propertyChange(PropertyChangeEvent evt) {
@@ -73,7 +80,7 @@ public final class AnimateActionManager implements ActionManager {
      */
     @Override
     public Iterable<GuiAction> getActions() {
-        return Arrays.asList(toggleAnimationAction, stepbackwardAction, stepforwardAction, randomAction, multipleRandomAction);
+        return Arrays.asList(toggleAnimationAction, stepbackwardAction, stepforwardAction, randomAction, multipleRandomAction, findMarkingAction);
     }
 
     /**
@@ -83,6 +90,7 @@ public final class AnimateActionManager implements ActionManager {
     public void enableActions() {
         randomAction.setEnabled(true);
         multipleRandomAction.setEnabled(true);
+        findMarkingAction.setEnabled(true);
         stepbackwardAction.setEnabled(false);
         stepforwardAction.setEnabled(false);
 
@@ -110,6 +118,6 @@ public final class AnimateActionManager implements ActionManager {
     }
 
     public Iterable<GuiAction> getAnimateActions() {
-        return Arrays.asList(stepbackwardAction, stepforwardAction, randomAction, multipleRandomAction);
+        return Arrays.asList(stepbackwardAction, stepforwardAction, randomAction, multipleRandomAction, findMarkingAction);
     }
 }
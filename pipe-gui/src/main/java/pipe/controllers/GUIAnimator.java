@@ -14,6 +14,7 @@ import java.awt.event.ActionListener;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import java.beans.PropertyChangeEvent;
@@ -62,6 +63,11 @@ public class GUIAnimator {
      * Message to be used with changeSupport when transition is fired
      */
     public static final String EVENT_TRANSITION_FIRED = "transition fired";
+
+    /**
+     * Message to be used with changeSupport when a firing sequence is loaded to step forward through
+     */
+    public static final String EVENT_STEPS_LOADED = "steps loaded";
     
     /**
      * Constructor
@@ -224,6 +230,17 @@ public class GUIAnimator {
         }
     }
 
+    /**
+     * Loads a firing sequence from the current marking into the animation history,
+     * replacing any steps forward, so that it can be replayed with {@link #stepForward()}
+     *
+     * @param transitions transitions to fire in order
+     */
+    public void loadStepsForward(List<Transition> transitions) {
+        animationHistory.setStepsForward(transitions);
+        changeSupport.firePropertyChange(EVENT_STEPS_LOADED, null, transitions);
+    }
+
     /**
      *
      * @return true if a step forward can happen in the animation history
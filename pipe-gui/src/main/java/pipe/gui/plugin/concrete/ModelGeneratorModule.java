@@ -0,0 +1,38 @@
+package pipe.gui.plugin.concrete;
+
+import pipe.gui.generator.ModelGeneratorForm;
+import pipe.gui.plugin.GuiModifyModule;
+import uk.ac.imperial.pipe.models.petrinet.PetriNet;
+
+import javax.swing.*;
+import java.awt.FileDialog;
+import java.beans.PropertyChangeSupport;
+
+public class ModelGeneratorModule implements GuiModifyModule {
+    /**
+     * Starts the Model Generator Module, generated nets are opened in PIPE through the change support
+     * @param petriNet current Petri net, unused since models are generated from scratch
+     * @param changeSupport used to open generated nets in PIPE
+     */
+    @Override
+    public void start(PetriNet petriNet, PropertyChangeSupport changeSupport) {
+        JFrame frame = new JFrame("Model Generator");
+        FileDialog selector = new FileDialog(frame, "Save generated Petri net", FileDialog.SAVE);
+
+        ModelGeneratorForm generator = new ModelGeneratorForm(changeSupport, selector);
+
+        frame.setContentPane(generator.getMainPanel());
+        frame.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        frame.pack();
+        frame.setVisible(true);
+    }
+
+    /**
+     *
+     * @return Model Generator
+     */
+    @Override
+    public String getName() {
+        return "Model Generator";
+    }
+}
@@ -35,6 +35,13 @@ public interface AnimationHistory {
      */
     void clearStepsForward();
 
+    /**
+     * Replaces all steps past the current step with the given transitions, so that
+     * they are fired in order by stepping forward
+     * @param transitions transitions to step forward through
+     */
+    void setStepsForward(List<Transition> transitions);
+
     /**
      *
      * @return a list of transitions fired
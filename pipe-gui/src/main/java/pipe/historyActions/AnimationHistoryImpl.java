@@ -80,6 +80,18 @@ public final class AnimationHistoryImpl extends Observable implements AnimationH
         }
     }
 
+    /**
+     * Replaces all steps past the current step with the given transitions,
+     * leaving the current position unchanged
+     * @param transitions transitions to step forward through
+     */
+    @Override
+    public void setStepsForward(List<Transition> transitions) {
+        clearStepsForward();
+        firingSequence.addAll(transitions);
+        flagChanged();
+    }
+
     /**
      *
      * @return list of transitions in the firing sequence
@@ -12,6 +12,11 @@ import pipe.historyActions.AnimationHistory;
 import uk.ac.imperial.pipe.animation.Animator;
 import uk.ac.imperial.pipe.models.petrinet.Transition;
 
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.Arrays;
+import java.util.List;
+
 import static org.mockito.Mockito.*;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -108,6 +113,22 @@ public class GUIAnimatorTest {
         verify(mockAnimator).fireTransition(transition);
     }
 
+    @Test
+    public void loadingStepsForwardSetsHistory() {
+        List<Transition> transitions = Arrays.asList(mock(Transition.class), mock(Transition.class));
+        animator.loadStepsForward(transitions);
+        verify(mockHistory).setStepsForward(transitions);
+        verify(mockAnimator, never()).fireTransition(any(Transition.class));
+    }
+
+    @Test
+    public void loadingStepsForwardNotifiesListeners() {
+        PropertyChangeListener listener = mock(PropertyChangeListener.class);
+        animator.addPropertyChangeListener(listener);
+        animator.loadStepsForward(Arrays.asList(mock(Transition.class)));
+        verify(listener).propertyChange(any(PropertyChangeEvent.class));
+    }
+
     @Test
     public void restoresOriginalTokensWhenFinished() {
         animator.startAnimation();
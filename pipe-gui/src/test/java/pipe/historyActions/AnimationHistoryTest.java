@@ -6,6 +6,7 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import uk.ac.imperial.pipe.models.petrinet.Transition;
 
+import java.util.Arrays;
 import java.util.Observable;
 import java.util.Observer;
 
@@ -140,6 +141,30 @@ public class AnimationHistoryTest {
         assertEquals(2, history.getFiringSequence().size());
     }
 
+    @Test
+    public void setStepsForwardReplacesFutureStepsWithoutMoving() {
+        Transition transition1 = mock(Transition.class);
+        Transition transition2 = mock(Transition.class);
+        Transition transition3 = mock(Transition.class);
+
+        history.addHistoryItem(transition1);
+        history.addHistoryItem(transition2);
+        history.stepBackwards();
+        history.setStepsForward(Arrays.asList(transition3, transition2));
+
+        assertEquals(0, history.getCurrentPosition());
+        assertEquals(Arrays.asList(transition1, transition3, transition2), history.getFiringSequence());
+        assertTrue(history.isStepForwardAllowed());
+    }
+
+    @Test
+    public void settingStepsForwardNotifiesObserver() {
+        Transition transition = mock(Transition.class);
+        history.addObserver(observer);
+        history.setStepsForward(Arrays.asList(transition));
+        verify(observer).update(any(Observable.class), any(Object.class));
+    }
+
     @Test
     public void getTransitionReturnsCorrectTransition() {
         Transition transition1 = mock(Transition.class);
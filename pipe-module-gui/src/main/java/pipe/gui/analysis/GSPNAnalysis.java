@@ -1,27 +1,44 @@
 package pipe.gui.analysis;
 
 import org.rendersnake.HtmlCanvas;
+import pipe.gui.executor.AnalysisExecutor;
+import pipe.gui.executor.AnalysisJob;
+import pipe.gui.io.AnalysisResultsIO;
+import pipe.gui.io.ResultStore;
+import pipe.gui.solver.ConvergenceTelemetry;
+import pipe.gui.solver.MonitoredSolver;
+import pipe.gui.solver.SteadyStateSolvers;
+import pipe.gui.solver.SteadyStateVectors;
+import pipe.gui.statespace.CompactStateSpace;
+import pipe.gui.statespace.ExplorationCancelledException;
+import pipe.gui.statespace.ExplorationProgress;
+import pipe.gui.statespace.NetSymmetry;
+import pipe.gui.statespace.PetriNetHash;
+import pipe.gui.statespace.SymmetricExplorerUtilities;
 import pipe.gui.widget.GenerateResultsForm;
 import pipe.gui.widget.HTMLPane;
+import pipe.gui.widget.MetricTableModel;
+import pipe.gui.widget.ResultTable;
+import pipe.gui.widget.StateTableModel;
 import pipe.gui.widget.StateSpaceLoader;
 import pipe.gui.widget.StateSpaceLoaderException;
+import pipe.gui.widget.VirtualTableModel;
 import pipe.reachability.algorithm.*;
-import pipe.steadystate.algorithm.ParallelGaussSeidel;
-import pipe.steadystate.algorithm.SteadyStateSolver;
-import pipe.steadystate.metrics.TokenMetrics;
 import pipe.steadystate.metrics.TransitionMetrics;
-import uk.ac.imperial.pipe.exceptions.InvalidRateException;
 import uk.ac.imperial.pipe.models.petrinet.PetriNet;
 import uk.ac.imperial.state.ClassifiedState;
-import uk.ac.imperial.state.Record;
 
 import javax.swing.*;
 import java.awt.FileDialog;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import static org.rendersnake.HtmlAttributesFactory.class_;
 import static org.rendersnake.HtmlAttributesFactory.type;
@@ -31,6 +48,10 @@ import static org.rendersnake.HtmlAttributesFactory.type;
  * Displays useful performance analysis metrics
  */
 public class GSPNAnalysis {
+    /**
+     * Class logger
+     */
+    private static final Logger LOGGER = Logger.getLogger(GSPNAnalysis.class.getName());
 
     public static final String HTML_STYLE = "body{font-family:Arial,Helvetica,sans-serif;text-align:center;" +
             "background:#ffffff}" +
@@ -43,15 +64,55 @@ public class GSPNAnalysis {
             "td.empty{background:#ffffff}";
 
     /**
-     * If the state space is larger than this then we cannot display the results as tables.
+     * Description of the default steady state solver, combined with the state space key to store its results
+     */
+    private static final String SOLVER_OPTIONS = "parallel-gauss-seidel";
+
+    /**
+     * Most residuals shown from the convergence history of a solve
+     */
+    private static final int MAX_DISPLAY_RESIDUALS = 20;
+
+    /**
+     * Name of the steady state distribution in the result store
+     */
+    private static final String STEADY_STATE = "steady-state.bin";
+
+    /**
+     * Name of the average token counts in the result store
+     */
+    private static final String AVERAGE_TOKENS = "average-tokens.bin";
+
+    /**
+     * Name of the transition throughputs in the result store
      */
-    private static final int MAX_DISPLAY_STATES = 200;
+    private static final String THROUGHPUTS = "throughputs.bin";
+
+    /**
+     * Title of the table of states
+     */
+    private static final String STATES_TITLE = "States";
+
+    /**
+     * Title of the table of average token counts
+     */
+    private static final String AVERAGE_TOKENS_TITLE = "Average tokens";
+
+    /**
+     * Title of the table of transition throughputs
+     */
+    private static final String THROUGHPUTS_TITLE = "Throughputs";
 
     /**
      * Results HTML pane for displaying info
      */
     HTMLPane resultsPane = new HTMLPane();
 
+    /**
+     * Tabs holding the results pane and a table for each result
+     */
+    private final JTabbedPane resultsTabs = new JTabbedPane();
+
     private JLabel textResultsLabel;
 
     private JButton goButton;
@@ -67,8 +128,28 @@ public class GSPNAnalysis {
 
     private JPanel generatePanel;
 
+    /**
+     * Explores one marking of each set of markings equivalent under the symmetries of the net
+     */
+    private JCheckBox symmetryCheckBox;
+
+    /**
+     * Declared groups of interchangeable places, replicated components are detected if empty
+     */
+    private JTextField symmetryField;
+
+    /**
+     * Steady state solver to use, from the registered solvers
+     */
+    private JComboBox<String> solverComboBox;
+
     private StateSpaceLoader stateSpaceLoader;
 
+    /**
+     * Number of threads and generate button, displays the progress of the analysis
+     */
+    private GenerateResultsForm generateResultsForm;
+
     public GSPNAnalysis(FileDialog fileDialog) {
         stateSpaceLoader = new StateSpaceLoader(fileDialog);
         setUp();
@@ -80,190 +161,349 @@ public class GSPNAnalysis {
     private void setUp() {
 
         loadPanel.add(stateSpaceLoader.getMainPanel(), 0);
-        resultsPanel.add(resultsPane);
-        GenerateResultsForm generateResultsForm = new GenerateResultsForm(new GenerateResultsForm.GoAction() {
+        resultsTabs.addTab("Summary", resultsPane);
+        resultsPanel.add(resultsTabs);
+        generateResultsForm = new GenerateResultsForm(new GenerateResultsForm.GoAction() {
             @Override
             public void go(int threads) {
                 showSteadyState(threads);
             }
         });
         generatePanel.add(generateResultsForm.getPanel());
+        List<String> solvers = SteadyStateSolvers.getNames();
+        solverComboBox.setModel(new DefaultComboBoxModel<>(solvers.toArray(new String[solvers.size()])));
+        solverComboBox.setSelectedItem(SteadyStateSolvers.DEFAULT);
     }
 
     /**
-     * Loads the steady state and if the number of states is < MAX_DISPLAY_STATES we display steady state information
+     * Loads the steady state and displays the steady state information.
+     * Exploration and solving run in the background so that the GUI stays responsive and can cancel them.
      */
-    private void showSteadyState(int threads) {
+    private void showSteadyState(final int threads) {
+        final NetSymmetry symmetry;
         try {
-            StateSpaceExplorer.StateSpaceExplorerResults results =
-                    stateSpaceLoader.calculateResults(new StateSpaceLoader.ExplorerCreator() {
-                                                          @Override
-                                                          public ExplorerUtilities create(PetriNet petriNet) {
-                                                              return new BoundedExplorerUtilities(petriNet, 1000000);
-                                                          }
-                                                      }, new StateSpaceLoader.VanishingExplorerCreator() {
-                                                          @Override
-                                                          public VanishingExplorer create(ExplorerUtilities utils) {
-                                                              return new OnTheFlyVanishingExplorer(utils);
-                                                          }
-                                                      }, threads
-                    );
-            displayResultsOnCanvas(results);
-        } catch (IOException | InterruptedException | ExecutionException | InvalidRateException | TimelessTrapException e) {
-            e.printStackTrace();
-        } catch (StateSpaceLoaderException e) {
-            JOptionPane.showMessageDialog(mainPanel, e.getMessage(), "GSPN Analysis Error", JOptionPane.ERROR_MESSAGE);
+            symmetry = getSymmetry();
+        } catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(mainPanel, e.getMessage(), "Invalid symmetry", JOptionPane.ERROR_MESSAGE);
+            return;
         }
+        final String solver = (String) solverComboBox.getSelectedItem();
+        final StateSpaceLoader.Options loadOptions = stateSpaceLoader.getOptions();
+        final ExplorationProgress progress = new ExplorationProgress();
+        stateSpaceLoader.setBatchSize(generateResultsForm.getBatchSize());
+        stateSpaceLoader.setSpillToDisk(generateResultsForm.isSpillToDisk());
+        SwingWorker<AnalysisResults, Void> worker = new SwingWorker<AnalysisResults, Void>() {
+            @Override
+            protected AnalysisResults doInBackground() throws Exception {
+                StateSpaceExplorer.StateSpaceExplorerResults results =
+                        stateSpaceLoader.calculateResults(loadOptions, new StateSpaceLoader.ExplorerCreator() {
+                                                              @Override
+                                                              public ExplorerUtilities create(PetriNet petriNet) {
+                                                                  ExplorerUtilities utilities =
+                                                                          new BoundedExplorerUtilities(petriNet, 1000000);
+                                                                  if (symmetry == null) {
+                                                                      return utilities;
+                                                                  }
+                                                                  return new SymmetricExplorerUtilities(utilities, symmetry);
+                                                              }
+                                                          }, new StateSpaceLoader.VanishingExplorerCreator() {
+                                                              @Override
+                                                              public VanishingExplorer create(ExplorerUtilities utils) {
+                                                                  return new OnTheFlyVanishingExplorer(utils);
+                                                              }
+                                                          }, threads, progress, "bounded-1000000/on-the-fly-vanishing" +
+                                (symmetry == null ? "" : "/symmetry-" + symmetry)
+                        );
+                return buildResults(results, loadOptions, progress, symmetry, threads, solver);
+            }
+
+            @Override
+            protected void done() {
+                displayResults(this);
+            }
+        };
+        generateResultsForm.monitor(progress, worker);
+        worker.execute();
     }
 
+    /**
+     * @return symmetries to reduce the state space by, null if it is explored in full
+     * @throws IllegalArgumentException if the declared symmetries are not symmetries of the net
+     */
+    private NetSymmetry getSymmetry() {
+        PetriNet petriNet = stateSpaceLoader.getPetriNet();
+        if (!symmetryCheckBox.isSelected() || stateSpaceLoader.isBinaryLoadChecked() || petriNet == null) {
+            return null;
+        }
+        String declaration = symmetryField.getText().trim();
+        NetSymmetry symmetry = declaration.isEmpty() ? NetSymmetry.detect(petriNet) :
+                NetSymmetry.declare(petriNet, declaration);
+        return symmetry.isEmpty() ? null : symmetry;
+    }
 
-    private void displayResultsOnCanvas(StateSpaceExplorer.StateSpaceExplorerResults results)
+    /**
+     * Displays the results of a finished analysis, called on the event dispatch thread
+     *
+     * @param worker finished analysis containing the results
+     */
+    private void displayResults(SwingWorker<AnalysisResults, Void> worker) {
+        if (worker.isCancelled()) {
+            return;
+        }
+        try {
+            AnalysisResults results = worker.get();
+            resultsPane.setText(results.html);
+            while (resultsTabs.getTabCount() > 1) {
+                resultsTabs.removeTabAt(1);
+            }
+            for (Map.Entry<String, VirtualTableModel> table : results.tables.entrySet()) {
+                resultsTabs.addTab(table.getKey(), new ResultTable(table.getValue()));
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof StateSpaceLoaderException) {
+                JOptionPane.showMessageDialog(mainPanel, cause.getMessage(), "GSPN Analysis Error",
+                        JOptionPane.ERROR_MESSAGE);
+            } else if (!(cause instanceof ExplorationCancelledException)) {
+                LOGGER.log(Level.SEVERE, "Could not analyse the state space", cause);
+                JOptionPane.showMessageDialog(mainPanel, "Could not analyse the state space: " + cause.getMessage(),
+                        "GSPN Analysis Error", JOptionPane.ERROR_MESSAGE);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.log(Level.FINE, "Interrupted whilst reading the analysis results", e);
+        }
+    }
+
+
+    /**
+     * @param results     state space exploration results
+     * @param loadOptions load options the state space was explored with
+     * @param progress    progress of the finished exploration
+     * @param symmetry    symmetries the state space was reduced by, null if it was explored in full
+     * @param threads     number of threads to solve the steady state with
+     * @param solver      name of the steady state solver
+     * @return HTML summary of the state space and solver, and tables of the states and steady state metrics
+     */
+    private AnalysisResults buildResults(StateSpaceExplorer.StateSpaceExplorerResults results,
+                                         StateSpaceLoader.Options loadOptions, ExplorationProgress progress,
+                                         NetSymmetry symmetry, int threads, String solver)
             throws IOException, StateSpaceLoaderException {
         HtmlCanvas html = new HtmlCanvas();
+        Map<String, VirtualTableModel> tables = new LinkedHashMap<>();
         html.html().head();
         html.style(type("text/css").media("screen")).content(HTML_STYLE);
         html._head();
         html.body();
-        if (results.numberOfStates < MAX_DISPLAY_STATES) {
-            StateSpaceLoader.Results stateSpace = stateSpaceLoader.loadStateSpace();
-            solveSteadyState(stateSpace.records, stateSpace.stateMappings, html);
-        } else {
-            html.write("State space is too large to show tabular results");
+        html.write("Number of states: " + results.numberOfStates);
+        html.br();
+        html.write("Number of transitions: " + results.processedTransitions);
+        html.br();
+        StateSpaceLoader.Results stateSpace = stateSpaceLoader.loadStateSpace();
+        solveSteadyState(stateSpace.stateSpace, stateSpace.stateMappings, stateSpaceLoader.getPetriNet(loadOptions),
+                symmetry, threads, solver, html, tables);
+        if (symmetry != null) {
             html.br();
-            html.write("Number of states: " + results.numberOfStates);
+            html.write("States are canonical markings under the symmetries " + symmetry);
+        }
+        if (!progress.getBatchSummary().isEmpty()) {
             html.br();
-            html.write("Number of transitions: " + results.processedTransitions);
+            html.write("Parallel exploration " + progress.getBatchSummary());
+        }
+        if (!progress.getWriterSummary().isEmpty()) {
+            html.br();
+            html.write("Binary " + progress.getWriterSummary());
         }
         html._body()._html();
-        resultsPane.setText(html.toHtml());
+        return new AnalysisResults(html.toHtml(), tables);
     }
 
     /**
-     * Solves the steady state and adds the results to the html canvas
+     * Solves the steady state, adding how it was solved to the html canvas and the states and
+     * metrics to the result tables. If the state space was
+     * explored from a Petri net the results are read from, or kept in, the persistent result store.
      *
-     * @param records       records
+     * @param stateSpace    transitions between states
      * @param stateMappings state mappings
+     * @param petriNet      Petri net of the state space, null if the throughputs cannot be computed
+     * @param symmetry      symmetries the state space was reduced by, whose orbits the metrics are averaged
+     *                      over, null if it was explored in full
+     * @param threads       number of threads to solve with
+     * @param solver        name of the steady state solver
      * @param html          html canvas
+     * @param tables        result tables keyed by their title, in the order they are shown
+     * @throws IOException if the steady state could not be solved or read, in which case no results are shown
      */
-    private void solveSteadyState(Collection<Record> records, Map<Integer, ClassifiedState> stateMappings,
-                                  HtmlCanvas html) {
-
-        ExecutorService executorService = Executors.newFixedThreadPool(8);
-
-        try {
-            displayStates(html, stateMappings);
-            SteadyStateSolver steadyStateSolver = new ParallelGaussSeidel(8, executorService, 10);
-            Map<Integer, Double> steadyState = steadyStateSolver.solve(new ArrayList<>(records));
+    private void solveSteadyState(CompactStateSpace stateSpace, Map<Integer, ClassifiedState> stateMappings,
+                                  final PetriNet petriNet, NetSymmetry symmetry, int threads, String solver,
+                                  HtmlCanvas html, Map<String, VirtualTableModel> tables) throws IOException {
+        String key = stateSpaceLoader.getResultKey() == null ? null :
+                PetriNetHash.derive(stateSpaceLoader.getResultKey(), getSolverOptions(solver));
+        ResultStore.StoredResult stored = key == null ? null : ResultStore.getInstance().get(key);
+        if (stored != null && stored.getFile(STEADY_STATE) != null) {
+            html.write("Steady state read from the result store");
+            html.br();
+            double[] steadyState =
+                    SteadyStateVectors.fromMap(AnalysisResultsIO.readSteadyState(stored.getFile(STEADY_STATE)));
+            tables.put(STATES_TITLE, new StateTableModel(stateMappings, stateSpace.getStateCount(),
+                    Arrays.copyOf(steadyState, stateSpace.getStateCount())));
+            tables.put(AVERAGE_TOKENS_TITLE, MetricTableModel.averageTokens(
+                    AnalysisResultsIO.readNestedMetrics(stored.getFile(AVERAGE_TOKENS))));
+            if (stored.getFile(THROUGHPUTS) != null) {
+                tables.put(THROUGHPUTS_TITLE,
+                        MetricTableModel.throughputs(AnalysisResultsIO.readMetrics(stored.getFile(THROUGHPUTS))));
+            }
+            return;
+        }
 
-            displaySteadyState(html, steadyState);
-            displayMetrics(html, steadyState, stateMappings);
-        } catch (IOException e) {
-            e.printStackTrace();
-        } finally {
-            executorService.shutdownNow();
+        final double[] steadyState = solve(stateSpace, threads, solver, html);
+        tables.put(STATES_TITLE, new StateTableModel(stateMappings, stateSpace.getStateCount(), steadyState));
+        final Map<Integer, ClassifiedState> states = stateMappings;
+        AnalysisJob metricsJob = AnalysisExecutor.getInstance().newJob("Steady state metrics", 2);
+        Future<Map<String, Map<String, Double>>> tokensFuture =
+                metricsJob.submit(new Callable<Map<String, Map<String, Double>>>() {
+                    @Override
+                    public Map<String, Map<String, Double>> call() {
+                        return SteadyStateVectors.averageTokensOnPlace(states, steadyState);
+                    }
+                });
+        Future<Map<String, Double>> throughputsFuture = petriNet == null ? null :
+                metricsJob.submit(new Callable<Map<String, Double>>() {
+                    @Override
+                    public Map<String, Double> call() {
+                        return TransitionMetrics.getTransitionThroughput(states,
+                                SteadyStateVectors.asMap(steadyState), petriNet);
+                    }
+                });
+        metricsJob.shutdown();
+        Map<String, Map<String, Double>> averageTokens = await(tokensFuture);
+        if (symmetry != null) {
+            averageTokens = symmetry.averageTokens(averageTokens);
+        }
+        tables.put(AVERAGE_TOKENS_TITLE, MetricTableModel.averageTokens(averageTokens));
+        Map<String, Double> throughputs = null;
+        if (throughputsFuture != null) {
+            throughputs = await(throughputsFuture);
+            if (symmetry != null) {
+                throughputs = symmetry.averageThroughputs(throughputs);
+            }
+            tables.put(THROUGHPUTS_TITLE, MetricTableModel.throughputs(throughputs));
+        }
+        if (key != null) {
+            storeResults(key, steadyState, averageTokens, throughputs);
         }
     }
 
     /**
-     * Displays the state mappings for each token
+     * Waits for a metric computed on the analysis pool
      *
-     * @param html          html canvas
-     * @param stateMappings state mappings
+     * @param future metric being computed
+     * @return the metric
      */
-    private void displayStates(HtmlCanvas html, Map<Integer, ClassifiedState> stateMappings) throws IOException {
-        Collection<String> tokens = getTokens(stateMappings.values());
-        for (String token : tokens) {
-            buildTokenTable(html, stateMappings, token);
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted whilst computing metrics", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to compute metrics", e.getCause());
         }
     }
 
     /**
-     * Displays the steady state information in a table
-     *
-     * @param html          html canvas
-     * @param steadyState   steady state
+     * @param solver name of the steady state solver
+     * @return description of the solver, combined with the state space key to store its results
      */
-    private void displaySteadyState(HtmlCanvas html, Map<Integer, Double> steadyState) throws IOException {
-        List<TableRow> rows = new LinkedList<>();
-        for (Map.Entry<Integer, Double> entry : steadyState.entrySet()) {
-            rows.add(new TableRow(entry.getKey().toString(), doubleToString(entry.getValue())));
+    static String getSolverOptions(String solver) {
+        if (SteadyStateSolvers.DEFAULT.equals(solver)) {
+            return SOLVER_OPTIONS;
         }
-        addTable(html, rows, Arrays.asList("State", "Distribution"), "Steady state distribution");
+        return solver.toLowerCase().replaceAll("[^a-z0-9]+", "-");
     }
 
     /**
-     * Display Performance analysis metrics for the steady state
-     * 
-     * Displays:
-     * - the average number of tokens on each place
-     * - the average transition  throughput if loaded from a Petri net
+     * Solves the steady state and displays how the solver converged
      *
-     * @param html          html canvas
-     * @param steadyState   steady state
-     * @param stateMappings state mappings
+     * @param stateSpace transitions between states
+     * @param threads    number of threads to solve with
+     * @param solver     name of the steady state solver
+     * @param html       html canvas
+     * @return steady state probability of each state id
      */
-    private void displayMetrics(HtmlCanvas html, Map<Integer, Double> steadyState,
-                                Map<Integer, ClassifiedState> stateMappings) throws IOException {
-        Map<String, Map<String, Double>> averageTokens = TokenMetrics.averageTokensOnPlace(stateMappings, steadyState);
-        buildAverageMetrics(averageTokens, html);
-        if (!stateSpaceLoader.isBinaryLoadChecked()) {
-            PetriNet petriNet = stateSpaceLoader.getPetriNet();
-            Map<String, Double> throughputs =
-                    TransitionMetrics.getTransitionThroughput(stateMappings, steadyState, petriNet);
-            displayThroughputs(throughputs, html);
+    private double[] solve(CompactStateSpace stateSpace, int threads, String solver, HtmlCanvas html)
+            throws IOException {
+        AnalysisJob job = AnalysisExecutor.getInstance().newJob("Steady state solver", threads);
+        try {
+            MonitoredSolver steadyStateSolver = SteadyStateSolvers.create(solver, threads, job);
+            double[] steadyState = steadyStateSolver.solve(stateSpace);
+            displayTelemetry(html, steadyStateSolver.getTelemetry());
+            return steadyState;
+        } finally {
+            job.shutdownNow();
+            LOGGER.log(Level.INFO, job.toString());
         }
-
-
     }
 
     /**
-     * @param states      collection of states
-     * @return a sorted list of tokens contained within the states
+     * Displays the solver's iterations, time and residual history
+     *
+     * @param html      html canvas
+     * @param telemetry telemetry of the solve
      */
-    private Collection<String> getTokens(Collection<ClassifiedState> states) {
-        Collection<String> tokens = new ArrayList<>();
-        if (!states.isEmpty()) {
-            ClassifiedState state = states.iterator().next();
-            Collection<String> places = state.getPlaces();
-            if (!places.isEmpty()) {
-                String place = places.iterator().next();
-                tokens.addAll(state.getTokens(place).keySet());
-            }
+    private void displayTelemetry(HtmlCanvas html, ConvergenceTelemetry telemetry) throws IOException {
+        LOGGER.log(Level.INFO, telemetry.toString());
+        html.write(telemetry.toString());
+        html.br();
+        double[] residuals = telemetry.getResiduals();
+        if (residuals.length < 2) {
+            return;
+        }
+        int step = (residuals.length + MAX_DISPLAY_RESIDUALS - 1) / MAX_DISPLAY_RESIDUALS;
+        List<TableRow> rows = new LinkedList<>();
+        for (int iteration = 0; iteration < residuals.length; iteration += step) {
+            rows.add(new TableRow(Integer.toString(iteration), Double.toString(residuals[iteration])));
         }
-        return tokens;
+        if ((residuals.length - 1) % step != 0) {
+            int last = residuals.length - 1;
+            rows.add(new TableRow(Integer.toString(last), Double.toString(residuals[last])));
+        }
+        addTable(html, rows, Arrays.asList("Iteration", "Residual"), "Solver convergence");
     }
 
     /**
-     * @param html          html canvas
-     * @param stateMappings state mappings
-     * @param token         token
+     * Keeps the steady state and metrics in the result store so that analysing the same
+     * net again, even after a restart, does not need to solve it
+     *
+     * @param key           steady state key
+     * @param steadyState   steady state probability of each state id
+     * @param averageTokens average token counts on each place
+     * @param throughputs   transition throughputs, null if there is no Petri net to compute them from
      */
-    private void buildTokenTable(HtmlCanvas html, Map<Integer, ClassifiedState> stateMappings, String token)
-            throws IOException {
-        List<Integer> ids = new ArrayList<>(stateMappings.keySet());
-        Collections.sort(ids);
-        List<String> places = getPlaces(stateMappings);
-
-        List<TableRow> rows = new ArrayList<>();
-        for (Integer id : ids) {
-            ClassifiedState state = stateMappings.get(id);
-            TableRow row = new TableRow(id.toString());
-            for (String place : places) {
-                Integer count = state.getTokens(place).get(token);
-                row.addCell(count.toString());
+    private void storeResults(String key, double[] steadyState,
+                              Map<String, Map<String, Double>> averageTokens, Map<String, Double> throughputs) {
+        Map<String, Path> files = new HashMap<>();
+        try {
+            files.put(STEADY_STATE, Files.createTempFile("steady-state", ".tmp"));
+            AnalysisResultsIO.writeSteadyState(files.get(STEADY_STATE), steadyState);
+            files.put(AVERAGE_TOKENS, Files.createTempFile("average-tokens", ".tmp"));
+            AnalysisResultsIO.writeNestedMetrics(files.get(AVERAGE_TOKENS), averageTokens);
+            if (throughputs != null) {
+                files.put(THROUGHPUTS, Files.createTempFile("throughputs", ".tmp"));
+                AnalysisResultsIO.writeMetrics(files.get(THROUGHPUTS), throughputs);
+            }
+            ResultStore.getInstance().put(key, files, Collections.<String, String>emptyMap());
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not store steady state results", e);
+        } finally {
+            for (Path file : files.values()) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    LOGGER.log(Level.FINE, e.getMessage());
+                }
             }
-            rows.add(row);
         }
-        places.add(0, "State");
-        addTable(html, rows, places, "State markings for " + token + " token");
-    }
-
-    /**
-     * @param value
-     * @return string representation rounded to 3 decimal places
-     */
-    private String doubleToString(Double value) {
-        return String.format("%.3f", value);
     }
 
     /**
@@ -298,63 +538,6 @@ public class GSPNAnalysis {
         html._table();
     }
 
-    /**
-     * Creates and adds to the html canvas a table for each token colour
-     * containing the average number of tokens in the place
-     *
-     * @param averageTokens map of places to a map of tokens to their count
-     * @param html          html canvas
-     */
-    private void buildAverageMetrics(Map<String, Map<String, Double>> averageTokens, HtmlCanvas html)
-            throws IOException {
-        List<String> places = new ArrayList<>(averageTokens.keySet());
-        Collections.sort(places);
-        List<String> tokens = new ArrayList<>(averageTokens.get(places.get(0)).keySet());
-        Collections.sort(tokens);
-
-        List<TableRow> rows = new ArrayList<>();
-        for (String place : places) {
-            Map<String, Double> average = averageTokens.get(place);
-            TableRow row = new TableRow(place);
-            for (String token : tokens) {
-                Double count = average.get(token);
-                row.addCell(doubleToString(count));
-            }
-            rows.add(row);
-        }
-        tokens.add(0, "Place");
-        addTable(html, rows, tokens, "Average token counts");
-    }
-
-    /**
-     * Creates and displays a table for the given throughputs
-     *
-     * @param throughputs   map of transitions and their throughputs
-     * @param html          html canvas
-     */
-    private void displayThroughputs(Map<String, Double> throughputs, HtmlCanvas html) throws IOException {
-        List<String> transitions = new ArrayList<>(throughputs.keySet());
-        Collections.sort(transitions);
-
-        List<TableRow> rows = new ArrayList<>();
-        for (String transition : transitions) {
-            Double average = throughputs.get(transition);
-            rows.add(new TableRow(transition, doubleToString(average)));
-        }
-        addTable(html, rows, Arrays.asList("Transition", "Throughput"), "Average timed transition throughputs");
-    }
-
-    /**
-     * @param stateMappings state mappings
-     * @return a list of places in the state mappings
-     */
-    private List<String> getPlaces(Map<Integer, ClassifiedState> stateMappings) {
-        List<String> places = new ArrayList<>();
-        places.addAll(stateMappings.values().iterator().next().getPlaces());
-        Collections.sort(places);
-        return places;
-    }
-
     public GSPNAnalysis(PetriNet petriNet, FileDialog fileDialog) {
         stateSpaceLoader = new StateSpaceLoader(petriNet, fileDialog);
         setUp();
@@ -379,6 +562,30 @@ public class GSPNAnalysis {
         return mainPanel;
     }
 
+    /**
+     * Results of an analysis, built in the background and shown on the event dispatch thread
+     */
+    private static final class AnalysisResults {
+        /**
+         * HTML summary of the state space and how it was solved
+         */
+        private final String html;
+
+        /**
+         * Result tables keyed by their title, in the order they are shown
+         */
+        private final Map<String, VirtualTableModel> tables;
+
+        /**
+         * @param html   HTML summary of the state space and how it was solved
+         * @param tables result tables keyed by their title, in the order they are shown
+         */
+        private AnalysisResults(String html, Map<String, VirtualTableModel> tables) {
+            this.html = html;
+            this.tables = tables;
+        }
+    }
+
     /**
      * Useful class for creating fors for HTML tables displayed in the output
      */
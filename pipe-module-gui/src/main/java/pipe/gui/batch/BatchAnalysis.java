@@ -0,0 +1,359 @@
+package pipe.gui.batch;
+
+import pipe.gui.executor.AnalysisExecutor;
+import pipe.gui.executor.AnalysisJob;
+import pipe.gui.solver.MonitoredSolver;
+import pipe.gui.solver.SteadyStateSolvers;
+import pipe.gui.solver.SteadyStateVectors;
+import pipe.gui.statespace.ExplorationProgress;
+import pipe.gui.widget.StateSpaceLoader;
+import pipe.gui.widget.StateSpaceLoaderException;
+import pipe.reachability.algorithm.BoundedExplorerUtilities;
+import pipe.reachability.algorithm.ExplorerUtilities;
+import pipe.reachability.algorithm.OnTheFlyVanishingExplorer;
+import pipe.reachability.algorithm.StateSpaceExplorer;
+import pipe.reachability.algorithm.VanishingExplorer;
+import pipe.steadystate.metrics.TransitionMetrics;
+import uk.ac.imperial.pipe.io.PetriNetIOImpl;
+import uk.ac.imperial.pipe.io.PetriNetReader;
+import uk.ac.imperial.pipe.models.petrinet.PetriNet;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless entry point that explores and solves the steady state of many PNML models,
+ * streaming the results as CSV or JSON lines as each model finishes.
+ * <p>
+ * Models are explored with the same {@link StateSpaceLoader} path as the GSPN analysis module, so
+ * stored state spaces are shared between the two, and solved with any of the {@link SteadyStateSolvers},
+ * {@value SteadyStateSolvers#DEFAULT} unless another is chosen. Usage:
+ * </p>
+ * <pre>
+ * java -Djava.awt.headless=true pipe.gui.batch.BatchAnalysis [--threads n] [--jobs n] [--bound n]
+ *      [--solver name] [--format csv|json] [--output file] [--explore-only] [--no-cache] models...
+ * </pre>
+ * <p>
+ * Each model may be a PNML file, a directory whose .xml and .pnml files are analysed, or a glob
+ * such as {@code models/*.xml}. Solver names are matched ignoring case.
+ * </p>
+ */
+public final class BatchAnalysis {
+    /**
+     * Usage message printed for invalid arguments
+     */
+    private static final String USAGE = "Usage: BatchAnalysis [--threads n] [--jobs n] [--bound n] " +
+            "[--solver name] [--format csv|json] [--output file] [--explore-only] [--no-cache] models...\n" +
+            "Solvers: " + SteadyStateSolvers.getNames();
+
+    /**
+     * Worker threads used to explore and solve each model
+     */
+    private int threads = 1;
+
+    /**
+     * Number of models analysed concurrently
+     */
+    private int jobs = 1;
+
+    /**
+     * Approximate maximum number of states explored in each model
+     */
+    private int bound = 1000000;
+
+    /**
+     * Name of the steady state solver
+     */
+    private String solver = SteadyStateSolvers.DEFAULT;
+
+    /**
+     * Output format, csv or json
+     */
+    private String format = "csv";
+
+    /**
+     * Output file, null for stdout
+     */
+    private Path output;
+
+    /**
+     * If true only the state space is explored
+     */
+    private boolean exploreOnly;
+
+    /**
+     * If true the state space cache and result store are not used
+     */
+    private boolean noCache;
+
+    /**
+     * Models to analyse
+     */
+    private final List<Path> models = new ArrayList<>();
+
+    /**
+     * Private constructor, use {@link #main(String[])}
+     */
+    private BatchAnalysis() {
+    }
+
+    /**
+     * @param args command line arguments
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        System.setProperty("java.awt.headless", "true");
+        BatchAnalysis analysis = new BatchAnalysis();
+        try {
+            analysis.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        int failures = analysis.run();
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    /**
+     * Parses the command line arguments
+     *
+     * @param args command line arguments
+     */
+    private void parse(String[] args) throws IOException {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--threads":
+                    threads = positive(arg, value(args, ++i));
+                    break;
+                case "--jobs":
+                    jobs = positive(arg, value(args, ++i));
+                    break;
+                case "--bound":
+                    bound = positive(arg, value(args, ++i));
+                    break;
+                case "--solver":
+                    solver = solverName(value(args, ++i));
+                    break;
+                case "--format":
+                    format = value(args, ++i);
+                    if (!format.equals("csv") && !format.equals("json")) {
+                        throw new IllegalArgumentException("Unknown format " + format);
+                    }
+                    break;
+                case "--output":
+                    output = Paths.get(value(args, ++i));
+                    break;
+                case "--explore-only":
+                    exploreOnly = true;
+                    break;
+                case "--no-cache":
+                    noCache = true;
+                    break;
+                default:
+                    if (arg.startsWith("--")) {
+                        throw new IllegalArgumentException("Unknown option " + arg);
+                    }
+                    models.addAll(expand(arg));
+            }
+        }
+        if (models.isEmpty()) {
+            throw new IllegalArgumentException("No models to analyse");
+        }
+    }
+
+    /**
+     * @return value of the option at index i
+     */
+    private static String value(String[] args, int i) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[i - 1]);
+        }
+        return args[i];
+    }
+
+    /**
+     * @return value parsed as a positive integer
+     */
+    private static int positive(String option, String value) {
+        try {
+            int number = Integer.parseInt(value);
+            if (number > 0) {
+                return number;
+            }
+        } catch (NumberFormatException ignored) {
+            // reported below
+        }
+        throw new IllegalArgumentException(option + " must be a positive integer: " + value);
+    }
+
+    /**
+     * @param name solver name given on the command line
+     * @return name of the registered solver it matches, ignoring case
+     */
+    private static String solverName(String name) {
+        for (String registered : SteadyStateSolvers.getNames()) {
+            if (registered.equalsIgnoreCase(name)) {
+                return registered;
+            }
+        }
+        throw new IllegalArgumentException("Unknown solver " + name);
+    }
+
+    /**
+     * @param arg file, directory or glob
+     * @return models matching the argument in name order
+     */
+    private static List<Path> expand(String arg) throws IOException {
+        Path path = Paths.get(arg);
+        List<Path> matches = new ArrayList<>();
+        if (Files.isDirectory(path)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(path, "*.{xml,pnml}")) {
+                for (Path model : stream) {
+                    matches.add(model);
+                }
+            }
+        } else if (arg.indexOf('*') >= 0 || arg.indexOf('?') >= 0 || arg.indexOf('{') >= 0) {
+            Path parent = path.getParent() == null ? Paths.get(".") : path.getParent();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(parent, path.getFileName().toString())) {
+                for (Path model : stream) {
+                    matches.add(model);
+                }
+            }
+        } else {
+            matches.add(path);
+        }
+        Collections.sort(matches);
+        return matches;
+    }
+
+    /**
+     * Analyses every model, writing their results as they finish. Each model is coordinated on a
+     * thread of its own, since it waits for the exploration and solver tasks it submits to the
+     * shared analysis pool.
+     *
+     * @return number of models that could not be analysed
+     */
+    private int run() throws IOException, InterruptedException {
+        ExecutorService executorService = Executors.newFixedThreadPool(jobs);
+        CompletionService<ModelResult> completionService = new ExecutorCompletionService<>(executorService);
+        for (final Path model : models) {
+            completionService.submit(new Callable<ModelResult>() {
+                @Override
+                public ModelResult call() {
+                    return analyse(model);
+                }
+            });
+        }
+        int failures = 0;
+        try (ResultWriter writer = createWriter()) {
+            for (int i = 0; i < models.size(); i++) {
+                ModelResult result = completionService.take().get();
+                if (result.error != null) {
+                    failures++;
+                }
+                writer.write(result);
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Unexpected failure analysing model", e.getCause());
+        } finally {
+            executorService.shutdownNow();
+            executorService.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        return failures;
+    }
+
+    /**
+     * @return writer for the selected format and output
+     */
+    private ResultWriter createWriter() throws IOException {
+        Writer writer = output == null ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)) :
+                Files.newBufferedWriter(output, StandardCharsets.UTF_8);
+        return format.equals("json") ? new JsonResultWriter(writer) : new CsvResultWriter(writer);
+    }
+
+    /**
+     * Explores and solves a single model
+     *
+     * @param model PNML file
+     * @return results, or the reason the model could not be analysed
+     */
+    private ModelResult analyse(Path model) {
+        String name = model.toString();
+        try {
+            PetriNetReader reader = new PetriNetIOImpl();
+            PetriNet petriNet = reader.read(model.toAbsolutePath().toString());
+            StateSpaceLoader loader = new StateSpaceLoader(petriNet, null);
+
+            long start = System.nanoTime();
+            StateSpaceExplorer.StateSpaceExplorerResults results =
+                    loader.calculateResults(new StateSpaceLoader.ExplorerCreator() {
+                                                @Override
+                                                public ExplorerUtilities create(PetriNet petriNet) {
+                                                    return new BoundedExplorerUtilities(petriNet, bound);
+                                                }
+                                            }, new StateSpaceLoader.VanishingExplorerCreator() {
+                                                @Override
+                                                public VanishingExplorer create(ExplorerUtilities utils) {
+                                                    return new OnTheFlyVanishingExplorer(utils);
+                                                }
+                                            }, threads, new ExplorationProgress(),
+                            noCache ? null : "bounded-" + bound + "/on-the-fly-vanishing");
+            long exploreMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            if (exploreOnly) {
+                return new ModelResult(name, results.numberOfStates, results.processedTransitions, exploreMillis, 0,
+                        Collections.<Integer, Double>emptyMap(), Collections.<String, Map<String, Double>>emptyMap(),
+                        Collections.<String, Double>emptyMap());
+            }
+
+            start = System.nanoTime();
+            StateSpaceLoader.Results stateSpace = loader.loadStateSpace();
+            double[] steadyState = solve(stateSpace);
+            Map<String, Map<String, Double>> averageTokens =
+                    SteadyStateVectors.averageTokensOnPlace(stateSpace.stateMappings, steadyState);
+            Map<String, Double> throughputs = TransitionMetrics.getTransitionThroughput(stateSpace.stateMappings,
+                    SteadyStateVectors.asMap(steadyState), petriNet);
+            long solveMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            return new ModelResult(name, results.numberOfStates, results.processedTransitions, exploreMillis,
+                    solveMillis, SteadyStateVectors.asMap(steadyState), averageTokens, throughputs);
+        } catch (StateSpaceLoaderException e) {
+            return new ModelResult(name, e.getMessage());
+        } catch (Exception e) {
+            return new ModelResult(name, e.getClass().getSimpleName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Solves the steady state with the chosen solver, straight from the compact state space
+     *
+     * @param stateSpace explored state space
+     * @return steady state probability of each state id
+     */
+    private double[] solve(StateSpaceLoader.Results stateSpace) {
+        AnalysisJob job = AnalysisExecutor.getInstance().newJob("Steady state solver", threads);
+        try {
+            MonitoredSolver steadyStateSolver = SteadyStateSolvers.create(solver, threads, job);
+            return steadyStateSolver.solve(stateSpace.stateSpace);
+        } finally {
+            job.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package pipe.gui.batch;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * Writes results as CSV in long form, one metric per row, with the columns
+ * {@code model,metric,key,value} so that models of any size can be streamed
+ */
+public final class CsvResultWriter implements ResultWriter {
+    /**
+     * Output being written to
+     */
+    private final Writer writer;
+
+    /**
+     * Writes the header row
+     *
+     * @param writer output to write to
+     */
+    public CsvResultWriter(Writer writer) throws IOException {
+        this.writer = writer;
+        writer.write("model,metric,key,value\n");
+    }
+
+    @Override
+    public void write(ModelResult result) throws IOException {
+        if (result.error != null) {
+            row(result.model, "error", "", result.error);
+        } else {
+            row(result.model, "states", "", Integer.toString(result.states));
+            row(result.model, "transitions", "", Integer.toString(result.transitions));
+            row(result.model, "explore-ms", "", Long.toString(result.exploreMillis));
+            row(result.model, "solve-ms", "", Long.toString(result.solveMillis));
+            for (Map.Entry<Integer, Double> entry : result.steadyState.entrySet()) {
+                row(result.model, "steady-state", entry.getKey().toString(), entry.getValue().toString());
+            }
+            for (Map.Entry<String, Map<String, Double>> place : result.averageTokens.entrySet()) {
+                for (Map.Entry<String, Double> token : place.getValue().entrySet()) {
+                    row(result.model, "average-tokens", place.getKey() + "/" + token.getKey(),
+                            token.getValue().toString());
+                }
+            }
+            for (Map.Entry<String, Double> entry : result.throughputs.entrySet()) {
+                row(result.model, "throughput", entry.getKey(), entry.getValue().toString());
+            }
+        }
+        writer.flush();
+    }
+
+    /**
+     * Writes a single row
+     */
+    private void row(String model, String metric, String key, String value) throws IOException {
+        writer.write(escape(model));
+        writer.write(',');
+        writer.write(metric);
+        writer.write(',');
+        writer.write(escape(key));
+        writer.write(',');
+        writer.write(escape(value));
+        writer.write('\n');
+    }
+
+    /**
+     * @param value cell value
+     * @return value quoted if it contains a separator, quote or new line
+     */
+    private static String escape(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,103 @@
+package pipe.gui.batch;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Writes results as JSON lines, one object per model, so that they can be streamed
+ * and processed before the whole batch has finished
+ */
+public final class JsonResultWriter implements ResultWriter {
+    /**
+     * Output being written to
+     */
+    private final Writer writer;
+
+    /**
+     * @param writer output to write to
+     */
+    public JsonResultWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public void write(ModelResult result) throws IOException {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"model\":").append(string(result.model));
+        if (result.error != null) {
+            json.append(",\"error\":").append(string(result.error));
+        } else {
+            json.append(",\"states\":").append(result.states);
+            json.append(",\"transitions\":").append(result.transitions);
+            json.append(",\"exploreMillis\":").append(result.exploreMillis);
+            json.append(",\"solveMillis\":").append(result.solveMillis);
+            json.append(",\"steadyState\":");
+            appendMap(json, result.steadyState);
+            json.append(",\"averageTokens\":{");
+            Iterator<Map.Entry<String, Map<String, Double>>> places = result.averageTokens.entrySet().iterator();
+            while (places.hasNext()) {
+                Map.Entry<String, Map<String, Double>> place = places.next();
+                json.append(string(place.getKey())).append(':');
+                appendMap(json, place.getValue());
+                if (places.hasNext()) {
+                    json.append(',');
+                }
+            }
+            json.append("},\"throughputs\":");
+            appendMap(json, result.throughputs);
+        }
+        json.append("}\n");
+        writer.write(json.toString());
+        writer.flush();
+    }
+
+    /**
+     * Appends the map as a JSON object
+     */
+    private static void appendMap(StringBuilder json, Map<?, Double> values) {
+        json.append('{');
+        Iterator<? extends Map.Entry<?, Double>> iterator = values.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<?, Double> entry = iterator.next();
+            json.append(string(entry.getKey().toString())).append(':').append(number(entry.getValue()));
+            if (iterator.hasNext()) {
+                json.append(',');
+            }
+        }
+        json.append('}');
+    }
+
+    /**
+     * @param value number
+     * @return JSON number, or null since JSON cannot represent NaN and infinity
+     */
+    private static String number(Double value) {
+        return value.isNaN() || value.isInfinite() ? "null" : value.toString();
+    }
+
+    /**
+     * @param value text
+     * @return quoted and escaped JSON string
+     */
+    private static String string(String value) {
+        StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,96 @@
+package pipe.gui.batch;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Results of analysing a single model in a batch run
+ */
+public final class ModelResult {
+    /**
+     * Path of the analysed model
+     */
+    public final String model;
+
+    /**
+     * Reason the analysis failed, null if it succeeded
+     */
+    public final String error;
+
+    /**
+     * Number of states explored
+     */
+    public final int states;
+
+    /**
+     * Number of transitions explored
+     */
+    public final int transitions;
+
+    /**
+     * Time spent exploring the state space
+     */
+    public final long exploreMillis;
+
+    /**
+     * Time spent solving the steady state and its metrics
+     */
+    public final long solveMillis;
+
+    /**
+     * Steady state probability of each state id, empty if the steady state was not solved
+     */
+    public final Map<Integer, Double> steadyState;
+
+    /**
+     * Average count of each token on each place
+     */
+    public final Map<String, Map<String, Double>> averageTokens;
+
+    /**
+     * Throughput of each timed transition
+     */
+    public final Map<String, Double> throughputs;
+
+    /**
+     * @param model         path of the analysed model
+     * @param states        number of states explored
+     * @param transitions   number of transitions explored
+     * @param exploreMillis time spent exploring the state space
+     * @param solveMillis   time spent solving the steady state and its metrics
+     * @param steadyState   steady state probability of each state id
+     * @param averageTokens average count of each token on each place
+     * @param throughputs   throughput of each timed transition
+     */
+    public ModelResult(String model, int states, int transitions, long exploreMillis, long solveMillis,
+                       Map<Integer, Double> steadyState, Map<String, Map<String, Double>> averageTokens,
+                       Map<String, Double> throughputs) {
+        this.model = model;
+        this.error = null;
+        this.states = states;
+        this.transitions = transitions;
+        this.exploreMillis = exploreMillis;
+        this.solveMillis = solveMillis;
+        this.steadyState = steadyState;
+        this.averageTokens = averageTokens;
+        this.throughputs = throughputs;
+    }
+
+    /**
+     * Failed analysis
+     *
+     * @param model path of the model
+     * @param error reason the analysis failed
+     */
+    public ModelResult(String model, String error) {
+        this.model = model;
+        this.error = error;
+        this.states = 0;
+        this.transitions = 0;
+        this.exploreMillis = 0;
+        this.solveMillis = 0;
+        this.steadyState = Collections.emptyMap();
+        this.averageTokens = Collections.emptyMap();
+        this.throughputs = Collections.emptyMap();
+    }
+}
@@ -0,0 +1,16 @@
+package pipe.gui.batch;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Streams the results of a batch analysis as each model finishes
+ */
+public interface ResultWriter extends Closeable {
+    /**
+     * Writes the results of a single model. Called from a single thread at a time.
+     *
+     * @param result model results
+     */
+    void write(ModelResult result) throws IOException;
+}
@@ -0,0 +1,217 @@
+package pipe.gui.executor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.prefs.Preferences;
+
+/**
+ * Pool of threads shared by every analysis, so that explorations, solvers, metrics and layouts
+ * running at the same time share the machine's cores rather than each starting threads of their own.
+ * <p>
+ * Work is submitted through {@link AnalysisJob}s, each of which limits how many of its tasks run at
+ * once and measures the CPU time they use. Tasks must not wait for other tasks of the pool, the
+ * threads that coordinate a job and wait for its results belong to the caller.
+ * </p>
+ * The pool size defaults to the number of available cores. It can be set with the
+ * {@code pipe.analysis.threads} system property, or changed with {@link #setPoolSize(int)} which
+ * keeps it in the user's preferences.
+ */
+public final class AnalysisExecutor {
+    /**
+     * Class logger
+     */
+    private static final Logger LOGGER = Logger.getLogger(AnalysisExecutor.class.getName());
+
+    /**
+     * System property overriding the pool size
+     */
+    public static final String POOL_SIZE_PROPERTY = "pipe.analysis.threads";
+
+    /**
+     * Preference key holding the pool size
+     */
+    private static final String POOL_SIZE_PREFERENCE = "analysisThreads";
+
+    /**
+     * Executor shared between the modules
+     */
+    private static final AnalysisExecutor INSTANCE = new AnalysisExecutor(defaultPoolSize());
+
+    /**
+     * Threads running the tasks
+     */
+    private final ThreadPoolExecutor pool;
+
+    /**
+     * Jobs that have not terminated
+     */
+    private final List<AnalysisJob> jobs = new ArrayList<>();
+
+    /**
+     * @param poolSize number of threads running the tasks
+     */
+    public AnalysisExecutor(int poolSize) {
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("Analysis pool size must be positive: " + poolSize);
+        }
+        pool = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new AnalysisThreadFactory());
+        pool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @return executor shared between the modules
+     */
+    public static AnalysisExecutor getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return pool size from the system property, then the user's preferences, then the number of cores
+     */
+    private static int defaultPoolSize() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        Integer property = Integer.getInteger(POOL_SIZE_PROPERTY);
+        if (property != null && property > 0) {
+            return property;
+        }
+        try {
+            int preference = preferences().getInt(POOL_SIZE_PREFERENCE, cores);
+            return preference > 0 ? preference : cores;
+        } catch (SecurityException e) {
+            LOGGER.log(Level.FINE, "Could not read the analysis pool size preference", e);
+            return cores;
+        }
+    }
+
+    /**
+     * @return preferences node of the executor
+     */
+    private static Preferences preferences() {
+        return Preferences.userNodeForPackage(AnalysisExecutor.class);
+    }
+
+    /**
+     * Opens a job whose tasks run on the shared pool
+     *
+     * @param name        description of the job, shown in its statistics
+     * @param concurrency largest number of the job's tasks running at once
+     * @return job to submit tasks to, which should be shut down once all of its tasks are submitted
+     */
+    public AnalysisJob newJob(String name, int concurrency) {
+        AnalysisJob job = new AnalysisJob(this, name, concurrency);
+        synchronized (jobs) {
+            jobs.add(job);
+        }
+        return job;
+    }
+
+    /**
+     * Hands a task of a job to the pool
+     *
+     * @param task task to run
+     */
+    void dispatch(Runnable task) {
+        pool.execute(task);
+    }
+
+    /**
+     * Forgets a job once it has terminated
+     *
+     * @param job terminated job
+     */
+    void terminated(AnalysisJob job) {
+        synchronized (jobs) {
+            jobs.remove(job);
+        }
+        LOGGER.log(Level.FINE, "Finished {0}", job);
+    }
+
+    /**
+     * @return number of threads running tasks
+     */
+    public int getPoolSize() {
+        return pool.getMaximumPoolSize();
+    }
+
+    /**
+     * Resizes the pool and keeps the new size in the user's preferences
+     *
+     * @param poolSize number of threads running the tasks
+     */
+    public void setPoolSize(int poolSize) {
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("Analysis pool size must be positive: " + poolSize);
+        }
+        if (poolSize > pool.getMaximumPoolSize()) {
+            pool.setMaximumPoolSize(poolSize);
+            pool.setCorePoolSize(poolSize);
+        } else {
+            pool.setCorePoolSize(poolSize);
+            pool.setMaximumPoolSize(poolSize);
+        }
+        try {
+            preferences().putInt(POOL_SIZE_PREFERENCE, poolSize);
+        } catch (SecurityException e) {
+            LOGGER.log(Level.FINE, "Could not store the analysis pool size preference", e);
+        }
+    }
+
+    /**
+     * @return number of tasks waiting for a thread, including those held back by their job's concurrency limit
+     */
+    public int getQueueDepth() {
+        int depth = pool.getQueue().size();
+        for (AnalysisJob job : getActiveJobs()) {
+            depth += job.getPendingTasks();
+        }
+        return depth;
+    }
+
+    /**
+     * @return number of threads currently running a task
+     */
+    public int getActiveThreads() {
+        return pool.getActiveCount();
+    }
+
+    /**
+     * @return jobs that have not terminated, in the order they were opened
+     */
+    public List<AnalysisJob> getActiveJobs() {
+        synchronized (jobs) {
+            return Collections.unmodifiableList(new ArrayList<>(jobs));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "analysis pool " + getActiveThreads() + "/" + getPoolSize() + " busy, " + getQueueDepth() +
+                " tasks queued, " + getActiveJobs().size() + " jobs";
+    }
+
+    /**
+     * Creates daemon threads so that a running analysis does not keep the application alive
+     */
+    private static final class AnalysisThreadFactory implements ThreadFactory {
+        /**
+         * Number of the next thread
+         */
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "pipe-analysis-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
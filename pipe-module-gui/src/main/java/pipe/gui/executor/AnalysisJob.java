@@ -0,0 +1,300 @@
+package pipe.gui.executor;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Work of one analysis on the shared {@link AnalysisExecutor} pool, used wherever the analysis
+ * would otherwise create a thread pool of its own. At most the job's concurrency limit of its
+ * tasks run at once, the rest wait in the job until one of them finishes.
+ * <p>
+ * Shutting the job down stops it accepting tasks, and {@link #shutdownNow()} also drops its
+ * waiting tasks and interrupts its running ones. Dropped tasks that are futures, as those
+ * submitted to the job are, are cancelled. Neither affects the shared pool.
+ * </p>
+ */
+public final class AnalysisJob extends AbstractExecutorService {
+    /**
+     * Measures the CPU time of the tasks
+     */
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    /**
+     * Pool the tasks run on
+     */
+    private final AnalysisExecutor executor;
+
+    /**
+     * Description of the job
+     */
+    private final String name;
+
+    /**
+     * Largest number of tasks running at once
+     */
+    private final int concurrency;
+
+    /**
+     * Time the job was opened
+     */
+    private final long opened = System.nanoTime();
+
+    /**
+     * Tasks waiting for the number of running tasks to fall below the concurrency limit
+     */
+    private final Queue<Runnable> pending = new ArrayDeque<>();
+
+    /**
+     * Threads running the job's tasks
+     */
+    private final Set<Thread> running = new HashSet<>();
+
+    /**
+     * Tasks handed to the pool that have not finished
+     */
+    private int dispatched;
+
+    /**
+     * Tasks that have finished
+     */
+    private long completed;
+
+    /**
+     * CPU time used by the finished tasks
+     */
+    private long cpuNanos;
+
+    /**
+     * Time the job terminated, or 0 if it has not
+     */
+    private long terminated;
+
+    /**
+     * True once the job accepts no more tasks
+     */
+    private boolean shutdown;
+
+    /**
+     * True once the job has been shut down with {@link #shutdownNow()}
+     */
+    private boolean stopped;
+
+    /**
+     * @param executor    pool the tasks run on
+     * @param name        description of the job
+     * @param concurrency largest number of tasks running at once
+     */
+    AnalysisJob(AnalysisExecutor executor, String name, int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Job concurrency must be positive: " + concurrency);
+        }
+        this.executor = executor;
+        this.name = name;
+        this.concurrency = concurrency;
+    }
+
+    @Override
+    public synchronized void execute(Runnable task) {
+        if (shutdown) {
+            throw new RejectedExecutionException("Job " + name + " has been shut down");
+        }
+        pending.add(task);
+        dispatch();
+    }
+
+    /**
+     * Hands waiting tasks to the pool whilst the job is below its concurrency limit
+     */
+    private void dispatch() {
+        while (dispatched < concurrency && !pending.isEmpty()) {
+            final Runnable task = pending.remove();
+            dispatched++;
+            executor.dispatch(new Runnable() {
+                @Override
+                public void run() {
+                    runTask(task);
+                }
+            });
+        }
+    }
+
+    /**
+     * Runs a task on a pool thread, measuring its CPU time
+     *
+     * @param task task to run
+     */
+    private void runTask(Runnable task) {
+        Thread thread = Thread.currentThread();
+        synchronized (this) {
+            if (stopped) {
+                cancel(task);
+                finished(thread, 0);
+                return;
+            }
+            running.add(thread);
+        }
+        long start = cpuTime();
+        try {
+            task.run();
+        } finally {
+            long used = cpuTime() - start;
+            synchronized (this) {
+                finished(thread, used);
+            }
+        }
+    }
+
+    /**
+     * Cancels a task that will not be run, so that anyone waiting on its result is released
+     *
+     * @param task task dropped by {@link #shutdownNow()}
+     */
+    private static void cancel(Runnable task) {
+        if (task instanceof Future) {
+            ((Future<?>) task).cancel(false);
+        }
+    }
+
+    /**
+     * Records a finished task and dispatches the next, must hold the lock
+     *
+     * @param thread pool thread that ran the task
+     * @param used   CPU time used by the task
+     */
+    private void finished(Thread thread, long used) {
+        running.remove(thread);
+        dispatched--;
+        completed++;
+        cpuNanos += used;
+        dispatch();
+        checkTerminated();
+    }
+
+    /**
+     * Marks the job terminated once it is shut down with no tasks left, must hold the lock
+     */
+    private void checkTerminated() {
+        if (shutdown && terminated == 0 && dispatched == 0 && pending.isEmpty()) {
+            terminated = System.nanoTime();
+            notifyAll();
+            executor.terminated(this);
+        }
+    }
+
+    /**
+     * @return CPU time of the current thread, or 0 if it cannot be measured
+     */
+    private static long cpuTime() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : 0;
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        shutdown = true;
+        checkTerminated();
+    }
+
+    @Override
+    public synchronized List<Runnable> shutdownNow() {
+        shutdown = true;
+        stopped = true;
+        List<Runnable> dropped = new ArrayList<>(pending);
+        pending.clear();
+        for (Runnable task : dropped) {
+            cancel(task);
+        }
+        for (Thread thread : running) {
+            thread.interrupt();
+        }
+        checkTerminated();
+        return dropped;
+    }
+
+    @Override
+    public synchronized boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public synchronized boolean isTerminated() {
+        return terminated != 0;
+    }
+
+    @Override
+    public synchronized boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (terminated == 0) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+
+    /**
+     * @return description of the job
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return largest number of tasks running at once
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * @return number of tasks waiting for the job to fall below its concurrency limit
+     */
+    public synchronized int getPendingTasks() {
+        return pending.size();
+    }
+
+    /**
+     * @return number of tasks handed to the pool that have not finished, whether running or queued in the pool
+     */
+    public synchronized int getActiveTasks() {
+        return dispatched;
+    }
+
+    /**
+     * @return number of tasks that have finished
+     */
+    public synchronized long getCompletedTasks() {
+        return completed;
+    }
+
+    /**
+     * @return CPU time used by the finished tasks in milliseconds
+     */
+    public synchronized long getCpuMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(cpuNanos);
+    }
+
+    /**
+     * @return time since the job was opened, or until it terminated, in milliseconds
+     */
+    public synchronized long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis((terminated == 0 ? System.nanoTime() : terminated) - opened);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return name + ": " + completed + " tasks, " + dispatched + " active, " + pending.size() + " waiting, " +
+                getCpuMillis() + "ms CPU in " + getElapsedMillis() + "ms";
+    }
+}
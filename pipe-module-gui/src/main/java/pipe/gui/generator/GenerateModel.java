@@ -0,0 +1,69 @@
+package pipe.gui.generator;
+
+import uk.ac.imperial.pipe.io.PetriNetIOImpl;
+import uk.ac.imperial.pipe.io.PetriNetWriter;
+import uk.ac.imperial.pipe.models.petrinet.PetriNet;
+
+import javax.xml.bind.JAXBException;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Command line entry point for the model generator, writing a generated net as PNML.
+ * Usage:
+ * <pre>
+ * java pipe.gui.generator.GenerateModel kanban|fms|dining_philosophers|random_sparse size [seed] [output.xml]
+ * </pre>
+ * If no output file is given the PNML is written to stdout.
+ */
+public final class GenerateModel {
+    /**
+     * Usage message printed for invalid arguments
+     */
+    private static final String USAGE =
+            "Usage: GenerateModel kanban|fms|dining_philosophers|random_sparse size [seed] [output.xml]";
+
+    /**
+     * Private constructor, use {@link #main(String[])}
+     */
+    private GenerateModel() {
+    }
+
+    /**
+     * @param args command line arguments
+     */
+    public static void main(String[] args) throws IOException, JAXBException {
+        if (args.length < 2 || args.length > 4) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        ModelGenerator.Model model;
+        int size;
+        long seed;
+        try {
+            model = ModelGenerator.Model.valueOf(args[0].toUpperCase(Locale.ENGLISH));
+            size = Integer.parseInt(args[1]);
+            seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        PetriNet petriNet = model.generate(size, seed);
+        PetriNetWriter writer = new PetriNetIOImpl();
+        if (args.length > 3) {
+            writer.writeTo(args[3], petriNet);
+            System.err.println(String.format("Wrote %s with %d places and %d transitions to %s", model,
+                    petriNet.getPlaces().size(), petriNet.getTransitions().size(), args[3]));
+        } else {
+            Writer output = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+            writer.writeTo(output, petriNet);
+            output.flush();
+        }
+    }
+}
@@ -0,0 +1,361 @@
+package pipe.gui.generator;
+
+import uk.ac.imperial.pipe.exceptions.PetriNetComponentException;
+import uk.ac.imperial.pipe.models.petrinet.ColoredToken;
+import uk.ac.imperial.pipe.models.petrinet.DiscretePlace;
+import uk.ac.imperial.pipe.models.petrinet.DiscreteTransition;
+import uk.ac.imperial.pipe.models.petrinet.InboundArc;
+import uk.ac.imperial.pipe.models.petrinet.InboundNormalArc;
+import uk.ac.imperial.pipe.models.petrinet.NormalRate;
+import uk.ac.imperial.pipe.models.petrinet.OutboundArc;
+import uk.ac.imperial.pipe.models.petrinet.OutboundNormalArc;
+import uk.ac.imperial.pipe.models.petrinet.PetriNet;
+import uk.ac.imperial.pipe.models.petrinet.PetriNetComponent;
+import uk.ac.imperial.pipe.models.petrinet.Place;
+import uk.ac.imperial.pipe.models.petrinet.PlaceablePetriNetComponent;
+import uk.ac.imperial.pipe.models.petrinet.Transition;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Builds scalable Petri nets used to stress and measure PIPE without sharing real models.
+ * <p>
+ * The nets are built with the same component classes the process generator uses and are laid
+ * out on a grid so that they can be opened in the editor. The same model, size and seed always
+ * produce the same net.
+ * </p>
+ */
+public final class ModelGenerator {
+    /**
+     * Token used in every generated net
+     */
+    public static final String TOKEN = "Default";
+
+    /**
+     * Number of components on each row of the layout
+     */
+    private static final int COLUMNS = 8;
+
+    /**
+     * Distance between laid out components
+     */
+    private static final int SPACING = 90;
+
+    /**
+     * Distance of the layout from the top left corner of the canvas
+     */
+    private static final int PADDING = 50;
+
+    /**
+     * Rates given to transitions of the random sparse net
+     */
+    private static final String[] RANDOM_RATES = {"0.5", "1", "2", "5"};
+
+    /**
+     * Net being built
+     */
+    private final PetriNet petriNet = new PetriNet();
+
+    /**
+     * Places by id
+     */
+    private final Map<String, Place> places = new HashMap<>();
+
+    /**
+     * Number of components laid out so far
+     */
+    private int laidOut = 0;
+
+    /**
+     * Models that can be generated
+     */
+    public enum Model {
+        KANBAN("Kanban") {
+            @Override
+            public PetriNet generate(int size, long seed) {
+                return kanban(size);
+            }
+        },
+        FMS("Flexible manufacturing system") {
+            @Override
+            public PetriNet generate(int size, long seed) {
+                return flexibleManufacturingSystem(size);
+            }
+        },
+        DINING_PHILOSOPHERS("Dining philosophers") {
+            @Override
+            public PetriNet generate(int size, long seed) {
+                return diningPhilosophers(size);
+            }
+        },
+        RANDOM_SPARSE("Random sparse GSPN") {
+            @Override
+            public PetriNet generate(int size, long seed) {
+                return randomSparse(size, seed);
+            }
+        };
+
+        /**
+         * Name displayed to the user
+         */
+        private final String displayName;
+
+        Model(String displayName) {
+            this.displayName = displayName;
+        }
+
+        /**
+         * @param size scaling parameter N of the model
+         * @param seed random seed, only used by randomly generated models
+         * @return generated net
+         */
+        public abstract PetriNet generate(int size, long seed);
+
+        @Override
+        public String toString() {
+            return displayName;
+        }
+    }
+
+    /**
+     * Private constructor, nets are built through the static methods
+     */
+    private ModelGenerator() {
+        petriNet.addToken(new ColoredToken(TOKEN, Color.BLACK));
+    }
+
+    /**
+     * Kanban system with four stations, each with n kanban cards. Each station machines a part,
+     * which may fail inspection and be reworked, before synchronising with the next stations.
+     *
+     * @param n number of kanban cards at each station
+     * @return Kanban net
+     */
+    public static PetriNet kanban(int n) {
+        ModelGenerator generator = new ModelGenerator();
+        for (int station = 1; station <= 4; station++) {
+            generator.place("Pkanban" + station, n);
+            generator.place("Pm" + station, 0);
+            generator.place("Pback" + station, 0);
+            generator.place("Pout" + station, 0);
+        }
+        generator.timed("Tin1", "1", in("Pkanban1"), out("Pm1"));
+        for (int station = 1; station <= 4; station++) {
+            generator.timed("Tredo" + station, "0.36", in("Pm" + station), out("Pback" + station));
+            generator.timed("Tback" + station, "0.3", in("Pback" + station), out("Pm" + station));
+            generator.timed("Tok" + station, "0.84", in("Pm" + station), out("Pout" + station));
+        }
+        generator.timed("Tsynch1_23", "0.4", in("Pout1", "Pkanban2", "Pkanban3"), out("Pkanban1", "Pm2", "Pm3"));
+        generator.timed("Tsynch23_4", "0.5", in("Pout2", "Pout3", "Pkanban4"), out("Pkanban2", "Pkanban3", "Pm4"));
+        generator.timed("Tout4", "0.9", in("Pout4"), out("Pkanban4"));
+        return generator.petriNet;
+    }
+
+    /**
+     * Flexible manufacturing system in the style of Ciardo and Trivedi, with n pallets of each of
+     * three part types sharing three machine pools. Parts of type one and two may be assembled
+     * together on the third machine pool, and immediate transitions route finished parts.
+     *
+     * @param n number of pallets of each part type
+     * @return flexible manufacturing system net
+     */
+    public static PetriNet flexibleManufacturingSystem(int n) {
+        ModelGenerator generator = new ModelGenerator();
+        for (String part : new String[]{"P1", "P2", "P3"}) {
+            generator.place(part, n);
+        }
+        generator.place("M1", 3);
+        generator.place("M2", 1);
+        generator.place("M3", 2);
+        for (String name : new String[]{"P1wM1", "P1M1", "P1d", "P1s", "P1wP2", "P2wM2", "P2M2", "P2d", "P2s",
+                                        "P2wP1", "P3M2", "P3s", "P12", "P12wM3", "P12M3", "P12s"}) {
+            generator.place(name, 0);
+        }
+
+        generator.timed("tP1", "1", in("P1"), out("P1wM1"));
+        generator.timed("tP1M1", "0.25", in("P1wM1", "M1"), out("P1M1"));
+        generator.timed("tM1", "0.5", in("P1M1"), out("P1d", "M1"));
+        generator.immediate("tP1e", "0.8", in("P1d"), out("P1s"));
+        generator.immediate("tP1j", "0.2", in("P1d"), out("P1wP2"));
+        generator.timed("tP1s", "0.0167", in("P1s"), out("P1"));
+
+        generator.timed("tP2", "1", in("P2"), out("P2wM2"));
+        generator.timed("tP2M2", "0.1", in("P2wM2", "M2"), out("P2M2"));
+        generator.timed("tM2", "0.4", in("P2M2"), out("P2d", "M2"));
+        generator.immediate("tP2e", "0.6", in("P2d"), out("P2s"));
+        generator.immediate("tP2j", "0.4", in("P2d"), out("P2wP1"));
+        generator.timed("tP2s", "0.0167", in("P2s"), out("P2"));
+
+        generator.timed("tP3M2", "0.2", in("P3", "M2"), out("P3M2"));
+        generator.timed("tM3", "0.3", in("P3M2"), out("P3s", "M2"));
+        generator.timed("tP3s", "0.0167", in("P3s"), out("P3"));
+
+        generator.immediate("tx", "1", in("P1wP2", "P2wP1"), out("P12"));
+        generator.timed("tP12", "1", in("P12"), out("P12wM3"));
+        generator.timed("tP12M3", "0.25", in("P12wM3", "M3"), out("P12M3"));
+        generator.timed("tM12", "0.5", in("P12M3"), out("P12s", "M3"));
+        generator.timed("tP12s", "0.0167", in("P12s"), out("P1", "P2"));
+        return generator.petriNet;
+    }
+
+    /**
+     * Dining philosophers, each picking up their left fork and then their right fork before eating.
+     * The net deadlocks once every philosopher holds their left fork.
+     *
+     * @param n number of philosophers
+     * @return dining philosophers net
+     */
+    public static PetriNet diningPhilosophers(int n) {
+        ModelGenerator generator = new ModelGenerator();
+        for (int i = 0; i < n; i++) {
+            generator.place("Think" + i, 1);
+            generator.place("Fork" + i, 1);
+            generator.place("HasLeft" + i, 0);
+            generator.place("Eat" + i, 0);
+        }
+        for (int i = 0; i < n; i++) {
+            String right = "Fork" + (i + 1) % n;
+            generator.timed("TakeLeft" + i, "1", in("Think" + i, "Fork" + i), out("HasLeft" + i));
+            generator.timed("TakeRight" + i, "1", in("HasLeft" + i, right), out("Eat" + i));
+            generator.timed("Release" + i, "2", in("Eat" + i), out("Think" + i, "Fork" + i, right));
+        }
+        return generator.petriNet;
+    }
+
+    /**
+     * Random sparse GSPN with n places and n transitions. Every transition moves between one and
+     * two tokens from randomly chosen input places to the same number of randomly chosen output
+     * places, so the net is conservative and therefore bounded. Roughly one in five transitions
+     * is immediate.
+     *
+     * @param n    number of places and transitions
+     * @param seed random seed, the same seed always generates the same net
+     * @return random sparse net
+     */
+    public static PetriNet randomSparse(int n, long seed) {
+        Random random = new Random(seed);
+        ModelGenerator generator = new ModelGenerator();
+        int[] tokens = new int[n];
+        for (int i = 0; i <= n / 4; i++) {
+            tokens[random.nextInt(n)]++;
+        }
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            names.add("P" + i);
+            generator.place("P" + i, tokens[i]);
+        }
+        for (int i = 0; i < n; i++) {
+            int arcs = 1 + random.nextInt(2);
+            Collections.shuffle(names, random);
+            String[] inputs = names.subList(0, arcs).toArray(new String[arcs]);
+            Collections.shuffle(names, random);
+            String[] outputs = names.subList(0, arcs).toArray(new String[arcs]);
+            String rate = RANDOM_RATES[random.nextInt(RANDOM_RATES.length)];
+            if (random.nextInt(5) == 0) {
+                generator.immediate("T" + i, rate, in(inputs), out(outputs));
+            } else {
+                generator.timed("T" + i, rate, in(inputs), out(outputs));
+            }
+        }
+        return generator.petriNet;
+    }
+
+    /**
+     * Readability helper for the input places of a transition
+     */
+    private static String[] in(String... places) {
+        return places;
+    }
+
+    /**
+     * Readability helper for the output places of a transition
+     */
+    private static String[] out(String... places) {
+        return places;
+    }
+
+    /**
+     * Adds a place to the net
+     *
+     * @param id     place id
+     * @param tokens initial number of tokens
+     */
+    private void place(String id, int tokens) {
+        Place place = new DiscretePlace(id, id);
+        place.setTokenCount(TOKEN, tokens);
+        layout(place);
+        places.put(id, place);
+        add(place);
+    }
+
+    /**
+     * Adds a timed transition and its arcs to the net
+     */
+    private void timed(String id, String rate, String[] inputs, String[] outputs) {
+        transition(id, true, rate, inputs, outputs);
+    }
+
+    /**
+     * Adds an immediate transition and its arcs to the net
+     */
+    private void immediate(String id, String weight, String[] inputs, String[] outputs) {
+        transition(id, false, weight, inputs, outputs);
+    }
+
+    /**
+     * Adds a transition with unit weight arcs from each of its inputs and to each of its outputs
+     *
+     * @param id      transition id
+     * @param timed   true if the transition is timed, false if it is immediate
+     * @param rate    rate, or weight for immediate transitions
+     * @param inputs  ids of the input places
+     * @param outputs ids of the output places
+     */
+    private void transition(String id, boolean timed, String rate, String[] inputs, String[] outputs) {
+        Transition transition = new DiscreteTransition(id, id);
+        transition.setTimed(timed);
+        transition.setRate(new NormalRate(rate));
+        layout(transition);
+        add(transition);
+
+        Map<String, String> weights = Collections.singletonMap(TOKEN, "1");
+        for (String input : inputs) {
+            InboundArc arc = new InboundNormalArc(places.get(input), transition, weights);
+            add(arc);
+        }
+        for (String output : outputs) {
+            OutboundArc arc = new OutboundNormalArc(transition, places.get(output), weights);
+            add(arc);
+        }
+    }
+
+    /**
+     * Positions the component on the next free cell of the layout grid
+     *
+     * @param component component to position
+     */
+    private void layout(PlaceablePetriNetComponent component) {
+        component.setX(PADDING + SPACING * (laidOut % COLUMNS));
+        component.setY(PADDING + SPACING * (laidOut / COLUMNS));
+        laidOut++;
+    }
+
+    /**
+     * Adds the component to the net
+     *
+     * @param component component with a unique id
+     */
+    private void add(PetriNetComponent component) {
+        try {
+            petriNet.add(component);
+        } catch (PetriNetComponentException e) {
+            throw new IllegalStateException("Generated duplicate component " + component.getId(), e);
+        }
+    }
+}
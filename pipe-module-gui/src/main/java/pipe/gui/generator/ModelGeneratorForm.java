@@ -0,0 +1,152 @@
+package pipe.gui.generator;
+
+import pipe.gui.ModuleBridge;
+import uk.ac.imperial.pipe.io.PetriNetIOImpl;
+import uk.ac.imperial.pipe.io.PetriNetWriter;
+import uk.ac.imperial.pipe.models.petrinet.PetriNet;
+
+import javax.swing.*;
+import javax.xml.bind.JAXBException;
+import java.awt.FileDialog;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.beans.PropertyChangeSupport;
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Panel for generating scalable models, either opening them in PIPE or saving them as PNML
+ */
+public class ModelGeneratorForm {
+    /**
+     * Class logger
+     */
+    private static final Logger LOGGER = Logger.getLogger(ModelGeneratorForm.class.getName());
+
+    /**
+     * Largest size that can be entered
+     */
+    private static final int MAX_SIZE = 10000;
+
+    /**
+     * Used to open generated nets in PIPE
+     */
+    private final PropertyChangeSupport changeSupport;
+
+    /**
+     * Dialog used to choose where to save generated nets
+     */
+    private final FileDialog saveDialog;
+
+    private JPanel mainPanel;
+
+    /**
+     * Model to generate
+     */
+    private JComboBox<ModelGenerator.Model> modelComboBox;
+
+    /**
+     * Scaling parameter N of the model
+     */
+    private JSpinner sizeSpinner;
+
+    /**
+     * Seed used by randomly generated models
+     */
+    private JTextField seedText;
+
+    /**
+     * Opens the generated net in a new PIPE tab
+     */
+    private JButton openButton;
+
+    /**
+     * Saves the generated net as PNML
+     */
+    private JButton saveButton;
+
+    /**
+     * Describes the last generated net or any error
+     */
+    private JLabel statusLabel;
+
+    /**
+     * @param changeSupport used to open generated nets in PIPE
+     * @param saveDialog    dialog used to choose where to save generated nets
+     */
+    public ModelGeneratorForm(PropertyChangeSupport changeSupport, FileDialog saveDialog) {
+        this.changeSupport = changeSupport;
+        this.saveDialog = saveDialog;
+        setUp();
+    }
+
+    /**
+     * Populates the model choices and registers the button actions
+     */
+    private void setUp() {
+        modelComboBox.setModel(new DefaultComboBoxModel<>(ModelGenerator.Model.values()));
+        sizeSpinner.setModel(new SpinnerNumberModel(3, 1, MAX_SIZE, 1));
+        openButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                PetriNet petriNet = generate();
+                if (petriNet != null) {
+                    changeSupport.firePropertyChange(ModuleBridge.MODULE_ADD_PETRINET_MESSAGE, null, petriNet);
+                }
+            }
+        });
+        saveButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                save();
+            }
+        });
+    }
+
+    /**
+     * @return net generated from the selected options, or null if they are invalid
+     */
+    private PetriNet generate() {
+        long seed;
+        try {
+            seed = Long.parseLong(seedText.getText().trim());
+        } catch (NumberFormatException e) {
+            statusLabel.setText("Error! Please enter a whole number seed");
+            return null;
+        }
+        ModelGenerator.Model model = (ModelGenerator.Model) modelComboBox.getSelectedItem();
+        PetriNet petriNet = model.generate((Integer) sizeSpinner.getValue(), seed);
+        statusLabel.setText(String.format("Generated %s with %d places and %d transitions", model,
+                petriNet.getPlaces().size(), petriNet.getTransitions().size()));
+        return petriNet;
+    }
+
+    /**
+     * Generates the net and saves it to the chosen PNML file
+     */
+    private void save() {
+        PetriNet petriNet = generate();
+        if (petriNet == null) {
+            return;
+        }
+        saveDialog.setMode(FileDialog.SAVE);
+        saveDialog.setTitle("Save generated Petri net");
+        saveDialog.setVisible(true);
+        File[] files = saveDialog.getFiles();
+        if (files.length > 0) {
+            try {
+                PetriNetWriter writer = new PetriNetIOImpl();
+                writer.writeTo(files[0].getAbsolutePath(), petriNet);
+            } catch (JAXBException | IOException e) {
+                LOGGER.log(Level.SEVERE, e.getMessage());
+                statusLabel.setText("Error! Could not save " + files[0].getName());
+            }
+        }
+    }
+
+    public JPanel getMainPanel() {
+        return mainPanel;
+    }
+}
@@ -0,0 +1,136 @@
+package pipe.gui.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads and writes steady state distributions and performance metrics so that
+ * they can be kept in the {@link ResultStore}
+ */
+public final class AnalysisResultsIO {
+    /**
+     * Private constructor for utility class
+     */
+    private AnalysisResultsIO() {
+    }
+
+    /**
+     * @param path        file to write to
+     * @param steadyState steady state probability of each state id
+     */
+    public static void writeSteadyState(Path path, Map<Integer, Double> steadyState) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            output.writeInt(steadyState.size());
+            for (Map.Entry<Integer, Double> entry : steadyState.entrySet()) {
+                output.writeInt(entry.getKey());
+                output.writeDouble(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Writes a distribution held as a vector in the same format as {@link #writeSteadyState(Path, Map)}
+     *
+     * @param path        file to write to
+     * @param steadyState steady state probability of each state id
+     */
+    public static void writeSteadyState(Path path, double[] steadyState) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            output.writeInt(steadyState.length);
+            for (int state = 0; state < steadyState.length; state++) {
+                output.writeInt(state);
+                output.writeDouble(steadyState[state]);
+            }
+        }
+    }
+
+    /**
+     * @param path file written by {@link #writeSteadyState(Path, Map)}
+     * @return steady state probability of each state id
+     */
+    public static Map<Integer, Double> readSteadyState(Path path) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            int size = input.readInt();
+            Map<Integer, Double> steadyState = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                steadyState.put(input.readInt(), input.readDouble());
+            }
+            return steadyState;
+        }
+    }
+
+    /**
+     * @param path    file to write to
+     * @param metrics named values, e.g. the throughput of each transition
+     */
+    public static void writeMetrics(Path path, Map<String, Double> metrics) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            writeMetrics(output, metrics);
+        }
+    }
+
+    /**
+     * @param path file written by {@link #writeMetrics(Path, Map)}
+     * @return named values
+     */
+    public static Map<String, Double> readMetrics(Path path) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            return readMetrics(input);
+        }
+    }
+
+    /**
+     * @param path    file to write to
+     * @param metrics named groups of named values, e.g. the average count of each token on each place
+     */
+    public static void writeNestedMetrics(Path path, Map<String, Map<String, Double>> metrics) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            output.writeInt(metrics.size());
+            for (Map.Entry<String, Map<String, Double>> entry : metrics.entrySet()) {
+                output.writeUTF(entry.getKey());
+                writeMetrics(output, entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * @param path file written by {@link #writeNestedMetrics(Path, Map)}
+     * @return named groups of named values
+     */
+    public static Map<String, Map<String, Double>> readNestedMetrics(Path path) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            int size = input.readInt();
+            Map<String, Map<String, Double>> metrics = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                String name = input.readUTF();
+                metrics.put(name, readMetrics(input));
+            }
+            return metrics;
+        }
+    }
+
+    private static void writeMetrics(DataOutputStream output, Map<String, Double> metrics) throws IOException {
+        output.writeInt(metrics.size());
+        for (Map.Entry<String, Double> entry : metrics.entrySet()) {
+            output.writeUTF(entry.getKey());
+            output.writeDouble(entry.getValue());
+        }
+    }
+
+    private static Map<String, Double> readMetrics(DataInputStream input) throws IOException {
+        int size = input.readInt();
+        Map<String, Double> metrics = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            String name = input.readUTF();
+            metrics.put(name, input.readDouble());
+        }
+        return metrics;
+    }
+}
@@ -0,0 +1,266 @@
+package pipe.gui.io;
+
+import pipe.gui.statespace.ExplorationProgress;
+import uk.ac.imperial.io.StateProcessor;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.Record;
+import uk.ac.imperial.utils.Pair;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Decorates the state processor that writes the binaries so that the explorer does not wait for
+ * serialisation and disk writes.
+ * <p>
+ * Transition records and states are pushed into separate {@link RingBuffer}s, each drained by its own
+ * writer thread which calls the delegate. The delegate must only ever write transitions and states to
+ * separate outputs, as {@link IndexingStateProcessor} over a {@link uk.ac.imperial.io.StateIOProcessor}
+ * does. Like the explorers in this module, this processor must be called from a single thread.
+ * </p>
+ * <p>
+ * When a writer falls behind and its buffer fills, the explorer waits and the time it waited is
+ * recorded as backpressure in the {@link ExplorationProgress}. Closing the processor waits for every
+ * buffered entry to be written.
+ * </p>
+ */
+public final class AsyncStateProcessor implements StateProcessor, Closeable {
+    /**
+     * Default number of entries buffered for each writer
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 13;
+
+    /**
+     * Time a writer with nothing to write waits before looking again
+     */
+    private static final long IDLE_NANOS = 50000;
+
+    /**
+     * Time the explorer waits before offering an entry to a full buffer again
+     */
+    private static final long FULL_NANOS = 10000;
+
+    /**
+     * Processor that writes the binaries
+     */
+    private final StateProcessor delegate;
+
+    /**
+     * Records the time spent waiting for full buffers
+     */
+    private final ExplorationProgress progress;
+
+    /**
+     * Writes transition records
+     */
+    private final Writer<Record> transitionWriter;
+
+    /**
+     * Writes states and their ids
+     */
+    private final Writer<Pair<ClassifiedState, Integer>> stateWriter;
+
+    /**
+     * Starts the writer threads
+     *
+     * @param delegate processor writing transitions and states to separate outputs
+     * @param capacity number of entries buffered for each writer
+     * @param progress records the time spent waiting for full buffers
+     */
+    public AsyncStateProcessor(StateProcessor delegate, int capacity, ExplorationProgress progress) {
+        this.delegate = delegate;
+        this.progress = progress;
+        transitionWriter = new Writer<Record>(capacity, "transition-writer") {
+            @Override
+            protected void write(Record record) {
+                AsyncStateProcessor.this.delegate.processTransitions(record.state, record.successors);
+            }
+        };
+        stateWriter = new Writer<Pair<ClassifiedState, Integer>>(capacity, "state-writer") {
+            @Override
+            protected void write(Pair<ClassifiedState, Integer> state) {
+                AsyncStateProcessor.this.delegate.processState(state.getLeft(), state.getRight());
+            }
+        };
+    }
+
+    @Override
+    public void processTransitions(int state, Map<Integer, Pair<Double, Collection<String>>> successorRates) {
+        transitionWriter.put(new Record(state, successorRates));
+    }
+
+    @Override
+    public void processState(ClassifiedState state, int id) {
+        stateWriter.put(new Pair<>(state, id));
+    }
+
+    /**
+     * Waits for every entry processed so far to be written by the delegate, after which its outputs
+     * may be flushed. Must be called from the thread processing the entries.
+     *
+     * @throws IOException if interrupted whilst waiting
+     * @throws StateStreamException if a writer failed
+     */
+    public void flush() throws IOException {
+        transitionWriter.awaitWritten();
+        stateWriter.awaitWritten();
+    }
+
+    /**
+     * Waits for every buffered entry to be written and stops the writer threads
+     *
+     * @throws IOException if interrupted whilst waiting
+     * @throws StateStreamException if a writer failed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            transitionWriter.finish();
+            stateWriter.finish();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted whilst writing the state space binaries");
+        }
+    }
+
+    /**
+     * Buffer drained by a dedicated thread
+     *
+     * @param <T> entry type
+     */
+    private abstract class Writer<T> implements Runnable {
+        /**
+         * Entries waiting to be written
+         */
+        private final RingBuffer<T> buffer;
+
+        /**
+         * Thread draining the buffer
+         */
+        private final Thread thread;
+
+        /**
+         * Number of entries put, only used by the processing thread
+         */
+        private long submitted;
+
+        /**
+         * Number of entries written
+         */
+        private final AtomicLong written = new AtomicLong();
+
+        /**
+         * Set once no more entries will be put
+         */
+        private volatile boolean finished = false;
+
+        /**
+         * Failure of the writer thread, after which no more entries are written
+         */
+        private volatile Throwable failure;
+
+        /**
+         * @param capacity number of entries buffered
+         * @param name     name of the writer thread
+         */
+        private Writer(int capacity, String name) {
+            buffer = new RingBuffer<>(capacity);
+            thread = new Thread(this, name);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        /**
+         * @param entry entry to write
+         */
+        protected abstract void write(T entry);
+
+        /**
+         * Buffers the entry, waiting for space if the buffer is full
+         *
+         * @param entry entry to write
+         */
+        private void put(T entry) {
+            checkFailure();
+            submitted++;
+            if (buffer.offer(entry)) {
+                return;
+            }
+            long start = System.nanoTime();
+            while (!buffer.offer(entry)) {
+                checkFailure();
+                LockSupport.parkNanos(FULL_NANOS);
+            }
+            progress.recordWriterStall(System.nanoTime() - start);
+        }
+
+        /**
+         * Rethrows the failure of the writer thread on the processing thread, so that the explorer stops
+         * rather than waiting for entries that will never be written
+         *
+         * @throws StateStreamException wrapping the failure of the writer thread, if it has failed
+         */
+        private void checkFailure() {
+            Throwable cause = failure;
+            if (cause instanceof StateStreamException) {
+                throw (StateStreamException) cause;
+            }
+            if (cause != null) {
+                throw new StateStreamException(thread.getName() + " failed whilst writing the state space binaries",
+                        new IOException(cause));
+            }
+        }
+
+        /**
+         * Waits for the writer thread to write every entry put so far
+         */
+        private void awaitWritten() throws InterruptedIOException {
+            while (written.get() < submitted) {
+                checkFailure();
+                if (Thread.interrupted()) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted whilst writing the state space binaries");
+                }
+                LockSupport.parkNanos(IDLE_NANOS);
+            }
+            checkFailure();
+        }
+
+        /**
+         * Waits for the writer thread to write every buffered entry and stop
+         */
+        private void finish() throws InterruptedException {
+            finished = true;
+            thread.join();
+            checkFailure();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    T entry = buffer.poll();
+                    if (entry == null) {
+                        if (!finished) {
+                            LockSupport.parkNanos(IDLE_NANOS);
+                            continue;
+                        }
+                        entry = buffer.poll();
+                        if (entry == null) {
+                            return;
+                        }
+                    }
+                    write(entry);
+                    written.lazySet(written.get() + 1);
+                }
+            } catch (Throwable e) {
+                failure = e;
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package pipe.gui.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Output stream collecting the small writes of a Kryo output into a large direct buffer,
+ * which is written to the file channel in a single call whenever it fills
+ */
+public final class ChannelOutputStream extends OutputStream {
+    /**
+     * Default buffer size in bytes
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 22;
+
+    /**
+     * Channel to the file
+     */
+    private final FileChannel channel;
+
+    /**
+     * Bytes not yet written to the channel
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Creates or truncates the file
+     *
+     * @param file       file to write
+     * @param bufferSize number of bytes buffered before they are written
+     * @throws IOException if the file cannot be opened
+     */
+    public ChannelOutputStream(Path file, int bufferSize) throws IOException {
+        this(file, bufferSize, false);
+    }
+
+    /**
+     * @param file       file to write
+     * @param bufferSize number of bytes buffered before they are written
+     * @param append     true to write after the existing contents of the file, false to create or truncate it
+     * @throws IOException if the file cannot be opened
+     */
+    public ChannelOutputStream(Path file, int bufferSize, boolean append) throws IOException {
+        channel = append ?
+                FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND) :
+                FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+        buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (!buffer.hasRemaining()) {
+            drain();
+        }
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        int written = 0;
+        while (written < length) {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            int count = Math.min(buffer.remaining(), length - written);
+            buffer.put(bytes, offset + written, count);
+            written += count;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        drain();
+    }
+
+    /**
+     * Writes the buffered bytes and forces them to the storage device, so that they survive a crash
+     *
+     * @throws IOException if the bytes cannot be written
+     */
+    public void sync() throws IOException {
+        drain();
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel.isOpen()) {
+            try {
+                drain();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Writes the buffered bytes to the channel
+     */
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
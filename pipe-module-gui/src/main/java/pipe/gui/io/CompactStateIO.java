@@ -0,0 +1,613 @@
+package pipe.gui.io;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import pipe.gui.statespace.MarkingCodec;
+import pipe.gui.statespace.PackedState;
+import uk.ac.imperial.io.StateWriter;
+import uk.ac.imperial.pipe.io.PetriNetIOImpl;
+import uk.ac.imperial.pipe.io.PetriNetReader;
+import uk.ac.imperial.pipe.io.PetriNetWriter;
+import uk.ac.imperial.pipe.models.petrinet.PetriNet;
+import uk.ac.imperial.pipe.models.petrinet.Transition;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.HashedClassifiedState;
+import uk.ac.imperial.state.HashedStateBuilder;
+import uk.ac.imperial.state.Record;
+import uk.ac.imperial.state.State;
+import uk.ac.imperial.utils.Pair;
+
+import javax.xml.bind.JAXBException;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Writes and reads compact state space binaries.
+ * <p>
+ * Both binaries start with the same versioned header. It holds the number of states and transitions
+ * and a CRC32 checksum of the entries after the header, filled in by
+ * {@link #writeSummary(Path, int, int, long)} once the state space has been explored, then the
+ * options it was explored with, the PNML of the Petri net, and a dictionary of the token fields of
+ * every place and of the transition names, so that no name is repeated in the entries.
+ * </p>
+ * <p>
+ * States are written as the words of their {@link MarkingCodec} packing. Each transition record
+ * writes its successor ids in increasing order as zig-zag deltas, the first from the source state,
+ * and its transition names as dictionary indices. All integers are variable length, so small deltas
+ * and counts take a single byte.
+ * </p>
+ * <p>
+ * Entries never refer to the entries before them, so they can still be read individually through a
+ * {@link StateSpaceIndex}. Saved binaries can additionally be deflated in blocks by
+ * {@link #compress(Path, Path)}, these must be inflated by {@link #decompress(Path, Path)} before
+ * they are read.
+ * </p>
+ */
+public final class CompactStateIO implements StateWriter, StateSpaceReader {
+    /**
+     * First four bytes of every compact binary, "PIPC"
+     */
+    public static final int MAGIC = 0x50495043;
+
+    /**
+     * Version of the format written, binaries of a later version cannot be read
+     */
+    public static final int FORMAT_VERSION = 1;
+
+    /**
+     * Count in the header of binaries whose state space has not been completely written
+     */
+    public static final int UNKNOWN_COUNT = -1;
+
+    /**
+     * Position in the header of the state count, transition count and checksum
+     */
+    private static final int SUMMARY_OFFSET = 6;
+
+    /**
+     * Header flag set when everything after the header is deflated in blocks
+     */
+    private static final int DEFLATED = 1;
+
+    /**
+     * Number of uncompressed bytes in each deflated block
+     */
+    private static final int BLOCK_SIZE = 1 << 16;
+
+    /**
+     * Packs the states
+     */
+    private final MarkingCodec codec;
+
+    /**
+     * Dictionary of transition names
+     */
+    private final List<String> transitionNames;
+
+    /**
+     * Index of each transition name in the dictionary
+     */
+    private final Map<String, Integer> transitionIndices = new HashMap<>();
+
+    /**
+     * Options the state space was explored with
+     */
+    private final String explorerOptions;
+
+    /**
+     * PNML of the explored Petri net, null if it is not known
+     */
+    private final String petriNetXml;
+
+    /**
+     * Number of states read from the header
+     */
+    private int stateCount = UNKNOWN_COUNT;
+
+    /**
+     * Number of transitions read from the header
+     */
+    private int transitionCount = UNKNOWN_COUNT;
+
+    /**
+     * Checksum of the entries read from the header
+     */
+    private int checksum;
+
+    /**
+     * @param codec           packs the states
+     * @param transitionNames dictionary of transition names
+     * @param explorerOptions options the state space was explored with
+     * @param petriNetXml     PNML of the explored Petri net, null if it is not known
+     */
+    private CompactStateIO(MarkingCodec codec, List<String> transitionNames, String explorerOptions,
+                           String petriNetXml) {
+        this.codec = codec;
+        this.transitionNames = transitionNames;
+        this.explorerOptions = explorerOptions;
+        this.petriNetXml = petriNetXml;
+        for (int i = 0; i < transitionNames.size(); i++) {
+            transitionIndices.put(transitionNames.get(i), i);
+        }
+    }
+
+    /**
+     * @param petriNet        Petri net whose state space will be written
+     * @param explorerOptions description of the explorer the state space is explored with, may be null
+     * @return writer with a dictionary of the places, tokens and transitions of the net
+     *         and a copy of the net in its header
+     * @throws IOException if the Petri net cannot be written as PNML
+     */
+    public static CompactStateIO forPetriNet(PetriNet petriNet, String explorerOptions) throws IOException {
+        List<String> names = new ArrayList<>();
+        for (Transition transition : petriNet.getTransitions()) {
+            names.add(transition.getId());
+        }
+        Collections.sort(names);
+        StringWriter petriNetXml = new StringWriter();
+        try {
+            PetriNetWriter writer = new PetriNetIOImpl();
+            writer.writeTo(petriNetXml, petriNet);
+        } catch (JAXBException e) {
+            throw new IOException("Could not write the Petri net into the binaries", e);
+        }
+        return new CompactStateIO(MarkingCodec.forPetriNet(petriNet), names,
+                explorerOptions == null ? "" : explorerOptions, petriNetXml.toString());
+    }
+
+    /**
+     * @return number of states in the binaries, or {@link #UNKNOWN_COUNT} if they were not completely written
+     */
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    /**
+     * @return true if the summary of the binary was written once its exploration finished
+     */
+    public boolean isComplete() {
+        return stateCount != UNKNOWN_COUNT;
+    }
+
+    /**
+     * @return number of transitions in the binaries, or {@link #UNKNOWN_COUNT} if they were not completely written
+     */
+    public int getTransitionCount() {
+        return transitionCount;
+    }
+
+    /**
+     * @return options the state space was explored with, empty if they are not known
+     */
+    public String getExplorerOptions() {
+        return explorerOptions;
+    }
+
+    /**
+     * Reads the copy of the explored Petri net held in the header
+     *
+     * @return the explored Petri net, or null if the binaries do not hold one
+     * @throws IOException if the Petri net cannot be read
+     */
+    public PetriNet getPetriNet() throws IOException {
+        if (petriNetXml == null || petriNetXml.isEmpty()) {
+            return null;
+        }
+        Path file = Files.createTempFile("petri-net", ".xml");
+        try {
+            Files.write(file, petriNetXml.getBytes(StandardCharsets.UTF_8));
+            PetriNetReader reader = new PetriNetIOImpl();
+            return reader.read(file.toString());
+        } catch (JAXBException e) {
+            throw new IOException("Could not read the Petri net held in the binaries", e);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Fills in the summary of a binary whose entries have all been written
+     *
+     * @param file        compact binary
+     * @param states      number of states in the state space
+     * @param transitions number of transitions in the state space
+     * @param checksum    CRC32 checksum of everything written to the binary after its header
+     * @throws IOException if the header cannot be written
+     */
+    public static void writeSummary(Path file, int states, int transitions, long checksum) throws IOException {
+        ByteBuffer summary = ByteBuffer.allocate(12);
+        summary.putInt(states).putInt(transitions).putInt((int) checksum).flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            while (summary.hasRemaining()) {
+                channel.write(summary, SUMMARY_OFFSET + summary.position());
+            }
+        }
+    }
+
+    /**
+     * Binaries whose summary was never written, because their exploration was cancelled or crashed,
+     * have no checksum and are rejected. Only resuming from a checkpoint reads them, through
+     * {@link #entryChecksum(Path)}.
+     *
+     * @param file uncompressed compact binary
+     * @return true if the binary was completely written and the checksum of its entries matches
+     *         the checksum in the header
+     * @throws IOException if the binary cannot be read
+     */
+    public static boolean verify(Path file) throws IOException {
+        try (InputStream stream = Files.newInputStream(file);
+             Input input = new Input(stream)) {
+            CompactStateIO header = readHeader(input, false);
+            return header.isComplete() && (int) checksum(input).getValue() == header.checksum;
+        }
+    }
+
+    /**
+     * @param file uncompressed compact binary
+     * @return checksum of the entries written so far, which further entries can be added to
+     *         when appending to the binary
+     * @throws IOException if the binary cannot be read
+     */
+    public static CRC32 entryChecksum(Path file) throws IOException {
+        try (InputStream stream = Files.newInputStream(file);
+             Input input = new Input(stream)) {
+            readHeader(input, false);
+            return checksum(input);
+        }
+    }
+
+    /**
+     * @param input input to read to its end
+     * @return checksum of the rest of the input
+     */
+    private static CRC32 checksum(Input input) {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[BLOCK_SIZE];
+        int length;
+        while ((length = fill(input, buffer)) > 0) {
+            crc.update(buffer, 0, length);
+        }
+        return crc;
+    }
+
+    /**
+     * @param file binary file
+     * @return true if the file was written in the compact format rather than by
+     *         {@link uk.ac.imperial.io.KryoStateIO}
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean isCompact(Path file) throws IOException {
+        return readFlags(file) >= 0;
+    }
+
+    /**
+     * @param file binary file
+     * @return true if the file is a compact binary deflated by {@link #compress(Path, Path)}
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean isCompressed(Path file) throws IOException {
+        int flags = readFlags(file);
+        return flags >= 0 && (flags & DEFLATED) != 0;
+    }
+
+    /**
+     * @param file binary file
+     * @return header flags of a compact binary, or -1 if the file is not one
+     */
+    private static int readFlags(Path file) throws IOException {
+        try (DataInputStream input = new DataInputStream(Files.newInputStream(file))) {
+            if (input.readInt() != MAGIC) {
+                return -1;
+            }
+            input.readUnsignedByte();
+            return input.readUnsignedByte();
+        } catch (EOFException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @param file compact binary
+     * @return reader for the binary and the other binary of its state space, using the dictionary in its header
+     * @throws IOException if the header cannot be read or the binary is compressed
+     */
+    public static CompactStateIO readHeader(Path file) throws IOException {
+        try (InputStream stream = Files.newInputStream(file);
+             Input input = new Input(stream)) {
+            return readHeader(input, false);
+        }
+    }
+
+    /**
+     * @param input      input at the start of a compact binary
+     * @param compressed true if the binary is expected to be deflated
+     * @return reader using the dictionary in the header
+     * @throws IOException if the input does not start with a compact header of the expected compression
+     */
+    private static CompactStateIO readHeader(Input input, boolean compressed) throws IOException {
+        if (input.readInt() != MAGIC) {
+            throw new IOException("Not a compact state space binary");
+        }
+        int version = input.readByte() & 0xFF;
+        if (version > FORMAT_VERSION) {
+            throw new IOException("State space binaries were written by a later version of PIPE (format " + version + ")");
+        }
+        boolean deflated = (input.readByte() & DEFLATED) != 0;
+        if (deflated != compressed) {
+            throw new IOException(deflated ? "Compressed binaries must be decompressed before they are read" :
+                    "State space binary is not compressed");
+        }
+        int states = input.readInt();
+        int transitions = input.readInt();
+        int checksum = input.readInt();
+        String explorerOptions = input.readString();
+        String petriNetXml = input.readString();
+        MarkingCodec codec = MarkingCodec.readLayout(input);
+        int count = input.readInt(true);
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            names.add(input.readString());
+        }
+        CompactStateIO stateIO = new CompactStateIO(codec, names, explorerOptions, petriNetXml);
+        stateIO.stateCount = states;
+        stateIO.transitionCount = transitions;
+        stateIO.checksum = checksum;
+        return stateIO;
+    }
+
+    /**
+     * Writes the header, which must start both binaries. Its summary is left unknown until it
+     * is filled in by {@link #writeSummary(Path, int, int, long)}.
+     *
+     * @param output output at the start of a binary
+     */
+    public void writeHeader(Output output) {
+        writeHeader(output, 0);
+    }
+
+    /**
+     * @param output output at the start of a binary
+     * @param flags  header flags
+     */
+    private void writeHeader(Output output, int flags) {
+        output.writeInt(MAGIC);
+        output.writeByte(FORMAT_VERSION);
+        output.writeByte(flags);
+        output.writeInt(stateCount);
+        output.writeInt(transitionCount);
+        output.writeInt(checksum);
+        output.writeString(explorerOptions);
+        output.writeString(petriNetXml);
+        codec.writeLayout(output);
+        output.writeInt(transitionNames.size(), true);
+        for (String name : transitionNames) {
+            output.writeString(name);
+        }
+    }
+
+    @Override
+    public void skipHeader(Input input) throws IOException {
+        readHeader(input, false);
+    }
+
+    @Override
+    public void transitionTo(Output output, int state, Map<Integer, Pair<Double, Collection<String>>> successors) {
+        List<Integer> ids = new ArrayList<>(successors.keySet());
+        Collections.sort(ids);
+        output.writeInt(state, true);
+        output.writeInt(ids.size(), true);
+        int previous = state;
+        for (int id : ids) {
+            output.writeInt(zigZag(id - previous), true);
+            previous = id;
+            Pair<Double, Collection<String>> successor = successors.get(id);
+            output.writeDouble(successor.getLeft());
+            Collection<String> names = successor.getRight();
+            output.writeInt(names.size(), true);
+            for (String name : names) {
+                Integer index = transitionIndices.get(name);
+                if (index == null) {
+                    output.writeInt(0, true);
+                    output.writeString(name);
+                } else {
+                    output.writeInt(index + 1, true);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void outputState(Output output, ClassifiedState state, int id) {
+        output.writeInt(id, true);
+        codec.writeState(output, codec.pack(state));
+    }
+
+    @Override
+    public Record readRecord(Input input) {
+        int state = input.readInt(true);
+        int count = input.readInt(true);
+        Map<Integer, Pair<Double, Collection<String>>> successors = new HashMap<>();
+        int previous = state;
+        for (int i = 0; i < count; i++) {
+            int id = previous + unZigZag(input.readInt(true));
+            previous = id;
+            double rate = input.readDouble();
+            int nameCount = input.readInt(true);
+            Collection<String> names = new ArrayList<>(nameCount);
+            for (int j = 0; j < nameCount; j++) {
+                int index = input.readInt(true);
+                names.add(index == 0 ? input.readString() : transitionNames.get(index - 1));
+            }
+            successors.put(id, new Pair<>(rate, names));
+        }
+        return new Record(state, successors);
+    }
+
+    @Override
+    public Collection<Record> readRecords(Input input) {
+        Collection<Record> records = new LinkedList<>();
+        while (!input.eof()) {
+            records.add(readRecord(input));
+        }
+        return records;
+    }
+
+    @Override
+    public Map<Integer, ClassifiedState> readStates(Input input) {
+        Map<Integer, ClassifiedState> states = new HashMap<>();
+        while (!input.eof()) {
+            Pair<Integer, ClassifiedState> state = readState(input);
+            states.put(state.getLeft(), state.getRight());
+        }
+        return states;
+    }
+
+    /**
+     * @param input input positioned at a state
+     * @return id of the state and the state
+     */
+    public Pair<Integer, ClassifiedState> readState(Input input) {
+        int id = input.readInt(true);
+        return new Pair<>(id, toState(codec.readState(input)));
+    }
+
+    /**
+     * @param packed packed state
+     * @return classified state with the token counts of the packed state
+     */
+    private ClassifiedState toState(PackedState packed) {
+        HashedStateBuilder builder = new HashedStateBuilder();
+        for (Map.Entry<String, Map<String, Integer>> place : codec.unpack(packed).entrySet()) {
+            for (Map.Entry<String, Integer> token : place.getValue().entrySet()) {
+                builder.placeWithToken(place.getKey(), token.getKey(), token.getValue());
+            }
+        }
+        State state = builder.build();
+        return codec.isTangible(packed) ? HashedClassifiedState.tangibleState(state) :
+                HashedClassifiedState.vanishingState(state);
+    }
+
+    /**
+     * Deflates a compact binary in blocks. The compressed binary cannot be indexed, so it is
+     * smaller to store but must be decompressed and read in full when it is loaded.
+     *
+     * @param source uncompressed compact binary
+     * @param target compressed binary
+     * @throws IOException if the source is not an uncompressed compact binary or cannot be copied
+     */
+    public static void compress(Path source, Path target) throws IOException {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (InputStream stream = Files.newInputStream(source);
+             Input input = new Input(stream);
+             Output output = new Output(Files.newOutputStream(target))) {
+            readHeader(input, false).writeHeader(output, DEFLATED);
+            byte[] block = new byte[BLOCK_SIZE];
+            byte[] buffer = new byte[BLOCK_SIZE];
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            int length;
+            while ((length = fill(input, block)) > 0) {
+                deflater.reset();
+                deflater.setInput(block, 0, length);
+                deflater.finish();
+                compressed.reset();
+                while (!deflater.finished()) {
+                    compressed.write(buffer, 0, deflater.deflate(buffer));
+                }
+                output.writeInt(length, true);
+                output.writeInt(compressed.size(), true);
+                output.writeBytes(compressed.toByteArray());
+            }
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Inflates a binary written by {@link #compress(Path, Path)}
+     *
+     * @param source compressed compact binary
+     * @param target uncompressed compact binary
+     * @throws IOException if the source is not a compressed compact binary or cannot be inflated
+     */
+    public static void decompress(Path source, Path target) throws IOException {
+        Inflater inflater = new Inflater();
+        try (InputStream stream = Files.newInputStream(source);
+             Input input = new Input(stream);
+             Output output = new Output(Files.newOutputStream(target))) {
+            readHeader(input, true).writeHeader(output);
+            while (!input.eof()) {
+                byte[] block = new byte[input.readInt(true)];
+                byte[] compressed = input.readBytes(input.readInt(true));
+                inflater.reset();
+                inflater.setInput(compressed);
+                int length = 0;
+                while (length < block.length) {
+                    int inflated = inflater.inflate(block, length, block.length - length);
+                    if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+                        throw new IOException("Truncated compressed block in " + source);
+                    }
+                    length += inflated;
+                }
+                output.writeBytes(block);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt compressed block in " + source, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * @param input input to read from
+     * @param block block to fill
+     * @return number of bytes read, less than the block size only at the end of the input
+     */
+    private static int fill(Input input, byte[] block) {
+        int length = 0;
+        while (length < block.length) {
+            int read = input.read(block, length, block.length - length);
+            if (read < 0) {
+                break;
+            }
+            length += read;
+        }
+        return length;
+    }
+
+    /**
+     * @param value signed value
+     * @return value with its sign in the lowest bit, so that small negative values are small positive values
+     */
+    private static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    /**
+     * @param value value encoded by {@link #zigZag(int)}
+     * @return signed value
+     */
+    private static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
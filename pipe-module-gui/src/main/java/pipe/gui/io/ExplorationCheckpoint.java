@@ -0,0 +1,213 @@
+package pipe.gui.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+
+/**
+ * Checkpoint of a state space exploration that can be resumed after a crash or cancel.
+ * <p>
+ * Each checkpoint is a directory named by its key, normally a {@link pipe.gui.statespace.PetriNetHash}
+ * of the net and explorer options, holding the partially written binaries and their indexes. The
+ * checkpoint file records how many states had been explored and discovered and how long the binaries
+ * were at the end of an exploration round, which is enough to rebuild the visited states and frontier
+ * from the states binary. It is replaced atomically so a crash never leaves a partial checkpoint.
+ * </p>
+ */
+public final class ExplorationCheckpoint {
+    /**
+     * Name of the checkpoint file in each directory
+     */
+    private static final String CHECKPOINT = "checkpoint.properties";
+
+    /**
+     * Checkpoint property holding the number of explored states
+     */
+    private static final String EXPLORED = "explored";
+
+    /**
+     * Checkpoint property holding the number of discovered states
+     */
+    private static final String DISCOVERED = "discovered";
+
+    /**
+     * Checkpoint property holding the number of processed transitions
+     */
+    private static final String TRANSITION_COUNT = "transitions";
+
+    /**
+     * Checkpoint property holding the length of the transitions binary
+     */
+    private static final String TRANSITIONS_LENGTH = "transitions.length";
+
+    /**
+     * Checkpoint property holding the length of the states binary
+     */
+    private static final String STATES_LENGTH = "states.length";
+
+    /**
+     * Directory holding the checkpoints, in the .pipe/checkpoints directory of the user's home
+     */
+    private static final Path DEFAULT_DIRECTORY = Paths.get(System.getProperty("user.home"), ".pipe", "checkpoints");
+
+    /**
+     * Directory of this checkpoint
+     */
+    private final Path directory;
+
+    /**
+     * Checkpoint properties, null if no checkpoint has been written
+     */
+    private Properties properties;
+
+    /**
+     * @param directory directory of this checkpoint, created if it does not exist
+     * @throws IOException if the directory or its checkpoint file cannot be read
+     */
+    public ExplorationCheckpoint(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        try (InputStream input = Files.newInputStream(directory.resolve(CHECKPOINT))) {
+            properties = new Properties();
+            properties.load(input);
+        } catch (NoSuchFileException e) {
+            properties = null;
+        }
+    }
+
+    /**
+     * @param key key of the exploration
+     * @return checkpoint of the exploration in the shared checkpoint directory
+     * @throws IOException if the checkpoint cannot be read
+     */
+    public static ExplorationCheckpoint forKey(String key) throws IOException {
+        return new ExplorationCheckpoint(DEFAULT_DIRECTORY.resolve(key));
+    }
+
+    /**
+     * @return true if a checkpoint has been written, so the exploration can be resumed
+     */
+    public boolean exists() {
+        return properties != null;
+    }
+
+    /**
+     * @return transitions binary of the exploration
+     */
+    public Path getTransitions() {
+        return directory.resolve("transitions.bin");
+    }
+
+    /**
+     * @return states binary of the exploration
+     */
+    public Path getStates() {
+        return directory.resolve("states.bin");
+    }
+
+    /**
+     * @return number of states explored at the checkpoint
+     */
+    public int getExplored() {
+        return Integer.parseInt(properties.getProperty(EXPLORED));
+    }
+
+    /**
+     * @return number of states discovered at the checkpoint
+     */
+    public int getDiscovered() {
+        return Integer.parseInt(properties.getProperty(DISCOVERED));
+    }
+
+    /**
+     * @return number of transitions processed at the checkpoint
+     */
+    public int getTransitionCount() {
+        return Integer.parseInt(properties.getProperty(TRANSITION_COUNT));
+    }
+
+    /**
+     * @return length of the transitions binary at the checkpoint
+     */
+    public long getTransitionsLength() {
+        return Long.parseLong(properties.getProperty(TRANSITIONS_LENGTH));
+    }
+
+    /**
+     * @return length of the states binary at the checkpoint
+     */
+    public long getStatesLength() {
+        return Long.parseLong(properties.getProperty(STATES_LENGTH));
+    }
+
+    /**
+     * Records a checkpoint. The binaries must have been written and synced up to the given lengths.
+     *
+     * @param explored          number of states explored
+     * @param discovered        number of states discovered
+     * @param transitions       number of transitions processed
+     * @param transitionsLength length of the transitions binary
+     * @param statesLength      length of the states binary
+     * @throws IOException if the checkpoint cannot be written
+     */
+    public void save(int explored, int discovered, int transitions, long transitionsLength, long statesLength)
+            throws IOException {
+        Properties saved = new Properties();
+        saved.setProperty(EXPLORED, Integer.toString(explored));
+        saved.setProperty(DISCOVERED, Integer.toString(discovered));
+        saved.setProperty(TRANSITION_COUNT, Integer.toString(transitions));
+        saved.setProperty(TRANSITIONS_LENGTH, Long.toString(transitionsLength));
+        saved.setProperty(STATES_LENGTH, Long.toString(statesLength));
+        Path staging = directory.resolve(CHECKPOINT + ".tmp");
+        try (OutputStream output = Files.newOutputStream(staging)) {
+            saved.store(output, "State space exploration checkpoint");
+        }
+        Files.move(staging, directory.resolve(CHECKPOINT), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        properties = saved;
+    }
+
+    /**
+     * Discards anything written to the binaries after the checkpoint
+     *
+     * @throws IOException if the binaries cannot be truncated
+     */
+    public void truncate() throws IOException {
+        truncate(getTransitions(), getTransitionsLength());
+        truncate(getStates(), getStatesLength());
+    }
+
+    /**
+     * @param file   binary
+     * @param length length to truncate it to
+     */
+    private static void truncate(Path file, long length) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(length);
+        }
+    }
+
+    /**
+     * Deletes the checkpoint and anything left in its directory, called once the exploration
+     * has finished and its binaries have been moved out
+     *
+     * @throws IOException if the checkpoint cannot be deleted
+     */
+    public void delete() throws IOException {
+        Files.deleteIfExists(directory.resolve(CHECKPOINT));
+        Files.deleteIfExists(getTransitions());
+        Files.deleteIfExists(getStates());
+        Files.deleteIfExists(OffsetIndex.indexPath(getTransitions()));
+        Files.deleteIfExists(OffsetIndex.indexPath(getStates()));
+        Files.deleteIfExists(directory);
+        properties = null;
+    }
+}
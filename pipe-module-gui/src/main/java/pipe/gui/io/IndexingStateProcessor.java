@@ -0,0 +1,117 @@
+package pipe.gui.io;
+
+import com.esotericsoftware.kryo.io.Output;
+import uk.ac.imperial.io.StateProcessor;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.utils.Pair;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Decorates the state processor that writes the binaries, recording the
+ * position each state and transition record is written to so that they can
+ * later be read back individually through a {@link StateSpaceIndex}
+ */
+public final class IndexingStateProcessor implements StateProcessor {
+    /**
+     * Processor that writes the binaries
+     */
+    private final StateProcessor delegate;
+
+    /**
+     * Output the delegate writes transition records to
+     */
+    private final Output transitionOutput;
+
+    /**
+     * Output the delegate writes states to
+     */
+    private final Output stateOutput;
+
+    /**
+     * Index of transition record positions keyed by source state id
+     */
+    private final OffsetIndexWriter transitionIndex;
+
+    /**
+     * Index of state positions keyed by state id
+     */
+    private final OffsetIndexWriter stateIndex;
+
+    /**
+     * Position in the transitions binary the transition output starts at
+     */
+    private final long transitionBase;
+
+    /**
+     * Position in the states binary the state output starts at
+     */
+    private final long stateBase;
+
+    /**
+     * @param delegate         processor that writes to transitionOutput and stateOutput
+     * @param transitionOutput output the delegate writes transition records to
+     * @param stateOutput      output the delegate writes states to
+     * @param transitionIndex  index of transition record positions
+     * @param stateIndex       index of state positions
+     */
+    public IndexingStateProcessor(StateProcessor delegate, Output transitionOutput, Output stateOutput,
+                                  OffsetIndexWriter transitionIndex, OffsetIndexWriter stateIndex) {
+        this(delegate, transitionOutput, stateOutput, transitionIndex, stateIndex, 0, 0);
+    }
+
+    /**
+     * @param delegate         processor that writes to transitionOutput and stateOutput
+     * @param transitionOutput output the delegate writes transition records to
+     * @param stateOutput      output the delegate writes states to
+     * @param transitionIndex  index of transition record positions
+     * @param stateIndex       index of state positions
+     * @param transitionBase   position in the transitions binary the transition output starts at,
+     *                         non zero when appending to a resumed binary
+     * @param stateBase        position in the states binary the state output starts at
+     */
+    public IndexingStateProcessor(StateProcessor delegate, Output transitionOutput, Output stateOutput,
+                                  OffsetIndexWriter transitionIndex, OffsetIndexWriter stateIndex,
+                                  long transitionBase, long stateBase) {
+        this.delegate = delegate;
+        this.transitionOutput = transitionOutput;
+        this.stateOutput = stateOutput;
+        this.transitionIndex = transitionIndex;
+        this.stateIndex = stateIndex;
+        this.transitionBase = transitionBase;
+        this.stateBase = stateBase;
+    }
+
+    @Override
+    public void processTransitions(int state, Map<Integer, Pair<Double, Collection<String>>> successorRates) {
+        long offset = transitionOutput.total();
+        delegate.processTransitions(state, successorRates);
+        index(transitionIndex, state, transitionBase + offset, transitionOutput.total() - offset);
+    }
+
+    @Override
+    public void processState(ClassifiedState state, int id) {
+        long offset = stateOutput.total();
+        delegate.processState(state, id);
+        index(stateIndex, id, stateBase + offset, stateOutput.total() - offset);
+    }
+
+    /**
+     * Writes the entry to the index, converting failures to an unchecked exception
+     * since the state processor interface does not allow checked exceptions
+     *
+     * @param index  index to write to
+     * @param id     id of the entry
+     * @param offset position the entry was written to
+     * @param length number of bytes written
+     */
+    private void index(OffsetIndexWriter index, int id, long offset, long length) {
+        try {
+            index.write(id, offset, length);
+        } catch (IOException e) {
+            throw new StateStreamException("Could not write state space index", e);
+        }
+    }
+}
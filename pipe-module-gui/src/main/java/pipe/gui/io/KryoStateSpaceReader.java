@@ -0,0 +1,47 @@
+package pipe.gui.io;
+
+import com.esotericsoftware.kryo.io.Input;
+import uk.ac.imperial.io.EntireStateReader;
+import uk.ac.imperial.io.KryoStateIO;
+import uk.ac.imperial.io.MultiStateReader;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.Record;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Reads binaries written by {@link KryoStateIO}, which have no header
+ */
+public final class KryoStateSpaceReader implements StateSpaceReader {
+    /**
+     * Parses each record and state
+     */
+    private final KryoStateIO stateIO = new KryoStateIO();
+
+    /**
+     * Reads every record or state left in an input
+     */
+    private final MultiStateReader reader = new EntireStateReader(stateIO);
+
+    @Override
+    public void skipHeader(Input input) {
+        // Kryo binaries start with their first entry
+    }
+
+    @Override
+    public Record readRecord(Input input) throws IOException {
+        return stateIO.readRecord(input);
+    }
+
+    @Override
+    public Collection<Record> readRecords(Input input) throws IOException {
+        return reader.readRecords(input);
+    }
+
+    @Override
+    public Map<Integer, ClassifiedState> readStates(Input input) throws IOException {
+        return reader.readStates(input);
+    }
+}
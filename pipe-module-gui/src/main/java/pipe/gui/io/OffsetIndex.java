@@ -0,0 +1,193 @@
+package pipe.gui.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read only, memory mapped view of an index written by {@link OffsetIndexWriter}.
+ * Looking up where an id is stored in the data file is a constant time operation.
+ * <p>
+ * The index starts with a header holding {@link #MAGIC} and the number of entries written,
+ * followed by a fixed width entry for each id. Files without the header are not indexes and are refused.
+ * </p>
+ */
+public final class OffsetIndex implements Closeable {
+    /**
+     * Size of an entry in bytes, a long offset followed by a long length
+     */
+    public static final int ENTRY_SIZE = 16;
+
+    /**
+     * Size of the header in bytes, the magic number followed by the number of entries
+     */
+    public static final int HEADER_SIZE = 16;
+
+    /**
+     * Number identifying an index, the characters PIPEIDX1
+     */
+    public static final long MAGIC = 0x5049504549445831L;
+
+    /**
+     * Suffix appended to a data file name to get the name of its index
+     */
+    public static final String INDEX_SUFFIX = ".idx";
+
+    /**
+     * Number of entries per mapped segment. Segments are used since a single
+     * mapping cannot exceed 2GB
+     */
+    private static final int ENTRIES_PER_SEGMENT = 1 << 26;
+
+    /**
+     * Channel the segments are mapped from
+     */
+    private final FileChannel channel;
+
+    /**
+     * Mapped segments of the index file
+     */
+    private final MappedByteBuffer[] segments;
+
+    /**
+     * Number of entry slots in the index, i.e. one more than the largest id
+     */
+    private final int capacity;
+
+    /**
+     * Number of entries written
+     */
+    private final int size;
+
+    /**
+     * Maps the index file into memory
+     *
+     * @param path location of the index file
+     * @throws IOException if the file cannot be mapped
+     */
+    public OffsetIndex(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            size = (int) readHeader(channel);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        capacity = (int) ((channel.size() - HEADER_SIZE) / ENTRY_SIZE);
+        int segmentCount = (capacity + ENTRIES_PER_SEGMENT - 1) / ENTRIES_PER_SEGMENT;
+        segments = new MappedByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            long start = (long) i * ENTRIES_PER_SEGMENT * ENTRY_SIZE;
+            long length = Math.min((long) ENTRIES_PER_SEGMENT * ENTRY_SIZE, (long) capacity * ENTRY_SIZE - start);
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + start, length);
+        }
+    }
+
+    /**
+     * @param channel channel to the index file
+     * @return number of entries recorded in the header
+     * @throws IOException if the file cannot be read or does not start with the index header
+     */
+    static long readHeader(FileChannel channel) throws IOException {
+        if (channel.size() < HEADER_SIZE || (channel.size() - HEADER_SIZE) % ENTRY_SIZE != 0) {
+            throw new IOException("File of " + channel.size() + " bytes is not an offset index");
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                throw new IOException("Offset index ended within its header");
+            }
+        }
+        header.flip();
+        if (header.getLong() != MAGIC) {
+            throw new IOException("Offset index does not start with PIPEIDX1");
+        }
+        return header.getLong();
+    }
+
+    /**
+     * @param data path to a binary data file
+     * @return the path of the index belonging to data
+     */
+    public static Path indexPath(Path data) {
+        return Paths.get(data.toString() + INDEX_SUFFIX);
+    }
+
+    /**
+     * @param data path to a binary data file
+     * @return true if an index has been written for data
+     */
+    public static boolean exists(Path data) {
+        return data != null && Files.isRegularFile(indexPath(data));
+    }
+
+    /**
+     * @return number of entry slots in the index, ids range from 0 to capacity - 1
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return number of entries written, read from the header in constant time
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param id entry id
+     * @return true if an entry has been written for id
+     */
+    public boolean contains(int id) {
+        return id >= 0 && id < capacity && length(id) > 0;
+    }
+
+    /**
+     * @param id entry id
+     * @return byte offset of the entry in the data file
+     */
+    public long offset(int id) {
+        return segment(id).getLong(position(id));
+    }
+
+    /**
+     * @param id entry id
+     * @return number of bytes the entry occupies in the data file, 0 if it has not been written
+     */
+    public long length(int id) {
+        return segment(id).getLong(position(id) + 8);
+    }
+
+    /**
+     * @param id entry id
+     * @return the mapped segment containing id
+     */
+    private MappedByteBuffer segment(int id) {
+        return segments[id / ENTRIES_PER_SEGMENT];
+    }
+
+    /**
+     * @param id entry id
+     * @return the byte position of id within its segment
+     */
+    private int position(int id) {
+        return (id % ENTRIES_PER_SEGMENT) * ENTRY_SIZE;
+    }
+
+    /**
+     * Closes the channel, mapped segments are released when garbage collected
+     *
+     * @throws IOException if the channel cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,199 @@
+package pipe.gui.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+/**
+ * Writes an {@link OffsetIndex} file which maps an integer id to the position
+ * and length of its entry in a binary data file.
+ * <p>
+ * Entries are fixed width and stored at {@code HEADER_SIZE + id * ENTRY_SIZE}, so ids do not have
+ * to be written in order. Runs of consecutive ids are buffered and written in a single call.
+ * The number of entries is counted as they are written and stored in the header whenever the
+ * index is flushed, so that opening the index does not have to count them.
+ * </p>
+ */
+public final class OffsetIndexWriter implements Closeable {
+    /**
+     * Number of entries buffered before they are flushed to disk
+     */
+    private static final int BUFFERED_ENTRIES = 4096;
+
+    /**
+     * Channel to the index file
+     */
+    private final FileChannel channel;
+
+    /**
+     * Buffered run of consecutive entries
+     */
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFERED_ENTRIES * OffsetIndex.ENTRY_SIZE);
+
+    /**
+     * Id of the first entry in the buffer
+     */
+    private int bufferStart = 0;
+
+    /**
+     * Number of entries in the buffer
+     */
+    private int buffered = 0;
+
+    /**
+     * Number of distinct ids with an entry in the index
+     */
+    private int count = 0;
+
+    /**
+     * Ids with an entry in the index when it was resumed, which are not counted again if they
+     * are rewritten. Null if the index was created empty, since each id is then only written once
+     */
+    private final BitSet resumed;
+
+    /**
+     * Creates or truncates the index file
+     *
+     * @param path location of the index file
+     * @throws IOException if the index file cannot be opened
+     */
+    public OffsetIndexWriter(Path path) throws IOException {
+        this(path, true);
+    }
+
+    /**
+     * Creates the index file if it does not exist
+     *
+     * @param path     location of the index file
+     * @param truncate true to remove any existing entries, false to keep them when resuming an index
+     * @throws IOException if the index file cannot be opened
+     */
+    public OffsetIndexWriter(Path path, boolean truncate) throws IOException {
+        channel = truncate ?
+                FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING) :
+                FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (truncate || channel.size() == 0) {
+            resumed = null;
+        } else {
+            try {
+                resumed = readEntries();
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+            count = resumed.cardinality();
+        }
+        writeHeader();
+    }
+
+    /**
+     * Reads which ids an existing index has entries for, once when the index is resumed
+     *
+     * @return ids with an entry
+     * @throws IOException if the index cannot be read or does not start with the index header
+     */
+    private BitSet readEntries() throws IOException {
+        OffsetIndex.readHeader(channel);
+        BitSet ids = new BitSet();
+        ByteBuffer entries = ByteBuffer.allocate(BUFFERED_ENTRIES * OffsetIndex.ENTRY_SIZE);
+        long position = OffsetIndex.HEADER_SIZE;
+        int id = 0;
+        while (position < channel.size()) {
+            entries.clear();
+            int read = channel.read(entries, position);
+            if (read < 0) {
+                break;
+            }
+            position += read;
+            entries.flip();
+            while (entries.remaining() >= OffsetIndex.ENTRY_SIZE) {
+                entries.getLong();
+                if (entries.getLong() > 0) {
+                    ids.set(id);
+                }
+                id++;
+            }
+            position -= entries.remaining();
+        }
+        return ids;
+    }
+
+    /**
+     * Writes the magic number and the number of entries written so far to the start of the index
+     *
+     * @throws IOException if the index cannot be written
+     */
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(OffsetIndex.HEADER_SIZE);
+        header.putLong(OffsetIndex.MAGIC);
+        header.putLong(count);
+        header.flip();
+        long position = 0;
+        while (header.hasRemaining()) {
+            position += channel.write(header, position);
+        }
+    }
+
+    /**
+     * Records the location of id in the data file
+     *
+     * @param id     id of the entry
+     * @param offset byte offset of the entry in the data file
+     * @param length number of bytes the entry occupies, must be greater than zero
+     * @throws IOException if the index cannot be written
+     */
+    public void write(int id, long offset, long length) throws IOException {
+        if (buffered == BUFFERED_ENTRIES || (buffered > 0 && id != bufferStart + buffered)) {
+            flush();
+        }
+        if (buffered == 0) {
+            bufferStart = id;
+        }
+        buffer.putLong(offset);
+        buffer.putLong(length);
+        buffered++;
+        if (resumed == null) {
+            count++;
+        } else if (!resumed.get(id)) {
+            resumed.set(id);
+            count++;
+        }
+    }
+
+    /**
+     * Writes any buffered entries to their position in the file and updates the number of entries in the header
+     *
+     * @throws IOException if the index cannot be written
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        long position = OffsetIndex.HEADER_SIZE + (long) bufferStart * OffsetIndex.ENTRY_SIZE;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        buffer.clear();
+        buffered = 0;
+        writeHeader();
+    }
+
+    /**
+     * Flushes the remaining entries and closes the index file
+     *
+     * @throws IOException if the index cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (buffered > 0) {
+                flush();
+            }
+        } finally {
+            channel.close();
+        }
+    }
+}
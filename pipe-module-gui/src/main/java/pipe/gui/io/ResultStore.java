@@ -0,0 +1,366 @@
+package pipe.gui.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent, content addressed store of analysis results that survives restarts.
+ * <p>
+ * Each entry is a directory named by its key, normally a {@link pipe.gui.statespace.PetriNetHash}
+ * of the net and the analysis settings, holding a set of named files and a manifest recording their
+ * sizes, CRC32 checksums and any extra properties. Entries are written into a staging directory and
+ * renamed into place so that a crash never leaves a partial entry, and are verified against their
+ * manifest the first time they are read in each session. Entries that fail verification are deleted.
+ * Once the store exceeds its budget the least recently used entries are deleted.
+ * </p>
+ */
+public final class ResultStore {
+    /**
+     * Class logger
+     */
+    private static final Logger LOGGER = Logger.getLogger(ResultStore.class.getName());
+
+    /**
+     * Name of the manifest in each entry
+     */
+    private static final String MANIFEST = "manifest.properties";
+
+    /**
+     * Prefix of the manifest keys holding the size of each file
+     */
+    private static final String SIZE = "file.size.";
+
+    /**
+     * Prefix of the manifest keys holding the checksum of each file
+     */
+    private static final String CHECKSUM = "file.crc32.";
+
+    /**
+     * Prefix of the manifest keys holding the user properties
+     */
+    private static final String PROPERTY = "property.";
+
+    /**
+     * Prefix of directories entries are written into before being renamed into place
+     */
+    private static final String STAGING = ".staging-";
+
+    /**
+     * Default maximum number of bytes held in the store
+     */
+    private static final long DEFAULT_BUDGET = 4L * 1024 * 1024 * 1024;
+
+    /**
+     * Store shared between the modules, in the .pipe/results directory of the user's home
+     */
+    private static final ResultStore INSTANCE =
+            new ResultStore(Paths.get(System.getProperty("user.home"), ".pipe", "results"), DEFAULT_BUDGET);
+
+    /**
+     * Directory containing the entries
+     */
+    private final Path directory;
+
+    /**
+     * Maximum number of bytes held in the store
+     */
+    private final long budget;
+
+    /**
+     * Keys of the entries verified against their manifest during this session
+     */
+    private final Set<String> verified = new HashSet<>();
+
+    /**
+     * @param directory directory containing the entries, created if it does not exist
+     * @param budget    maximum number of bytes held in the store
+     */
+    public ResultStore(Path directory, long budget) {
+        this.directory = directory;
+        this.budget = budget;
+    }
+
+    /**
+     * @return store shared between the modules
+     */
+    public static ResultStore getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Looks up a stored entry, verifying it if it has not been read before in this session
+     *
+     * @param key entry key
+     * @return the stored entry, or null if there is none or it failed verification
+     */
+    public synchronized StoredResult get(String key) {
+        Path entry = directory.resolve(key);
+        Path manifest = entry.resolve(MANIFEST);
+        if (!Files.exists(manifest)) {
+            return null;
+        }
+        try {
+            Properties properties = readManifest(manifest);
+            if (!verified.contains(key)) {
+                if (!verify(entry, properties)) {
+                    LOGGER.log(Level.WARNING, "Discarding corrupt stored results " + entry);
+                    deleteRecursively(entry);
+                    return null;
+                }
+                verified.add(key);
+            }
+            Files.setLastModifiedTime(manifest, FileTime.fromMillis(System.currentTimeMillis()));
+            return new StoredResult(entry, properties);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not read stored results " + entry, e);
+            return null;
+        }
+    }
+
+    /**
+     * Stores copies of the files under the key, replacing any existing entry
+     *
+     * @param key        entry key
+     * @param files      files to store by the name they are stored as
+     * @param properties extra properties to store with the files
+     * @return the stored entry
+     * @throws IOException if the entry could not be written
+     */
+    public synchronized StoredResult put(String key, Map<String, Path> files, Map<String, String> properties)
+            throws IOException {
+        Files.createDirectories(directory);
+        Path staging = Files.createTempDirectory(directory, STAGING);
+        try {
+            Properties manifest = new Properties();
+            for (Map.Entry<String, String> property : properties.entrySet()) {
+                manifest.setProperty(PROPERTY + property.getKey(), property.getValue());
+            }
+            for (Map.Entry<String, Path> file : files.entrySet()) {
+                Path target = staging.resolve(file.getKey());
+                Files.copy(file.getValue(), target, StandardCopyOption.REPLACE_EXISTING);
+                manifest.setProperty(SIZE + file.getKey(), Long.toString(Files.size(target)));
+                manifest.setProperty(CHECKSUM + file.getKey(), Long.toString(checksum(target)));
+            }
+            try (OutputStream stream = Files.newOutputStream(staging.resolve(MANIFEST))) {
+                manifest.store(stream, "PIPE analysis results");
+            }
+            Path entry = directory.resolve(key);
+            deleteRecursively(entry);
+            Files.move(staging, entry, StandardCopyOption.ATOMIC_MOVE);
+            verified.add(key);
+            evict(key);
+            return new StoredResult(entry, manifest);
+        } catch (IOException e) {
+            deleteRecursively(staging);
+            throw e;
+        }
+    }
+
+    /**
+     * Deletes the least recently used entries until the store is within its budget,
+     * logging rather than failing if they cannot be deleted since the new entry is already stored
+     *
+     * @param keep key of the entry that must not be deleted
+     */
+    private void evict(String keep) {
+        try {
+            evictLeastRecentlyUsed(keep);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not evict stored results from " + directory, e);
+        }
+    }
+
+    /**
+     * @param keep key of the entry that must not be deleted
+     */
+    private void evictLeastRecentlyUsed(String keep) throws IOException {
+        final Map<Path, Long> lastUsed = new HashMap<>();
+        Map<Path, Long> sizes = new HashMap<>();
+        long total = 0;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                long size = size(entry);
+                total += size;
+                String name = entry.getFileName().toString();
+                if (!name.equals(keep) && !name.startsWith(STAGING)) {
+                    sizes.put(entry, size);
+                    Path manifest = entry.resolve(MANIFEST);
+                    lastUsed.put(entry, Files.exists(manifest) ? Files.getLastModifiedTime(manifest).toMillis() : 0L);
+                }
+            }
+        }
+        List<Path> candidates = new ArrayList<>(lastUsed.keySet());
+        Collections.sort(candidates, new Comparator<Path>() {
+            @Override
+            public int compare(Path first, Path second) {
+                return Long.compare(lastUsed.get(first), lastUsed.get(second));
+            }
+        });
+        for (Path entry : candidates) {
+            if (total <= budget) {
+                break;
+            }
+            deleteRecursively(entry);
+            verified.remove(entry.getFileName().toString());
+            total -= sizes.get(entry);
+        }
+    }
+
+    /**
+     * @param manifest manifest file
+     * @return contents of the manifest
+     */
+    private static Properties readManifest(Path manifest) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream stream = Files.newInputStream(manifest)) {
+            properties.load(stream);
+        }
+        return properties;
+    }
+
+    /**
+     * @param entry    entry directory
+     * @param manifest manifest of the entry
+     * @return true if every file in the manifest exists with the recorded size and checksum
+     */
+    private static boolean verify(Path entry, Properties manifest) throws IOException {
+        for (String name : manifest.stringPropertyNames()) {
+            if (name.startsWith(SIZE)) {
+                String file = name.substring(SIZE.length());
+                Path path = entry.resolve(file);
+                if (!Files.exists(path) || Files.size(path) != Long.parseLong(manifest.getProperty(name))
+                        || !Long.toString(checksum(path)).equals(manifest.getProperty(CHECKSUM + file))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param path file
+     * @return CRC32 checksum of the file contents
+     */
+    private static long checksum(Path path) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                crc.update(buffer.array(), 0, buffer.limit());
+                buffer.clear();
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * @param entry entry directory
+     * @return total size of the files in the entry
+     */
+    private static long size(Path entry) throws IOException {
+        final long[] total = {0};
+        Files.walkFileTree(entry, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                total[0] += attrs.size();
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return total[0];
+    }
+
+    /**
+     * Deletes the directory and everything in it, if it exists
+     *
+     * @param path directory to delete
+     */
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.deleteIfExists(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                try {
+                    Files.deleteIfExists(dir);
+                } catch (NoSuchFileException e) {
+                    LOGGER.log(Level.FINE, e.getMessage());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * An entry read from the store
+     */
+    public static final class StoredResult {
+        /**
+         * Entry directory
+         */
+        private final Path entry;
+
+        /**
+         * Entry manifest
+         */
+        private final Properties manifest;
+
+        /**
+         * @param entry    entry directory
+         * @param manifest entry manifest
+         */
+        private StoredResult(Path entry, Properties manifest) {
+            this.entry = entry;
+            this.manifest = manifest;
+        }
+
+        /**
+         * @param name name the file was stored as
+         * @return path of the stored file, or null if the entry has no such file
+         */
+        public Path getFile(String name) {
+            return manifest.containsKey(SIZE + name) ? entry.resolve(name) : null;
+        }
+
+        /**
+         * @param name property name
+         * @return the stored property value, or null if the entry has no such property
+         */
+        public String getProperty(String name) {
+            return manifest.getProperty(PROPERTY + name);
+        }
+    }
+}
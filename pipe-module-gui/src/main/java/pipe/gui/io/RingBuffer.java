@@ -0,0 +1,77 @@
+package pipe.gui.io;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded ring buffer for a single producer thread and a single consumer thread.
+ * <p>
+ * Neither side takes a lock. The producer publishes an entry by advancing the tail after
+ * storing it, and the consumer frees the slot by advancing the head after taking it.
+ * </p>
+ *
+ * @param <T> entry type
+ */
+final class RingBuffer<T> {
+    /**
+     * Slots, the length is a power of two
+     */
+    private final Object[] entries;
+
+    /**
+     * Mask taking a sequence number to its slot
+     */
+    private final int mask;
+
+    /**
+     * Sequence number of the next entry to take
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * Sequence number of the next entry to publish
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * @param capacity minimum number of entries held, rounded up to a power of two
+     */
+    RingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        entries = new Object[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Called by the producer only
+     *
+     * @param entry entry to publish
+     * @return false if the buffer is full
+     */
+    boolean offer(T entry) {
+        long sequence = tail.get();
+        if (sequence - head.get() == entries.length) {
+            return false;
+        }
+        entries[(int) sequence & mask] = entry;
+        tail.lazySet(sequence + 1);
+        return true;
+    }
+
+    /**
+     * Called by the consumer only
+     *
+     * @return oldest published entry, or null if the buffer is empty
+     */
+    @SuppressWarnings("unchecked")
+    T poll() {
+        long sequence = head.get();
+        if (sequence == tail.get()) {
+            return null;
+        }
+        int slot = (int) sequence & mask;
+        T entry = (T) entries[slot];
+        entries[slot] = null;
+        head.lazySet(sequence + 1);
+        return entry;
+    }
+}
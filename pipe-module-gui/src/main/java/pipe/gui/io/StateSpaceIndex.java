@@ -0,0 +1,246 @@
+package pipe.gui.io;
+
+import com.esotericsoftware.kryo.io.Input;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.Record;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Random access to the states and transition records in a pair of state space binaries.
+ * <p>
+ * Uses the {@link OffsetIndex} files written alongside the binaries during exploration
+ * to read a single state or successor list without deserializing the rest of the file.
+ * </p>
+ */
+public final class StateSpaceIndex implements Closeable {
+    /**
+     * Reader used to parse states and records
+     */
+    private final StateSpaceReader stateReader;
+
+    /**
+     * Binary transitions file
+     */
+    private final FileChannel transitions;
+
+    /**
+     * Binary states file
+     */
+    private final FileChannel states;
+
+    /**
+     * Positions of the transition records keyed by source state id
+     */
+    private final OffsetIndex transitionIndex;
+
+    /**
+     * Positions of the states keyed by state id
+     */
+    private final OffsetIndex stateIndex;
+
+    /**
+     * Number of states written to the index
+     */
+    private final int stateCount;
+
+    /**
+     * Opens the binaries and maps their index files into memory
+     *
+     * @param stateReader reader used to parse the binaries
+     * @param transitions binary transitions file
+     * @param states      binary states file
+     * @throws IOException if the files or their indexes cannot be opened
+     */
+    public StateSpaceIndex(StateSpaceReader stateReader, Path transitions, Path states) throws IOException {
+        this.stateReader = stateReader;
+        this.transitions = FileChannel.open(transitions, StandardOpenOption.READ);
+        this.states = FileChannel.open(states, StandardOpenOption.READ);
+        transitionIndex = new OffsetIndex(OffsetIndex.indexPath(transitions));
+        stateIndex = new OffsetIndex(OffsetIndex.indexPath(states));
+        stateCount = stateIndex.size();
+    }
+
+    /**
+     * @param transitions binary transitions file
+     * @param states      binary states file
+     * @return true if both binaries have an index that can be opened
+     */
+    public static boolean exists(Path transitions, Path states) {
+        return OffsetIndex.exists(transitions) && OffsetIndex.exists(states);
+    }
+
+    /**
+     * @return number of states in the state space
+     */
+    public int size() {
+        return stateCount;
+    }
+
+    /**
+     * @param id state id
+     * @return true if the state space contains a state with this id
+     */
+    public boolean containsState(int id) {
+        return stateIndex.contains(id);
+    }
+
+    /**
+     * @param id state id
+     * @return the state with the given id
+     * @throws IOException if the state is not in the index or cannot be read
+     */
+    public ClassifiedState getState(int id) throws IOException {
+        Input input = read(states, stateIndex, id);
+        return stateReader.readStates(input).get(id);
+    }
+
+    /**
+     * @param state source state id
+     * @return the record containing the successors of state
+     * @throws IOException if the record is not in the index or cannot be read
+     */
+    public Record getRecord(int state) throws IOException {
+        return stateReader.readRecord(read(transitions, transitionIndex, state));
+    }
+
+    /**
+     * Reads the bytes of a single entry from the data file
+     *
+     * @param data  channel to the data file
+     * @param index index for the data file
+     * @param id    id of the entry to read
+     * @return input containing just the entry
+     * @throws IOException if the entry is missing or cannot be read
+     */
+    private Input read(FileChannel data, OffsetIndex index, int id) throws IOException {
+        if (!index.contains(id)) {
+            throw new IOException("No entry for state " + id + " in state space index");
+        }
+        long position = index.offset(id);
+        ByteBuffer buffer = ByteBuffer.allocate((int) index.length(id));
+        while (buffer.hasRemaining()) {
+            int read = data.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("State space binaries are shorter than their index");
+            }
+        }
+        return new Input(buffer.array());
+    }
+
+    /**
+     * Read only map view of the states. Each lookup reads the single state from
+     * disk so only the states that are actually used are deserialized.
+     *
+     * @return states keyed by their id
+     */
+    public Map<Integer, ClassifiedState> asMap() {
+        return new IndexedStateMap();
+    }
+
+    /**
+     * Closes the binaries and their indexes
+     *
+     * @throws IOException if any file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        try (FileChannel t = transitions; FileChannel s = states;
+             OffsetIndex ti = transitionIndex; OffsetIndex si = stateIndex) {
+            // Closed by try-with-resources
+        }
+    }
+
+    /**
+     * Map of states backed by the index
+     */
+    private final class IndexedStateMap extends AbstractMap<Integer, ClassifiedState> {
+        @Override
+        public ClassifiedState get(Object key) {
+            if (!containsKey(key)) {
+                return null;
+            }
+            return readState((Integer) key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof Integer && containsState((Integer) key);
+        }
+
+        @Override
+        public int size() {
+            return stateCount;
+        }
+
+        @Override
+        public Set<Entry<Integer, ClassifiedState>> entrySet() {
+            return new AbstractSet<Entry<Integer, ClassifiedState>>() {
+                @Override
+                public Iterator<Entry<Integer, ClassifiedState>> iterator() {
+                    return new StateIterator();
+                }
+
+                @Override
+                public int size() {
+                    return stateCount;
+                }
+            };
+        }
+
+        /**
+         * @param id state id
+         * @return state read from the binaries
+         */
+        private ClassifiedState readState(int id) {
+            try {
+                return getState(id);
+            } catch (IOException e) {
+                throw new StateStreamException("Could not read state " + id, e);
+            }
+        }
+
+        /**
+         * Iterates over the states in id order
+         */
+        private final class StateIterator implements Iterator<Entry<Integer, ClassifiedState>> {
+            /**
+             * Next id to check
+             */
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                while (next < stateIndex.capacity() && !stateIndex.contains(next)) {
+                    next++;
+                }
+                return next < stateIndex.capacity();
+            }
+
+            @Override
+            public Entry<Integer, ClassifiedState> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int id = next++;
+                return new SimpleImmutableEntry<>(id, readState(id));
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("State space binaries are read only");
+            }
+        }
+    }
+}
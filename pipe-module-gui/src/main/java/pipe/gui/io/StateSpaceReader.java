@@ -0,0 +1,29 @@
+package pipe.gui.io;
+
+import com.esotericsoftware.kryo.io.Input;
+import uk.ac.imperial.io.MultiStateReader;
+import uk.ac.imperial.state.Record;
+
+import java.io.IOException;
+
+/**
+ * Reads the transition records and states of a pair of state space binaries,
+ * whichever format they were written in
+ */
+public interface StateSpaceReader extends MultiStateReader {
+    /**
+     * Moves an input opened at the start of either binary past its header,
+     * so that it is positioned at the first record or state
+     *
+     * @param input input at the start of a binary
+     * @throws IOException if the header cannot be read
+     */
+    void skipHeader(Input input) throws IOException;
+
+    /**
+     * @param input input positioned at a transition record
+     * @return the record
+     * @throws IOException if the record cannot be parsed
+     */
+    Record readRecord(Input input) throws IOException;
+}
@@ -0,0 +1,28 @@
+package pipe.gui.io;
+
+import java.io.IOException;
+
+/**
+ * Unchecked exception thrown when a binary state space stream cannot be read or written.
+ * Iterators and state processors cannot throw checked exceptions so the underlying
+ * {@link IOException} is wrapped and can be retrieved via {@link #getCause()}
+ */
+public class StateStreamException extends RuntimeException {
+    /**
+     *
+     * @param message error message
+     * @param cause underlying IO error
+     */
+    public StateStreamException(String message, IOException cause) {
+        super(message, cause);
+    }
+
+    /**
+     *
+     * @return the IO exception that caused the stream to fail
+     */
+    @Override
+    public synchronized IOException getCause() {
+        return (IOException) super.getCause();
+    }
+}
@@ -0,0 +1,223 @@
+package pipe.gui.io;
+
+import com.esotericsoftware.kryo.io.Input;
+import uk.ac.imperial.state.Record;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazily reads transition records from a binary input one record at a time.
+ * <p>
+ * Unlike {@link uk.ac.imperial.io.EntireStateReader} the records are never all held in
+ * memory, so counting transitions or building results from very large state spaces
+ * uses a constant amount of heap regardless of the size of the binary file.
+ * </p>
+ */
+public final class StreamingStateReader {
+
+    /**
+     * Reader used to parse each individual record
+     */
+    private final StateSpaceReader stateReader;
+
+    /**
+     * @param stateReader reader used to parse each individual record
+     */
+    public StreamingStateReader(StateSpaceReader stateReader) {
+        this.stateReader = stateReader;
+    }
+
+    /**
+     * Iterates over the records remaining in the input. The input is left open
+     * and is the responsibility of the caller to close, but the stream should still be
+     * used in a try-with-resources statement so that it cannot be read once the input is closed.
+     *
+     * @param input binary transitions input, positioned after its header
+     * @return lazy iterator over the records in the input
+     */
+    public RecordStream iterateRecords(Input input) {
+        return new RecordStream(stateReader, input, false);
+    }
+
+    /**
+     * Each call to {@link Iterable#iterator()} opens a new stream on the path, so the
+     * records can be iterated multiple times. Each stream is closed once it has been
+     * exhausted, and closing the returned file closes any stream left open by an early exit,
+     * so it should be used in a try-with-resources statement.
+     *
+     * @param transitions path to the binary transitions file
+     * @return iterable whose iterators lazily read the records in the file
+     */
+    public RecordFile readRecords(Path transitions) {
+        return new RecordFile(stateReader, transitions);
+    }
+
+    /**
+     * Records of a binary transitions file, which can be iterated over multiple times
+     */
+    public static final class RecordFile implements Iterable<Record>, Closeable {
+        /**
+         * Reader used to parse each record
+         */
+        private final StateSpaceReader stateReader;
+
+        /**
+         * Path to the binary transitions file
+         */
+        private final Path transitions;
+
+        /**
+         * Streams opened on the file
+         */
+        private final List<RecordStream> streams = new ArrayList<>();
+
+        /**
+         * Set once the file has been closed
+         */
+        private boolean closed = false;
+
+        /**
+         * @param stateReader reader used to parse each record
+         * @param transitions path to the binary transitions file
+         */
+        private RecordFile(StateSpaceReader stateReader, Path transitions) {
+            this.stateReader = stateReader;
+            this.transitions = transitions;
+        }
+
+        /**
+         * @return new stream over the records in the file
+         * @throws IllegalStateException if the file has been closed
+         */
+        @Override
+        public synchronized RecordStream iterator() {
+            if (closed) {
+                throw new IllegalStateException("Records of " + transitions + " have been closed");
+            }
+            try {
+                InputStream inputStream = Files.newInputStream(transitions);
+                Input input = new Input(inputStream);
+                try {
+                    stateReader.skipHeader(input);
+                } catch (IOException e) {
+                    input.close();
+                    throw e;
+                }
+                RecordStream stream = new RecordStream(stateReader, input, true);
+                streams.add(stream);
+                return stream;
+            } catch (IOException e) {
+                throw new StateStreamException("Could not open " + transitions, e);
+            }
+        }
+
+        /**
+         * Closes every stream opened on the file that has not already been closed
+         */
+        @Override
+        public synchronized void close() {
+            closed = true;
+            for (RecordStream stream : streams) {
+                stream.close();
+            }
+            streams.clear();
+        }
+    }
+
+    /**
+     * Iterator that reads the next record from the input on demand
+     */
+    public static final class RecordStream implements Iterator<Record>, Closeable {
+        /**
+         * Reader used to parse each record
+         */
+        private final StateSpaceReader stateReader;
+
+        /**
+         * Input the records are read from
+         */
+        private final Input input;
+
+        /**
+         * True if this iterator opened the input and must close it once exhausted
+         */
+        private final boolean ownsInput;
+
+        /**
+         * Set once the underlying stream has been closed
+         */
+        private boolean closed = false;
+
+        /**
+         * @param stateReader reader used to parse each record
+         * @param input       input the records are read from
+         * @param ownsInput   true if the input should be closed once it has been read
+         */
+        private RecordStream(StateSpaceReader stateReader, Input input, boolean ownsInput) {
+            this.stateReader = stateReader;
+            this.input = input;
+            this.ownsInput = ownsInput;
+        }
+
+        /**
+         * @return true if there is another record left in the input
+         */
+        @Override
+        public boolean hasNext() {
+            if (closed) {
+                return false;
+            }
+            if (input.eof()) {
+                close();
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * @return the next record in the input
+         */
+        @Override
+        public Record next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            try {
+                return stateReader.readRecord(input);
+            } catch (IOException e) {
+                close();
+                throw new StateStreamException("Could not parse transition record", e);
+            }
+        }
+
+        /**
+         * Records are read only
+         */
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Records cannot be removed from a binary stream");
+        }
+
+        /**
+         * Closes the underlying input if it was opened by this iterator
+         */
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (ownsInput) {
+                input.close();
+            }
+        }
+    }
+}
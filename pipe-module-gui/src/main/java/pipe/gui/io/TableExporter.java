@@ -0,0 +1,264 @@
+package pipe.gui.io;
+
+import javax.swing.table.TableModel;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes the rows of a result table to a file for other tools to read, either as CSV or as a
+ * columnar binary file. Rows are read from the table a chunk at a time and written straight to
+ * the file, so tables of millions of states are exported without holding them in memory.
+ * <p>
+ * The columnar file starts with the magic bytes {@code PIPECOL1}, the number of columns and the
+ * name and type of each column, {@link #INT32}, {@link #FLOAT64} or {@link #STRING}. The rows follow
+ * in groups of up to {@link #CHUNK_ROWS}, each written as its row count followed by every value of
+ * the first column, then every value of the second and so on. Integers are written as four bytes,
+ * floating point numbers as eight and strings in modified UTF-8 as by {@link DataOutputStream#writeUTF}.
+ * Missing integers are written as {@link Integer#MIN_VALUE}, missing numbers as NaN and missing
+ * strings as empty. The file ends with the number of groups, the position of each group, the
+ * number of rows, the position of the number of groups and the magic bytes again, so that a reader
+ * can find any group without reading the others. All values are big-endian.
+ * </p>
+ * The table is read from the exporting thread so must be safe to read from it, and the export stops
+ * with an {@link InterruptedIOException} if that thread is interrupted.
+ */
+public final class TableExporter {
+    /**
+     * Rows read from the table and written at a time
+     */
+    public static final int CHUNK_ROWS = 65536;
+
+    /**
+     * Type of a column of integers
+     */
+    public static final byte INT32 = 1;
+
+    /**
+     * Type of a column of floating point numbers
+     */
+    public static final byte FLOAT64 = 2;
+
+    /**
+     * Type of a column of text
+     */
+    public static final byte STRING = 3;
+
+    /**
+     * Bytes at the start and end of a columnar file
+     */
+    private static final byte[] MAGIC = "PIPECOL1".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Private constructor for utility class
+     */
+    private TableExporter() {
+    }
+
+    /**
+     * Writes the table as CSV with a header row of the column names
+     *
+     * @param model table to export
+     * @param path  file to write to
+     * @return number of rows written
+     * @throws InterruptedIOException if the exporting thread is interrupted
+     */
+    public static long writeCsv(TableModel model, Path path) throws IOException {
+        int columns = model.getColumnCount();
+        int rows = model.getRowCount();
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            for (int column = 0; column < columns; column++) {
+                if (column > 0) {
+                    writer.write(',');
+                }
+                writeCsvText(writer, model.getColumnName(column));
+            }
+            writer.write('\n');
+            for (int row = 0; row < rows; row++) {
+                if (row % CHUNK_ROWS == 0) {
+                    checkInterrupted();
+                }
+                for (int column = 0; column < columns; column++) {
+                    if (column > 0) {
+                        writer.write(',');
+                    }
+                    Object value = model.getValueAt(row, column);
+                    if (value instanceof Number) {
+                        writer.write(value.toString());
+                    } else if (value != null) {
+                        writeCsvText(writer, value.toString());
+                    }
+                }
+                writer.write('\n');
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Writes text as a CSV field, quoted if it contains a separator, quote or line break
+     *
+     * @param writer file writer
+     * @param text   text of the field
+     */
+    private static void writeCsvText(Writer writer, String text) throws IOException {
+        boolean quoted = false;
+        for (int index = 0; index < text.length() && !quoted; index++) {
+            char character = text.charAt(index);
+            quoted = character == ',' || character == '"' || character == '\n' || character == '\r';
+        }
+        if (!quoted) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        for (int index = 0; index < text.length(); index++) {
+            char character = text.charAt(index);
+            if (character == '"') {
+                writer.write('"');
+            }
+            writer.write(character);
+        }
+        writer.write('"');
+    }
+
+    /**
+     * Writes the table as a columnar binary file in the format described above
+     *
+     * @param model table to export
+     * @param path  file to write to
+     * @return number of rows written
+     * @throws InterruptedIOException if the exporting thread is interrupted
+     */
+    public static long writeColumnar(TableModel model, Path path) throws IOException {
+        int columns = model.getColumnCount();
+        int rows = model.getRowCount();
+        byte[] types = new byte[columns];
+        int groups = (rows + CHUNK_ROWS - 1) / CHUNK_ROWS;
+        long[] groupPositions = new long[groups];
+        CountingOutputStream counter = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(path)));
+        try (DataOutputStream output = new DataOutputStream(counter)) {
+            output.write(MAGIC);
+            output.writeInt(columns);
+            for (int column = 0; column < columns; column++) {
+                types[column] = columnType(model.getColumnClass(column));
+                output.writeUTF(model.getColumnName(column));
+                output.writeByte(types[column]);
+            }
+
+            int[][] integers = new int[columns][];
+            double[][] numbers = new double[columns][];
+            String[][] strings = new String[columns][];
+            int chunk = Math.min(rows, CHUNK_ROWS);
+            for (int column = 0; column < columns; column++) {
+                if (types[column] == INT32) {
+                    integers[column] = new int[chunk];
+                } else if (types[column] == FLOAT64) {
+                    numbers[column] = new double[chunk];
+                } else {
+                    strings[column] = new String[chunk];
+                }
+            }
+
+            for (int group = 0; group < groups; group++) {
+                checkInterrupted();
+                int first = group * CHUNK_ROWS;
+                int size = Math.min(CHUNK_ROWS, rows - first);
+                for (int offset = 0; offset < size; offset++) {
+                    for (int column = 0; column < columns; column++) {
+                        Object value = model.getValueAt(first + offset, column);
+                        if (types[column] == INT32) {
+                            integers[column][offset] = value == null ? Integer.MIN_VALUE : ((Number) value).intValue();
+                        } else if (types[column] == FLOAT64) {
+                            numbers[column][offset] = value == null ? Double.NaN : ((Number) value).doubleValue();
+                        } else {
+                            strings[column][offset] = value == null ? "" : value.toString();
+                        }
+                    }
+                }
+                groupPositions[group] = counter.count;
+                output.writeInt(size);
+                for (int column = 0; column < columns; column++) {
+                    for (int offset = 0; offset < size; offset++) {
+                        if (types[column] == INT32) {
+                            output.writeInt(integers[column][offset]);
+                        } else if (types[column] == FLOAT64) {
+                            output.writeDouble(numbers[column][offset]);
+                        } else {
+                            output.writeUTF(strings[column][offset]);
+                        }
+                    }
+                }
+            }
+
+            long footer = counter.count;
+            output.writeInt(groups);
+            for (long position : groupPositions) {
+                output.writeLong(position);
+            }
+            output.writeLong(rows);
+            output.writeLong(footer);
+            output.write(MAGIC);
+        }
+        return rows;
+    }
+
+    /**
+     * @param columnClass class of a column's values
+     * @return type the column is written as
+     */
+    private static byte columnType(Class<?> columnClass) {
+        if (columnClass == Integer.class || columnClass == Short.class || columnClass == Byte.class) {
+            return INT32;
+        }
+        if (Number.class.isAssignableFrom(columnClass)) {
+            return FLOAT64;
+        }
+        return STRING;
+    }
+
+    /**
+     * @throws InterruptedIOException if the exporting thread has been interrupted
+     */
+    private static void checkInterrupted() throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Export was interrupted");
+        }
+    }
+
+    /**
+     * Counts the bytes written, since the count of {@link DataOutputStream} overflows after two gigabytes
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        /**
+         * Bytes written so far
+         */
+        private long count;
+
+        /**
+         * @param out stream to write to
+         */
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -18,6 +18,9 @@ import uk.ac.imperial.state.ClassifiedState;
 import uk.ac.imperial.state.Record;
 import uk.ac.imperial.pipe.visitor.ClonePetriNet;
 
+import pipe.gui.executor.AnalysisExecutor;
+import pipe.gui.executor.AnalysisJob;
+import pipe.gui.statespace.ExplorationProgress;
 import pipe.gui.widget.StateSpaceLoader;
 import pipe.gui.widget.StateSpaceLoaderException;
 import pipe.reachability.algorithm.*;
@@ -118,7 +121,7 @@ public class ProcessGenerator {
 	                                                      public VanishingExplorer create(ExplorerUtilities utils) {
 	                                                          return new SimpleVanishingExplorer();
 	                                                      }
-	                                                  }, 1
+	                                                  }, 1, new ExplorationProgress(), "bounded-1000/simple-vanishing"
 	                );
 	        stateSpace = stateSpaceLoader.loadStateSpace();
         } catch (InvalidRateException | TimelessTrapException | IOException | InterruptedException | ExecutionException | StateSpaceLoaderException e) {
@@ -479,7 +482,7 @@ public class ProcessGenerator {
     	PetriNetName name = new NormalPetriNetName(localAnimatedNet.getNameValue() + " process (" + StringUtils.join(fireSequence, ", ") + ")");
     	processNet.setName(name);
     	
-    	Thread thread = new Thread() {
+    	Runnable generation = new Runnable() {
     		@Override
     		public void run() {
         		generateButton.setEnabled(false);
@@ -691,7 +694,9 @@ public class ProcessGenerator {
        			changeSupport.firePropertyChange(ModuleBridge.MODULE_ADD_PETRINET_MESSAGE, null, processNet);
     		}
     	};
-    	thread.start();
+    	AnalysisJob job = AnalysisExecutor.getInstance().newJob("Process generation", 1);
+    	job.execute(generation);
+    	job.shutdown();
     }
     
     public ProcessGenerator(PetriNet petriNet, FileDialog fileDialog, PropertyChangeSupport changeSupport) {
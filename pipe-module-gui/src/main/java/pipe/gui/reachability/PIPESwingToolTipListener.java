@@ -6,10 +6,18 @@ package pipe.gui.reachability;
 
 import net.sourceforge.jpowergraph.Node;
 import net.sourceforge.jpowergraph.swing.manipulator.DefaultSwingToolTipListener;
+import org.apache.commons.lang.StringUtils;
+import pipe.gui.io.StateSpaceIndex;
 
 import javax.swing.*;
 import java.awt.BorderLayout;
 import java.awt.Color;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * This class displays information about a node in its tooltip
@@ -17,8 +25,46 @@ import java.awt.Color;
  */
 public class PIPESwingToolTipListener 
         extends DefaultSwingToolTipListener {
-	
-  
+
+   /**
+    * Class logger
+    */
+   private static final Logger LOGGER = Logger.getLogger(PIPESwingToolTipListener.class.getName());
+
+   /**
+    * Index into the displayed state space, used to look up successors on demand.
+    * Null if the state space was not written with an index
+    */
+   private StateSpaceIndex stateSpaceIndex;
+
+   /**
+    * @param stateSpaceIndex index into the displayed state space, or null if there is none
+    */
+   public void setStateSpaceIndex(StateSpaceIndex stateSpaceIndex) {
+      this.stateSpaceIndex = stateSpaceIndex;
+   }
+
+   /**
+    * Reads the successors of the state from the index rather than from the graph
+    * so that they are available even if they are not displayed
+    *
+    * @param id state id
+    * @return comma separated successor ids, or an empty string if they cannot be read
+    */
+   private String getSuccessors(int id) {
+      if (stateSpaceIndex == null) {
+         return "";
+      }
+      try {
+         List<Integer> successors = new ArrayList<>(stateSpaceIndex.getRecord(id).successors.keySet());
+         Collections.sort(successors);
+         return StringUtils.join(successors, ", ");
+      } catch (IOException e) {
+         LOGGER.log(Level.WARNING, e.getMessage());
+         return "";
+      }
+   }
+
    @Override
    public boolean addNodeToolTipItems(Node node, JComponent jComponent,
            Color backgroundColor) {
@@ -81,10 +127,13 @@ public class PIPESwingToolTipListener
 //              "</font><hr size=1><font size=3><b>Edges To: </b>" + sTo +
               "</font>");
 */
+      String successors = getSuccessors(stateNode.getId());
+      String successorText = successors.isEmpty() ? "" :
+    		  "<hr size=1><font size=3><b>Successors: </b>" + successors + "</font>";
       JEditorPane editor = new JEditorPane("text/html", "<font size=3><b>" + 
     		  "[" + stateNode.getNodeType() + " " + stateNode.getId() + "]<br>" +
     		  "</font><hr size=1><font size=3><b>Marking: </b><br>" + marking +
-    		  "</font>"
+    		  "</font>" + successorText
       );
       editor.setBackground(backgroundColor);
       editor.setEditable(false);
@@ -12,14 +12,20 @@ import net.sourceforge.jpowergraph.swing.SwingJGraphPane;
 import net.sourceforge.jpowergraph.swing.SwingJGraphScrollPane;
 import net.sourceforge.jpowergraph.swing.manipulator.SwingPopupDisplayer;
 import net.sourceforge.jpowergraph.swtswinginteraction.color.JPowerGraphColor;
+import pipe.gui.io.StateSpaceIndex;
+import pipe.gui.statespace.CompactStateSpace;
+import pipe.gui.statespace.ExplorationCancelledException;
+import pipe.gui.statespace.ExplorationProgress;
+import pipe.gui.statespace.SafetyProperties;
+import pipe.gui.statespace.SafetyProperty;
+import pipe.gui.statespace.SafetyViolationException;
+import pipe.gui.statespace.StubbornSetExplorerUtilities;
 import pipe.gui.widget.GenerateResultsForm;
 import pipe.gui.widget.StateSpaceLoader;
 import pipe.gui.widget.StateSpaceLoaderException;
 import pipe.reachability.algorithm.*;
-import uk.ac.imperial.pipe.exceptions.InvalidRateException;
 import uk.ac.imperial.pipe.models.petrinet.PetriNet;
 import uk.ac.imperial.state.ClassifiedState;
-import uk.ac.imperial.state.Record;
 import uk.ac.imperial.pipe.models.petrinet.Place;
 import uk.ac.imperial.utils.Pair;
 
@@ -58,6 +64,26 @@ public class ReachabilityGraph {
      */
     private static final int MAX_STATES_TO_DISPLAY = 100;
 
+    /**
+     * Property choice exploring the whole state space
+     */
+    private static final String NO_PROPERTY = "end of exploration";
+
+    /**
+     * Property choice stopping at the first deadlock
+     */
+    private static final String DEADLOCK = "deadlock";
+
+    /**
+     * Property choice stopping at the first place holding more tokens than the property field
+     */
+    private static final String PLACE_BOUND = "place bound exceeded";
+
+    /**
+     * Property choice stopping at the first state where the comparison in the property field holds
+     */
+    private static final String EXPRESSION = "expression holds";
+
 
     private JPanel panel1;
 
@@ -76,6 +102,11 @@ public class ReachabilityGraph {
      */
     private JButton saveButton;
 
+    /**
+     * If selected the saved state space binaries are compressed
+     */
+    private JCheckBox compressBinariesCheckBox;
+
     private JLabel textResultsLabel;
     private JPanel textResultsPanel;
 
@@ -86,6 +117,22 @@ public class ReachabilityGraph {
 
     private JTextField maxStatesField;
 
+    /**
+     * Explores only a stubborn set of the enabled transitions of each state, keeping its deadlocks
+     * and violations of the selected property
+     */
+    private JCheckBox reduceCheckBox;
+
+    /**
+     * Property checked on the fly, exploration stops at the first state violating it
+     */
+    private JComboBox<String> propertyComboBox;
+
+    /**
+     * Place bound or expression of the selected property
+     */
+    private JTextField propertyField;
+
     private JPanel stateLoadingPanel;
 
     private JPanel generatePanel;
@@ -93,6 +140,16 @@ public class ReachabilityGraph {
     private DefaultGraph graph = new DefaultGraph();
 
     private StateSpaceLoader stateSpaceLoader;
+
+    /**
+     * Tooltip listener for the graph nodes, given the state space index once results are loaded
+     */
+    private PIPESwingToolTipListener toolTipListener = new PIPESwingToolTipListener();
+
+    /**
+     * Number of threads and generate button, displays the progress of the exploration
+     */
+    private GenerateResultsForm resultsForm;
     
     /**
      * Asks user to select a petrinet. "use current Petri net" can be used to use current petrinet
@@ -153,7 +210,10 @@ public class ReachabilityGraph {
             public void actionPerformed(ActionEvent e) {
                 reachabilityButton.setEnabled(false);
                 coverabilityButton.setEnabled(false);
+                reduceCheckBox.setEnabled(false);
                 includeVanishingStatesCheckBox.setEnabled(false);
+                propertyComboBox.setEnabled(false);
+                propertyField.setEnabled(false);
             }
         };
 
@@ -163,18 +223,37 @@ public class ReachabilityGraph {
                 reachabilityButton.setEnabled(true);
                 coverabilityButton.setEnabled(true);
                 includeVanishingStatesCheckBox.setEnabled(true);
+                propertyComboBox.setEnabled(true);
+                updatePropertyField();
+                updateReduceCheckBox();
+            }
+        };
+        ActionListener explorerListener = new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                updateReduceCheckBox();
             }
         };
 //
         stateSpaceLoader.addPetriNetRadioListener(enableListener);
         stateSpaceLoader.addBinariesListener(disableListener);
+        reachabilityButton.addActionListener(explorerListener);
+        coverabilityButton.addActionListener(explorerListener);
+        propertyComboBox.setModel(
+                new DefaultComboBoxModel<>(new String[]{NO_PROPERTY, DEADLOCK, PLACE_BOUND, EXPRESSION}));
+        propertyComboBox.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                updatePropertyField();
+            }
+        });
         saveButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
                 saveBinaryFiles();
             }
         });
-        GenerateResultsForm resultsForm = new GenerateResultsForm(new GenerateResultsForm.GoAction() {
+        resultsForm = new GenerateResultsForm(new GenerateResultsForm.GoAction() {
             @Override
             public void go(int threads) {
                 calculateResults(threads);
@@ -183,6 +262,47 @@ public class ReachabilityGraph {
         generatePanel.add(resultsForm.getPanel());
     }
 
+    /**
+     * Enables the property field for the properties that need a bound or expression
+     */
+    private void updatePropertyField() {
+        Object property = propertyComboBox.getSelectedItem();
+        propertyField.setEnabled(propertyComboBox.isEnabled() &&
+                (PLACE_BOUND.equals(property) || EXPRESSION.equals(property)));
+    }
+
+    /**
+     * Partial order reduction is only offered for the reachability graph
+     */
+    private void updateReduceCheckBox() {
+        reduceCheckBox.setEnabled(reachabilityButton.isEnabled() && reachabilityButton.isSelected());
+    }
+
+    /**
+     * @return selected property to check whilst exploring, null to explore the whole state space
+     * @throws IllegalArgumentException if the bound or expression of the property is invalid
+     */
+    private SafetyProperty getSafetyProperty() {
+        if (stateSpaceLoader.isBinaryLoadChecked()) {
+            return null;
+        }
+        Object property = propertyComboBox.getSelectedItem();
+        if (DEADLOCK.equals(property)) {
+            return SafetyProperties.deadlockFree();
+        }
+        if (PLACE_BOUND.equals(property)) {
+            try {
+                return SafetyProperties.placeBound(Integer.parseInt(propertyField.getText().trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Place bound " + propertyField.getText() + " is not a number", e);
+            }
+        }
+        if (EXPRESSION.equals(property)) {
+            return SafetyProperties.expression(stateSpaceLoader.getPetriNet(), propertyField.getText());
+        }
+        return null;
+    }
+
     /**
      * Sets up the graph and returns the JPanel to add to
      * the resultsPanel
@@ -217,7 +337,7 @@ public class ReachabilityGraph {
 
         pane.setAntialias(true);
 
-        pane.setPopupDisplayer(new SwingPopupDisplayer(new PIPESwingToolTipListener(),
+        pane.setPopupDisplayer(new SwingPopupDisplayer(toolTipListener,
                 new PIPESwingContextMenuListener(graph, new LensSet(), new Integer[]{}, new Integer[]{})));
 
         return new SwingJGraphScrollPane(pane, lensSet);
@@ -240,65 +360,210 @@ public class ReachabilityGraph {
     		return;
     	}
     	
+        final boolean coverability = coverabilityButton.isSelected();
+        final boolean reduce = reduceCheckBox.isSelected() && !coverability;
+        final boolean includeVanishing = includeVanishingStatesCheckBox.isSelected();
+        final int maxStates = Integer.valueOf(maxStatesField.getText());
+        final int numberOfThreads = threads;
+        final SafetyProperty property;
         try {
-            StateSpaceExplorer.StateSpaceExplorerResults results =
-                    stateSpaceLoader.calculateResults(new StateSpaceLoader.ExplorerCreator() {
-                                                          @Override
-                                                          public ExplorerUtilities create(PetriNet petriNet) {
-                                                              return getExplorerUtilities(petriNet);
-                                                          }
-                                                      }, new StateSpaceLoader.VanishingExplorerCreator() {
-                                                          @Override
-                                                          public VanishingExplorer create(ExplorerUtilities utils) {
-                                                              return getVanishingExplorer(utils);
-                                                          }
-                                                      }, threads
-                    );
-            updateTextResults(results.numberOfStates, results.processedTransitions);
-            if (results.numberOfStates <= MAX_STATES_TO_DISPLAY) {
-                StateSpaceLoader.Results stateSpace = stateSpaceLoader.loadStateSpace();
-                updateGraph(stateSpace.records, stateSpace.stateMappings);
-            }
+            property = getSafetyProperty();
+        } catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(getMainPanel(), e.getMessage(), "Invalid property", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        final StateSpaceLoader.Options loadOptions = stateSpaceLoader.getOptions();
+        final ExplorationProgress progress = new ExplorationProgress();
+        stateSpaceLoader.setBatchSize(resultsForm.getBatchSize());
+        stateSpaceLoader.setSpillToDisk(resultsForm.isSpillToDisk());
+        stateSpaceLoader.setSafetyProperty(property);
+
+        SwingWorker<Pair<StateSpaceExplorer.StateSpaceExplorerResults, StateSpaceLoader.Results>, Void> worker =
+                new SwingWorker<Pair<StateSpaceExplorer.StateSpaceExplorerResults, StateSpaceLoader.Results>, Void>() {
+                    @Override
+                    protected Pair<StateSpaceExplorer.StateSpaceExplorerResults, StateSpaceLoader.Results> doInBackground()
+                            throws Exception {
+                        StateSpaceExplorer.StateSpaceExplorerResults results =
+                                stateSpaceLoader.calculateResults(loadOptions, new StateSpaceLoader.ExplorerCreator() {
+                                                                      @Override
+                                                                      public ExplorerUtilities create(PetriNet petriNet) {
+                                                                          return getExplorerUtilities(petriNet, coverability, maxStates,
+                                                                                  reduce, property);
+                                                                      }
+                                                                  }, new StateSpaceLoader.VanishingExplorerCreator() {
+                                                                      @Override
+                                                                      public VanishingExplorer create(ExplorerUtilities utils) {
+                                                                          return getVanishingExplorer(utils, includeVanishing);
+                                                                      }
+                                                                  }, numberOfThreads, progress,
+                                        getExplorerOptions(coverability, maxStates, reduce, includeVanishing)
+                                );
+                        StateSpaceLoader.Results stateSpace = null;
+                        if (results.numberOfStates <= MAX_STATES_TO_DISPLAY) {
+                            stateSpace = stateSpaceLoader.loadStateSpace();
+                        }
+                        return new Pair<>(results, stateSpace);
+                    }
+
+                    @Override
+                    protected void done() {
+                        displayResults(this, progress, property);
+                    }
+                };
+        resultsForm.monitor(progress, worker);
+        worker.execute();
+    }
 
-        } catch (InvalidRateException | TimelessTrapException | IOException | InterruptedException | ExecutionException e) {
+    /**
+     * Displays the results of a finished exploration, called on the event dispatch thread
+     *
+     * @param worker   finished exploration containing the results and, if it is small enough to display, the state space
+     * @param progress progress of the finished exploration
+     * @param property property checked whilst exploring, null if none was
+     */
+    private void displayResults(
+            SwingWorker<Pair<StateSpaceExplorer.StateSpaceExplorerResults, StateSpaceLoader.Results>, Void> worker,
+            ExplorationProgress progress, SafetyProperty property) {
+        if (worker.isCancelled()) {
+            textResultsLabel.setText("Results: exploration cancelled");
+            return;
+        }
+        try {
+            Pair<StateSpaceExplorer.StateSpaceExplorerResults, StateSpaceLoader.Results> result = worker.get();
+            StateSpaceExplorer.StateSpaceExplorerResults results = result.getLeft();
+            updateTextResults(results.numberOfStates, results.processedTransitions, progress.getBatchSummary());
+            if (property != null) {
+                textResultsLabel.setText(textResultsLabel.getText() + ", no " + property.getDescription() + " found");
+            }
+            StateSpaceLoader.Results stateSpace = result.getRight();
+            if (stateSpace != null) {
+                toolTipListener.setStateSpaceIndex(stateSpaceLoader.getStateSpaceIndex());
+                updateGraph(stateSpace.stateSpace, stateSpace.stateMappings);
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ExplorationCancelledException) {
+                textResultsLabel.setText("Results: exploration cancelled");
+            } else if (cause instanceof SafetyViolationException) {
+                displayViolation((SafetyViolationException) cause, progress);
+            } else if (cause instanceof StateSpaceLoaderException) {
+                JOptionPane.showMessageDialog(panel1, cause.getMessage(), "GSPN Analysis Error", JOptionPane.ERROR_MESSAGE);
+            } else {
+                LOGGER.log(Level.SEVERE, cause.toString());
+                JOptionPane.showMessageDialog(panel1, cause.toString(), "State space explorer error", JOptionPane.ERROR_MESSAGE);
+            }
+        } catch (InterruptedException | IOException e) {
             LOGGER.log(Level.SEVERE, e.toString());
             JOptionPane.showMessageDialog(panel1, e.toString(), "State space explorer error", JOptionPane.ERROR_MESSAGE);
-        } catch (StateSpaceLoaderException e) {
-            JOptionPane.showMessageDialog(panel1, e.getMessage(), "GSPN Analysis Error", JOptionPane.ERROR_MESSAGE);
         }
     }
 
     /**
-     * Copies the temporary files to a permanent loaction
+     * Reports the violating state found by an exploration and shows the path leading to it
+     *
+     * @param violation violation found
+     * @param progress  progress of the stopped exploration
+     */
+    private void displayViolation(SafetyViolationException violation, ExplorationProgress progress) {
+        textResultsLabel.setText(String.format("Results: found %s in state %d after exploring %d states",
+                violation.getProperty().getDescription(), violation.getViolatingState(),
+                progress.getStatesExplored()));
+        JTextArea trace = new JTextArea(getTrace(violation), 20, 60);
+        trace.setEditable(false);
+        JOptionPane.showMessageDialog(panel1, new JScrollPane(trace),
+                "Found " + violation.getProperty().getDescription(), JOptionPane.WARNING_MESSAGE);
+    }
+
+    /**
+     * @param violation violation found
+     * @return each state on the path to the violation and the transitions fired between them,
+     *         markings are read from the partially written binaries when they are indexed
+     */
+    private String getTrace(SafetyViolationException violation) {
+        StateSpaceIndex index = null;
+        try {
+            index = stateSpaceLoader.getStateSpaceIndex();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not index the explored states, showing the path without markings", e);
+        }
+        int[] path = violation.getPath();
+        List<Collection<String>> transitions = violation.getTransitions();
+        int firstTransition = path.length - 1 - transitions.size();
+        StringBuilder trace = new StringBuilder();
+        for (int i = 0; i < path.length; i++) {
+            if (i > firstTransition) {
+                trace.append("  --").append(StringUtils.join(transitions.get(i - firstTransition - 1), ", "))
+                        .append("-->\n");
+            }
+            trace.append('[').append(path[i]).append(']');
+            if (index != null && index.containsState(path[i])) {
+                try {
+                    trace.append(' ').append(index.getState(path[i]).asMap());
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Could not read state " + path[i], e);
+                }
+            }
+            trace.append('\n');
+        }
+        return trace.toString();
+    }
+
+    /**
+     * Copies the temporary files to a permanent loaction, compressing them if requested
      */
     private void saveBinaryFiles() {
-        stateSpaceLoader.saveBinaryFiles();
+        stateSpaceLoader.saveBinaryFiles(compressBinariesCheckBox.isSelected());
     }
 
     /**
      * Creates the explorer utilities based upon whether the coverability or reachability graph
      * is being generate
      *
-     * @param petriNet  petrinet
+     * @param petriNet      petrinet
+     * @param coverability  true if the coverability graph is being generated
+     * @param maxStates     approximate maximum number of states to explore for the reachability graph
+     * @param reduce        true if only a stubborn set of transitions is explored in each state of the reachability graph
+     * @param property      property checked whilst exploring whose violations the reduction must keep, null if none is
      * @return explorer utilities for generating state space
      */
-    private ExplorerUtilities getExplorerUtilities(PetriNet petriNet) {
-        if (coverabilityButton.isSelected()) {
+    private ExplorerUtilities getExplorerUtilities(PetriNet petriNet, boolean coverability, int maxStates,
+                                                   boolean reduce, SafetyProperty property) {
+        if (coverability) {
             return new CoverabilityExplorerUtilities(new UnboundedExplorerUtilities(petriNet));
         }
 
-        return new BoundedExplorerUtilities(petriNet, Integer.valueOf(maxStatesField.getText()));
+        ExplorerUtilities utilities = new BoundedExplorerUtilities(petriNet, maxStates);
+        if (reduce) {
+            return new StubbornSetExplorerUtilities(utilities, petriNet, property);
+        }
+        return utilities;
 
     }
 
+    /**
+     * Describes the explorers created by {@link #getExplorerUtilities} and {@link #getVanishingExplorer}
+     * so that state spaces can be shared through the state space cache
+     *
+     * @param coverability      true if the coverability graph is being generated
+     * @param maxStates         approximate maximum number of states to explore for the reachability graph
+     * @param reduce            true if only a stubborn set of transitions is explored in each state
+     * @param includeVanishing  true if vanishing states are to be included in the graph
+     * @return explorer options
+     */
+    private String getExplorerOptions(boolean coverability, int maxStates, boolean reduce, boolean includeVanishing) {
+        String explorer = coverability ? "coverability" : "bounded-" + maxStates + (reduce ? "-stubborn" : "");
+        return explorer + (includeVanishing ? "/simple-vanishing" : "/on-the-fly-vanishing");
+    }
+
     /**
      * Vanishing explorer is either a {@link pipe.reachability.algorithm.SimpleVanishingExplorer} if
      * vanishing states are to be included in the graph, else it is {@link pipe.reachability.algorithm.OnTheFlyVanishingExplorer}
      *
      * @param explorerUtilities  previously generated explorer utilities
+     * @param includeVanishing   true if vanishing states are to be included in the graph
      */
-    private VanishingExplorer getVanishingExplorer(ExplorerUtilities explorerUtilities) {
-        if (includeVanishingStatesCheckBox.isSelected()) {
+    private VanishingExplorer getVanishingExplorer(ExplorerUtilities explorerUtilities, boolean includeVanishing) {
+        if (includeVanishing) {
             return new SimpleVanishingExplorer();
         }
         return new OnTheFlyVanishingExplorer(explorerUtilities);
@@ -307,25 +572,29 @@ public class ReachabilityGraph {
     /**
      * Updates the text results with the number of states and transitions
      *
-     * @param states      number of states
-     * @param transitions number of transitions
+     * @param states       number of states
+     * @param transitions  number of transitions
+     * @param batchSummary batch size and thread utilisation of a parallel exploration, empty if there was none
      */
-    private void updateTextResults(int states, int transitions) {
+    private void updateTextResults(int states, int transitions, String batchSummary) {
         StringBuilder results = new StringBuilder();
         results.append("Results: ").append(states).append(" states and ").append(transitions).append(" transitions");
+        if (!batchSummary.isEmpty()) {
+            results.append(", ").append(batchSummary);
+        }
         textResultsLabel.setText(results.toString());
     }
 
     /**
-     * Updates the mxGraph to display the records
+     * Updates the mxGraph to display the state space
      *
-     * @param records  state transitions from a processed Petri net
-     * @param stateMap state map
+     * @param stateSpace state transitions from a processed Petri net
+     * @param stateMap   state map
      */
-    private void updateGraph(Iterable<Record> records, Map<Integer, ClassifiedState> stateMap) {
+    private void updateGraph(CompactStateSpace stateSpace, Map<Integer, ClassifiedState> stateMap) {
         graph.clear();
         Map<Integer, Node> nodes = getNodes(stateMap);
-        Collection<Edge> edges = getEdges(records, nodes);
+        Collection<Edge> edges = getEdges(stateSpace, nodes);
         graph.addElements(nodes.values(), edges);
         layoutGraph();
     }
@@ -354,21 +623,22 @@ public class ReachabilityGraph {
     /**
      * All edges to be added to the graph
      *
-     * @param records  records of states, and all states that can be reached from each state
-     * @param nodes    map of ids to the corresponding state nodes
-     * @return         all directional edges between state nodes A and B, where B can be reached from A
+     * @param stateSpace states, and all states that can be reached from each state
+     * @param nodes      map of ids to the corresponding state nodes
+     * @return           all directional edges between state nodes A and B, where B can be reached from A
      */
-    private Collection<Edge> getEdges(Iterable<Record> records, Map<Integer, Node> nodes) {
+    private Collection<Edge> getEdges(CompactStateSpace stateSpace, Map<Integer, Node> nodes) {
         Collection<Edge> edges = new ArrayList<>();
         Map<Node,Set<Node>> connections = new HashMap<>();
+        int[] rowOffsets = stateSpace.getRowOffsets();
+        int[] targets = stateSpace.getTargets();
+        double[] rates = stateSpace.getRates();
         
-        for (Record record : records) {
-            int state = record.state;
-            for (Map.Entry<Integer, Pair<Double, Collection<String>>> entry : record.successors.entrySet()) {
-                int succ = entry.getKey();
-                ArrayList<String> transitionNames = (ArrayList<String>) entry.getValue().getRight();
-                Collections.sort(transitionNames);
-                double rate = entry.getValue().getLeft();
+        for (int state = 0; state < stateSpace.getStateCount(); state++) {
+            for (int edge = rowOffsets[state]; edge < rowOffsets[state + 1]; edge++) {
+                int succ = targets[edge];
+                Collection<String> transitionNames = stateSpace.getLabel(edge);
+                double rate = rates[edge];
                 
                 Node startNode = nodes.get(state);
                 Node endNode = nodes.get(succ);
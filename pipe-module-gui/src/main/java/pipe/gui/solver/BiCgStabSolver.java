@@ -0,0 +1,206 @@
+package pipe.gui.solver;
+
+import java.util.Arrays;
+
+/**
+ * Solves {@code pi Q = 0} with the Krylov subspace method BiCGSTAB, preconditioned by the diagonal of Q.
+ * <p>
+ * The singular system {@code Q^T x = 0} is made regular by replacing the equation of the first
+ * state with {@code x_0 = 1}, which has a unique solution when the chain is irreducible and keeps
+ * the system as well scaled as Q, unlike replacing it with the normalisation. Krylov methods usually need far fewer iterations than the stationary methods on
+ * stiff models, but the iterates are not distributions so the residual recorded is that of the
+ * iterate with negative entries removed and normalised. The method restarts from the best
+ * iterate so far whenever it breaks down, diverges or stops improving.
+ * </p>
+ */
+public final class BiCgStabSolver extends IterativeSolver {
+    /**
+     * Index of the state whose equation is replaced by fixing its unnormalised probability at one
+     */
+    private static final int NORMALISED = 0;
+
+    /**
+     * Restarts allowed after the method breaks down or diverges
+     */
+    private static final int MAX_RESTARTS = 10;
+
+    /**
+     * Growth of the residual over the best so far at which the iterations are treated as diverging
+     */
+    private static final double DIVERGENCE = 1e6;
+
+    /**
+     * Iterations without improving on the best residual after which the method restarts
+     */
+    private static final int STAGNATION = 500;
+
+    /**
+     * @param tolerance     largest residual accepted as converged
+     * @param maxIterations iterations after which the solver gives up
+     */
+    public BiCgStabSolver(double tolerance, int maxIterations) {
+        super(tolerance, maxIterations);
+    }
+
+    @Override
+    protected String getName() {
+        return "BiCGSTAB (Jacobi preconditioner)";
+    }
+
+    @Override
+    protected ConvergenceTelemetry iterate(GeneratorMatrix matrix, double[] distribution,
+                                          ConvergenceTelemetry.Recorder recorder) {
+        int states = distribution.length;
+        double[] x = new double[states];
+        Arrays.fill(x, 1);
+        double[] r = new double[states];
+        double[] rHat = new double[states];
+        double[] p = new double[states];
+        double[] v = new double[states];
+        double[] y = new double[states];
+        double[] s = new double[states];
+        double[] z = new double[states];
+        double[] t = new double[states];
+        double[] candidate = new double[states];
+
+        recorder.record(distributionResidual(matrix, x, candidate));
+        boolean converged = recorder.last() < tolerance;
+        double best = recorder.last();
+        System.arraycopy(candidate, 0, distribution, 0, states);
+
+        int iteration = 0;
+        int restarts = 0;
+        int improved = 0;
+        boolean restart = true;
+        double rho = 1;
+        double alpha = 1;
+        double omega = 1;
+        while (!converged && iteration < maxIterations && restarts <= MAX_RESTARTS) {
+            checkInterrupted();
+            if (restart) {
+                multiply(matrix, x, r);
+                for (int index = 0; index < states; index++) {
+                    r[index] = rightHandSide(index) - r[index];
+                    rHat[index] = r[index];
+                    p[index] = 0;
+                    v[index] = 0;
+                }
+                rho = 1;
+                alpha = 1;
+                omega = 1;
+                restart = false;
+            }
+            double rhoNext = dot(rHat, r);
+            if (rhoNext == 0 || omega == 0) {
+                restart = true;
+                restarts++;
+                continue;
+            }
+            double beta = (rhoNext / rho) * (alpha / omega);
+            for (int index = 0; index < states; index++) {
+                p[index] = r[index] + beta * (p[index] - omega * v[index]);
+            }
+            precondition(matrix, p, y);
+            multiply(matrix, y, v);
+            double rHatV = dot(rHat, v);
+            if (rHatV == 0) {
+                restart = true;
+                restarts++;
+                continue;
+            }
+            alpha = rhoNext / rHatV;
+            for (int index = 0; index < states; index++) {
+                s[index] = r[index] - alpha * v[index];
+            }
+            precondition(matrix, s, z);
+            multiply(matrix, z, t);
+            double tt = dot(t, t);
+            omega = tt == 0 ? 0 : dot(t, s) / tt;
+            for (int index = 0; index < states; index++) {
+                x[index] += alpha * y[index] + omega * z[index];
+                r[index] = s[index] - omega * t[index];
+            }
+            rho = rhoNext;
+            iteration++;
+
+            recorder.record(distributionResidual(matrix, x, candidate));
+            converged = recorder.last() < tolerance;
+            if (recorder.last() < best) {
+                best = recorder.last();
+                improved = iteration;
+                System.arraycopy(candidate, 0, distribution, 0, states);
+            } else if (!(recorder.last() < best * DIVERGENCE) || iteration - improved >= STAGNATION) {
+                improved = iteration;
+                for (int index = 0; index < states; index++) {
+                    x[index] = distribution[index] * states;
+                }
+                restart = true;
+                restarts++;
+            }
+        }
+        if (!(recorder.last() <= best)) {
+            recorder.record(best);
+        }
+        return recorder.finish(getName(), iteration, converged);
+    }
+
+    /**
+     * @param index state index
+     * @return right hand side of the regular system
+     */
+    private static double rightHandSide(int index) {
+        return index == NORMALISED ? 1 : 0;
+    }
+
+    /**
+     * Computes the product of the regular system's matrix, {@code Q^T} with the fixed
+     * state's row replaced by its unit row, and x
+     *
+     * @param matrix generator of the chain
+     * @param x      vector to multiply
+     * @param result vector to hold the product
+     */
+    private static void multiply(GeneratorMatrix matrix, double[] x, double[] result) {
+        matrix.multiply(x, result, 0, x.length);
+        result[NORMALISED] = x[NORMALISED];
+    }
+
+    /**
+     * Divides by the diagonal of the regular system's matrix
+     *
+     * @param matrix generator of the chain
+     * @param x      vector to precondition
+     * @param result vector to hold the preconditioned vector
+     */
+    private static void precondition(GeneratorMatrix matrix, double[] x, double[] result) {
+        for (int index = 0; index < x.length; index++) {
+            double inverseExitRate = matrix.getInverseExitRate(index);
+            result[index] = index == NORMALISED || inverseExitRate == 0 ? x[index] : -x[index] * inverseExitRate;
+        }
+    }
+
+    /**
+     * @param matrix    generator of the chain
+     * @param x         current iterate
+     * @param candidate vector to hold the iterate as a distribution
+     * @return residual of the iterate as a distribution
+     */
+    private static double distributionResidual(GeneratorMatrix matrix, double[] x, double[] candidate) {
+        for (int index = 0; index < x.length; index++) {
+            candidate[index] = Math.max(x[index], 0);
+        }
+        normalise(candidate);
+        return matrix.residual(candidate);
+    }
+
+    /**
+     * @return dot product of the vectors
+     */
+    private static double dot(double[] a, double[] b) {
+        double result = 0;
+        for (int index = 0; index < a.length; index++) {
+            result += a[index] * b[index];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,156 @@
+package pipe.gui.solver;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How a steady state solve converged, so that the solvers can be compared on a model
+ */
+public final class ConvergenceTelemetry {
+    /**
+     * Description of the solver and any parameters it tuned
+     */
+    private final String method;
+
+    /**
+     * Iterations performed, or -1 if the solver does not report them
+     */
+    private final int iterations;
+
+    /**
+     * Residual after each recorded iteration
+     */
+    private final double[] residuals;
+
+    /**
+     * Time spent solving
+     */
+    private final long nanos;
+
+    /**
+     * True if the residual fell below the tolerance
+     */
+    private final boolean converged;
+
+    /**
+     * @param method     description of the solver and any parameters it tuned
+     * @param iterations iterations performed, or -1 if the solver does not report them
+     * @param residuals  residual after each recorded iteration
+     * @param nanos      time spent solving
+     * @param converged  true if the residual fell below the tolerance
+     */
+    public ConvergenceTelemetry(String method, int iterations, double[] residuals, long nanos, boolean converged) {
+        this.method = method;
+        this.iterations = iterations;
+        this.residuals = residuals;
+        this.nanos = nanos;
+        this.converged = converged;
+    }
+
+    /**
+     * @return description of the solver and any parameters it tuned
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * @return iterations performed, or -1 if the solver does not report them
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return residual after each recorded iteration, the largest absolute value of an entry
+     * of {@code pi Q} divided by the exit rate of its state
+     */
+    public double[] getResiduals() {
+        return Arrays.copyOf(residuals, residuals.length);
+    }
+
+    /**
+     * @return residual of the returned distribution, or NaN if none was recorded
+     */
+    public double getFinalResidual() {
+        return residuals.length == 0 ? Double.NaN : residuals[residuals.length - 1];
+    }
+
+    /**
+     * @return time spent solving in milliseconds
+     */
+    public long getMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    /**
+     * @return true if the residual fell below the tolerance
+     */
+    public boolean isConverged() {
+        return converged;
+    }
+
+    @Override
+    public String toString() {
+        return method + (converged ? " converged" : " did not converge") +
+                (iterations < 0 ? "" : " after " + iterations + " iterations") +
+                " in " + getMillis() + "ms with residual " + getFinalResidual();
+    }
+
+    /**
+     * Records the residuals of an iterative solve as it runs
+     */
+    static final class Recorder {
+        /**
+         * Time the solve started
+         */
+        private final long start = System.nanoTime();
+
+        /**
+         * Residual after each iteration
+         */
+        private double[] residuals = new double[64];
+
+        /**
+         * Number of residuals recorded
+         */
+        private int count;
+
+        /**
+         * @param residual residual after the latest iteration
+         */
+        void record(double residual) {
+            if (count == residuals.length) {
+                residuals = Arrays.copyOf(residuals, count * 2);
+            }
+            residuals[count++] = residual;
+        }
+
+        /**
+         * @return residual after the latest iteration, or infinity if none has been recorded
+         */
+        double last() {
+            return count == 0 ? Double.POSITIVE_INFINITY : residuals[count - 1];
+        }
+
+        /**
+         * @param iterations number of iterations before the latest one
+         * @return residual recorded that many iterations ago, or infinity if there is none
+         */
+        double before(int iterations) {
+            int index = count - 1 - iterations;
+            return index < 0 ? Double.POSITIVE_INFINITY : residuals[index];
+        }
+
+        /**
+         * @param method     description of the solver and any parameters it tuned
+         * @param iterations iterations performed
+         * @param converged  true if the residual fell below the tolerance
+         * @return telemetry of the finished solve
+         */
+        ConvergenceTelemetry finish(String method, int iterations, boolean converged) {
+            return new ConvergenceTelemetry(method, iterations, Arrays.copyOf(residuals, count),
+                    System.nanoTime() - start, converged);
+        }
+    }
+}
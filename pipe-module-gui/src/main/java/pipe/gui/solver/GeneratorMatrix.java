@@ -0,0 +1,161 @@
+package pipe.gui.solver;
+
+/**
+ * Infinitesimal generator Q of a CTMC, stored by column so that the steady state
+ * equations {@code pi Q = 0} can be evaluated one state at a time. States are
+ * indexed by their id in the transition records.
+ * <p>
+ * The transitions into state {@code i} are stored in positions {@code columnOffsets[i]} to
+ * {@code columnOffsets[i + 1] - 1} of the sources and rates arrays. The diagonal is kept
+ * separately as the exit rate of each state, together with its inverse so that the solvers
+ * multiply rather than divide. Self loops do not change the distribution and are dropped.
+ * </p>
+ * Matrices are built by {@link GeneratorMatrixBuilder}.
+ */
+public final class GeneratorMatrix {
+    /**
+     * Start of each state's incoming transitions, has length number of states + 1
+     */
+    private final int[] columnOffsets;
+
+    /**
+     * Source state of each incoming transition
+     */
+    private final int[] sources;
+
+    /**
+     * Rate of each incoming transition
+     */
+    private final double[] rates;
+
+    /**
+     * Total rate out of each state, the negated diagonal of Q and the sum of the rest of its row
+     */
+    private final double[] exitRates;
+
+    /**
+     * Inverse of each state's exit rate, or 0 if it has no transitions out of it
+     */
+    private final double[] inverseExitRates;
+
+    /**
+     * Largest exit rate of any state
+     */
+    private final double maxExitRate;
+
+    /**
+     * @param columnOffsets start of each state's incoming transitions
+     * @param sources       source state of each incoming transition
+     * @param rates         rate of each incoming transition
+     * @param exitRates     total rate out of each state
+     */
+    GeneratorMatrix(int[] columnOffsets, int[] sources, double[] rates, double[] exitRates) {
+        this.columnOffsets = columnOffsets;
+        this.sources = sources;
+        this.rates = rates;
+        this.exitRates = exitRates;
+        inverseExitRates = new double[exitRates.length];
+        double max = 0;
+        for (int state = 0; state < exitRates.length; state++) {
+            max = Math.max(max, exitRates[state]);
+            inverseExitRates[state] = exitRates[state] > 0 ? 1 / exitRates[state] : 0;
+        }
+        maxExitRate = max;
+    }
+
+    /**
+     * @return number of states
+     */
+    public int getStateCount() {
+        return exitRates.length;
+    }
+
+    /**
+     * @return number of transitions between different states
+     */
+    public int getTransitionCount() {
+        return sources.length;
+    }
+
+    /**
+     * @param index state index
+     * @return total rate out of the state
+     */
+    public double getExitRate(int index) {
+        return exitRates[index];
+    }
+
+    /**
+     * @param index state index
+     * @return inverse of the total rate out of the state, or 0 if it has no transitions out of it
+     */
+    public double getInverseExitRate(int index) {
+        return inverseExitRates[index];
+    }
+
+    /**
+     * @return largest exit rate of any state
+     */
+    public double getMaxExitRate() {
+        return maxExitRate;
+    }
+
+    /**
+     * @return rate of the uniformised chain, slightly larger than every exit rate so that it is aperiodic
+     */
+    public double getUniformisationRate() {
+        return maxExitRate > 0 ? maxExitRate * 1.02 : 1;
+    }
+
+    /**
+     * @param distribution probability of each state index
+     * @param index        state index
+     * @return probability flowing into the state per unit time
+     */
+    public double inflow(double[] distribution, int index) {
+        double inflow = 0;
+        for (int position = columnOffsets[index]; position < columnOffsets[index + 1]; position++) {
+            inflow += distribution[sources[position]] * rates[position];
+        }
+        return inflow;
+    }
+
+    /**
+     * Computes {@code x Q} for the states {@code from} to {@code to - 1}
+     *
+     * @param x      row vector
+     * @param result vector to hold the product
+     * @param from   first state index
+     * @param to     state index after the last
+     */
+    public void multiply(double[] x, double[] result, int from, int to) {
+        for (int index = from; index < to; index++) {
+            result[index] = inflow(x, index) - x[index] * exitRates[index];
+        }
+    }
+
+    /**
+     * @param index state index
+     * @return rate the state's entry of {@code pi Q} is divided by to estimate the error in its probability,
+     * the exit rate of the state or the uniformisation rate if it has none
+     */
+    public double getResidualScale(int index) {
+        return exitRates[index] > 0 ? exitRates[index] : getUniformisationRate();
+    }
+
+    /**
+     * Residuals are scaled by each state's exit rate rather than one rate for the whole
+     * chain, so that the probabilities of slow states in stiff chains are as accurate as fast ones
+     *
+     * @param distribution probability of each state index
+     * @return largest absolute value of an entry of {@code pi Q} divided by its residual scale
+     */
+    public double residual(double[] distribution) {
+        double residual = 0;
+        for (int index = 0; index < exitRates.length; index++) {
+            double entry = inflow(distribution, index) - distribution[index] * exitRates[index];
+            residual = Math.max(residual, Math.abs(entry) / getResidualScale(index));
+        }
+        return residual;
+    }
+}
@@ -0,0 +1,141 @@
+package pipe.gui.solver;
+
+import pipe.gui.statespace.CompactStateSpace;
+import uk.ac.imperial.state.Record;
+import uk.ac.imperial.utils.Pair;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Builds the {@link GeneratorMatrix} of an explored state space without boxing its transitions.
+ * <p>
+ * A compact state space already holds the transitions row by row in primitive arrays, so its
+ * generator is its transpose. Records are read twice, once to count the transitions into each
+ * state and sum the exit rates and once to fill in the columns, so they should be streamed
+ * from the binaries rather than read into a collection.
+ * </p>
+ */
+public final class GeneratorMatrixBuilder {
+    /**
+     * Private constructor for utility class
+     */
+    private GeneratorMatrixBuilder() {
+    }
+
+    /**
+     * @param stateSpace explored state space
+     * @return generator of the state space, states without a transition record have no transitions out of them
+     */
+    public static GeneratorMatrix build(CompactStateSpace stateSpace) {
+        int states = stateSpace.getStateCount();
+        int[] rowOffsets = stateSpace.getRowOffsets();
+        int[] targets = stateSpace.getTargets();
+        double[] edgeRates = stateSpace.getRates();
+
+        int[] columnOffsets = new int[states + 1];
+        double[] exitRates = new double[states];
+        for (int source = 0; source < states; source++) {
+            for (int edge = rowOffsets[source]; edge < rowOffsets[source + 1]; edge++) {
+                if (targets[edge] != source) {
+                    columnOffsets[targets[edge] + 1]++;
+                    exitRates[source] += edgeRates[edge];
+                }
+            }
+        }
+        prefixSum(columnOffsets);
+
+        int[] next = Arrays.copyOf(columnOffsets, states);
+        int[] sources = new int[columnOffsets[states]];
+        double[] rates = new double[sources.length];
+        for (int source = 0; source < states; source++) {
+            for (int edge = rowOffsets[source]; edge < rowOffsets[source + 1]; edge++) {
+                int target = targets[edge];
+                if (target != source) {
+                    int position = next[target]++;
+                    sources[position] = source;
+                    rates[position] = edgeRates[edge];
+                }
+            }
+        }
+        return new GeneratorMatrix(columnOffsets, sources, rates, exitRates);
+    }
+
+    /**
+     * @param records transition records with non negative state ids, iterated over twice
+     * @return generator of the records, states without a transition record have no transitions out of them
+     */
+    public static GeneratorMatrix build(Iterable<Record> records) {
+        int[] counts = new int[16];
+        double[] exitRates = new double[16];
+        int states = 0;
+        for (Record record : records) {
+            states = Math.max(states, record.state + 1);
+            exitRates = ensureCapacity(exitRates, states);
+            for (Map.Entry<Integer, Pair<Double, Collection<String>>> entry : record.successors.entrySet()) {
+                int target = entry.getKey();
+                states = Math.max(states, target + 1);
+                if (target != record.state) {
+                    counts = ensureCapacity(counts, target + 2);
+                    counts[target + 1]++;
+                    exitRates[record.state] += entry.getValue().getLeft();
+                }
+            }
+        }
+
+        int[] columnOffsets = Arrays.copyOf(counts, states + 1);
+        prefixSum(columnOffsets);
+        exitRates = Arrays.copyOf(exitRates, states);
+
+        int[] next = Arrays.copyOf(columnOffsets, states);
+        int[] sources = new int[columnOffsets[states]];
+        double[] rates = new double[sources.length];
+        for (Record record : records) {
+            for (Map.Entry<Integer, Pair<Double, Collection<String>>> entry : record.successors.entrySet()) {
+                int target = entry.getKey();
+                if (target != record.state) {
+                    int position = next[target]++;
+                    sources[position] = record.state;
+                    rates[position] = entry.getValue().getLeft();
+                }
+            }
+        }
+        return new GeneratorMatrix(columnOffsets, sources, rates, exitRates);
+    }
+
+    /**
+     * Replaces each count after the first with the sum of the counts up to it
+     *
+     * @param offsets counts shifted up by one, becomes the offsets
+     */
+    private static void prefixSum(int[] offsets) {
+        for (int index = 1; index < offsets.length; index++) {
+            offsets[index] += offsets[index - 1];
+        }
+    }
+
+    /**
+     * @param array    array to grow
+     * @param required minimum length
+     * @return array if it is long enough, otherwise a copy with at least the required length
+     */
+    private static int[] ensureCapacity(int[] array, int required) {
+        if (array.length >= required) {
+            return array;
+        }
+        return Arrays.copyOf(array, Math.max(required, array.length * 2));
+    }
+
+    /**
+     * @param array    array to grow
+     * @param required minimum length
+     * @return array if it is long enough, otherwise a copy with at least the required length
+     */
+    private static double[] ensureCapacity(double[] array, int required) {
+        if (array.length >= required) {
+            return array;
+        }
+        return Arrays.copyOf(array, Math.max(required, array.length * 2));
+    }
+}
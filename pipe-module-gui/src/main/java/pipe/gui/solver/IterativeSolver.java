@@ -0,0 +1,119 @@
+package pipe.gui.solver;
+
+import pipe.gui.statespace.CompactStateSpace;
+import uk.ac.imperial.state.Record;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Base class of the solvers that iterate a distribution until {@code pi Q} is close to zero,
+ * starting from the uniform distribution
+ */
+public abstract class IterativeSolver implements MonitoredSolver {
+    /**
+     * Largest residual accepted as converged
+     */
+    protected final double tolerance;
+
+    /**
+     * Iterations after which the solver gives up
+     */
+    protected final int maxIterations;
+
+    /**
+     * Telemetry of the last solve
+     */
+    private volatile ConvergenceTelemetry telemetry;
+
+    /**
+     * @param tolerance     largest residual accepted as converged
+     * @param maxIterations iterations after which the solver gives up
+     */
+    protected IterativeSolver(double tolerance, int maxIterations) {
+        this.tolerance = tolerance;
+        this.maxIterations = maxIterations;
+    }
+
+    /**
+     * @param records transition records of the explored states
+     * @return steady state probability of each state id
+     */
+    @Override
+    public Map<Integer, Double> solve(List<Record> records) {
+        return SteadyStateVectors.asMap(solve(GeneratorMatrixBuilder.build(records)));
+    }
+
+    @Override
+    public double[] solve(CompactStateSpace stateSpace) {
+        return solve(GeneratorMatrixBuilder.build(stateSpace));
+    }
+
+    /**
+     * @param matrix generator of the chain
+     * @return steady state probability of each state id
+     */
+    public double[] solve(GeneratorMatrix matrix) {
+        int states = matrix.getStateCount();
+        double[] distribution = new double[states];
+        Arrays.fill(distribution, 1.0 / Math.max(states, 1));
+        ConvergenceTelemetry.Recorder recorder = new ConvergenceTelemetry.Recorder();
+        if (states == 0) {
+            telemetry = recorder.finish(getName(), 0, true);
+        } else {
+            telemetry = iterate(matrix, distribution, recorder);
+        }
+        return distribution;
+    }
+
+    @Override
+    public ConvergenceTelemetry getTelemetry() {
+        return telemetry;
+    }
+
+    /**
+     * @return description of the solver
+     */
+    protected abstract String getName();
+
+    /**
+     * Iterates the distribution until its residual is below the tolerance or the
+     * maximum number of iterations is reached, recording the residual of each iteration
+     *
+     * @param matrix       generator of the chain
+     * @param distribution starting distribution, replaced by the solution
+     * @param recorder     records the residuals
+     * @return telemetry of the solve
+     */
+    protected abstract ConvergenceTelemetry iterate(GeneratorMatrix matrix, double[] distribution,
+                                                   ConvergenceTelemetry.Recorder recorder);
+
+    /**
+     * Called once per iteration so that cancelling the task solving the chain stops the solve
+     *
+     * @throws IllegalStateException if the solving thread has been interrupted, keeping its interrupt status
+     */
+    static void checkInterrupted() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new IllegalStateException("Interrupted whilst solving the steady state");
+        }
+    }
+
+    /**
+     * Scales the vector so that its entries sum to one
+     *
+     * @param vector vector to scale
+     */
+    static void normalise(double[] vector) {
+        double sum = 0;
+        for (double value : vector) {
+            sum += value;
+        }
+        if (sum != 0) {
+            for (int index = 0; index < vector.length; index++) {
+                vector[index] /= sum;
+            }
+        }
+    }
+}
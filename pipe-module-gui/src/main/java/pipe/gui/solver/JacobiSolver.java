@@ -0,0 +1,44 @@
+package pipe.gui.solver;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Solves {@code pi Q = 0} with damped Jacobi iterations. Plain Jacobi iterations oscillate
+ * forever on periodic chains, such as the cycles of most Petri nets, so each state moves only
+ * part of the way towards its Jacobi update.
+ */
+public final class JacobiSolver extends SweepSolver {
+    /**
+     * Fraction of the way each state moves towards its Jacobi update
+     */
+    private final double damping;
+
+    /**
+     * @param tolerance       largest residual accepted as converged
+     * @param maxIterations   iterations after which the solver gives up
+     * @param damping         fraction of the way each state moves towards its Jacobi update, in (0, 1]
+     * @param threads         number of ranges the states are split into
+     * @param executorService executor the ranges are updated on
+     */
+    public JacobiSolver(double tolerance, int maxIterations, double damping, int threads,
+                        ExecutorService executorService) {
+        super(tolerance, maxIterations, threads, executorService);
+        if (damping <= 0 || damping > 1) {
+            throw new IllegalArgumentException("Damping must be in (0, 1]: " + damping);
+        }
+        this.damping = damping;
+    }
+
+    @Override
+    protected String getName() {
+        return "Jacobi (damping " + damping + ")";
+    }
+
+    @Override
+    protected double update(double probability, double inflow, double exitRate, double uniformisation) {
+        if (exitRate == 0) {
+            return probability + inflow / uniformisation;
+        }
+        return (1 - damping) * probability + damping * inflow / exitRate;
+    }
+}
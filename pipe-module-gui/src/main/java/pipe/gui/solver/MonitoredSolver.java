@@ -0,0 +1,22 @@
+package pipe.gui.solver;
+
+import pipe.gui.statespace.CompactStateSpace;
+import pipe.steadystate.algorithm.SteadyStateSolver;
+
+/**
+ * Steady state solver that reports how its last solve converged
+ */
+public interface MonitoredSolver extends SteadyStateSolver {
+    /**
+     * Solves the state space without converting it to transition records
+     *
+     * @param stateSpace explored state space
+     * @return steady state probability of each state id, see {@link SteadyStateVectors} for reading it
+     */
+    double[] solve(CompactStateSpace stateSpace);
+
+    /**
+     * @return telemetry of the last solve, or null if nothing has been solved yet
+     */
+    ConvergenceTelemetry getTelemetry();
+}
@@ -0,0 +1,30 @@
+package pipe.gui.solver;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Solves {@code pi Q = 0} with the power method on the uniformised chain {@code P = I + Q / lambda},
+ * where lambda is slightly larger than every exit rate. Converges for every chain, including
+ * those with absorbing states, but slowly when the rates differ by orders of magnitude.
+ */
+public final class PowerSolver extends SweepSolver {
+    /**
+     * @param tolerance       largest residual accepted as converged
+     * @param maxIterations   iterations after which the solver gives up
+     * @param threads         number of ranges the states are split into
+     * @param executorService executor the ranges are updated on
+     */
+    public PowerSolver(double tolerance, int maxIterations, int threads, ExecutorService executorService) {
+        super(tolerance, maxIterations, threads, executorService);
+    }
+
+    @Override
+    protected String getName() {
+        return "Power method";
+    }
+
+    @Override
+    protected double update(double probability, double inflow, double exitRate, double uniformisation) {
+        return probability + (inflow - probability * exitRate) / uniformisation;
+    }
+}
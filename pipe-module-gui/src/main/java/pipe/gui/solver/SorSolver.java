@@ -0,0 +1,129 @@
+package pipe.gui.solver;
+
+/**
+ * Solves {@code pi Q = 0} with successive over-relaxation, updating the states in place one at a time.
+ * With a relaxation factor of one this is the Gauss-Seidel method.
+ * <p>
+ * When tuned, the solver starts with Gauss-Seidel iterations, estimates their spectral radius
+ * from the rate at which the residual falls and switches to the relaxation factor that is optimal
+ * for that radius. Whenever the residual stops falling the distribution is reset to the last
+ * checkpoint and the factor is halved towards one.
+ * </p>
+ */
+public final class SorSolver extends IterativeSolver {
+    /**
+     * Gauss-Seidel iterations before the relaxation factor is tuned
+     */
+    private static final int TUNING_ITERATIONS = 10;
+
+    /**
+     * Iterations the residual is compared over when estimating and checking the convergence rate
+     */
+    private static final int RATE_WINDOW = 5;
+
+    /**
+     * Largest relaxation factor the tuning chooses
+     */
+    private static final double MAX_RELAXATION = 1.95;
+
+    /**
+     * Smallest over-relaxation that is halved rather than replaced by Gauss-Seidel
+     */
+    private static final double MIN_RELAXATION = 1.02;
+
+    /**
+     * Relaxation factor to start with
+     */
+    private final double initialRelaxation;
+
+    /**
+     * True if the relaxation factor is tuned whilst solving
+     */
+    private final boolean tuned;
+
+    /**
+     * Relaxation factor used by the last solve
+     */
+    private volatile double relaxation;
+
+    /**
+     * @param tolerance     largest residual accepted as converged
+     * @param maxIterations iterations after which the solver gives up
+     * @param relaxation    relaxation factor in (0, 2), one for Gauss-Seidel
+     * @param tuned         true if the relaxation factor should be tuned whilst solving
+     */
+    public SorSolver(double tolerance, int maxIterations, double relaxation, boolean tuned) {
+        super(tolerance, maxIterations);
+        if (relaxation <= 0 || relaxation >= 2) {
+            throw new IllegalArgumentException("Relaxation factor must be in (0, 2): " + relaxation);
+        }
+        this.initialRelaxation = tuned ? 1 : relaxation;
+        this.relaxation = initialRelaxation;
+        this.tuned = tuned;
+    }
+
+    @Override
+    protected String getName() {
+        if (!tuned && relaxation == 1) {
+            return "Gauss-Seidel";
+        }
+        return String.format("SOR (omega %.3f%s)", relaxation, tuned ? ", tuned" : "");
+    }
+
+    @Override
+    protected ConvergenceTelemetry iterate(GeneratorMatrix matrix, double[] distribution,
+                                          ConvergenceTelemetry.Recorder recorder) {
+        double omega = initialRelaxation;
+        double uniformisation = matrix.getUniformisationRate();
+        double[] checkpoint = tuned ? distribution.clone() : null;
+        double checkpointResidual = Double.POSITIVE_INFINITY;
+        recorder.record(matrix.residual(distribution));
+        int iteration = 0;
+        boolean converged = recorder.last() < tolerance;
+        while (!converged && iteration < maxIterations) {
+            checkInterrupted();
+            for (int index = 0; index < distribution.length; index++) {
+                double inflow = matrix.inflow(distribution, index);
+                double inverseExitRate = matrix.getInverseExitRate(index);
+                if (inverseExitRate == 0) {
+                    distribution[index] += inflow / uniformisation;
+                } else {
+                    distribution[index] = (1 - omega) * distribution[index] + omega * inflow * inverseExitRate;
+                }
+            }
+            normalise(distribution);
+            iteration++;
+            recorder.record(matrix.residual(distribution));
+            converged = recorder.last() < tolerance;
+            if (!converged && tuned && iteration >= TUNING_ITERATIONS && iteration % RATE_WINDOW == 0) {
+                if (iteration == TUNING_ITERATIONS) {
+                    omega = estimateRelaxation(recorder);
+                } else if (omega > 1 && !(recorder.last() < checkpointResidual)) {
+                    System.arraycopy(checkpoint, 0, distribution, 0, distribution.length);
+                    recorder.record(checkpointResidual);
+                    omega = omega < MIN_RELAXATION ? 1 : 1 + (omega - 1) / 2;
+                    continue;
+                }
+                System.arraycopy(distribution, 0, checkpoint, 0, distribution.length);
+                checkpointResidual = recorder.last();
+            }
+        }
+        relaxation = omega;
+        return recorder.finish(getName(), iteration, converged);
+    }
+
+    /**
+     * Estimates the spectral radius of the Gauss-Seidel iterations from the rate the residual has
+     * fallen at and returns the relaxation factor that is optimal for it
+     *
+     * @param recorder residuals of the Gauss-Seidel iterations
+     * @return relaxation factor to continue with
+     */
+    private double estimateRelaxation(ConvergenceTelemetry.Recorder recorder) {
+        double radius = Math.pow(recorder.last() / recorder.before(RATE_WINDOW), 1.0 / RATE_WINDOW);
+        if (!(radius < 1)) {
+            return 1;
+        }
+        return Math.min(MAX_RELAXATION, 2 / (1 + Math.sqrt(1 - radius)));
+    }
+}
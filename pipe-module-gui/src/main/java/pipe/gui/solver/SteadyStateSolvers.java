@@ -0,0 +1,124 @@
+package pipe.gui.solver;
+
+import pipe.steadystate.algorithm.ParallelGaussSeidel;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Registry of the steady state solvers that can be chosen for an analysis. Which solver
+ * converges fastest depends heavily on the model, so each reports its convergence telemetry.
+ */
+public final class SteadyStateSolvers {
+    /**
+     * Name of the solver used unless another is chosen
+     */
+    public static final String DEFAULT = "Parallel Gauss-Seidel";
+
+    /**
+     * Largest residual accepted as converged by the iterative solvers
+     */
+    public static final double TOLERANCE = 1e-10;
+
+    /**
+     * Iterations after which the iterative solvers give up
+     */
+    public static final int MAX_ITERATIONS = 100000;
+
+    /**
+     * Creates the solvers, in registration order
+     */
+    private static final Map<String, Factory> FACTORIES = new LinkedHashMap<>();
+
+    static {
+        register(DEFAULT, new Factory() {
+            @Override
+            public MonitoredSolver create(int threads, ExecutorService executorService) {
+                return new TimedSolver(new ParallelGaussSeidel(threads, executorService, 10), DEFAULT);
+            }
+        });
+        register("Jacobi", new Factory() {
+            @Override
+            public MonitoredSolver create(int threads, ExecutorService executorService) {
+                return new JacobiSolver(TOLERANCE, MAX_ITERATIONS, 0.9, threads, executorService);
+            }
+        });
+        register("Gauss-Seidel", new Factory() {
+            @Override
+            public MonitoredSolver create(int threads, ExecutorService executorService) {
+                return new SorSolver(TOLERANCE, MAX_ITERATIONS, 1, false);
+            }
+        });
+        register("SOR (tuned)", new Factory() {
+            @Override
+            public MonitoredSolver create(int threads, ExecutorService executorService) {
+                return new SorSolver(TOLERANCE, MAX_ITERATIONS, 1, true);
+            }
+        });
+        register("Power method", new Factory() {
+            @Override
+            public MonitoredSolver create(int threads, ExecutorService executorService) {
+                return new PowerSolver(TOLERANCE, MAX_ITERATIONS, threads, executorService);
+            }
+        });
+        register("BiCGSTAB", new Factory() {
+            @Override
+            public MonitoredSolver create(int threads, ExecutorService executorService) {
+                return new BiCgStabSolver(TOLERANCE, MAX_ITERATIONS);
+            }
+        });
+    }
+
+    /**
+     * Static registry
+     */
+    private SteadyStateSolvers() {
+    }
+
+    /**
+     * Registers a solver, replacing any solver registered with the same name
+     *
+     * @param name    name the solver is chosen by
+     * @param factory creates the solver
+     */
+    public static synchronized void register(String name, Factory factory) {
+        FACTORIES.put(name, factory);
+    }
+
+    /**
+     * @return names of the registered solvers, in registration order
+     */
+    public static synchronized List<String> getNames() {
+        return new ArrayList<>(FACTORIES.keySet());
+    }
+
+    /**
+     * @param name            name of a registered solver
+     * @param threads         number of threads the solver may use
+     * @param executorService executor the solver's threads run on
+     * @return new solver
+     * @throws IllegalArgumentException if no solver is registered with the name
+     */
+    public static synchronized MonitoredSolver create(String name, int threads, ExecutorService executorService) {
+        Factory factory = FACTORIES.get(name);
+        if (factory == null) {
+            throw new IllegalArgumentException("No steady state solver called " + name);
+        }
+        return factory.create(threads, executorService);
+    }
+
+    /**
+     * Creates a registered solver
+     */
+    public interface Factory {
+        /**
+         * @param threads         number of threads the solver may use
+         * @param executorService executor the solver's threads run on
+         * @return new solver
+         */
+        MonitoredSolver create(int threads, ExecutorService executorService);
+    }
+}
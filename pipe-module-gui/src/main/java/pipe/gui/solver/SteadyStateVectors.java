@@ -0,0 +1,139 @@
+package pipe.gui.solver;
+
+import uk.ac.imperial.state.ClassifiedState;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Reads steady state distributions held as a probability for each state id,
+ * without boxing a map entry for every state
+ */
+public final class SteadyStateVectors {
+    /**
+     * Private constructor for utility class
+     */
+    private SteadyStateVectors() {
+    }
+
+    /**
+     * Read only map view of a distribution for code that requires the map format. Entries are boxed
+     * on demand as they are read, so the view itself costs nothing however many states there are.
+     *
+     * @param distribution probability of each state id
+     * @return map from each state id to its probability
+     */
+    public static Map<Integer, Double> asMap(final double[] distribution) {
+        return new AbstractMap<Integer, Double>() {
+            @Override
+            public Double get(Object key) {
+                if (!(key instanceof Integer)) {
+                    return null;
+                }
+                int state = (Integer) key;
+                return state >= 0 && state < distribution.length ? distribution[state] : null;
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return get(key) != null;
+            }
+
+            @Override
+            public int size() {
+                return distribution.length;
+            }
+
+            @Override
+            public Set<Entry<Integer, Double>> entrySet() {
+                return new AbstractSet<Entry<Integer, Double>>() {
+                    @Override
+                    public Iterator<Entry<Integer, Double>> iterator() {
+                        return new Iterator<Entry<Integer, Double>>() {
+                            private int state;
+
+                            @Override
+                            public boolean hasNext() {
+                                return state < distribution.length;
+                            }
+
+                            @Override
+                            public Entry<Integer, Double> next() {
+                                if (!hasNext()) {
+                                    throw new NoSuchElementException();
+                                }
+                                Entry<Integer, Double> entry =
+                                        new SimpleImmutableEntry<>(state, distribution[state]);
+                                state++;
+                                return entry;
+                            }
+
+                            @Override
+                            public void remove() {
+                                throw new UnsupportedOperationException("Distribution is read only");
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return distribution.length;
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * @param distribution probability of each state id
+     * @return vector of the probabilities, long enough for the largest id
+     */
+    public static double[] fromMap(Map<Integer, Double> distribution) {
+        int states = 0;
+        for (Integer state : distribution.keySet()) {
+            states = Math.max(states, state + 1);
+        }
+        double[] vector = new double[states];
+        for (Map.Entry<Integer, Double> entry : distribution.entrySet()) {
+            vector[entry.getKey()] = entry.getValue();
+        }
+        return vector;
+    }
+
+    /**
+     * Computes the average number of tokens of each type on each place, reading the
+     * probabilities straight from the vector
+     *
+     * @param stateMappings marking of each state id
+     * @param distribution  probability of each state id
+     * @return average tokens of each type, by place
+     */
+    public static Map<String, Map<String, Double>> averageTokensOnPlace(Map<Integer, ClassifiedState> stateMappings,
+                                                                       double[] distribution) {
+        Map<String, Map<String, Double>> averages = new HashMap<>();
+        for (int state = 0; state < distribution.length; state++) {
+            ClassifiedState marking = stateMappings.get(state);
+            if (marking == null) {
+                continue;
+            }
+            double probability = distribution[state];
+            for (Map.Entry<String, Map<String, Integer>> place : marking.asMap().entrySet()) {
+                Map<String, Double> tokens = averages.get(place.getKey());
+                if (tokens == null) {
+                    tokens = new HashMap<>();
+                    averages.put(place.getKey(), tokens);
+                }
+                for (Map.Entry<String, Integer> token : place.getValue().entrySet()) {
+                    Double average = tokens.get(token.getKey());
+                    tokens.put(token.getKey(), (average == null ? 0 : average) + probability * token.getValue());
+                }
+            }
+        }
+        return averages;
+    }
+}
@@ -0,0 +1,140 @@
+package pipe.gui.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Base class of the solvers whose iterations compute every state's new probability from the
+ * previous distribution only. The states are split into one range per thread and each iteration
+ * updates the ranges in parallel, computing the residual of the previous distribution as it goes.
+ */
+public abstract class SweepSolver extends IterativeSolver {
+    /**
+     * Below this many states an iteration is cheaper than handing it to the threads
+     */
+    private static final int PARALLEL_THRESHOLD = 10000;
+
+    /**
+     * Number of ranges the states are split into
+     */
+    private final int threads;
+
+    /**
+     * Executor the ranges are updated on
+     */
+    private final ExecutorService executorService;
+
+    /**
+     * @param tolerance       largest residual accepted as converged
+     * @param maxIterations   iterations after which the solver gives up
+     * @param threads         number of ranges the states are split into
+     * @param executorService executor the ranges are updated on
+     */
+    protected SweepSolver(double tolerance, int maxIterations, int threads, ExecutorService executorService) {
+        super(tolerance, maxIterations);
+        this.threads = Math.max(threads, 1);
+        this.executorService = executorService;
+    }
+
+    /**
+     * @param probability    probability of the state in the previous distribution
+     * @param inflow         probability flowing into the state per unit time in the previous distribution
+     * @param exitRate       total rate out of the state
+     * @param uniformisation rate of the uniformised chain
+     * @return unnormalised probability of the state in the next distribution
+     */
+    protected abstract double update(double probability, double inflow, double exitRate, double uniformisation);
+
+    @Override
+    protected ConvergenceTelemetry iterate(GeneratorMatrix matrix, double[] distribution,
+                                          ConvergenceTelemetry.Recorder recorder) {
+        double[][] vectors = {distribution.clone(), new double[distribution.length]};
+        List<Callable<Double>> ranges = createRanges(matrix, vectors);
+        int iteration = 0;
+        boolean converged = false;
+        while (iteration < maxIterations) {
+            checkInterrupted();
+            double residual = 0;
+            for (Double rangeResidual : run(ranges)) {
+                residual = Math.max(residual, rangeResidual);
+            }
+            recorder.record(residual);
+            if (recorder.last() < tolerance) {
+                converged = true;
+                break;
+            }
+            iteration++;
+            double[] previous = vectors[0];
+            vectors[0] = vectors[1];
+            vectors[1] = previous;
+            normalise(vectors[0]);
+        }
+        if (!converged) {
+            recorder.record(matrix.residual(vectors[0]));
+        }
+        System.arraycopy(vectors[0], 0, distribution, 0, distribution.length);
+        return recorder.finish(getName(), iteration, converged);
+    }
+
+    /**
+     * @param matrix  generator of the chain
+     * @param vectors previous and next distribution, swapped between iterations
+     * @return one task per range of states, each returning the largest residual of its states
+     */
+    private List<Callable<Double>> createRanges(final GeneratorMatrix matrix, final double[][] vectors) {
+        final double uniformisation = matrix.getUniformisationRate();
+        int states = matrix.getStateCount();
+        int count = states < PARALLEL_THRESHOLD || executorService == null ? 1 : threads;
+        List<Callable<Double>> ranges = new ArrayList<>();
+        for (int range = 0; range < count; range++) {
+            final int from = (int) ((long) states * range / count);
+            final int to = (int) ((long) states * (range + 1) / count);
+            ranges.add(new Callable<Double>() {
+                @Override
+                public Double call() {
+                    double[] previous = vectors[0];
+                    double[] next = vectors[1];
+                    double residual = 0;
+                    for (int index = from; index < to; index++) {
+                        double inflow = matrix.inflow(previous, index);
+                        double exitRate = matrix.getExitRate(index);
+                        residual = Math.max(residual,
+                                Math.abs(inflow - previous[index] * exitRate) / matrix.getResidualScale(index));
+                        next[index] = update(previous[index], inflow, exitRate, uniformisation);
+                    }
+                    return residual;
+                }
+            });
+        }
+        return ranges;
+    }
+
+    /**
+     * @param ranges tasks updating each range of states
+     * @return largest residual of each range
+     */
+    private List<Double> run(List<Callable<Double>> ranges) {
+        List<Double> results = new ArrayList<>(ranges.size());
+        try {
+            if (ranges.size() == 1) {
+                results.add(ranges.get(0).call());
+                return results;
+            }
+            for (Future<Double> future : executorService.invokeAll(ranges)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted whilst solving the steady state", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to solve the steady state", e.getCause());
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to solve the steady state", e);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package pipe.gui.solver;
+
+import pipe.gui.statespace.CompactStateSpace;
+import pipe.steadystate.algorithm.SteadyStateSolver;
+import uk.ac.imperial.state.Record;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reports the time and final residual of a solver that does not report how it converged
+ */
+public final class TimedSolver implements MonitoredSolver {
+    /**
+     * Solver being timed
+     */
+    private final SteadyStateSolver solver;
+
+    /**
+     * Description of the solver
+     */
+    private final String name;
+
+    /**
+     * Telemetry of the last solve
+     */
+    private volatile ConvergenceTelemetry telemetry;
+
+    /**
+     * @param solver solver to time
+     * @param name   description of the solver
+     */
+    public TimedSolver(SteadyStateSolver solver, String name) {
+        this.solver = solver;
+        this.name = name;
+    }
+
+    @Override
+    public Map<Integer, Double> solve(List<Record> records) {
+        long start = System.nanoTime();
+        Map<Integer, Double> steadyState = solver.solve(records);
+        long nanos = System.nanoTime() - start;
+        GeneratorMatrix matrix = GeneratorMatrixBuilder.build(records);
+        double[] distribution = Arrays.copyOf(SteadyStateVectors.fromMap(steadyState), matrix.getStateCount());
+        double residual = matrix.residual(distribution);
+        telemetry = new ConvergenceTelemetry(name, -1, new double[]{residual}, nanos, true);
+        return steadyState;
+    }
+
+    /**
+     * The wrapped solver only reads transition records, so the state space is solved through its record view
+     */
+    @Override
+    public double[] solve(CompactStateSpace stateSpace) {
+        double[] distribution = SteadyStateVectors.fromMap(solve(stateSpace.asRecordList()));
+        return Arrays.copyOf(distribution, stateSpace.getStateCount());
+    }
+
+    @Override
+    public ConvergenceTelemetry getTelemetry() {
+        return telemetry;
+    }
+}
@@ -0,0 +1,118 @@
+package pipe.gui.statespace;
+
+/**
+ * Decides how many frontier states each worker thread of a
+ * {@link BatchedParallelStateSpaceExplorer} expands per round.
+ * <p>
+ * A fixed sizer always uses the same batch. An adaptive sizer measures the average time taken to
+ * expand a state and sizes the batch so that each round keeps every thread busy for roughly
+ * {@link #TARGET_ROUND_NANOS}, long enough to amortise the synchronisation between rounds but
+ * short enough that rounds stay balanced. Batches never exceed an equal share of the frontier so
+ * that small frontiers are still spread over every thread.
+ * </p>
+ */
+public final class BatchSizer {
+    /**
+     * Batch size used until the expansion cost has been measured, the size the explorer
+     * used before batches were adaptive
+     */
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    /**
+     * Time each thread should spend expanding states in a round
+     */
+    static final long TARGET_ROUND_NANOS = 20000000L;
+
+    /**
+     * Smallest adaptive batch size
+     */
+    private static final int MIN_BATCH_SIZE = 8;
+
+    /**
+     * Largest adaptive batch size
+     */
+    private static final int MAX_BATCH_SIZE = 50000;
+
+    /**
+     * Weight given to the latest measurement when smoothing the expansion cost
+     */
+    private static final double SMOOTHING = 0.3;
+
+    /**
+     * True if the batch size is tuned from measurements
+     */
+    private final boolean adaptive;
+
+    /**
+     * Batch size of the next round, before being limited by the frontier
+     */
+    private int batchSize;
+
+    /**
+     * Smoothed time taken to expand a single state, negative until measured
+     */
+    private double nanosPerState = -1;
+
+    /**
+     * @param adaptive  true if the batch size is tuned from measurements
+     * @param batchSize initial batch size
+     */
+    private BatchSizer(boolean adaptive, int batchSize) {
+        this.adaptive = adaptive;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @param batchSize number of states each thread expands per round
+     * @return sizer that always uses batchSize
+     */
+    public static BatchSizer fixed(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        return new BatchSizer(false, batchSize);
+    }
+
+    /**
+     * @return sizer that tunes the batch size from the measured expansion cost
+     */
+    public static BatchSizer adaptive() {
+        return new BatchSizer(true, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @return true if the batch size is tuned from measurements
+     */
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * @param frontierSize number of states waiting to be expanded
+     * @param threads      number of worker threads
+     * @return number of states each thread should expand in the next round
+     */
+    public int nextBatchSize(int frontierSize, int threads) {
+        if (!adaptive) {
+            return batchSize;
+        }
+        int share = (frontierSize + threads - 1) / threads;
+        return Math.max(1, Math.min(batchSize, share));
+    }
+
+    /**
+     * Records the cost of a finished round and retunes the batch size
+     *
+     * @param states    number of states expanded in the round
+     * @param busyNanos total time the worker threads spent expanding them
+     */
+    public void record(int states, long busyNanos) {
+        if (!adaptive || states == 0) {
+            return;
+        }
+        double measured = busyNanos / (double) states;
+        nanosPerState = nanosPerState < 0 ? measured : SMOOTHING * measured + (1 - SMOOTHING) * nanosPerState;
+        long target = Math.round(TARGET_ROUND_NANOS / Math.max(nanosPerState, 1));
+        batchSize = (int) Math.max(MIN_BATCH_SIZE, Math.min(MAX_BATCH_SIZE, target));
+    }
+}
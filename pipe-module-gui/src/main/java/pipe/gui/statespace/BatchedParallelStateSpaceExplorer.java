@@ -0,0 +1,480 @@
+package pipe.gui.statespace;
+
+import pipe.gui.executor.AnalysisExecutor;
+import pipe.reachability.algorithm.ExplorerUtilities;
+import pipe.reachability.algorithm.StateRateRecord;
+import pipe.reachability.algorithm.StateSpaceExplorer;
+import pipe.reachability.algorithm.TimelessTrapException;
+import pipe.reachability.algorithm.VanishingExplorer;
+import uk.ac.imperial.io.StateProcessor;
+import uk.ac.imperial.pipe.exceptions.InvalidRateException;
+import uk.ac.imperial.pipe.models.petrinet.Transition;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.utils.Pair;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Breadth first state space explorer which expands the frontier in rounds on a pool of worker threads.
+ * <p>
+ * Each round the frontier is split into one batch per thread, sized by a {@link BatchSizer}. Workers
+ * only compute successors and their rates, following vanishing successors with the vanishing explorer.
+ * The results are merged on the calling thread in frontier order, which assigns state ids and
+ * writes to the state processor, so the processor need not be thread safe and the ids are the same
+ * whatever the number of threads. The batch size and thread utilisation of each round are recorded
+ * in the exploration progress. Visited states are held packed by a {@link MarkingCodec}, and they and
+ * the frontier may be spilled to disk for state spaces larger than the heap.
+ * </p>
+ * <p>
+ * Since the frontier is expanded in id order, the expanded states are always those with the lowest ids.
+ * After every round an {@link ExplorationCheckpointer} can therefore record the exploration by the number
+ * of states expanded and discovered, and {@link #resume} continues it from the discovered states alone.
+ * </p>
+ */
+public final class BatchedParallelStateSpaceExplorer implements StateSpaceExplorer {
+    /**
+     * Utilities for the Petri net being explored
+     */
+    private final ExplorerUtilities explorerUtilities;
+
+    /**
+     * Explorer for vanishing states
+     */
+    private final VanishingExplorer vanishingExplorer;
+
+    /**
+     * Processor states and transitions are written to
+     */
+    private final StateProcessor stateProcessor;
+
+    /**
+     * Number of worker threads
+     */
+    private final int threads;
+
+    /**
+     * Decides the number of states each thread expands per round
+     */
+    private final BatchSizer batchSizer;
+
+    /**
+     * Records the batch size and utilisation of each round
+     */
+    private final ExplorationProgress progress;
+
+    /**
+     * If true the visited states and frontier are spilled to disk once they outgrow memory
+     */
+    private final boolean spillToDisk;
+
+    /**
+     * Packs the visited states, null to lay the packing out from the initial state
+     */
+    private final MarkingCodec codec;
+
+    /**
+     * Number of visited states held in memory before they are spilled to disk
+     */
+    private int visitedCapacity = SpillingVisitedStates.DEFAULT_HOT_CAPACITY;
+
+    /**
+     * Number of frontier states held in memory before they are spilled to disk
+     */
+    private int frontierCapacity = StateQueue.DEFAULT_MEMORY_CAPACITY;
+
+    /**
+     * Told when each round finishes, null if the exploration is not checkpointed
+     */
+    private ExplorationCheckpointer checkpointer;
+
+    /**
+     * Id of every discovered state, only set whilst generating
+     */
+    private VisitedStates visited;
+
+    /**
+     * Discovered states whose successors have not been expanded, only set whilst generating
+     */
+    private StateQueue frontier;
+
+    /**
+     * @param explorerUtilities utilities for the Petri net being explored
+     * @param vanishingExplorer explorer for vanishing states
+     * @param stateProcessor    processor states and transitions are written to
+     * @param threads           number of worker threads
+     * @param batchSizer        decides the number of states each thread expands per round
+     * @param progress          records the batch size and utilisation of each round
+     */
+    public BatchedParallelStateSpaceExplorer(ExplorerUtilities explorerUtilities, VanishingExplorer vanishingExplorer,
+                                             StateProcessor stateProcessor, int threads, BatchSizer batchSizer,
+                                             ExplorationProgress progress) {
+        this(explorerUtilities, vanishingExplorer, stateProcessor, threads, batchSizer, progress, false, null);
+    }
+
+    /**
+     * @param explorerUtilities utilities for the Petri net being explored
+     * @param vanishingExplorer explorer for vanishing states
+     * @param stateProcessor    processor states and transitions are written to
+     * @param threads           number of worker threads
+     * @param batchSizer        decides the number of states each thread expands per round
+     * @param progress          records the batch size and utilisation of each round
+     * @param spillToDisk       if true the visited states and frontier are kept in a {@link SpillingVisitedStates}
+     *                          and a spilling {@link StateQueue} in a temporary directory, so the exploration
+     *                          is not limited by the heap
+     * @param codec             packs the visited states, null to pack them with unbounded fields laid out
+     *                          from the initial state
+     */
+    public BatchedParallelStateSpaceExplorer(ExplorerUtilities explorerUtilities, VanishingExplorer vanishingExplorer,
+                                             StateProcessor stateProcessor, int threads, BatchSizer batchSizer,
+                                             ExplorationProgress progress, boolean spillToDisk, MarkingCodec codec) {
+        this.explorerUtilities = explorerUtilities;
+        this.vanishingExplorer = vanishingExplorer;
+        this.stateProcessor = stateProcessor;
+        this.threads = threads;
+        this.batchSizer = batchSizer;
+        this.progress = progress;
+        this.spillToDisk = spillToDisk;
+        this.codec = codec;
+    }
+
+    /**
+     * Sets how many states are held in memory when spilling to disk, so that small explorations
+     * can be made to spill
+     *
+     * @param visitedCapacity  number of visited states held in memory before they are written to a run
+     * @param frontierCapacity number of frontier states held in memory before they are written to segments
+     */
+    void setSpillCapacities(int visitedCapacity, int frontierCapacity) {
+        this.visitedCapacity = visitedCapacity;
+        this.frontierCapacity = frontierCapacity;
+    }
+
+    /**
+     * @param checkpointer told when each round finishes, null to not checkpoint the exploration
+     */
+    public void setCheckpointer(ExplorationCheckpointer checkpointer) {
+        this.checkpointer = checkpointer;
+    }
+
+    /**
+     * @param initialState starting state of the exploration
+     * @return number of states and transitions explored
+     */
+    @Override
+    public StateSpaceExplorerResults generate(ClassifiedState initialState)
+            throws TimelessTrapException, InterruptedException, ExecutionException, IOException, InvalidRateException {
+        return generate(initialState, null, 0, 0);
+    }
+
+    /**
+     * Continues an exploration from a checkpoint. The discovered states have already been
+     * written to the state processor, and so have the transitions of the explored states.
+     *
+     * @param initialState starting state of the exploration
+     * @param discovered   every state discovered before the checkpoint, in id order
+     * @param explored     number of states expanded before the checkpoint
+     * @param transitions  number of transitions processed before the checkpoint
+     * @return number of states and transitions explored, including those before the checkpoint
+     */
+    public StateSpaceExplorerResults resume(ClassifiedState initialState, Iterator<ClassifiedState> discovered,
+                                            int explored, int transitions)
+            throws TimelessTrapException, InterruptedException, ExecutionException, IOException, InvalidRateException {
+        return generate(initialState, discovered, explored, transitions);
+    }
+
+    /**
+     * @param initialState starting state of the exploration
+     * @param discovered   states discovered before a checkpoint in id order, null to start from the initial state
+     * @param explored     number of states expanded before the checkpoint
+     * @param transitions  number of transitions processed before the checkpoint
+     * @return number of states and transitions explored
+     */
+    private StateSpaceExplorerResults generate(ClassifiedState initialState, Iterator<ClassifiedState> discovered,
+                                               int explored, int transitions)
+            throws TimelessTrapException, InterruptedException, ExecutionException, IOException, InvalidRateException {
+        MarkingCodec stateCodec = codec == null ? MarkingCodec.forState(initialState) : codec;
+        Path spillDirectory = spillToDisk ? Files.createTempDirectory("pipe-exploration") : null;
+        try {
+            if (spillDirectory == null) {
+                visited = new InMemoryVisitedStates(stateCodec);
+                frontier = new StateQueue();
+            } else {
+                visited = new SpillingVisitedStates(stateCodec, spillDirectory, visitedCapacity);
+                frontier = new StateQueue(spillDirectory, frontierCapacity);
+            }
+            if (discovered == null) {
+                registerInitial(initialState);
+            } else {
+                restore(discovered, explored);
+            }
+            return explore(transitions);
+        } finally {
+            try (VisitedStates closeVisited = visited; StateQueue closeFrontier = frontier) {
+                visited = null;
+                frontier = null;
+            }
+            if (spillDirectory != null) {
+                Files.deleteIfExists(spillDirectory);
+            }
+        }
+    }
+
+    /**
+     * Registers the initial state, or the tangible states it leads to if it is vanishing
+     *
+     * @param initialState starting state of the exploration
+     */
+    private void registerInitial(ClassifiedState initialState)
+            throws TimelessTrapException, InvalidRateException, IOException {
+        if (initialState.isTangible()) {
+            register(initialState);
+        } else {
+            for (StateRateRecord record : vanishingExplorer.explore(initialState, 1.0)) {
+                register(record.getState());
+            }
+        }
+    }
+
+    /**
+     * Marks the discovered states as visited without processing them again, adding
+     * those that were not expanded to the frontier
+     *
+     * @param discovered states discovered before a checkpoint, in id order
+     * @param explored   number of states expanded before the checkpoint
+     */
+    private void restore(Iterator<ClassifiedState> discovered, int explored) throws IOException {
+        int id = 0;
+        while (discovered.hasNext()) {
+            ClassifiedState state = discovered.next();
+            visited.put(state, id);
+            if (id >= explored) {
+                frontier.add(state, id);
+            }
+            id++;
+        }
+    }
+
+    /**
+     * Explores the state space from the visited states and frontier
+     *
+     * @param transitions number of transitions already processed
+     * @return number of states and transitions explored
+     */
+    private StateSpaceExplorerResults explore(int transitions)
+            throws TimelessTrapException, InterruptedException, ExecutionException, IOException, InvalidRateException {
+        ExecutorService executorService = AnalysisExecutor.getInstance().newJob("State space exploration", threads);
+        try {
+            while (!frontier.isEmpty() && explorerUtilities.canExploreMore(visited.size())) {
+                int batchSize = batchSizer.nextBatchSize(frontier.size(), threads);
+                long start = System.nanoTime();
+                List<Future<Expansion>> expansions = new ArrayList<>();
+                for (int i = 0; i < threads && !frontier.isEmpty(); i++) {
+                    int size = Math.min(batchSize, frontier.size());
+                    List<ClassifiedState> batch = new ArrayList<>(size);
+                    int[] ids = new int[size];
+                    for (int j = 0; j < size; j++) {
+                        ids[j] = frontier.peekId();
+                        batch.add(frontier.remove());
+                    }
+                    expansions.add(executorService.submit(new ExpansionTask(batch, ids)));
+                }
+
+                long busyNanos = 0;
+                int expanded = 0;
+                for (Future<Expansion> future : expansions) {
+                    Expansion expansion = get(future);
+                    busyNanos += expansion.busyNanos;
+                    expanded += expansion.ids.length;
+                    for (int i = 0; i < expansion.ids.length; i++) {
+                        transitions += merge(expansion.ids[i], expansion.successors.get(i));
+                    }
+                }
+                batchSizer.record(expanded, busyNanos);
+                progress.recordRound(batchSize, threads, busyNanos, System.nanoTime() - start);
+                if (checkpointer != null) {
+                    checkpointer.roundFinished(visited.size() - frontier.size(), visited.size(), transitions);
+                }
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+        return new StateSpaceExplorerResults(transitions, visited.size());
+    }
+
+    /**
+     * Waits for an expansion, rethrowing the exploration exceptions of the worker
+     *
+     * @param future submitted expansion
+     * @return finished expansion
+     */
+    private static Expansion get(Future<Expansion> future)
+            throws InterruptedException, ExecutionException, TimelessTrapException, InvalidRateException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof TimelessTrapException) {
+                throw (TimelessTrapException) cause;
+            }
+            if (cause instanceof InvalidRateException) {
+                throw (InvalidRateException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Assigns ids to the successors of an expanded state and processes its transitions
+     *
+     * @param id         id of the expanded state
+     * @param successors rate and transitions into each successor
+     * @return number of transitions processed
+     */
+    private int merge(int id, Map<ClassifiedState, Pair<Double, Collection<String>>> successors)
+            throws IOException {
+        Map<Integer, Pair<Double, Collection<String>>> successorRates = new HashMap<>();
+        for (Map.Entry<ClassifiedState, Pair<Double, Collection<String>>> entry : successors.entrySet()) {
+            successorRates.put(register(entry.getKey()), entry.getValue());
+        }
+        stateProcessor.processTransitions(id, successorRates);
+        return successorRates.size();
+    }
+
+    /**
+     * Assigns an id to the state and adds it to the frontier if it has not been seen before
+     *
+     * @param state discovered state
+     * @return id of the state
+     */
+    private int register(ClassifiedState state) throws IOException {
+        int id = visited.get(state);
+        if (id == VisitedStates.NOT_VISITED) {
+            id = visited.size();
+            visited.put(state, id);
+            stateProcessor.processState(state, id);
+            frontier.add(state, id);
+        }
+        return id;
+    }
+
+    /**
+     * Successors of a batch of states and the time taken to compute them
+     */
+    private static final class Expansion {
+        /**
+         * Ids of the expanded states
+         */
+        private final int[] ids;
+
+        /**
+         * Rate and transitions into each successor of each expanded state, in batch order
+         */
+        private final List<Map<ClassifiedState, Pair<Double, Collection<String>>>> successors;
+
+        /**
+         * Time spent computing the successors
+         */
+        private final long busyNanos;
+
+        private Expansion(int[] ids, List<Map<ClassifiedState, Pair<Double, Collection<String>>>> successors,
+                          long busyNanos) {
+            this.ids = ids;
+            this.successors = successors;
+            this.busyNanos = busyNanos;
+        }
+    }
+
+    /**
+     * Computes the successors of a batch of states on a worker thread
+     */
+    private final class ExpansionTask implements Callable<Expansion> {
+        /**
+         * States to expand
+         */
+        private final List<ClassifiedState> batch;
+
+        /**
+         * Ids of the states to expand
+         */
+        private final int[] ids;
+
+        /**
+         * @param batch states to expand
+         * @param ids   ids of the states to expand
+         */
+        private ExpansionTask(List<ClassifiedState> batch, int[] ids) {
+            this.batch = batch;
+            this.ids = ids;
+        }
+
+        @Override
+        public Expansion call() throws Exception {
+            long start = System.nanoTime();
+            List<Map<ClassifiedState, Pair<Double, Collection<String>>>> successors = new ArrayList<>(batch.size());
+            for (ClassifiedState state : batch) {
+                successors.add(expand(state));
+            }
+            return new Expansion(ids, successors, System.nanoTime() - start);
+        }
+
+        /**
+         * @param state state to expand
+         * @return rate and transitions into each tangible successor of the state
+         */
+        private Map<ClassifiedState, Pair<Double, Collection<String>>> expand(ClassifiedState state)
+                throws Exception {
+            Map<ClassifiedState, Pair<Double, Collection<String>>> successorRates = new LinkedHashMap<>();
+            for (Map.Entry<ClassifiedState, Collection<Transition>> entry :
+                    explorerUtilities.getSuccessorsWithTransitions(state).entrySet()) {
+                ClassifiedState successor = entry.getKey();
+                double rate = explorerUtilities.rate(state, successor);
+                Collection<String> transitionNames = new ArrayList<>();
+                for (Transition transition : entry.getValue()) {
+                    transitionNames.add(transition.getId());
+                }
+                if (successor.isTangible()) {
+                    addRate(successorRates, successor, rate, transitionNames);
+                } else {
+                    for (StateRateRecord record : vanishingExplorer.explore(successor, rate)) {
+                        addRate(successorRates, record.getState(), record.getRate(), transitionNames);
+                    }
+                }
+            }
+            return successorRates;
+        }
+
+        /**
+         * Adds the rate and transitions into the successor to any already found
+         */
+        private void addRate(Map<ClassifiedState, Pair<Double, Collection<String>>> successorRates,
+                             ClassifiedState successor, double rate, Collection<String> transitionNames) {
+            Pair<Double, Collection<String>> previous = successorRates.get(successor);
+            if (previous == null) {
+                successorRates.put(successor, new Pair<Double, Collection<String>>(rate, transitionNames));
+            } else {
+                Set<String> names = new HashSet<>(previous.getRight());
+                names.addAll(transitionNames);
+                successorRates.put(successor,
+                        new Pair<Double, Collection<String>>(previous.getLeft() + rate, names));
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package pipe.gui.statespace;
+
+/**
+ * Bloom filter over packed states, used to skip sorted runs that cannot contain a state.
+ * The bit positions are derived from the two halves of {@link PackedState#longHash()}.
+ * False positives cost a disk read, there are never false negatives.
+ */
+final class BloomFilter {
+    /**
+     * Set bits
+     */
+    private final long[] bits;
+
+    /**
+     * Number of bits
+     */
+    private final long size;
+
+    /**
+     * Number of bits set per state
+     */
+    private final int hashes;
+
+    /**
+     * @param expectedStates number of states that will be added
+     * @param bitsPerState   bits allocated per state, 10 gives a false positive rate of about 1%
+     */
+    BloomFilter(int expectedStates, int bitsPerState) {
+        long words = Math.max(1, ((long) expectedStates * bitsPerState + 63) / 64);
+        bits = new long[(int) Math.min(words, Integer.MAX_VALUE - 8)];
+        size = (long) bits.length * 64;
+        hashes = Math.max(1, (int) Math.round(bitsPerState * Math.log(2)));
+    }
+
+    /**
+     * @param state state to add
+     */
+    void add(PackedState state) {
+        long hash = state.longHash();
+        int first = (int) hash;
+        int second = (int) (hash >>> 32);
+        for (int i = 0; i < hashes; i++) {
+            long bit = ((first + (long) i * second) & Long.MAX_VALUE) % size;
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    /**
+     * @param state state to look for
+     * @return false if the state has definitely not been added
+     */
+    boolean mightContain(PackedState state) {
+        long hash = state.longHash();
+        int first = (int) hash;
+        int second = (int) (hash >>> 32);
+        for (int i = 0; i < hashes; i++) {
+            long bit = ((first + (long) i * second) & Long.MAX_VALUE) % size;
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,192 @@
+package pipe.gui.statespace;
+
+import uk.ac.imperial.state.Record;
+import uk.ac.imperial.utils.Pair;
+
+import java.util.AbstractList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compressed sparse row representation of an explored state space.
+ * <p>
+ * The successors of state {@code s} are stored in positions
+ * {@code rowOffsets[s]} to {@code rowOffsets[s + 1] - 1} of the targets, rates and labels arrays.
+ * Labels are ids into a table of the distinct sets of transition names that fire along an edge,
+ * so each edge costs an int, a double and a short rather than a boxed map entry.
+ * </p>
+ * The arrays returned by the getters are shared and must not be modified.
+ */
+public final class CompactStateSpace {
+    /**
+     * Start of each state's successors, has length number of states + 1
+     */
+    private final int[] rowOffsets;
+
+    /**
+     * Successor state of each edge
+     */
+    private final int[] targets;
+
+    /**
+     * Rate of each edge
+     */
+    private final double[] rates;
+
+    /**
+     * Transition label id of each edge, interpreted as unsigned
+     */
+    private final short[] labels;
+
+    /**
+     * Transition names for each label id
+     */
+    private final List<Collection<String>> labelTable;
+
+    /**
+     * States that were written with a transition record
+     */
+    private final BitSet explored;
+
+    /**
+     * @param rowOffsets start of each state's successors
+     * @param targets    successor state of each edge
+     * @param rates      rate of each edge
+     * @param labels     transition label id of each edge
+     * @param labelTable transition names for each label id
+     * @param explored   states that were written with a transition record
+     */
+    CompactStateSpace(int[] rowOffsets, int[] targets, double[] rates, short[] labels,
+                      List<Collection<String>> labelTable, BitSet explored) {
+        this.rowOffsets = rowOffsets;
+        this.targets = targets;
+        this.rates = rates;
+        this.labels = labels;
+        this.labelTable = labelTable;
+        this.explored = explored;
+    }
+
+    /**
+     * @return number of states, ids range from 0 to this value - 1
+     */
+    public int getStateCount() {
+        return rowOffsets.length - 1;
+    }
+
+    /**
+     * @return number of transitions between states
+     */
+    public int getTransitionCount() {
+        return targets.length;
+    }
+
+    /**
+     * @return approximate number of bytes of heap used by the arrays of this state space
+     */
+    public long getEstimatedBytes() {
+        long edges = targets.length;
+        return 4L * rowOffsets.length + edges * (4 + 8 + 2) + explored.size() / 8;
+    }
+
+    /**
+     * @return number of states with a transition record
+     */
+    public int getExploredStateCount() {
+        return explored.cardinality();
+    }
+
+    /**
+     * @param state state id
+     * @return true if state was written with a transition record
+     */
+    public boolean isExplored(int state) {
+        return explored.get(state);
+    }
+
+    /**
+     * @return start of each state's successors, has length number of states + 1
+     */
+    public int[] getRowOffsets() {
+        return rowOffsets;
+    }
+
+    /**
+     * @return successor state of each edge
+     */
+    public int[] getTargets() {
+        return targets;
+    }
+
+    /**
+     * @return rate of each edge
+     */
+    public double[] getRates() {
+        return rates;
+    }
+
+    /**
+     * @param edge edge index
+     * @return label id of the edge
+     */
+    public int getLabelId(int edge) {
+        return labels[edge] & 0xFFFF;
+    }
+
+    /**
+     * @param edge edge index
+     * @return names of the transitions that fire along the edge
+     */
+    public Collection<String> getLabel(int edge) {
+        return labelTable.get(getLabelId(edge));
+    }
+
+    /**
+     * @return distinct sets of transition names indexed by label id
+     */
+    public List<Collection<String>> getLabelTable() {
+        return labelTable;
+    }
+
+    /**
+     * Boxes the successors of a single state, for use with code that
+     * requires the original record format
+     *
+     * @param state state id
+     * @return transition record for the state
+     */
+    public Record getRecord(int state) {
+        Map<Integer, Pair<Double, Collection<String>>> successors = new HashMap<>();
+        for (int edge = rowOffsets[state]; edge < rowOffsets[state + 1]; edge++) {
+            successors.put(targets[edge], new Pair<>(rates[edge], getLabel(edge)));
+        }
+        return new Record(state, successors);
+    }
+
+    /**
+     * Read only list of the records of every explored state. Records are boxed
+     * on demand when accessed so the whole record collection is never held in memory.
+     *
+     * @return list view of the transition records
+     */
+    public List<Record> asRecordList() {
+        final int[] states = new int[getExploredStateCount()];
+        int index = 0;
+        for (int state = explored.nextSetBit(0); state >= 0; state = explored.nextSetBit(state + 1)) {
+            states[index++] = state;
+        }
+        return new AbstractList<Record>() {
+            @Override
+            public Record get(int index) {
+                return getRecord(states[index]);
+            }
+
+            @Override
+            public int size() {
+                return states.length;
+            }
+        };
+    }
+}
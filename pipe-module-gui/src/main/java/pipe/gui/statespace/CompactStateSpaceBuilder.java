@@ -0,0 +1,121 @@
+package pipe.gui.statespace;
+
+import uk.ac.imperial.state.Record;
+import uk.ac.imperial.utils.Pair;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds a {@link CompactStateSpace} from a stream of transition records.
+ * <p>
+ * The records are read twice, once to count the successors of each state and
+ * once to fill in the edges. Only the primitive arrays are held in memory, so the
+ * records should be streamed from the binaries rather than read into a collection.
+ * </p>
+ */
+public final class CompactStateSpaceBuilder {
+    /**
+     * Largest number of distinct labels that fit in an unsigned short
+     */
+    private static final int MAX_LABELS = 1 << 16;
+
+    /**
+     * Private constructor for utility class
+     */
+    private CompactStateSpaceBuilder() {
+    }
+
+    /**
+     * @param records transition records, iterated over twice
+     * @return compact representation of the records
+     */
+    public static CompactStateSpace build(Iterable<Record> records) {
+        int[] counts = new int[16];
+        BitSet explored = new BitSet();
+        int stateCount = 0;
+        for (Record record : records) {
+            counts = ensureCapacity(counts, record.state + 1);
+            counts[record.state] += record.successors.size();
+            explored.set(record.state);
+            stateCount = Math.max(stateCount, record.state + 1);
+            for (Integer successor : record.successors.keySet()) {
+                stateCount = Math.max(stateCount, successor + 1);
+            }
+        }
+
+        int[] rowOffsets = new int[stateCount + 1];
+        for (int state = 0; state < stateCount; state++) {
+            int count = state < counts.length ? counts[state] : 0;
+            rowOffsets[state + 1] = rowOffsets[state] + count;
+        }
+
+        int edges = rowOffsets[stateCount];
+        int[] targets = new int[edges];
+        double[] rates = new double[edges];
+        short[] labels = new short[edges];
+        int[] next = Arrays.copyOf(rowOffsets, stateCount);
+        LabelInterner interner = new LabelInterner();
+        for (Record record : records) {
+            for (Map.Entry<Integer, Pair<Double, Collection<String>>> entry : record.successors.entrySet()) {
+                int edge = next[record.state]++;
+                targets[edge] = entry.getKey();
+                rates[edge] = entry.getValue().getLeft();
+                labels[edge] = interner.intern(entry.getValue().getRight());
+            }
+        }
+        return new CompactStateSpace(rowOffsets, targets, rates, labels, interner.table, explored);
+    }
+
+    /**
+     * @param array    array to grow
+     * @param required minimum length
+     * @return array if it is long enough, otherwise a copy with at least the required length
+     */
+    private static int[] ensureCapacity(int[] array, int required) {
+        if (array.length >= required) {
+            return array;
+        }
+        return Arrays.copyOf(array, Math.max(required, array.length * 2));
+    }
+
+    /**
+     * Assigns each distinct, order independent set of transition names a short id
+     */
+    private static final class LabelInterner {
+        /**
+         * Sorted transition names to their id
+         */
+        private final Map<List<String>, Short> ids = new HashMap<>();
+
+        /**
+         * Transition names for each id
+         */
+        private final List<Collection<String>> table = new ArrayList<>();
+
+        /**
+         * @param names transition names fired along an edge
+         * @return id of the names
+         */
+        private short intern(Collection<String> names) {
+            List<String> key = new ArrayList<>(names);
+            Collections.sort(key);
+            Short id = ids.get(key);
+            if (id == null) {
+                if (table.size() == MAX_LABELS) {
+                    throw new IllegalStateException("State space has more than " + MAX_LABELS + " distinct transition labels");
+                }
+                id = (short) table.size();
+                ids.put(key, id);
+                table.add(Collections.unmodifiableList(key));
+            }
+            return id;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package pipe.gui.statespace;
+
+/**
+ * Thrown from within state space exploration once the user has cancelled it,
+ * unwinding the explorer without generating the rest of the state space
+ */
+public class ExplorationCancelledException extends RuntimeException {
+    /**
+     * Default constructor
+     */
+    public ExplorationCancelledException() {
+        super("State space exploration was cancelled");
+    }
+}
@@ -0,0 +1,19 @@
+package pipe.gui.statespace;
+
+import java.io.IOException;
+
+/**
+ * Told by a {@link BatchedParallelStateSpaceExplorer} whenever it finishes a round, at which point every
+ * discovered state and every expanded state's transitions have been written to its state processor.
+ * Implementations may record the written binaries there so that the exploration can later be resumed with
+ * {@link BatchedParallelStateSpaceExplorer#resume}.
+ */
+public interface ExplorationCheckpointer {
+    /**
+     * @param explored    number of states expanded, which are the states with the lowest ids
+     * @param discovered  number of states discovered
+     * @param transitions number of transitions processed
+     * @throws IOException if the checkpoint cannot be written
+     */
+    void roundFinished(int explored, int discovered, int transitions) throws IOException;
+}
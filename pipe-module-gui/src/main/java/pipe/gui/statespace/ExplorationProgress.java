@@ -0,0 +1,250 @@
+package pipe.gui.statespace;
+
+import uk.ac.imperial.io.StateProcessor;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.utils.Pair;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live statistics of a running state space exploration which can be read from
+ * another thread, for example to display progress in the GUI.
+ * <p>
+ * Exploration is monitored by wrapping the state processor the explorer writes to.
+ * Cancelling causes the next processed state to throw an {@link ExplorationCancelledException}.
+ * </p>
+ */
+public final class ExplorationProgress {
+    /**
+     * Number of bytes in a megabyte
+     */
+    private static final long MEGABYTE = 1024 * 1024;
+
+    /**
+     * Number of states whose successors have been processed
+     */
+    private final AtomicInteger explored = new AtomicInteger();
+
+    /**
+     * Number of states that have been discovered
+     */
+    private final AtomicInteger discovered = new AtomicInteger();
+
+    /**
+     * Time the explorer spent waiting for the binary writers to catch up
+     */
+    private final AtomicLong writerStallNanos = new AtomicLong();
+
+    /**
+     * Time this exploration started in nanoseconds
+     */
+    private final long startTime = System.nanoTime();
+
+    /**
+     * Set when the user cancels the exploration
+     */
+    private volatile boolean cancelled = false;
+
+    /**
+     * Batch size of the last parallel exploration round, 0 if the exploration is not batched
+     */
+    private int batchSize;
+
+    /**
+     * Number of parallel exploration rounds
+     */
+    private int rounds;
+
+    /**
+     * Sum of the batch sizes of every round
+     */
+    private long batchSizeTotal;
+
+    /**
+     * Time the worker threads spent expanding states across every round
+     */
+    private long busyNanos;
+
+    /**
+     * Time the worker threads were available across every round, the round time multiplied by the threads
+     */
+    private long availableNanos;
+
+    /**
+     * @param processor processor the explorer writes to
+     * @return processor which records progress before delegating to processor
+     */
+    public StateProcessor monitor(final StateProcessor processor) {
+        return new StateProcessor() {
+            @Override
+            public void processTransitions(int state, Map<Integer, Pair<Double, Collection<String>>> successorRates) {
+                checkCancelled();
+                processor.processTransitions(state, successorRates);
+                explored.incrementAndGet();
+            }
+
+            @Override
+            public void processState(ClassifiedState state, int id) {
+                checkCancelled();
+                processor.processState(state, id);
+                discovered.incrementAndGet();
+            }
+        };
+    }
+
+    /**
+     * Records that a state was processed without going through a monitored processor,
+     * for instance when reading states from binaries
+     */
+    public void stateExplored() {
+        checkCancelled();
+        explored.incrementAndGet();
+        discovered.incrementAndGet();
+    }
+
+    /**
+     * Records a finished round of a batched parallel exploration
+     *
+     * @param batchSize  number of states each thread expanded
+     * @param threads    number of worker threads
+     * @param busyNanos  total time the worker threads spent expanding states
+     * @param roundNanos time taken by the round
+     */
+    public synchronized void recordRound(int batchSize, int threads, long busyNanos, long roundNanos) {
+        this.batchSize = batchSize;
+        rounds++;
+        batchSizeTotal += batchSize;
+        this.busyNanos += busyNanos;
+        availableNanos += roundNanos * threads;
+    }
+
+    /**
+     * @return batch size of the last parallel exploration round, 0 if the exploration is not batched
+     */
+    public synchronized int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @return average batch size over every parallel exploration round, 0 if the exploration is not batched
+     */
+    public synchronized double getAverageBatchSize() {
+        return rounds == 0 ? 0 : batchSizeTotal / (double) rounds;
+    }
+
+    /**
+     * @return fraction of the time the worker threads spent expanding states, 0 if the exploration is not batched
+     */
+    public synchronized double getThreadUtilisation() {
+        return availableNanos == 0 ? 0 : Math.min(1, busyNanos / (double) availableNanos);
+    }
+
+    /**
+     * @return description of the batch size and thread utilisation, empty if the exploration is not batched
+     */
+    public String getBatchSummary() {
+        if (getBatchSize() == 0) {
+            return "";
+        }
+        return String.format("batch size: %d (average %.0f), thread utilisation: %.0f%%", getBatchSize(),
+                getAverageBatchSize(), 100 * getThreadUtilisation());
+    }
+
+    /**
+     * Records that the explorer waited for a full writer buffer
+     *
+     * @param nanos time spent waiting
+     */
+    public void recordWriterStall(long nanos) {
+        writerStallNanos.addAndGet(nanos);
+    }
+
+    /**
+     * @return fraction of the exploration the explorer spent waiting for the binary writers
+     */
+    public double getWriterBackpressure() {
+        long elapsed = System.nanoTime() - startTime;
+        return elapsed > 0 ? Math.min(1, writerStallNanos.get() / (double) elapsed) : 0;
+    }
+
+    /**
+     * @return description of the writer backpressure, empty if the explorer never waited for the writers
+     */
+    public String getWriterSummary() {
+        if (writerStallNanos.get() == 0) {
+            return "";
+        }
+        return String.format("writer backpressure: %.0f%%", 100 * getWriterBackpressure());
+    }
+
+    /**
+     * @throws ExplorationCancelledException if the exploration has been cancelled
+     */
+    public void checkCancelled() {
+        if (cancelled) {
+            throw new ExplorationCancelledException();
+        }
+    }
+
+    /**
+     * Requests that the exploration stops at the next processed state
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * @return true if the exploration has been cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return number of states whose successors have been processed
+     */
+    public int getStatesExplored() {
+        return explored.get();
+    }
+
+    /**
+     * @return number of states discovered but not yet explored
+     */
+    public int getFrontierSize() {
+        return Math.max(0, discovered.get() - explored.get());
+    }
+
+    /**
+     * @return average number of states explored per second since the exploration began
+     */
+    public double getStatesPerSecond() {
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        return seconds > 0 ? explored.get() / seconds : 0;
+    }
+
+    /**
+     * @return heap currently in use by the JVM in megabytes
+     */
+    public long getUsedHeapMegabytes() {
+        Runtime runtime = Runtime.getRuntime();
+        return (runtime.totalMemory() - runtime.freeMemory()) / MEGABYTE;
+    }
+
+    /**
+     * @return single line summary of the progress for display
+     */
+    @Override
+    public String toString() {
+        String summary = String.format("States explored: %d, frontier: %d, %.0f states/s, heap: %d MB",
+                getStatesExplored(), getFrontierSize(), getStatesPerSecond(), getUsedHeapMegabytes());
+        String batches = getBatchSummary();
+        if (!batches.isEmpty()) {
+            summary += ", " + batches;
+        }
+        String writers = getWriterSummary();
+        return writers.isEmpty() ? summary : summary + ", " + writers;
+    }
+}
@@ -0,0 +1,512 @@
+package pipe.gui.statespace;
+
+import pipe.reachability.algorithm.ExplorerUtilities;
+import pipe.reachability.algorithm.UnboundedExplorerUtilities;
+import uk.ac.imperial.pipe.exceptions.PetriNetComponentNotFoundException;
+import uk.ac.imperial.pipe.models.petrinet.ArcType;
+import uk.ac.imperial.pipe.models.petrinet.InboundArc;
+import uk.ac.imperial.pipe.models.petrinet.OutboundArc;
+import uk.ac.imperial.pipe.models.petrinet.PetriNet;
+import uk.ac.imperial.pipe.models.petrinet.Place;
+import uk.ac.imperial.pipe.models.petrinet.Token;
+import uk.ac.imperial.pipe.models.petrinet.Transition;
+import uk.ac.imperial.state.ClassifiedState;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Searches for a firing sequence that reaches a target marking without exploring the whole state space.
+ * <p>
+ * States are expanded best first by their distance from the initial state plus a weighted estimate
+ * of the firings still needed, which makes the search an A* search with a weight of one. The estimate
+ * divides the token distance to the target by the largest distance a single firing can cover. With
+ * marking equation bounds each targeted place also needs at least as many firings as its distance
+ * divided by the most any transition adds to or removes from it, and states from which a place can
+ * never reach its target count, since no transition moves its tokens in the needed direction, are
+ * pruned. Both estimates never exceed the true number of firings for nets with constant arc weights,
+ * so a weight of one finds a shortest sequence. Places with functional arc weights are not bounded.
+ * </p>
+ */
+public final class GuidedSearch {
+    /**
+     * Default number of states expanded before giving up
+     */
+    public static final int DEFAULT_MAX_STATES = 1000000;
+
+    /**
+     * Estimate of states from which the target cannot be reached
+     */
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    /**
+     * Generates successors
+     */
+    private final ExplorerUtilities explorerUtilities;
+
+    /**
+     * Place of each targeted token count
+     */
+    private final String[] places;
+
+    /**
+     * Token of each targeted token count
+     */
+    private final String[] tokens;
+
+    /**
+     * Targeted token counts
+     */
+    private final int[] targetCounts;
+
+    /**
+     * Most tokens any transition adds to each targeted count
+     */
+    private final int[] maxIncrease;
+
+    /**
+     * Most tokens any transition removes from each targeted count
+     */
+    private final int[] maxDecrease;
+
+    /**
+     * True for the targeted counts changed by a functional arc weight, which are not bounded
+     */
+    private final boolean[] functional;
+
+    /**
+     * Largest token distance to the target a single firing can cover, 0 if unknown
+     */
+    private final int maxStep;
+
+    /**
+     * True if prune and bound by the marking equation
+     */
+    private boolean markingEquationBounds = true;
+
+    /**
+     * Weight of the estimate, above one trades longer sequences for a faster search
+     */
+    private double heuristicWeight = 1;
+
+    /**
+     * Number of states expanded before giving up
+     */
+    private int maxStates = DEFAULT_MAX_STATES;
+
+    /**
+     * Number of states expanded by the last search
+     */
+    private int statesExplored;
+
+    /**
+     * True if the last search gave up after expanding the maximum number of states
+     */
+    private boolean maxStatesReached;
+
+    /**
+     * @param petriNet          Petri net being searched, used to bound the firings needed
+     * @param explorerUtilities generates the successors of each state
+     * @param target            token counts of the targeted places, places not in the target may hold any tokens
+     */
+    public GuidedSearch(PetriNet petriNet, ExplorerUtilities explorerUtilities,
+                        Map<String, Map<String, Integer>> target) {
+        this.explorerUtilities = explorerUtilities;
+        List<String> placeIds = new ArrayList<>();
+        List<String> tokenIds = new ArrayList<>();
+        List<Integer> counts = new ArrayList<>();
+        Map<String, Map<String, Integer>> indices = new HashMap<>();
+        for (Map.Entry<String, Map<String, Integer>> place : target.entrySet()) {
+            Map<String, Integer> placeIndices = new HashMap<>();
+            indices.put(place.getKey(), placeIndices);
+            for (Map.Entry<String, Integer> token : place.getValue().entrySet()) {
+                placeIndices.put(token.getKey(), placeIds.size());
+                placeIds.add(place.getKey());
+                tokenIds.add(token.getKey());
+                counts.add(token.getValue());
+            }
+        }
+        int size = placeIds.size();
+        places = placeIds.toArray(new String[size]);
+        tokens = tokenIds.toArray(new String[size]);
+        targetCounts = new int[size];
+        for (int i = 0; i < size; i++) {
+            targetCounts[i] = counts.get(i);
+        }
+        maxIncrease = new int[size];
+        maxDecrease = new int[size];
+        functional = new boolean[size];
+
+        int largestStep = 0;
+        boolean stepKnown = true;
+        for (Transition transition : petriNet.getTransitions()) {
+            int[] change = new int[size];
+            boolean[] unknown = new boolean[size];
+            for (InboundArc arc : petriNet.inboundArcs(transition)) {
+                if (arc.getType() == ArcType.NORMAL) {
+                    addWeights(change, unknown, indices.get(arc.getSource().getId()), arc.getTokenWeights(), -1);
+                }
+            }
+            for (OutboundArc arc : petriNet.outboundArcs(transition)) {
+                addWeights(change, unknown, indices.get(arc.getTarget().getId()), arc.getTokenWeights(), 1);
+            }
+            int step = 0;
+            for (int i = 0; i < size; i++) {
+                if (unknown[i]) {
+                    functional[i] = true;
+                    stepKnown = false;
+                }
+                maxIncrease[i] = Math.max(maxIncrease[i], change[i]);
+                maxDecrease[i] = Math.max(maxDecrease[i], -change[i]);
+                step += Math.abs(change[i]);
+            }
+            largestStep = Math.max(largestStep, step);
+        }
+        maxStep = stepKnown ? largestStep : 0;
+    }
+
+    /**
+     * @param petriNet Petri net to search, from its current marking
+     * @param target   token counts of the targeted places
+     * @return search over every marking of the net
+     */
+    public static GuidedSearch forPetriNet(PetriNet petriNet, Map<String, Map<String, Integer>> target) {
+        return new GuidedSearch(petriNet, new UnboundedExplorerUtilities(petriNet), target);
+    }
+
+    /**
+     * Parses a target marking such as {@code P0=1, P2=0}. Places holding more than one
+     * token type name it in brackets, as in {@code P0[Red]=1}. If the net has a single
+     * token type it may be left out.
+     *
+     * @param petriNet Petri net the marking belongs to
+     * @param marking  comma separated token counts
+     * @return token counts of each place in the marking
+     * @throws IllegalArgumentException if the marking cannot be parsed or refers to places or tokens not in the net
+     */
+    public static Map<String, Map<String, Integer>> parseMarking(PetriNet petriNet, String marking) {
+        Map<String, Map<String, Integer>> target = new HashMap<>();
+        for (String entry : marking.split(",")) {
+            if (entry.trim().isEmpty()) {
+                continue;
+            }
+            int equals = entry.indexOf('=');
+            if (equals < 0) {
+                throw new IllegalArgumentException("Expected place=count but found " + entry.trim());
+            }
+            String place = entry.substring(0, equals).trim();
+            String token = null;
+            int bracket = place.indexOf('[');
+            if (bracket >= 0 && place.endsWith("]")) {
+                token = place.substring(bracket + 1, place.length() - 1).trim();
+                place = place.substring(0, bracket).trim();
+            }
+            try {
+                petriNet.getComponent(place, Place.class);
+            } catch (PetriNetComponentNotFoundException e) {
+                throw new IllegalArgumentException("No place " + place + " in the Petri net", e);
+            }
+            if (token == null) {
+                token = getOnlyToken(petriNet, place);
+            } else {
+                try {
+                    petriNet.getComponent(token, Token.class);
+                } catch (PetriNetComponentNotFoundException e) {
+                    throw new IllegalArgumentException("No token " + token + " in the Petri net", e);
+                }
+            }
+            int count;
+            try {
+                count = Integer.parseInt(entry.substring(equals + 1).trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Token count of " + place + " is not a number", e);
+            }
+            if (count < 0) {
+                throw new IllegalArgumentException("Token count of " + place + " must not be negative");
+            }
+            Map<String, Integer> counts = target.get(place);
+            if (counts == null) {
+                counts = new HashMap<>();
+                target.put(place, counts);
+            }
+            counts.put(token, count);
+        }
+        if (target.isEmpty()) {
+            throw new IllegalArgumentException("The target marking has no places");
+        }
+        return target;
+    }
+
+    /**
+     * @param petriNet Petri net
+     * @param place    place whose token was left out
+     * @return id of the only token type of the net
+     */
+    private static String getOnlyToken(PetriNet petriNet, String place) {
+        Collection<Token> netTokens = petriNet.getTokens();
+        if (netTokens.size() != 1) {
+            throw new IllegalArgumentException("Name the token of " + place + ", as in " + place + "[token]=1");
+        }
+        return netTokens.iterator().next().getId();
+    }
+
+    /**
+     * Adds the constant weights of an arc to the change of the targeted counts
+     *
+     * @param change       change of each targeted count
+     * @param unknown      set for the targeted counts with functional weights
+     * @param placeIndices index of each targeted token of the arc's place, null if the place is not targeted
+     * @param weights      token weights of the arc
+     * @param sign         1 for arcs adding tokens, -1 for arcs removing them
+     */
+    private static void addWeights(int[] change, boolean[] unknown, Map<String, Integer> placeIndices,
+                                   Map<String, String> weights, int sign) {
+        if (placeIndices == null) {
+            return;
+        }
+        for (Map.Entry<String, String> weight : weights.entrySet()) {
+            Integer index = placeIndices.get(weight.getKey());
+            if (index != null) {
+                try {
+                    change[index] += sign * Integer.parseInt(weight.getValue().trim());
+                } catch (NumberFormatException e) {
+                    unknown[index] = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param markingEquationBounds true to bound and prune by the marking equation, false to only use the token distance
+     */
+    public void setMarkingEquationBounds(boolean markingEquationBounds) {
+        this.markingEquationBounds = markingEquationBounds;
+    }
+
+    /**
+     * @param heuristicWeight weight of the estimate, one for a shortest sequence and above one for a faster,
+     *                        greedier search
+     */
+    public void setHeuristicWeight(double heuristicWeight) {
+        if (heuristicWeight < 1) {
+            throw new IllegalArgumentException("Heuristic weight must be at least one: " + heuristicWeight);
+        }
+        this.heuristicWeight = heuristicWeight;
+    }
+
+    /**
+     * @param maxStates number of states expanded before giving up
+     */
+    public void setMaxStates(int maxStates) {
+        this.maxStates = maxStates;
+    }
+
+    /**
+     * Searches from the current marking of the explorer utilities
+     *
+     * @param progress progress of the search, cancelling it stops the search with an
+     *                 {@link ExplorationCancelledException}
+     * @return ids of the transitions to fire in order, or null if the target was not found
+     */
+    public List<String> search(ExplorationProgress progress) {
+        statesExplored = 0;
+        maxStatesReached = false;
+        ClassifiedState initialState = explorerUtilities.getCurrentState();
+        int initialEstimate = estimate(initialState);
+        if (initialEstimate == UNREACHABLE) {
+            return null;
+        }
+        PriorityQueue<Node> open = new PriorityQueue<>(11, new Comparator<Node>() {
+            @Override
+            public int compare(Node first, Node second) {
+                int priority = Double.compare(first.priority, second.priority);
+                if (priority != 0) {
+                    return priority;
+                }
+                int depth = Integer.compare(second.firings, first.firings);
+                return depth != 0 ? depth : Long.compare(first.order, second.order);
+            }
+        });
+        Map<ClassifiedState, Integer> bestFirings = new HashMap<>();
+        long order = 0;
+        open.add(new Node(initialState, null, null, 0, heuristicWeight * initialEstimate, order++));
+        bestFirings.put(initialState, 0);
+        while (!open.isEmpty()) {
+            Node node = open.poll();
+            if (node.firings > bestFirings.get(node.state)) {
+                continue;
+            }
+            if (isTarget(node.state)) {
+                return node.getFiringSequence();
+            }
+            if (statesExplored == maxStates) {
+                maxStatesReached = true;
+                return null;
+            }
+            progress.stateExplored();
+            statesExplored++;
+            for (Map.Entry<ClassifiedState, Collection<Transition>> successor :
+                    explorerUtilities.getSuccessorsWithTransitions(node.state).entrySet()) {
+                int firings = node.firings + 1;
+                Integer best = bestFirings.get(successor.getKey());
+                if (best != null && best <= firings) {
+                    continue;
+                }
+                int estimate = estimate(successor.getKey());
+                if (estimate == UNREACHABLE) {
+                    continue;
+                }
+                bestFirings.put(successor.getKey(), firings);
+                open.add(new Node(successor.getKey(), node, firstTransition(successor.getValue()), firings,
+                        firings + heuristicWeight * estimate, order++));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return number of states expanded by the last search
+     */
+    public int getStatesExplored() {
+        return statesExplored;
+    }
+
+    /**
+     * @return true if the last search gave up after expanding the maximum number of states,
+     *         false if it found the target or showed it cannot be reached
+     */
+    public boolean isMaxStatesReached() {
+        return maxStatesReached;
+    }
+
+    /**
+     * @param transitions transitions leading to the same successor
+     * @return id of the first transition in id order, so that searches are repeatable
+     */
+    private static String firstTransition(Collection<Transition> transitions) {
+        List<String> ids = new ArrayList<>();
+        for (Transition transition : transitions) {
+            ids.add(transition.getId());
+        }
+        return Collections.min(ids);
+    }
+
+    /**
+     * @param state state
+     * @return true if the state has the targeted token counts
+     */
+    private boolean isTarget(ClassifiedState state) {
+        for (int i = 0; i < places.length; i++) {
+            if (count(state, i) != targetCounts[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param state state
+     * @param index targeted count
+     * @return number of the targeted tokens on the targeted place in the state
+     */
+    private int count(ClassifiedState state, int index) {
+        Integer count = state.getTokens(places[index]).get(tokens[index]);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * @param state state
+     * @return lower bound of the firings needed to reach the target, or {@link #UNREACHABLE}
+     */
+    private int estimate(ClassifiedState state) {
+        int distance = 0;
+        int bound = 0;
+        for (int i = 0; i < places.length; i++) {
+            int difference = targetCounts[i] - count(state, i);
+            distance += Math.abs(difference);
+            if (!markingEquationBounds || functional[i] || difference == 0) {
+                continue;
+            }
+            int largestChange = difference > 0 ? maxIncrease[i] : maxDecrease[i];
+            if (largestChange == 0) {
+                return UNREACHABLE;
+            }
+            bound = Math.max(bound, ceilDivide(Math.abs(difference), largestChange));
+        }
+        if (distance == 0) {
+            return 0;
+        }
+        int distanceBound = maxStep == 0 ? 1 : ceilDivide(distance, maxStep);
+        return Math.max(bound, distanceBound);
+    }
+
+    /**
+     * @return numerator divided by denominator rounded up
+     */
+    private static int ceilDivide(int numerator, int denominator) {
+        return (numerator + denominator - 1) / denominator;
+    }
+
+    /**
+     * State reached by the search and how it was first reached
+     */
+    private static final class Node {
+        /**
+         * Reached state
+         */
+        private final ClassifiedState state;
+
+        /**
+         * State it was reached from, null for the initial state
+         */
+        private final Node parent;
+
+        /**
+         * Transition fired from the parent, null for the initial state
+         */
+        private final String transition;
+
+        /**
+         * Number of firings from the initial state
+         */
+        private final int firings;
+
+        /**
+         * Firings plus the weighted estimate of those still needed
+         */
+        private final double priority;
+
+        /**
+         * Order the state was reached in, breaking ties between equal priorities
+         */
+        private final long order;
+
+        private Node(ClassifiedState state, Node parent, String transition, int firings, double priority,
+                     long order) {
+            this.state = state;
+            this.parent = parent;
+            this.transition = transition;
+            this.firings = firings;
+            this.priority = priority;
+            this.order = order;
+        }
+
+        /**
+         * @return ids of the transitions fired from the initial state to reach this state
+         */
+        private List<String> getFiringSequence() {
+            List<String> sequence = new ArrayList<>(firings);
+            for (Node node = this; node.parent != null; node = node.parent) {
+                sequence.add(node.transition);
+            }
+            Collections.reverse(sequence);
+            return sequence;
+        }
+    }
+}
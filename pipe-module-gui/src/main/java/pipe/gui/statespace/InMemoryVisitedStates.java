@@ -0,0 +1,49 @@
+package pipe.gui.statespace;
+
+import uk.ac.imperial.state.ClassifiedState;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Visited states packed by a {@link MarkingCodec} into a hash map, limited by the size of the heap
+ */
+public final class InMemoryVisitedStates implements VisitedStates {
+    /**
+     * Packs the visited states
+     */
+    private final MarkingCodec codec;
+
+    /**
+     * Id of every visited state
+     */
+    private final Map<PackedState, Integer> stateIds = new HashMap<>();
+
+    /**
+     * @param codec packs the visited states
+     */
+    public InMemoryVisitedStates(MarkingCodec codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public int get(ClassifiedState state) {
+        Integer id = stateIds.get(codec.pack(state));
+        return id == null ? NOT_VISITED : id;
+    }
+
+    @Override
+    public void put(ClassifiedState state, int id) {
+        stateIds.put(codec.pack(state), id);
+    }
+
+    @Override
+    public int size() {
+        return stateIds.size();
+    }
+
+    @Override
+    public void close() {
+        stateIds.clear();
+    }
+}
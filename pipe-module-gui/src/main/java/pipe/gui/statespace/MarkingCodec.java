@@ -0,0 +1,301 @@
+package pipe.gui.statespace;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import uk.ac.imperial.pipe.models.petrinet.PetriNet;
+import uk.ac.imperial.pipe.models.petrinet.Place;
+import uk.ac.imperial.pipe.models.petrinet.Token;
+import uk.ac.imperial.state.ClassifiedState;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Packs states into {@link PackedState} words with a fixed bit field for every token on every place.
+ * <p>
+ * The first bit holds the tangible flag. The width of each field is the number of bits needed for the
+ * capacity of its place, so the places of the EN nets accepted by {@link pipe.gui.validation.ENValidator},
+ * which all have capacity one, take a single bit each. Places without a capacity take
+ * {@value #UNBOUNDED_WIDTH} bits. Fields never straddle two words.
+ * </p>
+ */
+public final class MarkingCodec {
+    /**
+     * Width of the fields of places without a capacity, enough for any token count
+     */
+    static final int UNBOUNDED_WIDTH = 32;
+
+    /**
+     * Place of each field
+     */
+    private final String[] places;
+
+    /**
+     * Token of each field
+     */
+    private final String[] tokens;
+
+    /**
+     * Word holding each field
+     */
+    private final int[] fieldWords;
+
+    /**
+     * Position of the lowest bit of each field in its word
+     */
+    private final int[] shifts;
+
+    /**
+     * Bit width of each field
+     */
+    private final int[] widths;
+
+    /**
+     * Index of the field of each token on each place
+     */
+    private final Map<String, Map<String, Integer>> fields = new HashMap<>();
+
+    /**
+     * Number of words in each packed state
+     */
+    private final int wordCount;
+
+    /**
+     * @param places place of each field
+     * @param tokens token of each field
+     * @param widths bit width of each field
+     */
+    private MarkingCodec(List<String> places, List<String> tokens, List<Integer> widths) {
+        int count = places.size();
+        this.places = places.toArray(new String[count]);
+        this.tokens = tokens.toArray(new String[count]);
+        this.widths = new int[count];
+        fieldWords = new int[count];
+        shifts = new int[count];
+        int position = 1;
+        for (int i = 0; i < count; i++) {
+            int width = widths.get(i);
+            if (position % 64 + width > 64) {
+                position = (position / 64 + 1) * 64;
+            }
+            this.widths[i] = width;
+            fieldWords[i] = position / 64;
+            shifts[i] = position % 64;
+            position += width;
+
+            Map<String, Integer> placeFields = fields.get(this.places[i]);
+            if (placeFields == null) {
+                placeFields = new HashMap<>();
+                fields.put(this.places[i], placeFields);
+            }
+            placeFields.put(this.tokens[i], i);
+        }
+        wordCount = (position + 63) / 64;
+    }
+
+    /**
+     * @param petriNet Petri net whose states will be packed
+     * @return codec with a field for every token on every place of the net, sized by the place capacities
+     */
+    public static MarkingCodec forPetriNet(PetriNet petriNet) {
+        List<Place> netPlaces = new ArrayList<>(petriNet.getPlaces());
+        Collections.sort(netPlaces, new Comparator<Place>() {
+            @Override
+            public int compare(Place first, Place second) {
+                return first.getId().compareTo(second.getId());
+            }
+        });
+        List<String> tokenIds = new ArrayList<>();
+        for (Token token : petriNet.getTokens()) {
+            tokenIds.add(token.getId());
+        }
+        Collections.sort(tokenIds);
+
+        List<String> places = new ArrayList<>();
+        List<String> tokens = new ArrayList<>();
+        List<Integer> widths = new ArrayList<>();
+        for (Place place : netPlaces) {
+            int width = place.hasCapacityRestriction() ?
+                    bitsFor(Math.max(place.getCapacity(), place.getNumberOfTokensStored())) : UNBOUNDED_WIDTH;
+            for (String token : tokenIds) {
+                places.add(place.getId());
+                tokens.add(token);
+                widths.add(width);
+            }
+        }
+        return new MarkingCodec(places, tokens, widths);
+    }
+
+    /**
+     * @param layoutState state whose places and tokens are packed
+     * @return codec with an unbounded field for every token on every place of the state,
+     *         used when the Petri net is not available
+     */
+    public static MarkingCodec forState(ClassifiedState layoutState) {
+        Map<String, Map<String, Integer>> marking = layoutState.asMap();
+        List<String> placeIds = new ArrayList<>(marking.keySet());
+        Collections.sort(placeIds);
+        List<String> places = new ArrayList<>();
+        List<String> tokens = new ArrayList<>();
+        List<Integer> widths = new ArrayList<>();
+        for (String place : placeIds) {
+            List<String> tokenIds = new ArrayList<>(marking.get(place).keySet());
+            Collections.sort(tokenIds);
+            for (String token : tokenIds) {
+                places.add(place);
+                tokens.add(token);
+                widths.add(UNBOUNDED_WIDTH);
+            }
+        }
+        return new MarkingCodec(places, tokens, widths);
+    }
+
+    /**
+     * Reads a codec written by {@link #writeLayout(Output)}
+     *
+     * @param input input positioned at the layout
+     * @return codec with the written fields
+     */
+    public static MarkingCodec readLayout(Input input) {
+        int count = input.readInt(true);
+        List<String> places = new ArrayList<>(count);
+        List<String> tokens = new ArrayList<>(count);
+        List<Integer> widths = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            places.add(input.readString());
+            tokens.add(input.readString());
+            widths.add(input.readInt(true));
+        }
+        return new MarkingCodec(places, tokens, widths);
+    }
+
+    /**
+     * Writes the place, token and width of every field so that the codec can be read back
+     * with {@link #readLayout(Input)}
+     *
+     * @param output output to write to
+     */
+    public void writeLayout(Output output) {
+        output.writeInt(places.length, true);
+        for (int i = 0; i < places.length; i++) {
+            output.writeString(places[i]);
+            output.writeString(tokens[i]);
+            output.writeInt(widths[i], true);
+        }
+    }
+
+    /**
+     * Writes the words of a packed state as variable length longs, so the unused high
+     * bits of each word take no space
+     *
+     * @param output output to write to
+     * @param state  state packed by this codec
+     */
+    public void writeState(Output output, PackedState state) {
+        for (int i = 0; i < wordCount; i++) {
+            output.writeLong(state.word(i), true);
+        }
+    }
+
+    /**
+     * @param input input positioned at a state written by {@link #writeState(Output, PackedState)}
+     * @return the packed state
+     */
+    public PackedState readState(Input input) {
+        long[] words = new long[wordCount];
+        for (int i = 0; i < wordCount; i++) {
+            words[i] = input.readLong(true);
+        }
+        return new PackedState(words);
+    }
+
+    /**
+     * @param state state to pack
+     * @return packed state
+     * @throws IllegalArgumentException if the state has tokens on a place or of a type the codec
+     *                                  has no field for, or more tokens than the field can hold
+     */
+    public PackedState pack(ClassifiedState state) {
+        long[] words = new long[wordCount];
+        if (state.isTangible()) {
+            words[0] = 1;
+        }
+        for (Map.Entry<String, Map<String, Integer>> place : state.asMap().entrySet()) {
+            Map<String, Integer> placeFields = fields.get(place.getKey());
+            for (Map.Entry<String, Integer> token : place.getValue().entrySet()) {
+                int count = token.getValue();
+                if (count == 0) {
+                    continue;
+                }
+                Integer field = placeFields == null ? null : placeFields.get(token.getKey());
+                if (field == null) {
+                    throw new IllegalArgumentException(
+                            "Token " + token.getKey() + " on place " + place.getKey() + " has no packed field");
+                }
+                long value = count & 0xFFFFFFFFL;
+                if (widths[field] < UNBOUNDED_WIDTH && value >= 1L << widths[field]) {
+                    throw new IllegalArgumentException(
+                            count + " " + token.getKey() + " tokens exceed the capacity of place " + place.getKey());
+                }
+                words[fieldWords[field]] |= value << shifts[field];
+            }
+        }
+        return new PackedState(words);
+    }
+
+    /**
+     * @param state packed state
+     * @return true if the packed state is tangible
+     */
+    public boolean isTangible(PackedState state) {
+        return (state.word(0) & 1) != 0;
+    }
+
+    /**
+     * @param state packed state
+     * @return token counts of every place, including tokens with a count of zero
+     */
+    public Map<String, Map<String, Integer>> unpack(PackedState state) {
+        Map<String, Map<String, Integer>> marking = new HashMap<>();
+        for (int i = 0; i < places.length; i++) {
+            Map<String, Integer> counts = marking.get(places[i]);
+            if (counts == null) {
+                counts = new HashMap<>();
+                marking.put(places[i], counts);
+            }
+            long mask = widths[i] == 64 ? -1L : (1L << widths[i]) - 1;
+            counts.put(tokens[i], (int) ((state.word(fieldWords[i]) >>> shifts[i]) & mask));
+        }
+        return marking;
+    }
+
+    /**
+     * @return number of words in each packed state
+     */
+    public int getWordCount() {
+        return wordCount;
+    }
+
+    /**
+     * @return number of bits each packed state uses, including the tangible flag
+     */
+    public int getBitsPerState() {
+        int bits = 1;
+        for (int width : widths) {
+            bits += width;
+        }
+        return bits;
+    }
+
+    /**
+     * @param capacity place capacity
+     * @return number of bits needed to count from zero to capacity
+     */
+    private static int bitsFor(int capacity) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(capacity));
+    }
+}
@@ -0,0 +1,914 @@
+package pipe.gui.statespace;
+
+import org.apache.commons.lang.StringUtils;
+import uk.ac.imperial.pipe.models.petrinet.InboundArc;
+import uk.ac.imperial.pipe.models.petrinet.OutboundArc;
+import uk.ac.imperial.pipe.models.petrinet.PetriNet;
+import uk.ac.imperial.pipe.models.petrinet.Place;
+import uk.ac.imperial.pipe.models.petrinet.Token;
+import uk.ac.imperial.pipe.models.petrinet.Transition;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.HashedClassifiedState;
+import uk.ac.imperial.state.HashedStateBuilder;
+import uk.ac.imperial.state.State;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Symmetries of a Petri net made of interchangeable copies of a component, such as servers or philosophers.
+ * <p>
+ * Each group of copies is a list of blocks of places, aligned so that the i-th place of every block plays the
+ * same part. In a symmetric group any two blocks can be swapped; in a ring, such as dining philosophers, the
+ * blocks can only be rotated. Every swap or rotation is checked to map the places, arcs, weights, rates,
+ * priorities and initial marking of the net onto themselves before it is used, which makes the Markov chain
+ * over the canonical markings an exact lumping of the full one. Copies that start with different tokens are
+ * not interchangeable, since their tokens may never mix and the orbit averages would then be wrong.
+ * </p>
+ * <p>
+ * Markings are canonicalised by sorting the blocks of a symmetric group by their token counts, or by taking
+ * the smallest rotation of a ring. Since the full chain is unchanged by the symmetries its steady state gives
+ * symmetric places and transitions the same metrics, so metrics computed on the canonical markings are
+ * averaged over each orbit to recover the exact value of every place and transition.
+ * </p>
+ */
+public final class NetSymmetry {
+    /**
+     * Prefix of declared groups whose blocks can only be rotated
+     */
+    private static final String RING = "ring:";
+
+    /**
+     * References to places in functional expressions, such as {@code #(P0)} or {@code cap(P0)}
+     */
+    private static final Pattern REFERENCE = Pattern.compile("(#|cap)\\(\\s*([^,)\\s]+)");
+
+    /**
+     * Groups of interchangeable blocks
+     */
+    private final List<Group> groups;
+
+    /**
+     * Token ids of the net in order
+     */
+    private final List<String> tokens;
+
+    /**
+     * Places mapped onto each other by the symmetries, each orbit holding more than one place
+     */
+    private final List<List<String>> placeOrbits;
+
+    /**
+     * Transitions mapped onto each other by the symmetries, each orbit holding more than one transition
+     */
+    private final List<List<String>> transitionOrbits;
+
+    /**
+     * @param groups           groups of interchangeable blocks
+     * @param tokens           token ids of the net in order
+     * @param placeOrbits      places mapped onto each other
+     * @param transitionOrbits transitions mapped onto each other
+     */
+    private NetSymmetry(List<Group> groups, List<String> tokens, List<List<String>> placeOrbits,
+                        List<List<String>> transitionOrbits) {
+        this.groups = groups;
+        this.tokens = tokens;
+        this.placeOrbits = placeOrbits;
+        this.transitionOrbits = transitionOrbits;
+    }
+
+    /**
+     * Finds copies of a component connected only through places and transitions that are not copied,
+     * such as servers sharing a queue. Rings, whose copies are connected to each other, are not found
+     * and have to be declared.
+     *
+     * @param petriNet Petri net
+     * @return symmetries swapping the copies found, empty if there are none
+     */
+    public static NetSymmetry detect(PetriNet petriNet) {
+        Structure structure = new Structure(petriNet);
+        List<List<List<String>>> candidates = structure.findReplicatedComponents();
+        Builder builder = new Builder(structure);
+        for (List<List<String>> blocks : candidates) {
+            List<List<String>> accepted = new ArrayList<>();
+            accepted.add(blocks.get(0));
+            for (int i = 1; i < blocks.size(); i++) {
+                if (structure.swap(blocks.get(0), blocks.get(i)) != null) {
+                    accepted.add(blocks.get(i));
+                }
+            }
+            if (accepted.size() > 1) {
+                builder.add(accepted, false);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Parses declared groups of interchangeable blocks. Groups are separated by {@code ;} or new lines
+     * and their blocks by {@code |}, with the places of each block in matching order, e.g.
+     * {@code Idle0 Busy0 | Idle1 Busy1 | Idle2 Busy2}. A group starting with {@code ring:} can only be rotated,
+     * the first block moving to the second, the second to the third and the last to the first.
+     *
+     * @param petriNet    Petri net
+     * @param declaration declared groups
+     * @return symmetries of the declared groups
+     * @throws IllegalArgumentException if the declaration cannot be parsed or a group is not a symmetry of the net
+     */
+    public static NetSymmetry declare(PetriNet petriNet, String declaration) {
+        Structure structure = new Structure(petriNet);
+        Builder builder = new Builder(structure);
+        Set<String> used = new HashSet<>();
+        for (String group : declaration.split("[;\\n]")) {
+            String blocksText = group.trim();
+            if (blocksText.isEmpty()) {
+                continue;
+            }
+            boolean ring = blocksText.startsWith(RING);
+            if (ring) {
+                blocksText = blocksText.substring(RING.length());
+            }
+            List<List<String>> blocks = new ArrayList<>();
+            for (String block : blocksText.split("\\|")) {
+                List<String> places = new ArrayList<>();
+                for (String place : block.trim().split("[\\s,]+")) {
+                    if (place.isEmpty()) {
+                        continue;
+                    }
+                    if (!structure.hasPlace(place)) {
+                        throw new IllegalArgumentException("No place " + place + " in the Petri net");
+                    }
+                    if (!used.add(place)) {
+                        throw new IllegalArgumentException("Place " + place + " is declared more than once");
+                    }
+                    places.add(place);
+                }
+                blocks.add(places);
+            }
+            if (blocks.size() < 2) {
+                throw new IllegalArgumentException("Group " + group.trim() + " needs at least two blocks");
+            }
+            for (List<String> block : blocks) {
+                if (block.isEmpty() || block.size() != blocks.get(0).size()) {
+                    throw new IllegalArgumentException(
+                            "Every block of " + group.trim() + " needs the same number of places");
+                }
+            }
+            if (ring) {
+                if (structure.rotate(blocks) == null) {
+                    throw new IllegalArgumentException("Rotating " + group.trim() +
+                            " does not map the Petri net and its initial marking onto themselves");
+                }
+            } else {
+                for (int i = 1; i < blocks.size(); i++) {
+                    if (structure.swap(blocks.get(0), blocks.get(i)) == null) {
+                        throw new IllegalArgumentException("Swapping " + StringUtils.join(blocks.get(0), " ") +
+                                " with " + StringUtils.join(blocks.get(i), " ") +
+                                " does not map the Petri net and its initial marking onto themselves");
+                    }
+                }
+            }
+            builder.add(blocks, ring);
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return true if there are no symmetries to reduce by
+     */
+    public boolean isEmpty() {
+        return groups.isEmpty();
+    }
+
+    /**
+     * @param state state
+     * @return representative of the markings equivalent to the state under the symmetries
+     */
+    public ClassifiedState canonicalise(ClassifiedState state) {
+        Map<String, String> sources = new HashMap<>();
+        for (Group group : groups) {
+            group.addSources(state, tokens, sources);
+        }
+        if (sources.isEmpty()) {
+            return state;
+        }
+        HashedStateBuilder builder = new HashedStateBuilder();
+        for (String place : state.getPlaces()) {
+            String source = sources.containsKey(place) ? sources.get(place) : place;
+            for (Map.Entry<String, Integer> token : state.getTokens(source).entrySet()) {
+                builder.placeWithToken(place, token.getKey(), token.getValue());
+            }
+        }
+        State canonical = builder.build();
+        return state.isTangible() ? HashedClassifiedState.tangibleState(canonical) :
+                HashedClassifiedState.vanishingState(canonical);
+    }
+
+    /**
+     * @param averageTokens average token counts of each place computed over the canonical markings
+     * @return average token counts of each place in the full state space
+     */
+    public Map<String, Map<String, Double>> averageTokens(Map<String, Map<String, Double>> averageTokens) {
+        Map<String, Map<String, Double>> averaged = new HashMap<>(averageTokens);
+        for (List<String> orbit : placeOrbits) {
+            Map<String, Double> sums = new HashMap<>();
+            for (String place : orbit) {
+                for (Map.Entry<String, Double> token : averageTokens.get(place).entrySet()) {
+                    Double sum = sums.get(token.getKey());
+                    sums.put(token.getKey(), (sum == null ? 0 : sum) + token.getValue());
+                }
+            }
+            Map<String, Double> average = new HashMap<>();
+            for (Map.Entry<String, Double> sum : sums.entrySet()) {
+                average.put(sum.getKey(), sum.getValue() / orbit.size());
+            }
+            for (String place : orbit) {
+                averaged.put(place, average);
+            }
+        }
+        return averaged;
+    }
+
+    /**
+     * @param throughputs throughput of each transition computed over the canonical markings
+     * @return throughput of each transition in the full state space
+     */
+    public Map<String, Double> averageThroughputs(Map<String, Double> throughputs) {
+        Map<String, Double> averaged = new HashMap<>(throughputs);
+        for (List<String> orbit : transitionOrbits) {
+            double sum = 0;
+            int count = 0;
+            for (String transition : orbit) {
+                Double throughput = throughputs.get(transition);
+                if (throughput != null) {
+                    sum += throughput;
+                    count++;
+                }
+            }
+            if (count == orbit.size()) {
+                for (String transition : orbit) {
+                    averaged.put(transition, sum / count);
+                }
+            }
+        }
+        return averaged;
+    }
+
+    /**
+     * @return the groups in the syntax accepted by {@link #declare}
+     */
+    @Override
+    public String toString() {
+        List<String> declarations = new ArrayList<>();
+        for (Group group : groups) {
+            declarations.add(group.toString());
+        }
+        return StringUtils.join(declarations, "; ");
+    }
+
+    /**
+     * Interchangeable blocks of places
+     */
+    private static final class Group {
+        /**
+         * Places of each block, aligned by position
+         */
+        private final String[][] blocks;
+
+        /**
+         * True if the blocks can only be rotated
+         */
+        private final boolean ring;
+
+        /**
+         * @param blocks places of each block
+         * @param ring   true if the blocks can only be rotated
+         */
+        private Group(List<List<String>> blocks, boolean ring) {
+            this.blocks = new String[blocks.size()][];
+            for (int i = 0; i < this.blocks.length; i++) {
+                this.blocks[i] = blocks.get(i).toArray(new String[blocks.get(i).size()]);
+            }
+            this.ring = ring;
+        }
+
+        /**
+         * Records the place whose tokens each place of the canonical marking takes
+         *
+         * @param state   state being canonicalised
+         * @param tokens  token ids of the net
+         * @param sources place whose tokens each moved place takes
+         */
+        private void addSources(ClassifiedState state, List<String> tokens, Map<String, String> sources) {
+            final int[][] keys = new int[blocks.length][];
+            for (int b = 0; b < blocks.length; b++) {
+                keys[b] = key(state, blocks[b], tokens);
+            }
+            int[] order = ring ? smallestRotation(keys) : sortedBlocks(keys);
+            for (int b = 0; b < blocks.length; b++) {
+                if (order[b] != b) {
+                    for (int i = 0; i < blocks[b].length; i++) {
+                        sources.put(blocks[b][i], blocks[order[b]][i]);
+                    }
+                }
+            }
+        }
+
+        /**
+         * @param keys token counts of each block
+         * @return block moved into each position, sorting the blocks by their token counts
+         */
+        private static int[] sortedBlocks(final int[][] keys) {
+            Integer[] order = new Integer[keys.length];
+            for (int b = 0; b < order.length; b++) {
+                order[b] = b;
+            }
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer first, Integer second) {
+                    return compareKeys(keys[first], keys[second]);
+                }
+            });
+            int[] sorted = new int[order.length];
+            for (int b = 0; b < sorted.length; b++) {
+                sorted[b] = order[b];
+            }
+            return sorted;
+        }
+
+        /**
+         * @param keys token counts of each block
+         * @return block moved into each position by the rotation giving the smallest token counts
+         */
+        private static int[] smallestRotation(int[][] keys) {
+            int n = keys.length;
+            int best = 0;
+            for (int rotation = 1; rotation < n; rotation++) {
+                for (int b = 0; b < n; b++) {
+                    int comparison = compareKeys(keys[(b + rotation) % n], keys[(b + best) % n]);
+                    if (comparison != 0) {
+                        if (comparison < 0) {
+                            best = rotation;
+                        }
+                        break;
+                    }
+                }
+            }
+            int[] order = new int[n];
+            for (int b = 0; b < n; b++) {
+                order[b] = (b + best) % n;
+            }
+            return order;
+        }
+
+        /**
+         * @param state  state
+         * @param places places of a block
+         * @param tokens token ids of the net
+         * @return count of every token on every place of the block
+         */
+        private static int[] key(ClassifiedState state, String[] places, List<String> tokens) {
+            int[] key = new int[places.length * tokens.size()];
+            int i = 0;
+            for (String place : places) {
+                Map<String, Integer> counts = state.getTokens(place);
+                for (String token : tokens) {
+                    Integer count = counts.get(token);
+                    key[i++] = count == null ? 0 : count;
+                }
+            }
+            return key;
+        }
+
+        /**
+         * @return lexicographic comparison of the token counts
+         */
+        private static int compareKeys(int[] first, int[] second) {
+            for (int i = 0; i < first.length; i++) {
+                if (first[i] != second[i]) {
+                    return first[i] < second[i] ? -1 : 1;
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        public String toString() {
+            List<String> blockTexts = new ArrayList<>();
+            for (String[] block : blocks) {
+                blockTexts.add(StringUtils.join(block, " "));
+            }
+            return (ring ? RING + " " : "") + StringUtils.join(blockTexts, " | ");
+        }
+    }
+
+    /**
+     * Collects verified groups and the orbits of the places and transitions they move
+     */
+    private static final class Builder {
+        /**
+         * Net the groups belong to
+         */
+        private final Structure structure;
+
+        /**
+         * Verified groups
+         */
+        private final List<Group> groups = new ArrayList<>();
+
+        /**
+         * Representative of the orbit of each moved place or transition
+         */
+        private final Map<String, String> parents = new HashMap<>();
+
+        /**
+         * @param structure net the groups belong to
+         */
+        private Builder(Structure structure) {
+            this.structure = structure;
+        }
+
+        /**
+         * @param blocks verified blocks
+         * @param ring   true if the blocks can only be rotated
+         */
+        private void add(List<List<String>> blocks, boolean ring) {
+            groups.add(new Group(blocks, ring));
+            List<Map<String, String>> maps = new ArrayList<>();
+            if (ring) {
+                maps.add(structure.rotate(blocks));
+            } else {
+                for (int i = 1; i < blocks.size(); i++) {
+                    maps.add(structure.swap(blocks.get(0), blocks.get(i)));
+                }
+            }
+            for (Map<String, String> map : maps) {
+                for (Map.Entry<String, String> entry : map.entrySet()) {
+                    union(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+
+        /**
+         * @return symmetries of the verified groups
+         */
+        private NetSymmetry build() {
+            Map<String, List<String>> orbits = new TreeMap<>();
+            for (String member : parents.keySet()) {
+                String root = find(member);
+                List<String> orbit = orbits.get(root);
+                if (orbit == null) {
+                    orbit = new ArrayList<>();
+                    orbits.put(root, orbit);
+                }
+                orbit.add(member);
+            }
+            List<List<String>> placeOrbits = new ArrayList<>();
+            List<List<String>> transitionOrbits = new ArrayList<>();
+            for (List<String> orbit : orbits.values()) {
+                if (orbit.size() > 1) {
+                    Collections.sort(orbit);
+                    if (orbit.get(0).startsWith("P:")) {
+                        placeOrbits.add(strip(orbit));
+                    } else {
+                        transitionOrbits.add(strip(orbit));
+                    }
+                }
+            }
+            return new NetSymmetry(groups, structure.tokens, placeOrbits, transitionOrbits);
+        }
+
+        /**
+         * @param orbit prefixed ids
+         * @return ids without their prefix
+         */
+        private static List<String> strip(List<String> orbit) {
+            List<String> ids = new ArrayList<>();
+            for (String member : orbit) {
+                ids.add(member.substring(2));
+            }
+            return ids;
+        }
+
+        /**
+         * @param member prefixed id
+         * @return representative of its orbit
+         */
+        private String find(String member) {
+            String parent = parents.get(member);
+            if (parent == null) {
+                parents.put(member, member);
+                return member;
+            }
+            if (parent.equals(member)) {
+                return member;
+            }
+            String root = find(parent);
+            parents.put(member, root);
+            return root;
+        }
+
+        /**
+         * Merges the orbits of a place or transition and its image
+         */
+        private void union(String first, String second) {
+            String firstRoot = find(first);
+            String secondRoot = find(second);
+            if (!firstRoot.equals(secondRoot)) {
+                parents.put(secondRoot, firstRoot);
+            }
+        }
+    }
+
+    /**
+     * Places, transitions and arcs of the net, used to check that a permutation of its places is a symmetry
+     * and to find replicated components
+     */
+    private static final class Structure {
+        /**
+         * Token ids of the net in order
+         */
+        private final List<String> tokens = new ArrayList<>();
+
+        /**
+         * Places by id
+         */
+        private final Map<String, Place> places = new LinkedHashMap<>();
+
+        /**
+         * Transitions of the net
+         */
+        private final List<Transition> transitions = new ArrayList<>();
+
+        /**
+         * Inbound arcs of each transition
+         */
+        private final Map<String, List<InboundArc>> inbound = new HashMap<>();
+
+        /**
+         * Outbound arcs of each transition
+         */
+        private final Map<String, List<OutboundArc>> outbound = new HashMap<>();
+
+        /**
+         * Transitions with each signature
+         */
+        private final Map<String, List<String>> bySignature = new HashMap<>();
+
+        /**
+         * @param petriNet Petri net
+         */
+        private Structure(PetriNet petriNet) {
+            for (Token token : petriNet.getTokens()) {
+                tokens.add(token.getId());
+            }
+            Collections.sort(tokens);
+            for (Place place : petriNet.getPlaces()) {
+                places.put(place.getId(), place);
+            }
+            Map<String, String> identity = Collections.emptyMap();
+            for (Transition transition : petriNet.getTransitions()) {
+                transitions.add(transition);
+                inbound.put(transition.getId(), new ArrayList<>(petriNet.inboundArcs(transition)));
+                outbound.put(transition.getId(), new ArrayList<>(petriNet.outboundArcs(transition)));
+                String signature = signature(transition, identity);
+                List<String> matching = bySignature.get(signature);
+                if (matching == null) {
+                    matching = new ArrayList<>();
+                    bySignature.put(signature, matching);
+                }
+                matching.add(transition.getId());
+            }
+        }
+
+        /**
+         * @param id place id
+         * @return true if the net has the place
+         */
+        private boolean hasPlace(String id) {
+            return places.containsKey(id);
+        }
+
+        /**
+         * @param first  block of places
+         * @param second aligned block of places
+         * @return prefixed ids of every place and transition moved by swapping the blocks mapped to their images,
+         *         or null if the swap is not a symmetry of the net
+         */
+        private Map<String, String> swap(List<String> first, List<String> second) {
+            Map<String, String> placeMap = new HashMap<>();
+            for (int i = 0; i < first.size(); i++) {
+                placeMap.put(first.get(i), second.get(i));
+                placeMap.put(second.get(i), first.get(i));
+            }
+            return check(placeMap);
+        }
+
+        /**
+         * @param blocks aligned blocks of places
+         * @return prefixed ids of every place and transition moved by rotating the blocks mapped to their images,
+         *         or null if the rotation is not a symmetry of the net
+         */
+        private Map<String, String> rotate(List<List<String>> blocks) {
+            Map<String, String> placeMap = new HashMap<>();
+            for (int b = 0; b < blocks.size(); b++) {
+                List<String> next = blocks.get((b + 1) % blocks.size());
+                for (int i = 0; i < next.size(); i++) {
+                    placeMap.put(blocks.get(b).get(i), next.get(i));
+                }
+            }
+            return check(placeMap);
+        }
+
+        /**
+         * @param placeMap image of each moved place
+         * @return prefixed ids of the moved places and transitions mapped to their images, or null if the
+         *         permutation does not map the net and its initial marking onto themselves
+         */
+        private Map<String, String> check(Map<String, String> placeMap) {
+            Map<String, String> moved = new HashMap<>();
+            for (Map.Entry<String, String> entry : placeMap.entrySet()) {
+                Place place = places.get(entry.getKey());
+                Place image = places.get(entry.getValue());
+                if (place.hasCapacityRestriction() != image.hasCapacityRestriction() ||
+                        place.getCapacity() != image.getCapacity()) {
+                    return null;
+                }
+                for (String token : tokens) {
+                    if (place.getTokenCount(token) != image.getTokenCount(token)) {
+                        return null;
+                    }
+                }
+                moved.put("P:" + entry.getKey(), "P:" + entry.getValue());
+            }
+            Set<String> used = new HashSet<>();
+            for (Transition transition : transitions) {
+                List<String> candidates = bySignature.get(signature(transition, placeMap));
+                String image = null;
+                if (candidates != null) {
+                    for (String candidate : candidates) {
+                        if (!used.contains(candidate)) {
+                            image = candidate;
+                            break;
+                        }
+                    }
+                }
+                if (image == null) {
+                    return null;
+                }
+                used.add(image);
+                if (!image.equals(transition.getId())) {
+                    moved.put("T:" + transition.getId(), "T:" + image);
+                }
+            }
+            return moved;
+        }
+
+        /**
+         * @param transition transition
+         * @param placeMap   image of each moved place
+         * @return description of the image of the transition, equal for transitions that the
+         *         permutation maps onto each other
+         */
+        private String signature(Transition transition, Map<String, String> placeMap) {
+            List<String> arcs = new ArrayList<>();
+            for (InboundArc arc : inbound.get(transition.getId())) {
+                arcs.add("in " + arc.getType() + " " + image(arc.getSource().getId(), placeMap) + " " +
+                        weights(arc.getTokenWeights(), placeMap));
+            }
+            for (OutboundArc arc : outbound.get(transition.getId())) {
+                arcs.add("out " + image(arc.getTarget().getId(), placeMap) + " " +
+                        weights(arc.getTokenWeights(), placeMap));
+            }
+            Collections.sort(arcs);
+            return describe(transition, placeMap) + " " + arcs;
+        }
+
+        /**
+         * @return timing, priority and rate of the transition with its place references mapped
+         */
+        private String describe(Transition transition, Map<String, String> placeMap) {
+            return transition.isTimed() + " " + transition.getPriority() + " " + transition.isInfiniteServer() +
+                    " " + rename(transition.getRateExpr(), placeMap);
+        }
+
+        /**
+         * @return token weights with their place references mapped, in token order
+         */
+        private static String weights(Map<String, String> weights, Map<String, String> placeMap) {
+            Map<String, String> renamed = new TreeMap<>();
+            for (Map.Entry<String, String> weight : weights.entrySet()) {
+                renamed.put(weight.getKey(), rename(weight.getValue(), placeMap));
+            }
+            return renamed.toString();
+        }
+
+        /**
+         * @param expression functional expression
+         * @param placeMap   image of each moved place
+         * @return expression referring to the images of its places
+         */
+        private static String rename(String expression, Map<String, String> placeMap) {
+            if (expression == null) {
+                return "";
+            }
+            Matcher matcher = REFERENCE.matcher(expression);
+            StringBuffer renamed = new StringBuffer();
+            while (matcher.find()) {
+                matcher.appendReplacement(renamed, Matcher.quoteReplacement(
+                        matcher.group(1) + "(" + image(matcher.group(2), placeMap)));
+            }
+            matcher.appendTail(renamed);
+            return renamed.toString().replaceAll("\\s+", "");
+        }
+
+        /**
+         * @param place    place id
+         * @param placeMap image of each moved place, null to map every place to the same name so that
+         *                 transitions differing only in the places they refer to look alike
+         * @return image of the place
+         */
+        private static String image(String place, Map<String, String> placeMap) {
+            if (placeMap == null) {
+                return "?";
+            }
+            String image = placeMap.get(place);
+            return image == null ? place : image;
+        }
+
+        /**
+         * Colours places and transitions by their connections until the colouring is stable, then groups
+         * the components formed by places and transitions sharing their colour with others
+         *
+         * @return candidate groups, each a list of blocks aligned by colour with the first block
+         */
+        private List<List<List<String>>> findReplicatedComponents() {
+            List<String> nodes = new ArrayList<>();
+            Map<String, Integer> indices = new HashMap<>();
+            for (String place : places.keySet()) {
+                indices.put("P:" + place, nodes.size());
+                nodes.add("P:" + place);
+            }
+            for (Transition transition : transitions) {
+                indices.put("T:" + transition.getId(), nodes.size());
+                nodes.add("T:" + transition.getId());
+            }
+            List<List<String>> edgeLabels = new ArrayList<>();
+            List<List<Integer>> neighbours = new ArrayList<>();
+            for (int i = 0; i < nodes.size(); i++) {
+                edgeLabels.add(new ArrayList<String>());
+                neighbours.add(new ArrayList<Integer>());
+            }
+            String[] colours = new String[nodes.size()];
+            for (String place : places.keySet()) {
+                Place p = places.get(place);
+                colours[indices.get("P:" + place)] = "P " + p.hasCapacityRestriction() + " " + p.getCapacity();
+            }
+            // place references are left out of the colours, the refinement tells the places apart
+            for (Transition transition : transitions) {
+                int t = indices.get("T:" + transition.getId());
+                colours[t] = "T " + describe(transition, null);
+                for (InboundArc arc : inbound.get(transition.getId())) {
+                    connect(edgeLabels, neighbours, indices.get("P:" + arc.getSource().getId()), t,
+                            arc.getType() + " " + weights(arc.getTokenWeights(), null));
+                }
+                for (OutboundArc arc : outbound.get(transition.getId())) {
+                    connect(edgeLabels, neighbours, t, indices.get("P:" + arc.getTarget().getId()),
+                            "out " + weights(arc.getTokenWeights(), null));
+                }
+            }
+
+            int[] classes = compress(colours);
+            int classCount = count(classes);
+            while (true) {
+                String[] refined = new String[nodes.size()];
+                for (int i = 0; i < refined.length; i++) {
+                    List<String> adjacent = new ArrayList<>();
+                    for (int j = 0; j < neighbours.get(i).size(); j++) {
+                        adjacent.add(edgeLabels.get(i).get(j) + "/" + classes[neighbours.get(i).get(j)]);
+                    }
+                    Collections.sort(adjacent);
+                    refined[i] = classes[i] + " " + adjacent;
+                }
+                int[] refinedClasses = compress(refined);
+                int refinedCount = count(refinedClasses);
+                classes = refinedClasses;
+                if (refinedCount == classCount) {
+                    break;
+                }
+                classCount = refinedCount;
+            }
+
+            int[] sizes = new int[classCount];
+            for (int colour : classes) {
+                sizes[colour]++;
+            }
+            int[] component = new int[nodes.size()];
+            Arrays.fill(component, -1);
+            List<List<Integer>> components = new ArrayList<>();
+            for (int start = 0; start < nodes.size(); start++) {
+                if (component[start] >= 0 || sizes[classes[start]] < 2) {
+                    continue;
+                }
+                List<Integer> members = new ArrayList<>();
+                List<Integer> stack = new ArrayList<>();
+                stack.add(start);
+                component[start] = components.size();
+                while (!stack.isEmpty()) {
+                    int node = stack.remove(stack.size() - 1);
+                    members.add(node);
+                    for (int neighbour : neighbours.get(node)) {
+                        if (component[neighbour] < 0 && sizes[classes[neighbour]] >= 2) {
+                            component[neighbour] = components.size();
+                            stack.add(neighbour);
+                        }
+                    }
+                }
+                components.add(members);
+            }
+
+            Map<String, List<List<String>>> groups = new LinkedHashMap<>();
+            for (List<Integer> members : components) {
+                Map<Integer, String> placesByClass = new TreeMap<>();
+                List<Integer> memberClasses = new ArrayList<>();
+                boolean distinct = true;
+                for (int node : members) {
+                    memberClasses.add(classes[node]);
+                    if (nodes.get(node).startsWith("P:") &&
+                            placesByClass.put(classes[node], nodes.get(node).substring(2)) != null) {
+                        distinct = false;
+                    }
+                }
+                if (!distinct || placesByClass.isEmpty()) {
+                    continue;
+                }
+                Collections.sort(memberClasses);
+                String key = memberClasses.toString();
+                List<List<String>> blocks = groups.get(key);
+                if (blocks == null) {
+                    blocks = new ArrayList<>();
+                    groups.put(key, blocks);
+                }
+                blocks.add(new ArrayList<>(placesByClass.values()));
+            }
+            List<List<List<String>>> candidates = new ArrayList<>();
+            for (List<List<String>> blocks : groups.values()) {
+                if (blocks.size() > 1) {
+                    candidates.add(blocks);
+                }
+            }
+            return candidates;
+        }
+
+        /**
+         * Adds an arc to the adjacency of both its ends
+         */
+        private static void connect(List<List<String>> edgeLabels, List<List<Integer>> neighbours, int from, int to,
+                                     String label) {
+            edgeLabels.get(from).add("out " + label);
+            neighbours.get(from).add(to);
+            edgeLabels.get(to).add("in " + label);
+            neighbours.get(to).add(from);
+        }
+
+        /**
+         * @param colours colour of each node
+         * @return index of each colour in the sorted distinct colours
+         */
+        private static int[] compress(String[] colours) {
+            List<String> distinct = new ArrayList<>(new HashSet<>(Arrays.asList(colours)));
+            Collections.sort(distinct);
+            Map<String, Integer> index = new HashMap<>();
+            for (String colour : distinct) {
+                index.put(colour, index.size());
+            }
+            int[] classes = new int[colours.length];
+            for (int i = 0; i < colours.length; i++) {
+                classes[i] = index.get(colours[i]);
+            }
+            return classes;
+        }
+
+        /**
+         * @return number of distinct classes
+         */
+        private static int count(int[] classes) {
+            int max = -1;
+            for (int colour : classes) {
+                max = Math.max(max, colour);
+            }
+            return max + 1;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package pipe.gui.statespace;
+
+import java.util.Arrays;
+
+/**
+ * A state packed by a {@link MarkingCodec} into a few long words, used in place of the nested
+ * token count maps of a {@link uk.ac.imperial.state.ClassifiedState} wherever many states are held.
+ * <p>
+ * Hashing and equality only look at the words, so packed states of the same codec are equal
+ * exactly when their states are. Packed states are ordered by comparing their words as unsigned
+ * numbers, which is the order of their serialised form.
+ * </p>
+ */
+public final class PackedState implements Comparable<PackedState> {
+    /**
+     * Packed tangible flag and token counts
+     */
+    private final long[] words;
+
+    /**
+     * Hash of the words
+     */
+    private final int hash;
+
+    /**
+     * @param words packed tangible flag and token counts, not copied
+     */
+    PackedState(long[] words) {
+        this.words = words;
+        long mixed = longHash();
+        hash = (int) (mixed ^ (mixed >>> 32));
+    }
+
+    /**
+     * @return 64 bit hash of the words, with independent high and low halves
+     */
+    long longHash() {
+        long mixed = 0x9E3779B97F4A7C15L;
+        for (long word : words) {
+            mixed = mix(mixed ^ word);
+        }
+        return mixed;
+    }
+
+    /**
+     * @return number of words
+     */
+    int length() {
+        return words.length;
+    }
+
+    /**
+     * @param index word index
+     * @return the word
+     */
+    long word(int index) {
+        return words[index];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PackedState)) {
+            return false;
+        }
+        PackedState that = (PackedState) o;
+        return hash == that.hash && Arrays.equals(words, that.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public int compareTo(PackedState other) {
+        int length = Math.min(words.length, other.words.length);
+        for (int i = 0; i < length; i++) {
+            if (words[i] != other.words[i]) {
+                return Long.compare(words[i] + Long.MIN_VALUE, other.words[i] + Long.MIN_VALUE);
+            }
+        }
+        return words.length - other.words.length;
+    }
+
+    /**
+     * Murmur3 64 bit finaliser
+     */
+    private static long mix(long value) {
+        long mixed = value;
+        mixed ^= mixed >>> 33;
+        mixed *= 0xFF51AFD7ED558CCDL;
+        mixed ^= mixed >>> 33;
+        mixed *= 0xC4CEB9FE1A85EC53L;
+        return mixed ^ (mixed >>> 33);
+    }
+}
@@ -0,0 +1,34 @@
+package pipe.gui.statespace;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * Kryo serializer writing the words of a {@link PackedState}, preceded by their number.
+ * Words are written most significant byte first so serialised states sort in the same order as
+ * {@link PackedState#compareTo(PackedState)}.
+ */
+public final class PackedStateSerializer extends Serializer<PackedState> {
+    public PackedStateSerializer() {
+        super(false, true);
+    }
+
+    @Override
+    public void write(Kryo kryo, Output output, PackedState state) {
+        output.writeVarInt(state.length(), true);
+        for (int i = 0; i < state.length(); i++) {
+            output.writeLong(state.word(i));
+        }
+    }
+
+    @Override
+    public PackedState read(Kryo kryo, Input input, Class<PackedState> type) {
+        long[] words = new long[input.readVarInt(true)];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = input.readLong();
+        }
+        return new PackedState(words);
+    }
+}
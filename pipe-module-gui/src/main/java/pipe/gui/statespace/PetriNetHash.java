@@ -0,0 +1,152 @@
+package pipe.gui.statespace;
+
+import uk.ac.imperial.pipe.models.petrinet.Arc;
+import uk.ac.imperial.pipe.models.petrinet.InboundArc;
+import uk.ac.imperial.pipe.models.petrinet.OutboundArc;
+import uk.ac.imperial.pipe.models.petrinet.PetriNet;
+import uk.ac.imperial.pipe.models.petrinet.PetriNetComponent;
+import uk.ac.imperial.pipe.models.petrinet.Place;
+import uk.ac.imperial.pipe.models.petrinet.RateParameter;
+import uk.ac.imperial.pipe.models.petrinet.Token;
+import uk.ac.imperial.pipe.models.petrinet.Transition;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Computes a hash of the structure of a Petri net that determines its state space.
+ * <p>
+ * Two nets with the same places, capacities, initial marking, transitions, rates,
+ * priorities, arcs and arc weights have the same hash regardless of component ordering
+ * or layout, so the hash can be used to reuse analysis results between modules.
+ * </p>
+ */
+public final class PetriNetHash {
+    /**
+     * Orders components by id so that the hash does not depend on collection ordering
+     */
+    private static final Comparator<PetriNetComponent> BY_ID = new Comparator<PetriNetComponent>() {
+        @Override
+        public int compare(PetriNetComponent first, PetriNetComponent second) {
+            return first.getId().compareTo(second.getId());
+        }
+    };
+
+    /**
+     * Private constructor for utility class
+     */
+    private PetriNetHash() {
+    }
+
+    /**
+     * @param petriNet Petri net to hash
+     * @return hex encoded SHA-256 hash of the net's structure and initial marking
+     */
+    public static String of(PetriNet petriNet) {
+        return digest(canonicalForm(petriNet));
+    }
+
+    /**
+     * @param petriNet Petri net to hash
+     * @param options  settings that also affect the analysis results, e.g. the explorer used
+     * @return hex encoded SHA-256 hash of the net's structure combined with the options
+     */
+    public static String of(PetriNet petriNet, String options) {
+        return digest(canonicalForm(petriNet) + "options:" + options + "\n");
+    }
+
+    /**
+     * @param hash    previously computed hash
+     * @param options further settings that affect results derived from the hashed ones, e.g. the solver used
+     * @return hex encoded SHA-256 hash of the hash combined with the options
+     */
+    public static String derive(String hash, String options) {
+        return digest("hash:" + hash + "\noptions:" + options + "\n");
+    }
+
+    /**
+     * @param petriNet Petri net to describe
+     * @return canonical textual description of everything affecting the state space
+     */
+    private static String canonicalForm(PetriNet petriNet) {
+        StringBuilder builder = new StringBuilder();
+        for (Token token : sorted(petriNet.getTokens())) {
+            builder.append("token:").append(token.getId()).append('\n');
+        }
+        for (RateParameter parameter : sorted(petriNet.getRateParameters())) {
+            builder.append("rate:").append(parameter.getId()).append('=').append(parameter.getExpression()).append('\n');
+        }
+        for (Place place : sorted(petriNet.getPlaces())) {
+            builder.append("place:").append(place.getId()).append(":capacity=").append(place.getCapacity())
+                    .append(":tokens=").append(new TreeMap<>(place.getTokenCounts())).append('\n');
+        }
+        for (Transition transition : sorted(petriNet.getTransitions())) {
+            builder.append("transition:").append(transition.getId()).append(":timed=").append(transition.isTimed())
+                    .append(":rate=").append(transition.getRateExpr()).append(":priority=")
+                    .append(transition.getPriority()).append(":infinite=").append(transition.isInfiniteServer())
+                    .append('\n');
+            for (InboundArc arc : sortedArcs(petriNet.inboundArcs(transition))) {
+                builder.append("in:").append(arc.getSource().getId()).append(':').append(arc.getType())
+                        .append(':').append(new TreeMap<>(arc.getTokenWeights())).append('\n');
+            }
+            for (OutboundArc arc : sortedArcs(petriNet.outboundArcs(transition))) {
+                builder.append("out:").append(arc.getTarget().getId()).append(':').append(arc.getType())
+                        .append(':').append(new TreeMap<>(arc.getTokenWeights())).append('\n');
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @param components components to sort
+     * @return components sorted by id
+     */
+    private static <T extends PetriNetComponent> List<T> sorted(Collection<T> components) {
+        List<T> list = new ArrayList<>(components);
+        Collections.sort(list, BY_ID);
+        return list;
+    }
+
+    /**
+     * Arcs are sorted by the place they connect to since arc ids are not significant
+     *
+     * @param arcs arcs connected to a single transition
+     * @return arcs sorted by source then target id
+     */
+    private static <T extends Arc<?, ?>> List<T> sortedArcs(Collection<T> arcs) {
+        List<T> list = new ArrayList<>(arcs);
+        Collections.sort(list, new Comparator<T>() {
+            @Override
+            public int compare(T first, T second) {
+                int source = first.getSource().getId().compareTo(second.getSource().getId());
+                return source != 0 ? source : first.getTarget().getId().compareTo(second.getTarget().getId());
+            }
+        });
+        return list;
+    }
+
+    /**
+     * @param text text to hash
+     * @return hex encoded SHA-256 hash of text
+     */
+    private static String digest(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported by this JVM", e);
+        }
+    }
+}
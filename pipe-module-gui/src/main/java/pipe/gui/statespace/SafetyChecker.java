@@ -0,0 +1,184 @@
+package pipe.gui.statespace;
+
+import uk.ac.imperial.io.StateProcessor;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.utils.Pair;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks a {@link SafetyProperty} on the fly by wrapping the state processor an explorer writes to,
+ * throwing a {@link SafetyViolationException} as soon as a violating state is found.
+ * <p>
+ * Each state records the state it was discovered from and the transitions between them, so the
+ * path to a violation can be reported without keeping any markings. A state is only given a parent
+ * with a lower id, which every explorer in this module guarantees since ids are assigned in
+ * discovery order, so the recorded paths never loop. Like the explorers, the processor must be
+ * called from a single thread.
+ * </p>
+ */
+public final class SafetyChecker {
+    /**
+     * Parent of states discovered before any other state was expanded
+     */
+    private static final int NO_PARENT = -1;
+
+    /**
+     * Initial number of states parents are recorded for
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * Property being checked
+     */
+    private final SafetyProperty property;
+
+    /**
+     * Id of the state each state was discovered from
+     */
+    private int[] parents = new int[INITIAL_CAPACITY];
+
+    /**
+     * Label id of the transitions each state was discovered through
+     */
+    private int[] labels = new int[INITIAL_CAPACITY];
+
+    /**
+     * Distinct transition labels, shared between the states discovered through the same transitions
+     */
+    private final List<Collection<String>> labelValues = new ArrayList<>();
+
+    /**
+     * Id of each distinct transition label
+     */
+    private final Map<Collection<String>, Integer> labelIds = new HashMap<>();
+
+    /**
+     * Id of a discovered state violating the property whose parent is not yet known, or {@link #NO_PARENT}
+     */
+    private int pendingViolation = NO_PARENT;
+
+    /**
+     * @param property property to check
+     */
+    public SafetyChecker(SafetyProperty property) {
+        this.property = property;
+        Arrays.fill(parents, NO_PARENT);
+    }
+
+    /**
+     * Explorers process a state before the transitions into it, so a violating state is
+     * reported once the transitions of the state it was discovered from have been processed.
+     *
+     * @param processor processor the explorer writes to
+     * @return processor checking every state and transition before passing it on
+     */
+    public StateProcessor monitor(final StateProcessor processor) {
+        return new StateProcessor() {
+            @Override
+            public void processTransitions(int state, Map<Integer, Pair<Double, Collection<String>>> successorRates) {
+                processor.processTransitions(state, successorRates);
+                for (Map.Entry<Integer, Pair<Double, Collection<String>>> entry : successorRates.entrySet()) {
+                    recordParent(entry.getKey(), state, entry.getValue().getRight());
+                }
+                finish();
+                if (successorRates.isEmpty() && property.forbidsDeadlock()) {
+                    throw violation(state);
+                }
+            }
+
+            @Override
+            public void processState(ClassifiedState state, int id) {
+                processor.processState(state, id);
+                if (pendingViolation == NO_PARENT && property.isViolatedBy(state)) {
+                    pendingViolation = id;
+                }
+            }
+        };
+    }
+
+    /**
+     * Reports a violating state that has been processed but whose transitions may not have been,
+     * called once exploration has finished
+     *
+     * @throws SafetyViolationException if a violating state was found
+     */
+    public void finish() {
+        if (pendingViolation != NO_PARENT) {
+            throw violation(pendingViolation);
+        }
+    }
+
+    /**
+     * @return property being checked
+     */
+    public SafetyProperty getProperty() {
+        return property;
+    }
+
+    /**
+     * Records the parent of a state unless it already has one or was discovered first
+     *
+     * @param id          discovered state
+     * @param parent      state it was reached from
+     * @param transitions transitions from the parent into the state
+     */
+    private void recordParent(int id, int parent, Collection<String> transitions) {
+        if (id <= parent) {
+            return;
+        }
+        if (id >= parents.length) {
+            int capacity = Math.max(parents.length * 2, id + 1);
+            int previous = parents.length;
+            parents = Arrays.copyOf(parents, capacity);
+            labels = Arrays.copyOf(labels, capacity);
+            Arrays.fill(parents, previous, capacity, NO_PARENT);
+        }
+        if (parents[id] == NO_PARENT) {
+            parents[id] = parent;
+            labels[id] = labelId(transitions);
+        }
+    }
+
+    /**
+     * @param transitions transition label
+     * @return id of the label, shared with every equal label
+     */
+    private int labelId(Collection<String> transitions) {
+        Integer id = labelIds.get(transitions);
+        if (id == null) {
+            id = labelValues.size();
+            labelValues.add(transitions);
+            labelIds.put(transitions, id);
+        }
+        return id;
+    }
+
+    /**
+     * @param state violating state
+     * @return violation holding the path from an initial state to the violating state
+     */
+    private SafetyViolationException violation(int state) {
+        List<Integer> path = new ArrayList<>();
+        List<Collection<String>> transitions = new ArrayList<>();
+        for (int id = state; id != NO_PARENT; id = id < parents.length ? parents[id] : NO_PARENT) {
+            path.add(id);
+            if (id < parents.length && parents[id] != NO_PARENT) {
+                transitions.add(labelValues.get(labels[id]));
+            }
+        }
+        Collections.reverse(path);
+        Collections.reverse(transitions);
+        int[] ids = new int[path.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = path.get(i);
+        }
+        return new SafetyViolationException(property, ids, transitions);
+    }
+}
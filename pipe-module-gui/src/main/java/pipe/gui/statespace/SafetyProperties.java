@@ -0,0 +1,218 @@
+package pipe.gui.statespace;
+
+import org.apache.commons.lang.StringUtils;
+import uk.ac.imperial.pipe.animation.AnimationUtils;
+import uk.ac.imperial.pipe.models.petrinet.PetriNet;
+import uk.ac.imperial.pipe.models.petrinet.Place;
+import uk.ac.imperial.pipe.parsers.FunctionalResults;
+import uk.ac.imperial.pipe.parsers.PetriNetWeightParser;
+import uk.ac.imperial.pipe.parsers.StateEvalVisitor;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.State;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Creates the {@link SafetyProperty} instances that can be checked whilst exploring
+ */
+public final class SafetyProperties {
+    /**
+     * Comparisons allowed in expressions, two character operators first so that
+     * they are found before their one character prefixes
+     */
+    private static final String[] COMPARISONS = {"<=", ">=", "==", "!=", "<", ">"};
+
+    /**
+     * Static factory
+     */
+    private SafetyProperties() {
+    }
+
+    /**
+     * @return property violated by every state without successors
+     */
+    public static SafetyProperty deadlockFree() {
+        return new SafetyProperty() {
+            @Override
+            public boolean isViolatedBy(ClassifiedState state) {
+                return false;
+            }
+
+            @Override
+            public boolean forbidsDeadlock() {
+                return true;
+            }
+
+            @Override
+            public Collection<String> getPlaces() {
+                return Collections.emptySet();
+            }
+
+            @Override
+            public String getDescription() {
+                return "a deadlock";
+            }
+        };
+    }
+
+    /**
+     * @param bound largest number of tokens allowed on a place
+     * @return property violated by states with more than bound tokens of any type on any place
+     */
+    public static SafetyProperty placeBound(final int bound) {
+        if (bound < 0) {
+            throw new IllegalArgumentException("Place bound must not be negative: " + bound);
+        }
+        return new SafetyProperty() {
+            @Override
+            public boolean isViolatedBy(ClassifiedState state) {
+                for (Map<String, Integer> tokens : state.asMap().values()) {
+                    for (int count : tokens.values()) {
+                        if (count > bound) {
+                            return true;
+                        }
+                    }
+                }
+                return false;
+            }
+
+            @Override
+            public boolean forbidsDeadlock() {
+                return false;
+            }
+
+            @Override
+            public Collection<String> getPlaces() {
+                return null;
+            }
+
+            @Override
+            public String getDescription() {
+                return "more than " + bound + " tokens on a place";
+            }
+        };
+    }
+
+    /**
+     * Creates a property violated by states where a comparison such as {@code #(P0) + #(P1) > 1} holds.
+     * Both sides are functional expressions over the places of the net, as used for
+     * functional rates and arc weights.
+     *
+     * @param petriNet   Petri net whose places the expression refers to
+     * @param expression two functional expressions compared by one of {@code < <= > >= == !=}
+     * @return property violated by the states where the comparison holds
+     * @throws IllegalArgumentException if the expression has no comparison or either side cannot be evaluated
+     */
+    public static SafetyProperty expression(final PetriNet petriNet, final String expression) {
+        final String comparison = findComparison(expression);
+        if (comparison == null) {
+            throw new IllegalArgumentException(
+                    "Expression " + expression + " must compare two values with one of " +
+                            StringUtils.join(COMPARISONS, " "));
+        }
+        int split = expression.indexOf(comparison);
+        final String left = expression.substring(0, split).trim();
+        final String right = expression.substring(split + comparison.length()).trim();
+        State initialState = AnimationUtils.getState(petriNet);
+        evaluate(petriNet, initialState, left);
+        evaluate(petriNet, initialState, right);
+        final Collection<String> places = findPlaces(petriNet, expression);
+        return new SafetyProperty() {
+            @Override
+            public boolean isViolatedBy(ClassifiedState state) {
+                return compare(evaluate(petriNet, state, left), comparison, evaluate(petriNet, state, right));
+            }
+
+            @Override
+            public boolean forbidsDeadlock() {
+                return false;
+            }
+
+            @Override
+            public Collection<String> getPlaces() {
+                return places;
+            }
+
+            @Override
+            public String getDescription() {
+                return "a state where " + expression.trim();
+            }
+        };
+    }
+
+    /**
+     * @param expression expression to search
+     * @return first comparison operator in the expression, or null if it has none
+     */
+    private static String findComparison(String expression) {
+        for (int i = 0; i < expression.length(); i++) {
+            for (String comparison : COMPARISONS) {
+                if (expression.startsWith(comparison, i)) {
+                    return comparison;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param petriNet   Petri net whose places the expression refers to
+     * @param expression functional expression
+     * @return ids of the places whose tokens or capacity the expression reads
+     */
+    private static Collection<String> findPlaces(PetriNet petriNet, String expression) {
+        Set<String> places = new HashSet<>();
+        for (Place place : petriNet.getPlaces()) {
+            Pattern reference = Pattern.compile("(#|cap)\\(\\s*" + Pattern.quote(place.getId()) + "\\s*[,)]");
+            if (reference.matcher(expression).find()) {
+                places.add(place.getId());
+            }
+        }
+        return places;
+    }
+
+    /**
+     * @param petriNet   Petri net whose places the expression refers to
+     * @param state      marking to evaluate the expression in
+     * @param expression functional expression
+     * @return value of the expression
+     * @throws IllegalArgumentException if the expression cannot be evaluated
+     */
+    private static double evaluate(PetriNet petriNet, State state, String expression) {
+        PetriNetWeightParser parser = new PetriNetWeightParser(new StateEvalVisitor(petriNet, state), petriNet);
+        FunctionalResults<Double> results = parser.evaluateExpression(expression);
+        if (results.hasErrors()) {
+            throw new IllegalArgumentException(
+                    "Cannot evaluate " + expression + ": " + StringUtils.join(results.getErrors(), ", "));
+        }
+        return results.getResult();
+    }
+
+    /**
+     * @param left       value of the left side
+     * @param comparison comparison operator
+     * @param right      value of the right side
+     * @return true if the comparison holds
+     */
+    private static boolean compare(double left, String comparison, double right) {
+        switch (comparison) {
+            case "<=":
+                return left <= right;
+            case ">=":
+                return left >= right;
+            case "==":
+                return left == right;
+            case "!=":
+                return left != right;
+            case "<":
+                return left < right;
+            default:
+                return left > right;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package pipe.gui.statespace;
+
+import uk.ac.imperial.state.ClassifiedState;
+
+import java.util.Collection;
+
+/**
+ * Property every reachable state should satisfy, checked by a {@link SafetyChecker} whilst
+ * the state space is explored. Instances are created by {@link SafetyProperties}.
+ */
+public interface SafetyProperty {
+    /**
+     * @param state discovered state
+     * @return true if the marking of the state violates the property
+     */
+    boolean isViolatedBy(ClassifiedState state);
+
+    /**
+     * @return true if a state without successors violates the property
+     */
+    boolean forbidsDeadlock();
+
+    /**
+     * @return ids of the places whose tokens decide whether a state violates the property,
+     *         or null if it may depend on every place
+     */
+    Collection<String> getPlaces();
+
+    /**
+     * @return description of a violating state for reports, e.g. "a deadlock"
+     */
+    String getDescription();
+}
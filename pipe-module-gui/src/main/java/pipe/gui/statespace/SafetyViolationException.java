@@ -0,0 +1,66 @@
+package pipe.gui.statespace;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Thrown from within state space exploration once a state violating the checked
+ * {@link SafetyProperty} is found, unwinding the explorer without generating the rest
+ * of the state space. Holds the path through the explored states that leads to the violation.
+ */
+public class SafetyViolationException extends RuntimeException {
+    /**
+     * Violated property
+     */
+    private final SafetyProperty property;
+
+    /**
+     * Ids of the states from an initial state to the violating state
+     */
+    private final int[] path;
+
+    /**
+     * Transitions fired at each step of the path
+     */
+    private final List<Collection<String>> transitions;
+
+    /**
+     * @param property    violated property
+     * @param path        ids of the states from an initial state to the violating state
+     * @param transitions transitions fired at each step of the path, one fewer than its states
+     */
+    public SafetyViolationException(SafetyProperty property, int[] path, List<Collection<String>> transitions) {
+        super("Found " + property.getDescription() + " in state " + path[path.length - 1]);
+        this.property = property;
+        this.path = path;
+        this.transitions = transitions;
+    }
+
+    /**
+     * @return violated property
+     */
+    public SafetyProperty getProperty() {
+        return property;
+    }
+
+    /**
+     * @return ids of the states from an initial state to the violating state
+     */
+    public int[] getPath() {
+        return path.clone();
+    }
+
+    /**
+     * @return id of the violating state
+     */
+    public int getViolatingState() {
+        return path[path.length - 1];
+    }
+
+    /**
+     * @return transitions fired at each step of the path, one fewer than its states
+     */
+    public List<Collection<String>> getTransitions() {
+        return transitions;
+    }
+}
@@ -0,0 +1,290 @@
+package pipe.gui.statespace;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable file of packed states and their ids sorted by state, written when the in-memory tier of
+ * {@link SpillingVisitedStates} fills up.
+ * <p>
+ * Every entry is the state written by a {@link PackedStateSerializer} followed by its id. Every
+ * {@value #INDEX_INTERVAL}th state is kept in memory with its file offset, so a lookup binary searches the
+ * sparse index and reads a single block. A Bloom filter over every state avoids reading the file at all
+ * for most states that are not in the run.
+ * </p>
+ */
+final class SortedRun implements Closeable {
+    /**
+     * Number of entries between states held in the sparse index
+     */
+    static final int INDEX_INTERVAL = 128;
+
+    /**
+     * Bits of Bloom filter per state
+     */
+    private static final int BLOOM_BITS_PER_STATE = 10;
+
+    /**
+     * Serializer for the states in every run
+     */
+    private static final PackedStateSerializer SERIALIZER = new PackedStateSerializer();
+
+    /**
+     * Run file
+     */
+    private final Path file;
+
+    /**
+     * Channel used for lookups
+     */
+    private final FileChannel channel;
+
+    /**
+     * Every INDEX_INTERVALth state
+     */
+    private final List<PackedState> indexStates;
+
+    /**
+     * File offset of each state in the sparse index, followed by the file length
+     */
+    private final long[] indexOffsets;
+
+    /**
+     * Filter over every state in the run
+     */
+    private final BloomFilter filter;
+
+    /**
+     * Number of entries
+     */
+    private final int size;
+
+    private SortedRun(Path file, List<PackedState> indexStates, long[] indexOffsets, BloomFilter filter, int size)
+            throws IOException {
+        this.file = file;
+        this.indexStates = indexStates;
+        this.indexOffsets = indexOffsets;
+        this.filter = filter;
+        this.size = size;
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+    }
+
+    /**
+     * @param state packed state
+     * @return id of the state, or {@link VisitedStates#NOT_VISITED} if it is not in this run
+     */
+    int get(PackedState state) throws IOException {
+        if (!filter.mightContain(state)) {
+            return VisitedStates.NOT_VISITED;
+        }
+        int low = 0;
+        int high = indexStates.size() - 1;
+        int block = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (indexStates.get(middle).compareTo(state) <= 0) {
+                block = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        if (block < 0) {
+            return VisitedStates.NOT_VISITED;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) (indexOffsets[block + 1] - indexOffsets[block]));
+        long position = indexOffsets[block];
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Truncated visited state run " + file);
+            }
+            position += read;
+        }
+        Input input = new Input(buffer.array());
+        while (input.position() < buffer.capacity()) {
+            PackedState entry = SERIALIZER.read(null, input, PackedState.class);
+            int id = input.readInt();
+            int comparison = entry.compareTo(state);
+            if (comparison == 0) {
+                return id;
+            }
+            if (comparison > 0) {
+                break;
+            }
+        }
+        return VisitedStates.NOT_VISITED;
+    }
+
+    /**
+     * @return number of entries
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return cursor reading the entries in state order
+     */
+    Cursor cursor() throws IOException {
+        return new Cursor(file);
+    }
+
+    /**
+     * Closes and deletes the run
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Writes a run from entries added in state order
+     */
+    static final class Writer {
+        /**
+         * Run file
+         */
+        private final Path file;
+
+        /**
+         * Output to the run file
+         */
+        private final Output output;
+
+        /**
+         * Filter over every state added
+         */
+        private final BloomFilter filter;
+
+        /**
+         * Every INDEX_INTERVALth state
+         */
+        private final List<PackedState> indexStates = new ArrayList<>();
+
+        /**
+         * File offsets of the states in indexStates
+         */
+        private final List<Long> indexOffsets = new ArrayList<>();
+
+        /**
+         * Number of entries added
+         */
+        private int size;
+
+        /**
+         * @param file           run file
+         * @param expectedStates number of entries that will be added, used to size the Bloom filter
+         */
+        Writer(Path file, int expectedStates) throws IOException {
+            this.file = file;
+            output = new Output(Files.newOutputStream(file));
+            filter = new BloomFilter(expectedStates, BLOOM_BITS_PER_STATE);
+        }
+
+        /**
+         * @param state state, greater than the previous state
+         * @param id    state id
+         */
+        void add(PackedState state, int id) {
+            if (size % INDEX_INTERVAL == 0) {
+                indexStates.add(state);
+                indexOffsets.add(output.total());
+            }
+            SERIALIZER.write(null, output, state);
+            output.writeInt(id);
+            filter.add(state);
+            size++;
+        }
+
+        /**
+         * @return the written run, opened for lookups
+         */
+        SortedRun finish() throws IOException {
+            long length = output.total();
+            output.close();
+            long[] offsets = new long[indexOffsets.size() + 1];
+            for (int i = 0; i < indexOffsets.size(); i++) {
+                offsets[i] = indexOffsets.get(i);
+            }
+            offsets[indexOffsets.size()] = length;
+            return new SortedRun(file, indexStates, offsets, filter, size);
+        }
+    }
+
+    /**
+     * Reads the entries of a run in state order, used to merge runs
+     */
+    static final class Cursor implements Closeable {
+        /**
+         * Stream the input reads from
+         */
+        private final InputStream stream;
+
+        /**
+         * Input from the run file
+         */
+        private final Input input;
+
+        /**
+         * Current state, null once every entry has been read
+         */
+        private PackedState state;
+
+        /**
+         * Current id
+         */
+        private int id;
+
+        private Cursor(Path file) throws IOException {
+            stream = Files.newInputStream(file);
+            input = new Input(stream);
+            advance();
+        }
+
+        /**
+         * Moves to the next entry
+         */
+        void advance() {
+            if (input.eof()) {
+                state = null;
+                return;
+            }
+            state = SERIALIZER.read(null, input, PackedState.class);
+            id = input.readInt();
+        }
+
+        /**
+         * @return current state, null once every entry has been read
+         */
+        PackedState state() {
+            return state;
+        }
+
+        /**
+         * @return current id
+         */
+        int id() {
+            return id;
+        }
+
+        @Override
+        public void close() throws IOException {
+            input.close();
+            stream.close();
+        }
+    }
+}
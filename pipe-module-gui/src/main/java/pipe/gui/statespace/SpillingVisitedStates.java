@@ -0,0 +1,225 @@
+package pipe.gui.statespace;
+
+import uk.ac.imperial.state.ClassifiedState;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Visited states split between a hot in-memory tier and sorted runs on disk, so that explorations
+ * can visit far more states than fit on the heap.
+ * <p>
+ * New states are packed with a {@link MarkingCodec} into a hash map. When it holds {@code hotCapacity}
+ * states they are sorted and written out as a {@link SortedRun}, and the map is cleared.
+ * Lookups that miss the map check the runs newest first, where each run's Bloom filter rules out
+ * almost every run that does not hold the state without touching the disk. As in a log structured
+ * merge tree, every {@value #MERGE_FAN_IN} runs of similar size are merged into one, so the number of
+ * runs a lookup checks only grows logarithmically with the number of states.
+ * </p>
+ */
+public final class SpillingVisitedStates implements VisitedStates {
+    /**
+     * Default number of states held in memory before they are written to a run
+     */
+    public static final int DEFAULT_HOT_CAPACITY = 1 << 20;
+
+    /**
+     * Number of runs of similar size merged together
+     */
+    static final int MERGE_FAN_IN = 4;
+
+    /**
+     * Directory the runs are written to
+     */
+    private final Path directory;
+
+    /**
+     * Number of states held in memory before they are written to a run
+     */
+    private final int hotCapacity;
+
+    /**
+     * Packs the visited states
+     */
+    private final MarkingCodec codec;
+
+    /**
+     * Recently visited states
+     */
+    private final Map<PackedState, Integer> hot = new HashMap<>();
+
+    /**
+     * Runs in the order they were written
+     */
+    private final List<SortedRun> runs = new ArrayList<>();
+
+    /**
+     * Number of visited states
+     */
+    private int size;
+
+    /**
+     * Number of run files created, used to name them
+     */
+    private int runFiles;
+
+    /**
+     * @param codec       packs the visited states
+     * @param directory   existing directory the runs are written to
+     * @param hotCapacity number of states held in memory before they are written to a run
+     */
+    public SpillingVisitedStates(MarkingCodec codec, Path directory, int hotCapacity) {
+        this.codec = codec;
+        this.directory = directory;
+        this.hotCapacity = hotCapacity;
+    }
+
+    @Override
+    public int get(ClassifiedState state) throws IOException {
+        PackedState packed = codec.pack(state);
+        Integer id = hot.get(packed);
+        if (id != null) {
+            return id;
+        }
+        for (int i = runs.size() - 1; i >= 0; i--) {
+            int found = runs.get(i).get(packed);
+            if (found != NOT_VISITED) {
+                return found;
+            }
+        }
+        return NOT_VISITED;
+    }
+
+    @Override
+    public void put(ClassifiedState state, int id) throws IOException {
+        hot.put(codec.pack(state), id);
+        size++;
+        if (hot.size() >= hotCapacity) {
+            spill();
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return number of runs on disk
+     */
+    public int getRunCount() {
+        return runs.size();
+    }
+
+    /**
+     * Writes the in-memory states to a new run
+     */
+    private void spill() throws IOException {
+        List<PackedState> states = new ArrayList<>(hot.keySet());
+        Collections.sort(states);
+        SortedRun.Writer writer = new SortedRun.Writer(nextRunFile(), states.size());
+        for (PackedState packed : states) {
+            writer.add(packed, hot.get(packed));
+        }
+        hot.clear();
+        runs.add(writer.finish());
+        while (runs.size() >= MERGE_FAN_IN
+                && tier(runs.get(runs.size() - MERGE_FAN_IN)) == tier(runs.get(runs.size() - 1))) {
+            mergeRuns(runs.subList(runs.size() - MERGE_FAN_IN, runs.size()));
+        }
+    }
+
+    /**
+     * @param run sorted run
+     * @return size class of the run, runs in the same class are merged together
+     */
+    private int tier(SortedRun run) {
+        int tier = 0;
+        for (long size = run.size() / hotCapacity; size >= MERGE_FAN_IN; size /= MERGE_FAN_IN) {
+            tier++;
+        }
+        return tier;
+    }
+
+    /**
+     * Replaces the newest runs with a single run holding all of their entries
+     *
+     * @param newest view of the newest runs
+     */
+    private void mergeRuns(List<SortedRun> newest) throws IOException {
+        int total = 0;
+        for (SortedRun run : newest) {
+            total += run.size();
+        }
+        PriorityQueue<SortedRun.Cursor> cursors = new PriorityQueue<>(newest.size(), new Comparator<SortedRun.Cursor>() {
+            @Override
+            public int compare(SortedRun.Cursor first, SortedRun.Cursor second) {
+                return first.state().compareTo(second.state());
+            }
+        });
+        List<SortedRun.Cursor> opened = new ArrayList<>();
+        SortedRun merged;
+        try {
+            for (SortedRun run : newest) {
+                SortedRun.Cursor cursor = run.cursor();
+                opened.add(cursor);
+                if (cursor.state() != null) {
+                    cursors.add(cursor);
+                }
+            }
+            SortedRun.Writer writer = new SortedRun.Writer(nextRunFile(), total);
+            while (!cursors.isEmpty()) {
+                SortedRun.Cursor cursor = cursors.poll();
+                writer.add(cursor.state(), cursor.id());
+                cursor.advance();
+                if (cursor.state() != null) {
+                    cursors.add(cursor);
+                }
+            }
+            merged = writer.finish();
+        } finally {
+            for (SortedRun.Cursor cursor : opened) {
+                cursor.close();
+            }
+        }
+        for (SortedRun run : newest) {
+            run.close();
+        }
+        newest.clear();
+        runs.add(merged);
+    }
+
+    /**
+     * @return path of a new run file
+     */
+    private Path nextRunFile() {
+        return directory.resolve("visited-" + runFiles++ + ".run");
+    }
+
+    /**
+     * Deletes the runs and clears the in-memory states
+     */
+    @Override
+    public void close() throws IOException {
+        hot.clear();
+        IOException failure = null;
+        for (SortedRun run : runs) {
+            try {
+                run.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        runs.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package pipe.gui.statespace;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import uk.ac.imperial.io.EntireStateReader;
+import uk.ac.imperial.io.KryoStateIO;
+import uk.ac.imperial.state.ClassifiedState;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * First in first out queue of states and their ids forming the frontier of a breadth first exploration.
+ * <p>
+ * Without a spill directory every state is held in memory. With one, at most {@code memoryCapacity}
+ * states are held in memory and later states are written with {@link KryoStateIO} to segment files
+ * in the directory, which are read back in order once the states before them have been taken.
+ * </p>
+ */
+public final class StateQueue implements Closeable {
+    /**
+     * Default number of states held in memory before they are written to segments
+     */
+    public static final int DEFAULT_MEMORY_CAPACITY = 1 << 18;
+
+    /**
+     * Writes and reads the states in segments
+     */
+    private final KryoStateIO stateIO = new KryoStateIO();
+
+    /**
+     * Directory segments are written to, null if states are only held in memory
+     */
+    private final Path directory;
+
+    /**
+     * Number of states held in memory, and the number of states in each segment
+     */
+    private final int memoryCapacity;
+
+    /**
+     * States at the head of the queue
+     */
+    private final Deque<ClassifiedState> states = new ArrayDeque<>();
+
+    /**
+     * Ids of the states at the head of the queue
+     */
+    private final Deque<Integer> ids = new ArrayDeque<>();
+
+    /**
+     * Full segments in queue order
+     */
+    private final Deque<Path> segments = new ArrayDeque<>();
+
+    /**
+     * Segment being written, null if there is none
+     */
+    private Output segmentOutput;
+
+    /**
+     * Path of the segment being written
+     */
+    private Path segment;
+
+    /**
+     * Number of states in the segment being written
+     */
+    private int segmentSize;
+
+    /**
+     * Number of states in the queue
+     */
+    private int size;
+
+    /**
+     * Number of segment files created, used to name them
+     */
+    private int segmentFiles;
+
+    /**
+     * Creates a queue holding every state in memory
+     */
+    public StateQueue() {
+        this(null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param directory      existing directory segments are written to
+     * @param memoryCapacity number of states held in memory, and the number of states in each segment
+     */
+    public StateQueue(Path directory, int memoryCapacity) {
+        this.directory = directory;
+        this.memoryCapacity = memoryCapacity;
+    }
+
+    /**
+     * Adds a state to the tail of the queue
+     *
+     * @param state state
+     * @param id    id of the state, greater than the id of every state already added
+     */
+    public void add(ClassifiedState state, int id) throws IOException {
+        if (directory == null || (segments.isEmpty() && segmentOutput == null && states.size() < memoryCapacity)) {
+            states.add(state);
+            ids.add(id);
+        } else {
+            if (segmentOutput == null) {
+                segment = directory.resolve("frontier-" + segmentFiles++ + ".bin");
+                segmentOutput = new Output(Files.newOutputStream(segment));
+                segmentSize = 0;
+            }
+            stateIO.outputState(segmentOutput, state, id);
+            if (++segmentSize >= memoryCapacity) {
+                finishSegment();
+            }
+        }
+        size++;
+    }
+
+    /**
+     * @return id of the state at the head of the queue, which is then available from {@link #peekState()}
+     * @throws java.util.NoSuchElementException if the queue is empty
+     */
+    public int peekId() throws IOException {
+        fill();
+        return ids.element();
+    }
+
+    /**
+     * @return state at the head of the queue
+     * @throws java.util.NoSuchElementException if the queue is empty
+     */
+    public ClassifiedState peekState() throws IOException {
+        fill();
+        return states.element();
+    }
+
+    /**
+     * Removes the state at the head of the queue
+     *
+     * @return the removed state
+     * @throws java.util.NoSuchElementException if the queue is empty
+     */
+    public ClassifiedState remove() throws IOException {
+        fill();
+        ids.remove();
+        size--;
+        return states.remove();
+    }
+
+    /**
+     * @return true if the queue holds no states
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return number of states in the queue
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Reads the next segment into memory if the in-memory states have all been taken
+     */
+    private void fill() throws IOException {
+        if (!states.isEmpty()) {
+            return;
+        }
+        if (segments.isEmpty() && segmentOutput != null) {
+            finishSegment();
+        }
+        Path next = segments.poll();
+        if (next == null) {
+            return;
+        }
+        Map<Integer, ClassifiedState> segmentStates;
+        try (InputStream stream = Files.newInputStream(next);
+             Input input = new Input(stream)) {
+            segmentStates = new TreeMap<>(new EntireStateReader(stateIO).readStates(input));
+        }
+        Files.delete(next);
+        for (Map.Entry<Integer, ClassifiedState> entry : segmentStates.entrySet()) {
+            ids.add(entry.getKey());
+            states.add(entry.getValue());
+        }
+    }
+
+    /**
+     * Closes the segment being written and queues it
+     */
+    private void finishSegment() {
+        segmentOutput.close();
+        segmentOutput = null;
+        segments.add(segment);
+    }
+
+    /**
+     * Empties the queue, deleting any segments
+     */
+    @Override
+    public void close() throws IOException {
+        if (segmentOutput != null) {
+            finishSegment();
+        }
+        for (Path path : segments) {
+            Files.deleteIfExists(path);
+        }
+        segments.clear();
+        states.clear();
+        ids.clear();
+        size = 0;
+    }
+}
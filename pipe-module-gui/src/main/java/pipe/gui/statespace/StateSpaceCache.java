@@ -0,0 +1,261 @@
+package pipe.gui.statespace;
+
+import pipe.gui.io.OffsetIndex;
+import pipe.reachability.algorithm.StateSpaceExplorer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Application wide cache of explored state spaces shared between the analysis modules.
+ * <p>
+ * Entries are keyed by the {@link PetriNetHash} of the net combined with the explorer options,
+ * so switching between modules on an unchanged net reuses the binaries rather than exploring
+ * the net again. The least recently used entries are evicted, and their binaries deleted,
+ * once the cached binaries or compact state spaces exceed the disk or heap budget.
+ * </p>
+ */
+public final class StateSpaceCache {
+    /**
+     * Class logger
+     */
+    private static final Logger LOGGER = Logger.getLogger(StateSpaceCache.class.getName());
+
+    /**
+     * Default maximum number of bytes of binaries kept on disk
+     */
+    private static final long DEFAULT_DISK_BUDGET = 2L * 1024 * 1024 * 1024;
+
+    /**
+     * Default maximum number of bytes of compact state spaces kept on the heap
+     */
+    private static final long DEFAULT_HEAP_BUDGET = 256L * 1024 * 1024;
+
+    /**
+     * Cache shared between the modules
+     */
+    private static final StateSpaceCache INSTANCE = new StateSpaceCache(DEFAULT_DISK_BUDGET, DEFAULT_HEAP_BUDGET);
+
+    /**
+     * Entries in least recently used order
+     */
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Maximum number of bytes of binaries kept on disk
+     */
+    private final long diskBudget;
+
+    /**
+     * Maximum number of bytes of compact state spaces kept on the heap
+     */
+    private final long heapBudget;
+
+    /**
+     * @param diskBudget maximum number of bytes of binaries kept on disk
+     * @param heapBudget maximum number of bytes of compact state spaces kept on the heap
+     */
+    public StateSpaceCache(long diskBudget, long heapBudget) {
+        this.diskBudget = diskBudget;
+        this.heapBudget = heapBudget;
+    }
+
+    /**
+     * @return cache shared between the modules
+     */
+    public static StateSpaceCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Looks up a previously explored state space, marking it as most recently used.
+     * Entries whose binaries have been deleted from under the cache are discarded.
+     *
+     * @param key net hash combined with the explorer options
+     * @return the cached entry or null if there is none
+     */
+    public synchronized Entry get(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null && !(Files.exists(entry.transitions) && Files.exists(entry.states))) {
+            entries.remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Adds the binaries of an explored state space to the cache. If they are temporary the
+     * cache takes ownership of the files and deletes them when the entry is evicted.
+     *
+     * @param key         net hash combined with the explorer options
+     * @param transitions binary transitions file
+     * @param states      binary states file
+     * @param results     results of exploring the state space
+     * @param temporary   true if the binaries should be deleted when the entry is evicted
+     * @return the new entry
+     */
+    public synchronized Entry put(String key, Path transitions, Path states,
+                                  StateSpaceExplorer.StateSpaceExplorerResults results, boolean temporary) {
+        Entry entry = new Entry(transitions, states, results, temporary ? diskSize(transitions) + diskSize(states) : 0,
+                temporary);
+        Entry previous = entries.put(key, entry);
+        if (previous != null && !previous.transitions.equals(transitions)) {
+            delete(previous);
+        }
+        evict(entry);
+        return entry;
+    }
+
+    /**
+     * Stores the compact state space read from an entry's binaries on the heap
+     *
+     * @param entry      cached entry
+     * @param stateSpace compact state space read from the entry's binaries
+     */
+    public synchronized void setStateSpace(Entry entry, CompactStateSpace stateSpace) {
+        entry.stateSpace = stateSpace;
+        evict(entry);
+    }
+
+    /**
+     * Evicts least recently used entries until the cache is within budget.
+     * The most recently added entry is never evicted, but its compact
+     * state space is dropped if on its own it exceeds the heap budget.
+     *
+     * @param keep entry that must not be evicted
+     */
+    private void evict(Entry keep) {
+        long disk = 0;
+        long heap = 0;
+        for (Entry entry : entries.values()) {
+            disk += entry.diskBytes;
+            heap += entry.heapBytes();
+        }
+        Iterator<Entry> iterator = entries.values().iterator();
+        while ((disk > diskBudget || heap > heapBudget) && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry == keep) {
+                continue;
+            }
+            if (disk > diskBudget) {
+                disk -= entry.diskBytes;
+                heap -= entry.heapBytes();
+                iterator.remove();
+                delete(entry);
+            } else if (entry.stateSpace != null) {
+                heap -= entry.heapBytes();
+                entry.stateSpace = null;
+            }
+        }
+        if (heap > heapBudget) {
+            keep.stateSpace = null;
+        }
+    }
+
+    /**
+     * @param path file
+     * @return size of the file and its index in bytes
+     */
+    private static long diskSize(Path path) {
+        try {
+            long size = Files.size(path);
+            if (OffsetIndex.exists(path)) {
+                size += Files.size(OffsetIndex.indexPath(path));
+            }
+            return size;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Deletes the binaries of an evicted entry along with their indexes if they are temporary
+     *
+     * @param entry evicted entry
+     */
+    private static void delete(Entry entry) {
+        if (!entry.temporary) {
+            return;
+        }
+        for (Path path : new Path[]{entry.transitions, entry.states}) {
+            try {
+                Files.deleteIfExists(path);
+                Files.deleteIfExists(OffsetIndex.indexPath(path));
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Could not delete cached binaries " + path, e);
+            }
+        }
+    }
+
+    /**
+     * A cached state space
+     */
+    public static final class Entry {
+        /**
+         * Binary transitions file
+         */
+        public final Path transitions;
+
+        /**
+         * Binary states file
+         */
+        public final Path states;
+
+        /**
+         * Results of exploring the state space
+         */
+        public final StateSpaceExplorer.StateSpaceExplorerResults results;
+
+        /**
+         * Size of the temporary binaries on disk, binaries owned elsewhere are not counted
+         */
+        private final long diskBytes;
+
+        /**
+         * True if the binaries are deleted when the entry is evicted
+         */
+        private final boolean temporary;
+
+        /**
+         * Compact state space read from the binaries, null if it has not been read or has been evicted
+         */
+        private volatile CompactStateSpace stateSpace;
+
+        /**
+         * @param transitions binary transitions file
+         * @param states      binary states file
+         * @param results     results of exploring the state space
+         * @param diskBytes   size of the temporary binaries on disk
+         * @param temporary   true if the binaries are deleted when the entry is evicted
+         */
+        private Entry(Path transitions, Path states, StateSpaceExplorer.StateSpaceExplorerResults results,
+                      long diskBytes, boolean temporary) {
+            this.transitions = transitions;
+            this.states = states;
+            this.results = results;
+            this.diskBytes = diskBytes;
+            this.temporary = temporary;
+        }
+
+        /**
+         * @return compact state space read from the binaries, or null if it is not in memory
+         */
+        public CompactStateSpace getStateSpace() {
+            return stateSpace;
+        }
+
+        /**
+         * @return bytes of heap used by the compact state space
+         */
+        private long heapBytes() {
+            CompactStateSpace current = stateSpace;
+            return current == null ? 0 : current.getEstimatedBytes();
+        }
+    }
+}
@@ -0,0 +1,523 @@
+package pipe.gui.statespace;
+
+import pipe.reachability.algorithm.ExplorerUtilities;
+import uk.ac.imperial.pipe.models.petrinet.ArcType;
+import uk.ac.imperial.pipe.models.petrinet.InboundArc;
+import uk.ac.imperial.pipe.models.petrinet.OutboundArc;
+import uk.ac.imperial.pipe.models.petrinet.PetriNet;
+import uk.ac.imperial.pipe.models.petrinet.Place;
+import uk.ac.imperial.pipe.models.petrinet.Transition;
+import uk.ac.imperial.state.ClassifiedState;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Explorer utilities reducing the successors of each state to those reached by a stubborn set of
+ * transitions, so that independent transitions are not explored in every interleaving.
+ * <p>
+ * A stubborn set contains an enabled transition and is closed so that no sequence of transitions
+ * outside it can disable, or be disabled by, an enabled transition inside it. Each disabled
+ * transition inside it brings in every transition that could produce the tokens it lacks, or
+ * remove the tokens inhibiting it or filling its output places. Exploring only such sets keeps every
+ * deadlock of the full state space. If a {@link SafetyProperty} reads some places, every transition
+ * changing those places is added too, which keeps every reachable violation of the property.
+ * </p>
+ * <p>
+ * Conflicts are found per place rather than per token, and nets whose arc weights depend on the
+ * marking or whose transitions have different priorities or timing are not reduced, since which
+ * transitions they enable cannot be told from the arcs alone. Rates of the reduced state space are
+ * not those of the full Markov chain, so it is only meant for checking reachable states.
+ * </p>
+ */
+public final class StubbornSetExplorerUtilities implements ExplorerUtilities {
+    /**
+     * Utilities generating the full successors
+     */
+    private final ExplorerUtilities explorerUtilities;
+
+    /**
+     * True if the net can be reduced
+     */
+    private final boolean reducible;
+
+    /**
+     * Index of each transition id
+     */
+    private final Map<String, Integer> transitionIndices = new HashMap<>();
+
+    /**
+     * Transitions by index
+     */
+    private final List<Transition> transitions = new ArrayList<>();
+
+    /**
+     * Places by index
+     */
+    private final List<String> places = new ArrayList<>();
+
+    /**
+     * Capacity of each place, 0 if it is unrestricted
+     */
+    private int[] capacities;
+
+    /**
+     * Transitions removing tokens from each place
+     */
+    private int[][] consumers;
+
+    /**
+     * Transitions adding tokens to each place
+     */
+    private int[][] producers;
+
+    /**
+     * Input places of each transition with the tokens of each type it needs from them
+     */
+    private final List<Map<Integer, Map<String, Integer>>> inputs = new ArrayList<>();
+
+    /**
+     * Output places of each transition with the tokens of each type it adds to them
+     */
+    private final List<Map<Integer, Map<String, Integer>>> outputs = new ArrayList<>();
+
+    /**
+     * Places inhibiting each transition
+     */
+    private int[][] inhibitors;
+
+    /**
+     * Transitions that can disable or be disabled by each transition whilst it is enabled
+     */
+    private int[][] conflicts;
+
+    /**
+     * Transitions changing a place read by the checked property, always added to the stubborn set
+     */
+    private int[] visible = new int[0];
+
+    /**
+     * @param explorerUtilities utilities generating the full successors of each state
+     * @param petriNet          Petri net being explored
+     * @param property          property checked whilst exploring, null if only deadlocks need to be kept
+     */
+    public StubbornSetExplorerUtilities(ExplorerUtilities explorerUtilities, PetriNet petriNet,
+                                        SafetyProperty property) {
+        this.explorerUtilities = explorerUtilities;
+        reducible = isReducible(petriNet) && (property == null || property.getPlaces() != null);
+        if (reducible) {
+            index(petriNet);
+            if (property != null) {
+                visible = findVisible(property.getPlaces());
+            }
+        }
+    }
+
+    /**
+     * @param petriNet Petri net
+     * @return true if the transitions enabled in a marking follow from its arcs
+     */
+    private static boolean isReducible(PetriNet petriNet) {
+        Transition first = null;
+        for (Transition transition : petriNet.getTransitions()) {
+            if (first == null) {
+                first = transition;
+            } else if (transition.getPriority() != first.getPriority() || transition.isTimed() != first.isTimed()) {
+                return false;
+            }
+            for (InboundArc arc : petriNet.inboundArcs(transition)) {
+                if (!isConstant(arc.getTokenWeights())) {
+                    return false;
+                }
+            }
+            for (OutboundArc arc : petriNet.outboundArcs(transition)) {
+                if (!isConstant(arc.getTokenWeights())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param weights token weights of an arc
+     * @return true if every weight is a number
+     */
+    private static boolean isConstant(Map<String, String> weights) {
+        for (String weight : weights.values()) {
+            try {
+                Integer.parseInt(weight.trim());
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Indexes the arcs of the net
+     *
+     * @param petriNet Petri net
+     */
+    private void index(PetriNet petriNet) {
+        Map<String, Integer> placeIndices = new HashMap<>();
+        List<Integer> capacityList = new ArrayList<>();
+        for (Place place : petriNet.getPlaces()) {
+            placeIndices.put(place.getId(), places.size());
+            places.add(place.getId());
+            capacityList.add(place.hasCapacityRestriction() ? place.getCapacity() : 0);
+        }
+        capacities = new int[places.size()];
+        for (int i = 0; i < capacities.length; i++) {
+            capacities[i] = capacityList.get(i);
+        }
+
+        List<Set<Integer>> placeConsumers = emptySets(places.size());
+        List<Set<Integer>> placeProducers = emptySets(places.size());
+        List<Set<Integer>> placeInhibited = emptySets(places.size());
+        List<Set<Integer>> transitionInhibitors = new ArrayList<>();
+        for (Transition transition : petriNet.getTransitions()) {
+            int index = transitions.size();
+            transitionIndices.put(transition.getId(), index);
+            transitions.add(transition);
+            Map<Integer, Map<String, Integer>> in = new HashMap<>();
+            Set<Integer> inhibiting = new LinkedHashSet<>();
+            for (InboundArc arc : petriNet.inboundArcs(transition)) {
+                int place = placeIndices.get(arc.getSource().getId());
+                if (arc.getType() == ArcType.INHIBITOR) {
+                    inhibiting.add(place);
+                    placeInhibited.get(place).add(index);
+                } else {
+                    in.put(place, parseWeights(arc.getTokenWeights()));
+                    placeConsumers.get(place).add(index);
+                }
+            }
+            Map<Integer, Map<String, Integer>> out = new HashMap<>();
+            for (OutboundArc arc : petriNet.outboundArcs(transition)) {
+                int place = placeIndices.get(arc.getTarget().getId());
+                out.put(place, parseWeights(arc.getTokenWeights()));
+                placeProducers.get(place).add(index);
+            }
+            inputs.add(in);
+            outputs.add(out);
+            transitionInhibitors.add(inhibiting);
+        }
+
+        consumers = toArrays(placeConsumers);
+        producers = toArrays(placeProducers);
+        inhibitors = toArrays(transitionInhibitors);
+        conflicts = new int[transitions.size()][];
+        for (int t = 0; t < conflicts.length; t++) {
+            Set<Integer> conflicting = new LinkedHashSet<>();
+            for (int place : inputs.get(t).keySet()) {
+                addAll(conflicting, consumers[place]);
+            }
+            for (int place : outputs.get(t).keySet()) {
+                conflicting.addAll(placeInhibited.get(place));
+                if (capacities[place] > 0) {
+                    addAll(conflicting, producers[place]);
+                }
+            }
+            for (int place : inhibitors[t]) {
+                addAll(conflicting, producers[place]);
+            }
+            conflicting.remove(t);
+            conflicts[t] = toArray(conflicting);
+        }
+    }
+
+    /**
+     * @param placeIds places read by the property
+     * @return transitions changing the tokens of the places
+     */
+    private int[] findVisible(Collection<String> placeIds) {
+        Set<Integer> changing = new LinkedHashSet<>();
+        for (String id : placeIds) {
+            int place = places.indexOf(id);
+            if (place >= 0) {
+                addAll(changing, consumers[place]);
+                addAll(changing, producers[place]);
+            }
+        }
+        return toArray(changing);
+    }
+
+    /**
+     * Reduces the successors of the state to those reached by a stubborn set of transitions
+     *
+     * @param state state to expand
+     * @return successors reached by the transitions of a stubborn set, each with the stubborn transitions leading to it
+     */
+    @Override
+    public Map<ClassifiedState, Collection<Transition>> getSuccessorsWithTransitions(ClassifiedState state) {
+        Map<ClassifiedState, Collection<Transition>> successors = explorerUtilities.getSuccessorsWithTransitions(state);
+        if (!reducible || successors.size() < 2) {
+            return successors;
+        }
+        boolean[] stubborn = findStubbornSet(state);
+        if (stubborn == null) {
+            return successors;
+        }
+        Map<ClassifiedState, Collection<Transition>> reduced = new HashMap<>();
+        for (Map.Entry<ClassifiedState, Collection<Transition>> successor : successors.entrySet()) {
+            List<Transition> stubbornTransitions = new ArrayList<>();
+            for (Transition transition : successor.getValue()) {
+                if (stubborn[transitionIndices.get(transition.getId())]) {
+                    stubbornTransitions.add(transition);
+                }
+            }
+            if (!stubbornTransitions.isEmpty()) {
+                reduced.put(successor.getKey(), stubbornTransitions);
+            }
+        }
+        return reduced;
+    }
+
+    /**
+     * @param state state to expand
+     * @return successors reached by the transitions of a stubborn set
+     */
+    @Override
+    public Collection<ClassifiedState> getSuccessors(ClassifiedState state) {
+        return getSuccessorsWithTransitions(state).keySet();
+    }
+
+    /**
+     * Tries each enabled transition as the seed of the stubborn set and keeps the set enabling the fewest
+     * transitions
+     *
+     * @param state state to expand
+     * @return transitions in the stubborn set by index, or null if every enabled transition is in it
+     */
+    private boolean[] findStubbornSet(ClassifiedState state) {
+        boolean[] enabled = new boolean[transitions.size()];
+        List<Integer> enabledIndices = new ArrayList<>();
+        for (Transition transition : explorerUtilities.getAllEnabledTransitions(state)) {
+            int index = transitionIndices.get(transition.getId());
+            enabled[index] = true;
+            enabledIndices.add(index);
+        }
+        boolean[] best = null;
+        int bestSize = enabledIndices.size();
+        for (int seed : enabledIndices) {
+            boolean[] stubborn = close(state, seed, enabled);
+            int size = 0;
+            for (int index : enabledIndices) {
+                if (stubborn[index]) {
+                    size++;
+                }
+            }
+            if (size < bestSize) {
+                best = stubborn;
+                bestSize = size;
+                if (size == 1) {
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @param state   state to expand
+     * @param seed    enabled transition starting the set
+     * @param enabled transitions enabled in the state by index
+     * @return smallest stubborn set containing the seed and the visible transitions
+     */
+    private boolean[] close(ClassifiedState state, int seed, boolean[] enabled) {
+        boolean[] stubborn = new boolean[transitions.size()];
+        int[] stack = new int[transitions.size()];
+        int size = 0;
+        stubborn[seed] = true;
+        stack[size++] = seed;
+        for (int transition : visible) {
+            if (!stubborn[transition]) {
+                stubborn[transition] = true;
+                stack[size++] = transition;
+            }
+        }
+        while (size > 0) {
+            int transition = stack[--size];
+            int[] needed = enabled[transition] ? conflicts[transition] : findEnablers(state, transition);
+            for (int other : needed) {
+                if (!stubborn[other]) {
+                    stubborn[other] = true;
+                    stack[size++] = other;
+                }
+            }
+        }
+        return stubborn;
+    }
+
+    /**
+     * Finds a place disabling the transition and the transitions that could change it so that it does not
+     *
+     * @param state      state the transition is disabled in
+     * @param transition disabled transition
+     * @return transitions one of which has to fire before the transition is enabled
+     */
+    private int[] findEnablers(ClassifiedState state, int transition) {
+        int[] enablers = null;
+        for (Map.Entry<Integer, Map<String, Integer>> input : inputs.get(transition).entrySet()) {
+            Map<String, Integer> tokens = state.getTokens(places.get(input.getKey()));
+            for (Map.Entry<String, Integer> weight : input.getValue().entrySet()) {
+                if (count(tokens, weight.getKey()) < weight.getValue()) {
+                    enablers = smaller(enablers, producers[input.getKey()]);
+                }
+            }
+        }
+        for (int place : inhibitors[transition]) {
+            if (total(state.getTokens(places.get(place))) > 0) {
+                enablers = smaller(enablers, consumers[place]);
+            }
+        }
+        for (Map.Entry<Integer, Map<String, Integer>> output : outputs.get(transition).entrySet()) {
+            int place = output.getKey();
+            if (capacities[place] > 0) {
+                int after = total(state.getTokens(places.get(place))) + total(output.getValue());
+                Map<String, Integer> removed = inputs.get(transition).get(place);
+                if (removed != null) {
+                    after -= total(removed);
+                }
+                if (after > capacities[place]) {
+                    enablers = smaller(enablers, consumers[place]);
+                }
+            }
+        }
+        if (enablers == null) {
+            int[] all = new int[transitions.size()];
+            for (int i = 0; i < all.length; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+        return enablers;
+    }
+
+    /**
+     * @param current   smallest enablers found so far, null if none were
+     * @param candidate enablers of another disabling place
+     * @return the smaller of the two
+     */
+    private static int[] smaller(int[] current, int[] candidate) {
+        return current == null || candidate.length < current.length ? candidate : current;
+    }
+
+    /**
+     * @param tokens token counts of a place, may be null if it holds none
+     * @param token  token id
+     * @return count of the token
+     */
+    private static int count(Map<String, Integer> tokens, String token) {
+        Integer count = tokens == null ? null : tokens.get(token);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * @param tokens token counts, may be null
+     * @return number of tokens of every type
+     */
+    private static int total(Map<String, Integer> tokens) {
+        int total = 0;
+        if (tokens != null) {
+            for (int count : tokens.values()) {
+                total += count;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @param weights token weights of an arc, all numbers
+     * @return weight of each token
+     */
+    private static Map<String, Integer> parseWeights(Map<String, String> weights) {
+        Map<String, Integer> parsed = new HashMap<>();
+        for (Map.Entry<String, String> weight : weights.entrySet()) {
+            parsed.put(weight.getKey(), Integer.parseInt(weight.getValue().trim()));
+        }
+        return parsed;
+    }
+
+    /**
+     * @param size number of sets
+     * @return empty sets keeping their insertion order
+     */
+    private static List<Set<Integer>> emptySets(int size) {
+        List<Set<Integer>> sets = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            sets.add(new LinkedHashSet<Integer>());
+        }
+        return sets;
+    }
+
+    /**
+     * @param sets sets of indices
+     * @return indices of each set
+     */
+    private static int[][] toArrays(List<Set<Integer>> sets) {
+        int[][] arrays = new int[sets.size()][];
+        for (int i = 0; i < arrays.length; i++) {
+            arrays[i] = toArray(sets.get(i));
+        }
+        return arrays;
+    }
+
+    /**
+     * @param values indices
+     * @return indices in iteration order
+     */
+    private static int[] toArray(Collection<Integer> values) {
+        int[] array = new int[values.size()];
+        int i = 0;
+        for (int value : values) {
+            array[i++] = value;
+        }
+        return array;
+    }
+
+    /**
+     * @param set    set to add to
+     * @param values indices to add
+     */
+    private static void addAll(Set<Integer> set, int[] values) {
+        for (int value : values) {
+            set.add(value);
+        }
+    }
+
+    @Override
+    public double rate(ClassifiedState state, ClassifiedState successor) {
+        return explorerUtilities.rate(state, successor);
+    }
+
+    @Override
+    public ClassifiedState getCurrentState() {
+        return explorerUtilities.getCurrentState();
+    }
+
+    @Override
+    public Collection<Transition> getAllEnabledTransitions(ClassifiedState state) {
+        return explorerUtilities.getAllEnabledTransitions(state);
+    }
+
+    @Override
+    public double getWeightOfTransitions(ClassifiedState state, Iterable<Transition> transitions) {
+        return explorerUtilities.getWeightOfTransitions(state, transitions);
+    }
+
+    @Override
+    public Collection<Transition> getTransitions(ClassifiedState state, ClassifiedState successor) {
+        return explorerUtilities.getTransitions(state, successor);
+    }
+
+    @Override
+    public boolean canExploreMore(int stateCount) {
+        return explorerUtilities.canExploreMore(stateCount);
+    }
+}
@@ -0,0 +1,155 @@
+package pipe.gui.statespace;
+
+import pipe.reachability.algorithm.ExplorerUtilities;
+import uk.ac.imperial.pipe.models.petrinet.Transition;
+import uk.ac.imperial.state.ClassifiedState;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Explorer utilities replacing every successor by the canonical marking of its orbit under a
+ * {@link NetSymmetry}, so that only one of each set of equivalent markings is stored.
+ * <p>
+ * The rate into a canonical successor is the sum of the rates into every successor it represents,
+ * which is the same from every marking of an orbit because the symmetries preserve the rates. The
+ * explored Markov chain is therefore the exact lumping of the full one and can be solved directly.
+ * </p>
+ */
+public final class SymmetricExplorerUtilities implements ExplorerUtilities {
+    /**
+     * Utilities generating the full successors
+     */
+    private final ExplorerUtilities explorerUtilities;
+
+    /**
+     * Symmetries of the explored net
+     */
+    private final NetSymmetry symmetry;
+
+    /**
+     * Last state expanded by each thread, explorers ask for the rates of its successors straight after
+     */
+    private final ThreadLocal<Expansion> lastExpansion = new ThreadLocal<>();
+
+    /**
+     * @param explorerUtilities utilities generating the full successors of each state
+     * @param symmetry          symmetries of the explored net
+     */
+    public SymmetricExplorerUtilities(ExplorerUtilities explorerUtilities, NetSymmetry symmetry) {
+        this.explorerUtilities = explorerUtilities;
+        this.symmetry = symmetry;
+    }
+
+    @Override
+    public Map<ClassifiedState, Collection<Transition>> getSuccessorsWithTransitions(ClassifiedState state) {
+        return expand(state).transitions;
+    }
+
+    @Override
+    public Collection<ClassifiedState> getSuccessors(ClassifiedState state) {
+        return expand(state).transitions.keySet();
+    }
+
+    /**
+     * @param state     canonical state
+     * @param successor canonical successor
+     * @return sum of the rates into every successor the canonical successor represents
+     */
+    @Override
+    public double rate(ClassifiedState state, ClassifiedState successor) {
+        Double rate = expand(state).rates.get(successor);
+        return rate == null ? 0 : rate;
+    }
+
+    /**
+     * @return canonical marking of the initial state
+     */
+    @Override
+    public ClassifiedState getCurrentState() {
+        return symmetry.canonicalise(explorerUtilities.getCurrentState());
+    }
+
+    @Override
+    public Collection<Transition> getAllEnabledTransitions(ClassifiedState state) {
+        return explorerUtilities.getAllEnabledTransitions(state);
+    }
+
+    @Override
+    public double getWeightOfTransitions(ClassifiedState state, Iterable<Transition> transitions) {
+        return explorerUtilities.getWeightOfTransitions(state, transitions);
+    }
+
+    /**
+     * @param state     canonical state
+     * @param successor canonical successor
+     * @return transitions into every successor the canonical successor represents
+     */
+    @Override
+    public Collection<Transition> getTransitions(ClassifiedState state, ClassifiedState successor) {
+        Collection<Transition> transitions = expand(state).transitions.get(successor);
+        return transitions == null ? new ArrayList<Transition>() : transitions;
+    }
+
+    @Override
+    public boolean canExploreMore(int stateCount) {
+        return explorerUtilities.canExploreMore(stateCount);
+    }
+
+    /**
+     * @param state state to expand
+     * @return canonical successors of the state, reusing the last expansion of this thread if it was of the same state
+     */
+    private Expansion expand(ClassifiedState state) {
+        Expansion expansion = lastExpansion.get();
+        if (expansion != null && expansion.state.equals(state)) {
+            return expansion;
+        }
+        expansion = new Expansion(state);
+        for (Map.Entry<ClassifiedState, Collection<Transition>> successor :
+                explorerUtilities.getSuccessorsWithTransitions(state).entrySet()) {
+            ClassifiedState canonical = symmetry.canonicalise(successor.getKey());
+            double rate = explorerUtilities.rate(state, successor.getKey());
+            Collection<Transition> transitions = expansion.transitions.get(canonical);
+            if (transitions == null) {
+                transitions = new ArrayList<>();
+                expansion.transitions.put(canonical, transitions);
+                expansion.rates.put(canonical, rate);
+            } else {
+                expansion.rates.put(canonical, expansion.rates.get(canonical) + rate);
+            }
+            transitions.addAll(successor.getValue());
+        }
+        lastExpansion.set(expansion);
+        return expansion;
+    }
+
+    /**
+     * Canonical successors of a state
+     */
+    private static final class Expansion {
+        /**
+         * Expanded state
+         */
+        private final ClassifiedState state;
+
+        /**
+         * Transitions into each canonical successor
+         */
+        private final Map<ClassifiedState, Collection<Transition>> transitions = new HashMap<>();
+
+        /**
+         * Rate into each canonical successor
+         */
+        private final Map<ClassifiedState, Double> rates = new HashMap<>();
+
+        /**
+         * @param state expanded state
+         */
+        private Expansion(ClassifiedState state) {
+            this.state = state;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package pipe.gui.statespace;
+
+import uk.ac.imperial.state.ClassifiedState;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * The states an explorer has discovered and the id assigned to each of them
+ */
+public interface VisitedStates extends Closeable {
+    /**
+     * Returned by {@link #get(ClassifiedState)} for states that have not been visited
+     */
+    int NOT_VISITED = -1;
+
+    /**
+     * @param state state to look up
+     * @return id of the state, or {@link #NOT_VISITED}
+     * @throws IOException if states kept on disk cannot be read
+     */
+    int get(ClassifiedState state) throws IOException;
+
+    /**
+     * Marks the state as visited
+     *
+     * @param state state that has not been visited
+     * @param id    id of the state
+     * @throws IOException if states cannot be moved to disk
+     */
+    void put(ClassifiedState state, int id) throws IOException;
+
+    /**
+     * @return number of visited states
+     */
+    int size();
+}
@@ -0,0 +1,63 @@
+package pipe.gui.widget;
+
+import pipe.gui.executor.AnalysisExecutor;
+
+import javax.swing.*;
+import java.awt.Component;
+import java.awt.FlowLayout;
+import java.text.ParseException;
+
+/**
+ * Dialog for the settings shared by every analysis, currently the number of threads in the
+ * {@link AnalysisExecutor} pool. The chosen size is applied straight away and kept in the
+ * user's preferences, so later sessions start with it.
+ */
+public final class AnalysisSettingsDialog {
+    /**
+     * Largest pool size that can be chosen
+     */
+    private static final int MAX_POOL_SIZE = 256;
+
+    /**
+     * Private constructor for utility class
+     */
+    private AnalysisSettingsDialog() {
+    }
+
+    /**
+     * Shows the dialog and applies the settings if the user presses OK.
+     * Must be called on the event dispatch thread.
+     *
+     * @param parent component the dialog is shown over
+     * @return true if the settings were changed
+     */
+    public static boolean show(Component parent) {
+        AnalysisExecutor executor = AnalysisExecutor.getInstance();
+        int current = executor.getPoolSize();
+        JSpinner poolSizeSpinner =
+                new JSpinner(new SpinnerNumberModel(current, 1, Math.max(MAX_POOL_SIZE, current), 1));
+        poolSizeSpinner.setToolTipText("Threads shared by explorations, solvers and metrics, defaults to " +
+                Runtime.getRuntime().availableProcessors() + ", the number of cores");
+
+        JPanel panel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        panel.add(new JLabel("Analysis threads:"));
+        panel.add(poolSizeSpinner);
+
+        int option = JOptionPane.showConfirmDialog(parent, panel, "Analysis Settings", JOptionPane.OK_CANCEL_OPTION,
+                JOptionPane.PLAIN_MESSAGE);
+        if (option != JOptionPane.OK_OPTION) {
+            return false;
+        }
+        try {
+            poolSizeSpinner.commitEdit();
+        } catch (ParseException ignored) {
+            // keeps the last valid value
+        }
+        int poolSize = (Integer) poolSizeSpinner.getValue();
+        if (poolSize == current) {
+            return false;
+        }
+        executor.setPoolSize(poolSize);
+        return true;
+    }
+}
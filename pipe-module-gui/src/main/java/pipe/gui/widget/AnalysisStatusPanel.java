@@ -0,0 +1,139 @@
+package pipe.gui.widget;
+
+import pipe.gui.executor.AnalysisExecutor;
+import pipe.gui.executor.AnalysisJob;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shows how busy the shared {@link AnalysisExecutor} pool is: its busy threads, the number of
+ * tasks waiting for a thread and, for each running job, its tasks and the CPU time they have used.
+ * The values are read when {@link #refresh()} is called, which the owner does on a timer.
+ */
+public class AnalysisStatusPanel extends JPanel {
+    /**
+     * Rows of jobs shown without scrolling
+     */
+    private static final int VISIBLE_JOBS = 4;
+
+    /**
+     * Pool whose status is shown
+     */
+    private final AnalysisExecutor executor;
+
+    /**
+     * Busy threads out of the pool size
+     */
+    private final JLabel threadsField = new JLabel();
+
+    /**
+     * Tasks waiting for a thread
+     */
+    private final JLabel queueDepthField = new JLabel();
+
+    /**
+     * Jobs that have not terminated
+     */
+    private final JobTableModel jobs = new JobTableModel();
+
+    /**
+     * Shows the status of the shared pool
+     */
+    public AnalysisStatusPanel() {
+        this(AnalysisExecutor.getInstance());
+    }
+
+    /**
+     * @param executor pool whose status is shown
+     */
+    public AnalysisStatusPanel(AnalysisExecutor executor) {
+        super(new BorderLayout());
+        this.executor = executor;
+
+        JPanel fields = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        fields.add(new JLabel("Busy threads:"));
+        fields.add(threadsField);
+        fields.add(Box.createHorizontalStrut(10));
+        fields.add(new JLabel("Queued tasks:"));
+        fields.add(queueDepthField);
+        add(fields, BorderLayout.NORTH);
+
+        JTable table = new JTable(jobs);
+        table.setFillsViewportHeight(true);
+        table.getTableHeader().setReorderingAllowed(false);
+        table.setPreferredScrollableViewportSize(
+                new Dimension(table.getPreferredScrollableViewportSize().width, VISIBLE_JOBS * table.getRowHeight()));
+        add(new JScrollPane(table), BorderLayout.CENTER);
+        refresh();
+    }
+
+    /**
+     * Reads the current status of the pool and its jobs, must be called on the event dispatch thread
+     */
+    public void refresh() {
+        threadsField.setText(executor.getActiveThreads() + " / " + executor.getPoolSize());
+        queueDepthField.setText(Integer.toString(executor.getQueueDepth()));
+        jobs.update(executor.getActiveJobs());
+    }
+
+    /**
+     * Table with a row for each job, holding the values read at the last refresh so that
+     * the rows do not change whilst they are painted
+     */
+    private static final class JobTableModel extends AbstractTableModel {
+        /**
+         * Name of each column
+         */
+        private static final String[] COLUMNS =
+                {"Job", "Concurrency", "Waiting", "Active", "Completed", "CPU time (ms)", "Elapsed (ms)"};
+
+        /**
+         * Cells of each row
+         */
+        private List<Object[]> rows = new ArrayList<>();
+
+        /**
+         * @param activeJobs jobs that have not terminated
+         */
+        private void update(List<AnalysisJob> activeJobs) {
+            List<Object[]> updated = new ArrayList<>(activeJobs.size());
+            for (AnalysisJob job : activeJobs) {
+                updated.add(new Object[]{job.getName(), job.getConcurrency(), job.getPendingTasks(),
+                        job.getActiveTasks(), job.getCompletedTasks(), job.getCpuMillis(), job.getElapsedMillis()});
+            }
+            rows = updated;
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return rows.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return column == 0 ? String.class : Number.class;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            return rows.get(row)[column];
+        }
+    }
+}
@@ -0,0 +1,657 @@
+package pipe.gui.widget;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import pipe.gui.io.AsyncStateProcessor;
+import pipe.gui.io.ChannelOutputStream;
+import pipe.gui.io.CompactStateIO;
+import pipe.gui.io.ExplorationCheckpoint;
+import pipe.gui.io.IndexingStateProcessor;
+import pipe.gui.io.OffsetIndex;
+import pipe.gui.io.OffsetIndexWriter;
+import pipe.gui.io.ResultStore;
+import pipe.gui.io.StateSpaceIndex;
+import pipe.gui.statespace.BatchSizer;
+import pipe.gui.statespace.BatchedParallelStateSpaceExplorer;
+import pipe.gui.statespace.ExplorationCheckpointer;
+import pipe.gui.statespace.ExplorationProgress;
+import pipe.gui.statespace.MarkingCodec;
+import pipe.gui.statespace.PetriNetHash;
+import pipe.gui.statespace.SafetyChecker;
+import pipe.gui.statespace.SafetyProperty;
+import pipe.gui.statespace.SafetyViolationException;
+import pipe.gui.statespace.StateSpaceCache;
+import pipe.reachability.algorithm.ExplorerUtilities;
+import pipe.reachability.algorithm.StateSpaceExplorer;
+import pipe.reachability.algorithm.TimelessTrapException;
+import pipe.reachability.algorithm.VanishingExplorer;
+import pipe.reachability.algorithm.sequential.SequentialStateSpaceExplorer;
+import uk.ac.imperial.io.StateIOProcessor;
+import uk.ac.imperial.io.StateProcessor;
+import uk.ac.imperial.io.StateWriter;
+import uk.ac.imperial.pipe.exceptions.InvalidRateException;
+import uk.ac.imperial.pipe.models.petrinet.PetriNet;
+import uk.ac.imperial.state.ClassifiedState;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Explores a Petri net into compact binaries for the {@link StateSpaceLoader}.
+ * <p>
+ * The explored state spaces are shared through the {@link StateSpaceCache} and kept in the persistent
+ * {@link ResultStore}. Explorations are written through an {@link IndexingStateProcessor}, by an
+ * {@link AsyncStateProcessor} on hosts with more than one processor, and may be checkpointed so that
+ * they resume where they stopped or checked against a {@link SafetyProperty} as they go.
+ * </p>
+ */
+final class ExplorationPipeline {
+    /**
+     * Class logger
+     */
+    private static final Logger LOGGER = Logger.getLogger(ExplorationPipeline.class.getName());
+
+    /**
+     * Number of bytes each Kryo output buffers before passing them to its stream
+     */
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Default minimum time between checkpoints of a resumable exploration
+     */
+    private static final long CHECKPOINT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    /**
+     * Name of the transitions binary in the result store
+     */
+    private static final String TRANSITIONS = "transitions.bin";
+
+    /**
+     * Name of the states binary in the result store
+     */
+    private static final String STATES = "states.bin";
+
+    /**
+     * Result store property holding the number of transitions
+     */
+    private static final String TRANSITION_COUNT = "transitions";
+
+    /**
+     * Result store property holding the number of states
+     */
+    private static final String STATE_COUNT = "states";
+
+    /**
+     * Minimum time between checkpoints of a resumable exploration
+     */
+    private final long checkpointIntervalNanos;
+
+    /**
+     * Number of states each thread explores per round when exploring in parallel,
+     * {@link StateSpaceLoader#ADAPTIVE_BATCH_SIZE} to tune it whilst exploring
+     */
+    private int batchSize = StateSpaceLoader.ADAPTIVE_BATCH_SIZE;
+
+    /**
+     * If true explorations keep their visited states and frontier on disk once they outgrow memory
+     */
+    private boolean spillToDisk;
+
+    /**
+     * Property checked whilst exploring, null to explore the whole state space
+     */
+    private SafetyProperty safetyProperty;
+
+    /**
+     * Creates a pipeline checkpointing resumable explorations at most once a minute
+     */
+    ExplorationPipeline() {
+        this(CHECKPOINT_INTERVAL_NANOS);
+    }
+
+    /**
+     * @param checkpointIntervalNanos minimum time between checkpoints of a resumable exploration
+     */
+    ExplorationPipeline(long checkpointIntervalNanos) {
+        this.checkpointIntervalNanos = checkpointIntervalNanos;
+    }
+
+    /**
+     * @param batchSize batch size, or {@link StateSpaceLoader#ADAPTIVE_BATCH_SIZE} to tune it from the
+     *                  measured expansion cost
+     */
+    void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @param spillToDisk true to keep the visited states and frontier on disk once they outgrow memory
+     */
+    void setSpillToDisk(boolean spillToDisk) {
+        this.spillToDisk = spillToDisk;
+    }
+
+    /**
+     * @param safetyProperty property to check whilst exploring, null to explore the whole state space
+     */
+    void setSafetyProperty(SafetyProperty safetyProperty) {
+        this.safetyProperty = safetyProperty;
+    }
+
+    /**
+     * @param petriNet        Petri net to explore
+     * @param explorerOptions description of the explorer and vanishing explorer used, null if the
+     *                        state space is never cached
+     * @return key of the state space in the cache and result store, null if it is not kept since there
+     *         are no explorer options or the exploration checks a safety property
+     */
+    String getKey(PetriNet petriNet, String explorerOptions) {
+        return explorerOptions == null || safetyProperty != null ? null : PetriNetHash.of(petriNet, explorerOptions);
+    }
+
+    /**
+     * Looks for an explored state space in the cache and then in the persistent result store,
+     * adding it to the cache if it is found in the store
+     *
+     * @param key state space key
+     * @return cache entry for the state space, or null if it has not been explored
+     */
+    StateSpaceCache.Entry findExplored(String key) {
+        StateSpaceCache.Entry entry = StateSpaceCache.getInstance().get(key);
+        if (entry != null) {
+            return entry;
+        }
+        ResultStore.StoredResult stored = ResultStore.getInstance().get(key);
+        if (stored == null || stored.getFile(TRANSITIONS) == null || stored.getFile(STATES) == null) {
+            return null;
+        }
+        StateSpaceExplorer.StateSpaceExplorerResults results = new StateSpaceExplorer.StateSpaceExplorerResults(
+                Integer.parseInt(stored.getProperty(TRANSITION_COUNT)), Integer.parseInt(stored.getProperty(STATE_COUNT)));
+        return StateSpaceCache.getInstance().put(key, stored.getFile(TRANSITIONS), stored.getFile(STATES), results, false);
+    }
+
+    /**
+     * @param petriNet        Petri net to explore
+     * @param explorerOptions description of the explorer and vanishing explorer used, null if there is none
+     * @param resume          true to checkpoint the exploration and resume it from its last checkpoint.
+     *                        Explorations checking a safety property are never checkpointed
+     * @return binaries to explore the Petri net into
+     */
+    Binaries createBinaries(PetriNet petriNet, String explorerOptions, boolean resume) throws IOException {
+        if (resume && safetyProperty == null) {
+            return Binaries.checkpointed(ExplorationCheckpoint.forKey(
+                    PetriNetHash.of(petriNet, explorerOptions == null ? "" : explorerOptions)));
+        }
+        return Binaries.temporary();
+    }
+
+    /**
+     * Writes the state space into the binaries. If their checkpoint has been written the binaries are
+     * truncated to it and the exploration resumes by appending to them. Once a checkpointed exploration
+     * finishes its binaries are moved out of the checkpoint into temporary files and the checkpoint is deleted.
+     *
+     * @param binaries          binaries to write
+     * @param petriNet          petrinet we are working on
+     * @param explorerOptions   description of the explorer and vanishing explorer, written to the binary headers
+     * @param explorerUtils     explorer utilities
+     * @param vanishingExplorer vanishing explorer
+     * @param threads           number of worker threads to use
+     * @param progress          progress of the exploration
+     * @return results of the exploration
+     * @throws SafetyViolationException if a state violating the safety property is found
+     */
+    StateSpaceExplorer.StateSpaceExplorerResults explore(Binaries binaries, PetriNet petriNet, String explorerOptions,
+                                                         ExplorerUtilities explorerUtils,
+                                                         VanishingExplorer vanishingExplorer, int threads,
+                                                         ExplorationProgress progress)
+            throws IOException, TimelessTrapException, ExecutionException, InvalidRateException, InterruptedException {
+        CompactStateIO stateWriter = CompactStateIO.forPetriNet(petriNet, explorerOptions);
+        ExplorationCheckpoint checkpoint = binaries.checkpoint;
+        boolean resume = checkpoint != null && checkpoint.exists();
+        if (resume) {
+            checkpoint.truncate();
+        }
+        StateSpaceExplorer.StateSpaceExplorerResults results;
+        long transitionChecksum;
+        long stateChecksum;
+        try (ChannelOutputStream transitionChannel =
+                     new ChannelOutputStream(binaries.transitions, ChannelOutputStream.DEFAULT_BUFFER_SIZE, resume);
+             ChannelOutputStream stateChannel =
+                     new ChannelOutputStream(binaries.states, ChannelOutputStream.DEFAULT_BUFFER_SIZE, resume);
+             CheckedOutputStream transitionStream = new CheckedOutputStream(transitionChannel,
+                     resume ? CompactStateIO.entryChecksum(binaries.transitions) : new CRC32());
+             CheckedOutputStream stateStream = new CheckedOutputStream(stateChannel,
+                     resume ? CompactStateIO.entryChecksum(binaries.states) : new CRC32())) {
+            try (Output transitionOutput = new Output(transitionStream, OUTPUT_BUFFER_SIZE);
+                 Output stateOutput = new Output(stateStream, OUTPUT_BUFFER_SIZE)) {
+                if (!resume) {
+                    stateWriter.writeHeader(transitionOutput);
+                    stateWriter.writeHeader(stateOutput);
+                    transitionOutput.flush();
+                    stateOutput.flush();
+                    transitionStream.getChecksum().reset();
+                    stateStream.getChecksum().reset();
+                }
+                results = writeStateSpace(binaries, stateWriter, transitionChannel, stateChannel, transitionOutput,
+                        stateOutput, petriNet, explorerUtils, vanishingExplorer, threads, progress);
+            }
+            transitionChecksum = transitionStream.getChecksum().getValue();
+            stateChecksum = stateStream.getChecksum().getValue();
+        }
+        CompactStateIO.writeSummary(binaries.transitions, results.numberOfStates, results.processedTransitions,
+                transitionChecksum);
+        CompactStateIO.writeSummary(binaries.states, results.numberOfStates, results.processedTransitions,
+                stateChecksum);
+        if (checkpoint != null) {
+            binaries.transitions = moveToTemporary(checkpoint.getTransitions(), "transitions");
+            binaries.states = moveToTemporary(checkpoint.getStates(), "states");
+            checkpoint.delete();
+        }
+        return results;
+    }
+
+    /**
+     * Copies freshly explored binaries into the persistent result store and adds the stored
+     * copies to the cache, deleting the explored binaries. If they cannot be stored the explored
+     * binaries are cached instead.
+     *
+     * @param key      state space key
+     * @param binaries explored binaries
+     * @param results  results of exploring the state space
+     * @return cache entry for the state space
+     */
+    StateSpaceCache.Entry store(String key, Binaries binaries, StateSpaceExplorer.StateSpaceExplorerResults results) {
+        StateSpaceCache cache = StateSpaceCache.getInstance();
+        Map<String, Path> files = new HashMap<>();
+        files.put(TRANSITIONS, binaries.transitions);
+        files.put(STATES, binaries.states);
+        if (StateSpaceIndex.exists(binaries.transitions, binaries.states)) {
+            files.put(TRANSITIONS + OffsetIndex.INDEX_SUFFIX, OffsetIndex.indexPath(binaries.transitions));
+            files.put(STATES + OffsetIndex.INDEX_SUFFIX, OffsetIndex.indexPath(binaries.states));
+        }
+        Map<String, String> properties = new HashMap<>();
+        properties.put(TRANSITION_COUNT, Integer.toString(results.processedTransitions));
+        properties.put(STATE_COUNT, Integer.toString(results.numberOfStates));
+        try {
+            ResultStore.StoredResult stored = ResultStore.getInstance().put(key, files, properties);
+            for (Path file : files.values()) {
+                Files.deleteIfExists(file);
+            }
+            return cache.put(key, stored.getFile(TRANSITIONS), stored.getFile(STATES), results, false);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not store state space, keeping it for this session only", e);
+            return cache.put(key, binaries.transitions, binaries.states, results, true);
+        }
+    }
+
+    /**
+     * Moves a finished binary and its index out of its checkpoint into a temporary file
+     *
+     * @param binary binary in the checkpoint
+     * @param prefix prefix of the temporary file
+     * @return the temporary file
+     */
+    private static Path moveToTemporary(Path binary, String prefix) throws IOException {
+        Path temporary = Files.createTempFile(prefix, ".tmp");
+        Files.move(binary, temporary, StandardCopyOption.REPLACE_EXISTING);
+        Files.move(OffsetIndex.indexPath(binary), OffsetIndex.indexPath(temporary),
+                StandardCopyOption.REPLACE_EXISTING);
+        return temporary;
+    }
+
+    /**
+     * Writes the petriNet state space and an index of it to the binaries.
+     * On hosts with more than one processor the binaries are serialised and written by an
+     * {@link AsyncStateProcessor} so that exploring overlaps with writing.
+     *
+     * @param binaries          binaries being written
+     * @param stateWriter       format in which to write the results to
+     * @param transitionChannel stream writing the transitions binary
+     * @param stateChannel      stream writing the states binary
+     * @param transitionOutput  stream to write state space to
+     * @param stateOutput       stream to write state integer mappings to
+     * @param petriNet          petri net we are working on
+     * @param explorerUtilites  explorer utilities
+     * @param vanishingExplorer vanishing explorer
+     * @param threads           number of worker threads to use
+     * @param progress          progress of the exploration
+     * @throws TimelessTrapException if the state space cannot be generated due to cyclic vanishing states
+     */
+    private StateSpaceExplorer.StateSpaceExplorerResults writeStateSpace(Binaries binaries, StateWriter stateWriter,
+                                                                         ChannelOutputStream transitionChannel,
+                                                                         ChannelOutputStream stateChannel,
+                                                                         Output transitionOutput, Output stateOutput,
+                                                                         PetriNet petriNet,
+                                                                         ExplorerUtilities explorerUtilites,
+                                                                         VanishingExplorer vanishingExplorer, int threads,
+                                                                         ExplorationProgress progress)
+            throws TimelessTrapException, ExecutionException, InterruptedException, IOException, InvalidRateException {
+        ExplorationCheckpoint checkpoint = binaries.checkpoint;
+        boolean resume = checkpoint != null && checkpoint.exists();
+        long transitionBase = resume ? checkpoint.getTransitionsLength() : 0;
+        long stateBase = resume ? checkpoint.getStatesLength() : 0;
+        try (OffsetIndexWriter transitionIndex =
+                     new OffsetIndexWriter(OffsetIndex.indexPath(binaries.transitions), !resume);
+             OffsetIndexWriter stateIndex = new OffsetIndexWriter(OffsetIndex.indexPath(binaries.states), !resume)) {
+            StateProcessor writer = new IndexingStateProcessor(
+                    new StateIOProcessor(stateWriter, transitionOutput, stateOutput), transitionOutput, stateOutput,
+                    transitionIndex, stateIndex, transitionBase, stateBase);
+            BinaryCheckpointer checkpointer = checkpoint == null ? null :
+                    new BinaryCheckpointer(checkpoint, checkpointIntervalNanos, transitionChannel, stateChannel,
+                            transitionOutput, stateOutput, transitionIndex, stateIndex, transitionBase, stateBase);
+            if (Runtime.getRuntime().availableProcessors() == 1) {
+                return explore(writer, petriNet, explorerUtilites, vanishingExplorer, threads, progress, checkpointer);
+            }
+            try (AsyncStateProcessor asyncWriter =
+                         new AsyncStateProcessor(writer, AsyncStateProcessor.DEFAULT_CAPACITY, progress)) {
+                if (checkpointer != null) {
+                    checkpointer.asyncWriter = asyncWriter;
+                }
+                return explore(asyncWriter, petriNet, explorerUtilites, vanishingExplorer, threads, progress,
+                        checkpointer);
+            }
+        }
+    }
+
+    /**
+     * Explores the state space, writing it with the writer. If a safety property is set it is
+     * checked on the fly and the exploration is not checkpointed.
+     *
+     * @param writer            processor writing the binaries
+     * @param petriNet          petri net we are working on
+     * @param explorerUtilites  explorer utilities
+     * @param vanishingExplorer vanishing explorer
+     * @param threads           number of worker threads to use
+     * @param progress          progress of the exploration
+     * @param checkpointer      checkpoints the exploration, null if it is not resumable. Resumable
+     *                          explorations are always batched
+     * @return results of the exploration
+     * @throws SafetyViolationException if a state violating the safety property is found
+     */
+    private StateSpaceExplorer.StateSpaceExplorerResults explore(StateProcessor writer, PetriNet petriNet,
+                                                                 ExplorerUtilities explorerUtilites,
+                                                                 VanishingExplorer vanishingExplorer, int threads,
+                                                                 ExplorationProgress progress,
+                                                                 BinaryCheckpointer checkpointer)
+            throws TimelessTrapException, ExecutionException, InterruptedException, IOException, InvalidRateException {
+        StateProcessor stateProcessor = progress.monitor(writer);
+        ClassifiedState initialState = explorerUtilites.getCurrentState();
+        if (safetyProperty != null) {
+            SafetyChecker checker = new SafetyChecker(safetyProperty);
+            StateSpaceExplorer stateSpaceExplorer = getStateSpaceExplorer(petriNet, explorerUtilites,
+                    vanishingExplorer, checker.monitor(stateProcessor), threads, progress);
+            StateSpaceExplorer.StateSpaceExplorerResults results = stateSpaceExplorer.generate(initialState);
+            checker.finish();
+            return results;
+        }
+        if (checkpointer == null) {
+            StateSpaceExplorer stateSpaceExplorer = getStateSpaceExplorer(petriNet, explorerUtilites,
+                    vanishingExplorer, stateProcessor, threads, progress);
+            return stateSpaceExplorer.generate(initialState);
+        }
+        BatchedParallelStateSpaceExplorer stateSpaceExplorer = getBatchedExplorer(petriNet, explorerUtilites,
+                vanishingExplorer, stateProcessor, threads, progress);
+        stateSpaceExplorer.setCheckpointer(checkpointer);
+        ExplorationCheckpoint checkpoint = checkpointer.checkpoint;
+        if (!checkpoint.exists()) {
+            return stateSpaceExplorer.generate(initialState);
+        }
+        CompactStateIO stateReader = CompactStateIO.readHeader(checkpoint.getStates());
+        try (InputStream inputStream = Files.newInputStream(checkpoint.getStates());
+             Input stateInput = new Input(inputStream)) {
+            stateReader.skipHeader(stateInput);
+            return stateSpaceExplorer.resume(initialState,
+                    readStates(stateReader, stateInput, checkpoint.getDiscovered()), checkpoint.getExplored(),
+                    checkpoint.getTransitionCount());
+        }
+    }
+
+    /**
+     * @param stateReader reader of the states binary
+     * @param stateInput  input positioned at the first state
+     * @param count       number of states to read
+     * @return iterator lazily reading the states in the order they were written
+     */
+    private static Iterator<ClassifiedState> readStates(final CompactStateIO stateReader, final Input stateInput,
+                                                        final int count) {
+        return new Iterator<ClassifiedState>() {
+            /**
+             * Number of states read so far
+             */
+            private int read = 0;
+
+            @Override
+            public boolean hasNext() {
+                return read < count;
+            }
+
+            @Override
+            public ClassifiedState next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                read++;
+                return stateReader.readState(stateInput).getRight();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * @param petriNet          petri net being explored, used to pack the visited states
+     * @param explorerUtilites  explorer utilities
+     * @param vanishingExplorer vanishing explorer
+     * @param stateProcessor    processor the explorer writes to
+     * @param threads           number of worker threads to use
+     * @param progress          progress of the exploration, records the batch size of parallel explorers
+     * @return sequential explorer for a single thread in memory, otherwise a batched parallel explorer using
+     *         the batch size
+     */
+    private StateSpaceExplorer getStateSpaceExplorer(PetriNet petriNet, ExplorerUtilities explorerUtilites,
+                                                     VanishingExplorer vanishingExplorer,
+                                                     StateProcessor stateProcessor, int threads,
+                                                     ExplorationProgress progress) {
+        if (threads == 1 && !spillToDisk) {
+            return new SequentialStateSpaceExplorer(explorerUtilites, vanishingExplorer, stateProcessor);
+        }
+        return getBatchedExplorer(petriNet, explorerUtilites, vanishingExplorer, stateProcessor, threads, progress);
+    }
+
+    /**
+     * @param petriNet          petri net being explored, used to pack the visited states
+     * @param explorerUtilites  explorer utilities
+     * @param vanishingExplorer vanishing explorer
+     * @param stateProcessor    processor the explorer writes to
+     * @param threads           number of worker threads to use
+     * @param progress          progress of the exploration, records the batch size
+     * @return batched parallel explorer using the batch size
+     */
+    private BatchedParallelStateSpaceExplorer getBatchedExplorer(PetriNet petriNet, ExplorerUtilities explorerUtilites,
+                                                                 VanishingExplorer vanishingExplorer,
+                                                                 StateProcessor stateProcessor, int threads,
+                                                                 ExplorationProgress progress) {
+        BatchSizer batchSizer = batchSize == StateSpaceLoader.ADAPTIVE_BATCH_SIZE ? BatchSizer.adaptive() :
+                BatchSizer.fixed(batchSize);
+        return new BatchedParallelStateSpaceExplorer(explorerUtilites, vanishingExplorer, stateProcessor, threads,
+                batchSizer, progress, spillToDisk, MarkingCodec.forPetriNet(petriNet));
+    }
+
+    /**
+     * Transitions and states binaries an exploration is written to
+     */
+    static final class Binaries {
+        /**
+         * Checkpoint holding the binaries, null if the exploration is not resumable
+         */
+        private final ExplorationCheckpoint checkpoint;
+
+        /**
+         * Transitions binary
+         */
+        private Path transitions;
+
+        /**
+         * States binary
+         */
+        private Path states;
+
+        /**
+         * @param checkpoint  checkpoint holding the binaries, null if the exploration is not resumable
+         * @param transitions transitions binary
+         * @param states      states binary
+         */
+        private Binaries(ExplorationCheckpoint checkpoint, Path transitions, Path states) {
+            this.checkpoint = checkpoint;
+            this.transitions = transitions;
+            this.states = states;
+        }
+
+        /**
+         * @return binaries in new temporary files
+         */
+        static Binaries temporary() throws IOException {
+            return new Binaries(null, Files.createTempFile("transitions", ".tmp"), Files.createTempFile("states", ".tmp"));
+        }
+
+        /**
+         * @param checkpoint checkpoint holding the binaries
+         * @return binaries of a resumable exploration, held in the checkpoint until the exploration finishes
+         */
+        static Binaries checkpointed(ExplorationCheckpoint checkpoint) {
+            return new Binaries(checkpoint, checkpoint.getTransitions(), checkpoint.getStates());
+        }
+
+        /**
+         * @return transitions binary, moved out of the checkpoint once a resumable exploration finishes
+         */
+        Path getTransitions() {
+            return transitions;
+        }
+
+        /**
+         * @return states binary, moved out of the checkpoint once a resumable exploration finishes
+         */
+        Path getStates() {
+            return states;
+        }
+    }
+
+    /**
+     * Records a checkpoint of the binaries at the end of an exploration round, at most once
+     * every checkpoint interval. Everything processed so far is written and synced to disk
+     * before the checkpoint is saved, so the binaries can be truncated to it.
+     */
+    private static final class BinaryCheckpointer implements ExplorationCheckpointer {
+        /**
+         * Checkpoint holding the binaries
+         */
+        private final ExplorationCheckpoint checkpoint;
+
+        /**
+         * Minimum time between checkpoints
+         */
+        private final long intervalNanos;
+
+        /**
+         * Stream writing the transitions binary
+         */
+        private final ChannelOutputStream transitionChannel;
+
+        /**
+         * Stream writing the states binary
+         */
+        private final ChannelOutputStream stateChannel;
+
+        /**
+         * Output transition records are written to
+         */
+        private final Output transitionOutput;
+
+        /**
+         * Output states are written to
+         */
+        private final Output stateOutput;
+
+        /**
+         * Index of transition record positions
+         */
+        private final OffsetIndexWriter transitionIndex;
+
+        /**
+         * Index of state positions
+         */
+        private final OffsetIndexWriter stateIndex;
+
+        /**
+         * Length of the transitions binary before the transition output
+         */
+        private final long transitionBase;
+
+        /**
+         * Length of the states binary before the state output
+         */
+        private final long stateBase;
+
+        /**
+         * Writer thread processor the outputs are written by, null if they are written by the explorer
+         */
+        private AsyncStateProcessor asyncWriter;
+
+        /**
+         * Time of the last checkpoint
+         */
+        private long lastCheckpoint = System.nanoTime();
+
+        private BinaryCheckpointer(ExplorationCheckpoint checkpoint, long intervalNanos,
+                                   ChannelOutputStream transitionChannel, ChannelOutputStream stateChannel,
+                                   Output transitionOutput, Output stateOutput, OffsetIndexWriter transitionIndex,
+                                   OffsetIndexWriter stateIndex, long transitionBase, long stateBase) {
+            this.checkpoint = checkpoint;
+            this.intervalNanos = intervalNanos;
+            this.transitionChannel = transitionChannel;
+            this.stateChannel = stateChannel;
+            this.transitionOutput = transitionOutput;
+            this.stateOutput = stateOutput;
+            this.transitionIndex = transitionIndex;
+            this.stateIndex = stateIndex;
+            this.transitionBase = transitionBase;
+            this.stateBase = stateBase;
+        }
+
+        @Override
+        public void roundFinished(int explored, int discovered, int transitions) throws IOException {
+            if (System.nanoTime() - lastCheckpoint < intervalNanos) {
+                return;
+            }
+            if (asyncWriter != null) {
+                asyncWriter.flush();
+            }
+            transitionOutput.flush();
+            stateOutput.flush();
+            transitionChannel.sync();
+            stateChannel.sync();
+            transitionIndex.flush();
+            stateIndex.flush();
+            checkpoint.save(explored, discovered, transitions, transitionBase + transitionOutput.total(),
+                    stateBase + stateOutput.total());
+            lastCheckpoint = System.nanoTime();
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package pipe.gui.widget;
 
+import pipe.gui.statespace.ExplorationProgress;
+
 import javax.swing.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.concurrent.Future;
 
 public class GenerateResultsForm {
     /**
@@ -16,6 +19,22 @@ public class GenerateResultsForm {
     private static final String THREADS_ERROR_MESSAGE =
             "Error! Please enter a valid number of threads between 1-" + MAX_THREADS;
 
+    /**
+     * Text of the batch size field which tunes the batch size whilst exploring
+     */
+    private static final String AUTO_BATCH_SIZE = "auto";
+
+    /**
+     * Error message if the batch size is incorrect
+     */
+    private static final String BATCH_SIZE_ERROR_MESSAGE =
+            "Error! Please enter a positive batch size, or " + AUTO_BATCH_SIZE + " to tune it whilst exploring";
+
+    /**
+     * Milliseconds between refreshes of the progress label
+     */
+    private static final int PROGRESS_REFRESH_MS = 250;
+
     /**
      * Action to perform when the go button is pressed
      */
@@ -31,6 +50,22 @@ public class GenerateResultsForm {
      */
     private JTextField numberOfThreadsText;
 
+    /**
+     * Number of states each thread explores per round, or auto
+     */
+    private JTextField batchSizeText;
+
+    /**
+     * Batch size entered when the go button was last pressed,
+     * {@link StateSpaceLoader#ADAPTIVE_BATCH_SIZE} for auto
+     */
+    private int batchSize = StateSpaceLoader.ADAPTIVE_BATCH_SIZE;
+
+    /**
+     * If selected explorations keep their visited states on disk once they outgrow memory
+     */
+    private JCheckBox spillToDiskCheckBox;
+
     /**
      * Load results button
      */
@@ -41,6 +76,46 @@ public class GenerateResultsForm {
      */
     private JPanel mainPanel;
 
+    /**
+     * Cancels the running task, only enabled whilst a task is running
+     */
+    private JButton cancelButton;
+
+    /**
+     * Opens the settings shared by every analysis
+     */
+    private JButton settingsButton;
+
+    /**
+     * Displays the live progress of the running task
+     */
+    private JLabel progressLabel;
+
+    /**
+     * Displays the queue depth of the shared analysis pool and the CPU time of its jobs
+     */
+    private AnalysisStatusPanel statusPanel;
+
+    /**
+     * Progress of the running task, null if no task is running
+     */
+    private ExplorationProgress progress;
+
+    /**
+     * Running task, null if no task is running
+     */
+    private Future<?> task;
+
+    /**
+     * Refreshes the progress label whilst a task is running
+     */
+    private final Timer progressTimer = new Timer(PROGRESS_REFRESH_MS, new ActionListener() {
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            refreshProgress();
+        }
+    });
+
     public GenerateResultsForm(GoAction goAction) {
         this.goAction = goAction;
         goButton.addActionListener(new ActionListener() {
@@ -49,6 +124,68 @@ public class GenerateResultsForm {
                 go();
             }
         });
+        cancelButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                cancel();
+            }
+        });
+        settingsButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (AnalysisSettingsDialog.show(mainPanel)) {
+                    statusPanel.refresh();
+                }
+            }
+        });
+    }
+
+    /**
+     * Displays the live progress of a task running in the background and lets the user cancel it.
+     * The generate button is disabled until the task completes.
+     * Must be called on the event dispatch thread.
+     *
+     * @param progress progress of the task
+     * @param task     background task, cancelled along with the progress if the user presses cancel
+     */
+    public void monitor(ExplorationProgress progress, Future<?> task) {
+        this.progress = progress;
+        this.task = task;
+        goButton.setEnabled(false);
+        cancelButton.setEnabled(true);
+        progressLabel.setText(progress.toString());
+        progressTimer.start();
+    }
+
+    /**
+     * Updates the progress label and pool status and resets the form once the task has finished
+     */
+    private void refreshProgress() {
+        if (task == null) {
+            return;
+        }
+        statusPanel.refresh();
+        if (task.isDone()) {
+            progressTimer.stop();
+            progressLabel.setText(task.isCancelled() ? "Cancelled. " + progress : progress.toString());
+            goButton.setEnabled(true);
+            cancelButton.setEnabled(false);
+            task = null;
+            progress = null;
+        } else {
+            progressLabel.setText(progress.toString());
+        }
+    }
+
+    /**
+     * Cancels the running task
+     */
+    private void cancel() {
+        if (task != null) {
+            progress.cancel();
+            task.cancel(true);
+            refreshProgress();
+        }
     }
 
     /**
@@ -64,12 +201,48 @@ public class GenerateResultsForm {
                 displayThreadErrorMessage();
                 return;
             }
+            if (!readBatchSize()) {
+                JOptionPane.showMessageDialog(mainPanel, BATCH_SIZE_ERROR_MESSAGE, "GSPN Analysis Error",
+                        JOptionPane.ERROR_MESSAGE);
+                return;
+            }
             goAction.go(threads);
         } catch (NumberFormatException e) {
             displayThreadErrorMessage();
         }
     }
 
+    /**
+     * Reads the batch size field into batchSize
+     *
+     * @return true if the field holds auto or a positive integer
+     */
+    private boolean readBatchSize() {
+        String text = batchSizeText.getText().trim();
+        if (text.isEmpty() || text.equalsIgnoreCase(AUTO_BATCH_SIZE)) {
+            batchSize = StateSpaceLoader.ADAPTIVE_BATCH_SIZE;
+            return true;
+        }
+        try {
+            int size = Integer.parseInt(text);
+            if (size > 0) {
+                batchSize = size;
+                return true;
+            }
+        } catch (NumberFormatException ignored) {
+            // reported by the caller
+        }
+        return false;
+    }
+
+    /**
+     * @return number of states each thread explores per round, entered when the go button was last pressed.
+     *         {@link StateSpaceLoader#ADAPTIVE_BATCH_SIZE} if the batch size should be tuned whilst exploring
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
     /**
      * Displays an error message depicting that the number of threads
      * entered does not conform to the expected values
@@ -80,6 +253,13 @@ public class GenerateResultsForm {
     }
 
 
+    /**
+     * @return true if explorations should keep their visited states on disk once they outgrow memory
+     */
+    public boolean isSpillToDisk() {
+        return spillToDiskCheckBox.isSelected();
+    }
+
     /**
      * @return panel to add to other GUI's
      */
@@ -0,0 +1,97 @@
+package pipe.gui.widget;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Table of a performance metric, with a row for each place or transition named in its first column
+ * and the metric's values in the rest
+ */
+public final class MetricTableModel extends VirtualTableModel {
+    /**
+     * Name of each column
+     */
+    private final List<String> columnNames;
+
+    /**
+     * Cells of each row, a name followed by the values
+     */
+    private final List<Object[]> rows;
+
+    /**
+     * @param columnNames name of each column
+     * @param rows        cells of each row, a name followed by the values
+     */
+    private MetricTableModel(List<String> columnNames, List<Object[]> rows) {
+        this.columnNames = columnNames;
+        this.rows = rows;
+    }
+
+    /**
+     * @param averageTokens map of places to a map of tokens to their average count
+     * @return table with a row for each place and a column for each token
+     */
+    public static MetricTableModel averageTokens(Map<String, Map<String, Double>> averageTokens) {
+        List<String> places = new ArrayList<>(averageTokens.keySet());
+        Collections.sort(places);
+        List<String> tokens = new ArrayList<>();
+        if (!places.isEmpty()) {
+            tokens.addAll(averageTokens.get(places.get(0)).keySet());
+            Collections.sort(tokens);
+        }
+        List<Object[]> rows = new ArrayList<>();
+        for (String place : places) {
+            Map<String, Double> average = averageTokens.get(place);
+            Object[] row = new Object[tokens.size() + 1];
+            row[0] = place;
+            for (int index = 0; index < tokens.size(); index++) {
+                row[index + 1] = average.get(tokens.get(index));
+            }
+            rows.add(row);
+        }
+        tokens.add(0, "Place");
+        return new MetricTableModel(tokens, rows);
+    }
+
+    /**
+     * @param throughputs map of transitions to their throughput
+     * @return table with a row for each transition
+     */
+    public static MetricTableModel throughputs(Map<String, Double> throughputs) {
+        List<String> transitions = new ArrayList<>(throughputs.keySet());
+        Collections.sort(transitions);
+        List<Object[]> rows = new ArrayList<>();
+        for (String transition : transitions) {
+            rows.add(new Object[]{transition, throughputs.get(transition)});
+        }
+        return new MetricTableModel(Arrays.asList("Transition", "Throughput"), rows);
+    }
+
+    @Override
+    public int getSourceRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.size();
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames.get(column);
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == 0 ? String.class : Double.class;
+    }
+
+    @Override
+    public Object getSourceValue(int row, int column) {
+        return rows.get(row)[column];
+    }
+}
@@ -0,0 +1,276 @@
+package pipe.gui.widget;
+
+import pipe.gui.io.TableExporter;
+
+import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.TableModel;
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Scrollable table of analysis results with a filter field. Clicking a column header sorts
+ * the rows by that column, clicking it again reverses the order. The rows shown can be exported
+ * as CSV or as a columnar binary file with {@link TableExporter}.
+ * <p>
+ * Only the rows on screen are read from the {@link VirtualTableModel}, and the rows are sorted
+ * and filtered in the background so that tables of millions of states stay responsive.
+ * </p>
+ */
+public class ResultTable extends JPanel {
+    /**
+     * Class logger
+     */
+    private static final Logger LOGGER = Logger.getLogger(ResultTable.class.getName());
+
+    /**
+     * Smallest non zero magnitude shown in fixed point rather than scientific notation
+     */
+    private static final double FIXED_POINT_MINIMUM = 0.001;
+
+    /**
+     * Results shown in the table
+     */
+    private final VirtualTableModel model;
+
+    /**
+     * Table showing the results
+     */
+    private final JTable table;
+
+    /**
+     * Conditions on the columns that shown rows meet
+     */
+    private final JTextField filterField = new JTextField(30);
+
+    /**
+     * Exports the rows shown
+     */
+    private final JButton exportButton = new JButton("Export...");
+
+    /**
+     * Number of rows shown and how they are arranged
+     */
+    private final JLabel statusLabel = new JLabel();
+
+    /**
+     * Rows shown
+     */
+    private TableFilter filter = TableFilter.NONE;
+
+    /**
+     * Column the rows are sorted by, or -1 if they are in the order of the results
+     */
+    private int sortColumn = -1;
+
+    /**
+     * True if the rows are sorted in ascending order
+     */
+    private boolean ascending = true;
+
+    /**
+     * Background sort or filter in progress, null if there is none
+     */
+    private SwingWorker<int[], Void> arranger;
+
+    /**
+     * @param model results to show
+     */
+    public ResultTable(VirtualTableModel model) {
+        super(new BorderLayout());
+        this.model = model;
+        table = new JTable(model);
+        table.setFillsViewportHeight(true);
+        table.getTableHeader().setReorderingAllowed(false);
+        table.setDefaultRenderer(Double.class, new ProbabilityRenderer());
+        table.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int column = table.convertColumnIndexToModel(table.columnAtPoint(e.getPoint()));
+                if (column >= 0) {
+                    sortBy(column);
+                }
+            }
+        });
+        filterField.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                applyFilter();
+            }
+        });
+        exportButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                export();
+            }
+        });
+        filterField.setToolTipText("Comma separated conditions on the columns, e.g. Probability >= 0.001, " +
+                "using <, <=, =, !=, >=, > or ~ to match text");
+
+        JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        filterPanel.add(new JLabel("Filter:"));
+        filterPanel.add(filterField);
+        filterPanel.add(exportButton);
+        filterPanel.add(statusLabel);
+        add(filterPanel, BorderLayout.NORTH);
+        add(new JScrollPane(table), BorderLayout.CENTER);
+        updateStatus();
+    }
+
+    /**
+     * Sorts by the column, or reverses the order if the rows are already sorted by it
+     *
+     * @param column model column index
+     */
+    private void sortBy(int column) {
+        ascending = column != sortColumn || !ascending;
+        sortColumn = column;
+        arrange();
+    }
+
+    /**
+     * Shows the rows meeting the conditions in the filter field
+     */
+    private void applyFilter() {
+        try {
+            filter = TableFilter.parse(filterField.getText(), model);
+        } catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(this, e.getMessage(), "Invalid filter", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        arrange();
+    }
+
+    /**
+     * Sorts and filters the rows in the background, replacing any arrangement still in progress
+     */
+    private void arrange() {
+        if (arranger != null) {
+            arranger.cancel(true);
+        }
+        final TableFilter currentFilter = filter;
+        final int currentColumn = sortColumn;
+        final boolean currentAscending = ascending;
+        arranger = new SwingWorker<int[], Void>() {
+            @Override
+            protected int[] doInBackground() {
+                return model.arrange(currentFilter, currentColumn, currentAscending);
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled() || arranger != this) {
+                    return;
+                }
+                arranger = null;
+                try {
+                    model.setOrder(get());
+                } catch (ExecutionException e) {
+                    LOGGER.log(Level.WARNING, "Could not sort or filter the results", e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                updateStatus();
+            }
+        };
+        statusLabel.setText("Sorting and filtering " + model.getSourceRowCount() + " rows...");
+        arranger.execute();
+    }
+
+    /**
+     * Asks for a file and writes the rows shown to it in the background, as CSV if the
+     * file is chosen with the CSV filter or ends in .csv and as a columnar file otherwise
+     */
+    private void export() {
+        JFileChooser chooser = new JFileChooser();
+        FileNameExtensionFilter csv = new FileNameExtensionFilter("CSV (*.csv)", "csv");
+        FileNameExtensionFilter columnar = new FileNameExtensionFilter("Columnar binary (*.pcol)", "pcol");
+        chooser.addChoosableFileFilter(csv);
+        chooser.addChoosableFileFilter(columnar);
+        chooser.setFileFilter(csv);
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = chooser.getSelectedFile();
+        String name = file.getName().toLowerCase();
+        final boolean asCsv = name.endsWith(".csv") || !name.endsWith(".pcol") && chooser.getFileFilter() != columnar;
+        if (!name.endsWith(".csv") && !name.endsWith(".pcol")) {
+            file = new File(file.getParentFile(), file.getName() + (asCsv ? ".csv" : ".pcol"));
+        }
+        final Path path = file.toPath();
+        final TableModel rows = model.getShownRows();
+        exportButton.setEnabled(false);
+        statusLabel.setText(String.format("Exporting %,d rows...", rows.getRowCount()));
+        new SwingWorker<Long, Void>() {
+            @Override
+            protected Long doInBackground() throws IOException {
+                return asCsv ? TableExporter.writeCsv(rows, path) : TableExporter.writeColumnar(rows, path);
+            }
+
+            @Override
+            protected void done() {
+                exportButton.setEnabled(true);
+                try {
+                    statusLabel.setText(String.format("Exported %,d rows to %s", get(), path.getFileName()));
+                } catch (ExecutionException e) {
+                    updateStatus();
+                    LOGGER.log(Level.WARNING, "Could not export the results", e.getCause());
+                    JOptionPane.showMessageDialog(ResultTable.this, e.getCause().getMessage(), "Export failed",
+                            JOptionPane.ERROR_MESSAGE);
+                } catch (InterruptedException | CancellationException e) {
+                    updateStatus();
+                    LOGGER.log(Level.FINE, "Export cancelled", e);
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Shows the number of rows and how they are arranged
+     */
+    private void updateStatus() {
+        StringBuilder status = new StringBuilder();
+        status.append(String.format("Showing %,d of %,d rows", model.getRowCount(), model.getSourceRowCount()));
+        if (sortColumn >= 0) {
+            status.append(", sorted by ").append(model.getColumnName(sortColumn))
+                  .append(ascending ? " ascending" : " descending");
+        }
+        statusLabel.setText(status.toString());
+    }
+
+    /**
+     * Shows values in fixed point to three decimal places unless they are too small to
+     * distinguish from zero, as the probabilities of large state spaces often are
+     */
+    private static final class ProbabilityRenderer extends DefaultTableCellRenderer {
+        /**
+         * Aligns values to the right like other numbers
+         */
+        private ProbabilityRenderer() {
+            setHorizontalAlignment(SwingConstants.RIGHT);
+        }
+
+        @Override
+        protected void setValue(Object value) {
+            if (value instanceof Double) {
+                double number = (Double) value;
+                String format = number == 0 || Math.abs(number) >= FIXED_POINT_MINIMUM ? "%.3f" : "%.3e";
+                setText(String.format(format, number));
+            } else {
+                super.setValue(value);
+            }
+        }
+    }
+}
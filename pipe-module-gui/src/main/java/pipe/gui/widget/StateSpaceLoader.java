@@ -1,20 +1,32 @@
 package pipe.gui.widget;
 
 import com.esotericsoftware.kryo.io.Input;
-import com.esotericsoftware.kryo.io.Output;
+import pipe.gui.executor.AnalysisExecutor;
+import pipe.gui.executor.AnalysisJob;
+import pipe.gui.io.CompactStateIO;
+import pipe.gui.io.KryoStateSpaceReader;
+import pipe.gui.io.OffsetIndex;
+import pipe.gui.io.ResultStore;
+import pipe.gui.io.StateSpaceIndex;
+import pipe.gui.io.StateSpaceReader;
+import pipe.gui.io.StateStreamException;
+import pipe.gui.io.StreamingStateReader;
+import pipe.gui.statespace.CompactStateSpace;
+import pipe.gui.statespace.CompactStateSpaceBuilder;
+import pipe.gui.statespace.ExplorationProgress;
+import pipe.gui.statespace.SafetyProperty;
+import pipe.gui.statespace.SafetyViolationException;
+import pipe.gui.statespace.StateSpaceCache;
 import pipe.reachability.algorithm.ExplorerUtilities;
 import pipe.reachability.algorithm.StateSpaceExplorer;
 import pipe.reachability.algorithm.TimelessTrapException;
 import pipe.reachability.algorithm.VanishingExplorer;
-import pipe.reachability.algorithm.parallel.MassiveParallelStateSpaceExplorer;
-import pipe.reachability.algorithm.sequential.SequentialStateSpaceExplorer;
 import uk.ac.imperial.io.*;
 import uk.ac.imperial.pipe.exceptions.InvalidRateException;
 import uk.ac.imperial.pipe.io.PetriNetIOImpl;
 import uk.ac.imperial.pipe.io.PetriNetReader;
 import uk.ac.imperial.pipe.models.petrinet.PetriNet;
 import uk.ac.imperial.state.ClassifiedState;
-import uk.ac.imperial.state.Record;
 
 import javax.swing.*;
 import javax.xml.bind.JAXBException;
@@ -26,9 +38,10 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
-import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -42,9 +55,10 @@ public class StateSpaceLoader {
     private static final Logger LOGGER = Logger.getLogger(StateSpaceLoader.class.getName());
 
     /**
-     * Number of states to explore before reducing and writing out
+     * Batch size which tunes the number of states each thread explores per round
+     * from the measured expansion cost
      */
-    private static final int STATES_PER_THREAD = 100;
+    public static final int ADAPTIVE_BATCH_SIZE = 0;
 
     /**
      * For loading Petri nets to explore
@@ -89,6 +103,12 @@ public class StateSpaceLoader {
      */
     private JRadioButton loadFromBinariesRadio;
 
+    /**
+     * If selected explorations of a Petri net are checkpointed and resume from
+     * their last checkpoint if they were interrupted
+     */
+    private JCheckBox resumeExplorationCheckBox;
+
     /**
      * Default petri net
      */
@@ -119,6 +139,38 @@ public class StateSpaceLoader {
      */
     private Path binaryStates;
 
+    /**
+     * Petri net held in the header of the loaded binaries
+     */
+    private PetriNet binaryPetriNet;
+
+    /**
+     * Checksum verification of the loaded binaries running in the background, null once they
+     * have been verified or if they were explored rather than loaded
+     */
+    private Future<Boolean> verification;
+
+    /**
+     * Random access index into the most recently loaded state space, null if
+     * the binaries were not written with an index
+     */
+    private StateSpaceIndex stateSpaceIndex;
+
+    /**
+     * Shared cache entry holding the current binaries, null if they were not explored with caching enabled
+     */
+    private StateSpaceCache.Entry cacheEntry;
+
+    /**
+     * Key of the current state space in the cache and result store, null if it is not stored
+     */
+    private String resultKey;
+
+    /**
+     * Explores Petri nets into binaries, sharing them through the cache and result store
+     */
+    private final ExplorationPipeline pipeline = new ExplorationPipeline();
+
     /**
      * Sets up the load Petri net options with the "use current Petri net" disabled
      *
@@ -218,8 +270,38 @@ public class StateSpaceLoader {
         return loadFromBinariesRadio.isSelected();
     }
 
+    /**
+     * Must be called on the event dispatch thread
+     *
+     * @return Petri net of the state space, read from the binaries if they are loaded,
+     *         or null if they do not hold it
+     */
     public PetriNet getPetriNet() {
-        return useExistingPetriNetRadioButton.isSelected() ? defaultPetriNet : lastLoadedPetriNet;
+        return getPetriNet(getOptions());
+    }
+
+    /**
+     * May be called from any thread
+     *
+     * @param options load options captured with {@link #getOptions()}
+     * @return Petri net of the state space, read from the binaries if they are loaded,
+     *         or null if they do not hold it
+     */
+    public PetriNet getPetriNet(Options options) {
+        return options.loadFromBinaries ? binaryPetriNet : options.petriNet;
+    }
+
+    /**
+     * Captures the options chosen in the panel so that a background exploration does not read
+     * the Swing components. Must be called on the event dispatch thread.
+     *
+     * @return options currently chosen in the panel
+     */
+    public Options getOptions() {
+        return new Options(loadFromBinariesRadio.isSelected(), useExistingPetriNetRadioButton.isSelected(),
+                resumeExplorationCheckBox.isSelected(),
+                useExistingPetriNetRadioButton.isSelected() ? defaultPetriNet : lastLoadedPetriNet,
+                binaryTransitions, binaryStates);
     }
 
     public JPanel getMainPanel() {
@@ -242,176 +324,415 @@ public class StateSpaceLoader {
                                                                          VanishingExplorerCreator vanishingCreator, int threads)
             throws IOException, InterruptedException, ExecutionException, InvalidRateException, TimelessTrapException,
             StateSpaceLoaderException {
-        if (loadFromBinariesRadio.isSelected()) {
-            return loadFromBinaries();
-        } else {
-            KryoStateIO stateWriter = new KryoStateIO();
-            temporaryTransitions = getTransitionsPath();
-            temporaryStates = getStatesPath();
+        return calculateResults(creator, vanishingCreator, threads, new ExplorationProgress());
+    }
 
-            PetriNet petriNet = useExistingPetriNetRadioButton.isSelected() ? defaultPetriNet : lastLoadedPetriNet;
+    /**
+     * Calculates the steady state exploration of a Petri net and stores its results
+     * in a temporary file, reporting its progress as it goes.
+     *
+     * Cancelling the progress stops the exploration with an
+     * {@link pipe.gui.statespace.ExplorationCancelledException}. The load options are read from
+     * the panel, so background threads should capture them with {@link #getOptions()} and call
+     * the overload taking them.
+     * @param creator          creator of explorer utilities
+     * @param vanishingCreator creator of vanishing explorer
+     * @param threads          number of threads
+     * @param progress         progress of the exploration
+     * @return                 state space explorer results
+     */
+    public StateSpaceExplorer.StateSpaceExplorerResults calculateResults(ExplorerCreator creator,
+                                                                         VanishingExplorerCreator vanishingCreator, int threads,
+                                                                         ExplorationProgress progress)
+            throws IOException, InterruptedException, ExecutionException, InvalidRateException, TimelessTrapException,
+            StateSpaceLoaderException {
+        return calculateResults(creator, vanishingCreator, threads, progress, null);
+    }
+
+    /**
+     * Calculates the steady state exploration of a Petri net, sharing the explored state space
+     * with any other module that explores the same net with the same options.
+     *
+     * The state space is looked up in the {@link StateSpaceCache} by the structural hash of the
+     * Petri net combined with the explorer options, and then in the persistent {@link ResultStore}.
+     * It is only explored if it is found in neither, after which it is kept in both. Explorations
+     * checking a {@link SafetyProperty} are neither looked up nor kept.
+     *
+     * The load options are read from the panel, so this must be called on the event dispatch thread
+     * unless the panel is not shown. Background tasks should capture them with {@link #getOptions()}
+     * first and call {@link #calculateResults(Options, ExplorerCreator, VanishingExplorerCreator, int,
+     * ExplorationProgress, String)}.
+     * @param creator          creator of explorer utilities
+     * @param vanishingCreator creator of vanishing explorer
+     * @param threads          number of threads
+     * @param progress         progress of the exploration
+     * @param explorerOptions  description of the explorer and vanishing explorer created, such that
+     *                         equal descriptions generate equal state spaces. If null the
+     *                         state space is always explored and never cached
+     * @return                 state space explorer results
+     */
+    public StateSpaceExplorer.StateSpaceExplorerResults calculateResults(ExplorerCreator creator,
+                                                                         VanishingExplorerCreator vanishingCreator, int threads,
+                                                                         ExplorationProgress progress,
+                                                                         String explorerOptions)
+            throws IOException, InterruptedException, ExecutionException, InvalidRateException, TimelessTrapException,
+            StateSpaceLoaderException {
+        return calculateResults(getOptions(), creator, vanishingCreator, threads, progress, explorerOptions);
+    }
+
+    /**
+     * Calculates the steady state exploration of a Petri net with load options captured on the
+     * event dispatch thread, so that it may be called from a background thread without reading
+     * the Swing components. Otherwise the same as
+     * {@link #calculateResults(ExplorerCreator, VanishingExplorerCreator, int, ExplorationProgress, String)}.
+     * @param options          load options captured with {@link #getOptions()}
+     * @param creator          creator of explorer utilities
+     * @param vanishingCreator creator of vanishing explorer
+     * @param threads          number of threads
+     * @param progress         progress of the exploration
+     * @param explorerOptions  description of the explorer and vanishing explorer created, null if the
+     *                         state space is always explored and never cached
+     * @return                 state space explorer results
+     */
+    public StateSpaceExplorer.StateSpaceExplorerResults calculateResults(Options options, ExplorerCreator creator,
+                                                                         VanishingExplorerCreator vanishingCreator, int threads,
+                                                                         ExplorationProgress progress,
+                                                                         String explorerOptions)
+            throws IOException, InterruptedException, ExecutionException, InvalidRateException, TimelessTrapException,
+            StateSpaceLoaderException {
+        closeStateSpaceIndex();
+        cancelVerification();
+        cacheEntry = null;
+        resultKey = null;
+        if (options.loadFromBinaries) {
+            return loadFromBinaries(options, progress);
+        } else {
+            PetriNet petriNet = options.petriNet;
             if (petriNet == null) {
                 String message;
-                if (useExistingPetriNetRadioButton.isSelected()) {
+                if (options.useExistingPetriNet) {
                     message = "Error cannot calculate analysis metrics. Please load a Petri net/binaries.";
                 } else {
                     message = "Error in loaded Petri net, could not read PNML file.";
                 }
                 throw new StateSpaceLoaderException(message);
             }
+
+            String key = pipeline.getKey(petriNet, explorerOptions);
+            if (key != null) {
+                resultKey = key;
+                StateSpaceCache.Entry entry = pipeline.findExplored(key);
+                if (entry != null) {
+                    useCacheEntry(entry);
+                    return entry.results;
+                }
+            }
+
+            ExplorationPipeline.Binaries binaries =
+                    pipeline.createBinaries(petriNet, explorerOptions, options.resumeExploration);
+            useBinaries(binaries);
             ExplorerUtilities explorerUtils = creator.create(petriNet);
             VanishingExplorer vanishingExplorer = vanishingCreator.create(explorerUtils);
-            return generateStateSpace(stateWriter, temporaryTransitions, temporaryStates, petriNet, explorerUtils,
-                    vanishingExplorer, threads);
+            StateSpaceExplorer.StateSpaceExplorerResults results = pipeline.explore(binaries, petriNet,
+                    explorerOptions, explorerUtils, vanishingExplorer, threads, progress);
+            useBinaries(binaries);
+            if (key != null) {
+                useCacheEntry(pipeline.store(key, binaries, results));
+            }
+            return results;
         }
     }
 
     /**
-     * Loads the transitions and states from binaries
+     * @return key of the current state space in the {@link ResultStore}, used to store further
+     *         results derived from it. Null if the state space was loaded from binaries or explored
+     *         without caching
+     */
+    public String getResultKey() {
+        return resultKey;
+    }
+
+    /**
+     * Uses the binaries of a cached state space as the current results
      *
-     * @return state space exporer results
+     * @param entry cached state space
      */
-    private StateSpaceExplorer.StateSpaceExplorerResults loadFromBinaries()
-            throws IOException, StateSpaceLoaderException {
-        StateReader stateReader = new KryoStateIO();
-        temporaryTransitions = getTransitionsPath();
-        temporaryStates = getStatesPath();
-        return processBinaryResults(stateReader, temporaryTransitions);
+    private void useCacheEntry(StateSpaceCache.Entry entry) {
+        cacheEntry = entry;
+        temporaryTransitions = entry.transitions;
+        temporaryStates = entry.states;
+    }
 
+    /**
+     * Uses the binaries being explored as the current results, so that a partially explored
+     * state space can be read if the exploration stops
+     *
+     * @param binaries binaries being explored
+     */
+    private void useBinaries(ExplorationPipeline.Binaries binaries) {
+        temporaryTransitions = binaries.getTransitions();
+        temporaryStates = binaries.getStates();
     }
 
     /**
-     * @return Path for state space transitions
+     * Loads the transitions and states from binaries, decompressing them into
+     * temporary binaries first if they were saved compressed. The state space
+     * size and Petri net of compact binaries are read from their header, older
+     * binaries are scanned to count their states. Compact binaries whose exploration
+     * did not finish have no summary and are refused.
+     *
+     * The checksums of compact binaries are verified in the background rather than before
+     * the header counts are returned, {@link #loadStateSpace()} fails if they do not match.
+     *
+     * @param options  load options holding the binaries chosen
+     * @param progress progress of reading the binaries
+     * @return state space exporer results
      */
-    private Path getTransitionsPath() throws IOException {
-        return loadFromBinariesRadio.isSelected() ? binaryTransitions : Files.createTempFile("transitions", ".tmp");
+    private StateSpaceExplorer.StateSpaceExplorerResults loadFromBinaries(Options options,
+                                                                          ExplorationProgress progress)
+            throws IOException, StateSpaceLoaderException {
+        binaryPetriNet = null;
+        if (options.binaryTransitions == null || options.binaryStates == null) {
+            throw new StateSpaceLoaderException(
+                    "Error cannot load the binaries. Please select a transitions and a states file.");
+        }
+        temporaryTransitions = decompressed(options.binaryTransitions, "transitions");
+        temporaryStates = decompressed(options.binaryStates, "states");
+        StateSpaceReader stateReader = getStateSpaceReader();
+        if (stateReader instanceof CompactStateIO) {
+            CompactStateIO header = (CompactStateIO) stateReader;
+            if (!header.isComplete() || !CompactStateIO.readHeader(temporaryStates).isComplete()) {
+                throw new StateSpaceLoaderException("The binaries are incomplete, their exploration did not finish. " +
+                        "Please explore the Petri net again.");
+            }
+            verifyInBackground(temporaryTransitions, temporaryStates);
+            binaryPetriNet = header.getPetriNet();
+            return new StateSpaceExplorer.StateSpaceExplorerResults(header.getTransitionCount(),
+                    header.getStateCount());
+        }
+        return processBinaryResults(stateReader, temporaryTransitions, progress);
+
     }
 
     /**
-     * @return Path for state space states
+     * Starts verifying the checksums of loaded compact binaries on the analysis pool. A mismatch is
+     * logged straight away and reported as an error by the next {@link #loadStateSpace()}.
+     *
+     * @param transitions transitions binary
+     * @param states      states binary
      */
-    private Path getStatesPath() throws IOException {
-        return loadFromBinariesRadio.isSelected() ? binaryStates : Files.createTempFile("states", ".tmp");
+    private void verifyInBackground(final Path transitions, final Path states) {
+        AnalysisJob job = AnalysisExecutor.getInstance().newJob("Verify binaries", 1);
+        verification = job.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws IOException {
+                boolean valid = CompactStateIO.verify(transitions) && CompactStateIO.verify(states);
+                if (!valid) {
+                    LOGGER.log(Level.WARNING, "The binaries {0} and {1} are corrupt, their checksums do not match",
+                            new Object[]{transitions, states});
+                }
+                return valid;
+            }
+        });
+        job.shutdown();
     }
 
     /**
-     * Writes the state space into transitions and states
+     * Waits for the background verification of the loaded binaries to finish
      *
-     * @param stateWriter       state writer
-     * @param transitions       path for state space transitions
-     * @param states            path for state space states
-     * @param petriNet          petrinet we are working on
-     * @param explorerUtils     explorer utilities
-     * @param vanishingExplorer vanishing explorer
-     * @param threads           number of worker threads to use
-     */
-    private StateSpaceExplorer.StateSpaceExplorerResults generateStateSpace(StateWriter stateWriter, Path transitions,
-                                                                            Path states, PetriNet petriNet,
-                                                                            ExplorerUtilities explorerUtils,
-                                                                            VanishingExplorer vanishingExplorer,
-                                                                            int threads)
-            throws IOException, TimelessTrapException, ExecutionException, InvalidRateException, InterruptedException {
-        try (OutputStream transitionStream = Files.newOutputStream(transitions);
-             OutputStream stateStream = Files.newOutputStream(states)) {
-            try (Output transitionOutput = new Output(transitionStream);
-                 Output stateOutput = new Output(stateStream)) {
-                return writeStateSpace(stateWriter, transitionOutput, stateOutput, petriNet, explorerUtils,
-                        vanishingExplorer, threads);
+     * @throws StateSpaceLoaderException if the checksums of the binaries do not match
+     * @throws IOException               if the binaries could not be read or the wait was interrupted
+     */
+    private void awaitVerification() throws StateSpaceLoaderException, IOException {
+        if (verification == null) {
+            return;
+        }
+        try {
+            if (!verification.get()) {
+                throw new StateSpaceLoaderException("The binaries are corrupt, their checksums do not match");
             }
+            verification = null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted whilst verifying the binaries");
+        } catch (ExecutionException e) {
+            throw new IOException("Could not verify the binaries", e.getCause());
         }
     }
 
     /**
-     * Processes the binary results and returns their state space
+     * Stops verifying the previous binaries since new binaries are about to be used
+     */
+    private void cancelVerification() {
+        if (verification != null) {
+            verification.cancel(true);
+            verification = null;
+        }
+    }
+
+    /**
+     * @param binary binary to load
+     * @param prefix prefix of the temporary file the binary is decompressed into
+     * @return the binary, or a temporary decompressed copy of it if it was saved compressed
+     */
+    private Path decompressed(Path binary, String prefix) throws IOException {
+        if (!CompactStateIO.isCompressed(binary)) {
+            return binary;
+        }
+        Path decompressed = Files.createTempFile(prefix, ".tmp");
+        decompressed.toFile().deleteOnExit();
+        CompactStateIO.decompress(binary, decompressed);
+        return decompressed;
+    }
+
+    /**
+     * @return reader for the format the current binaries were written in
+     */
+    private StateSpaceReader getStateSpaceReader() throws IOException {
+        return CompactStateIO.isCompact(temporaryTransitions) ? CompactStateIO.readHeader(temporaryTransitions) :
+                new KryoStateSpaceReader();
+    }
+
+    /**
+     * Processes the binary results and returns their state space.
+     * Records are streamed one at a time so the binaries are never held in memory.
      *
      * @param stateReader state reader
      * @param transitions path for state space transitions
+     * @param progress    progress of reading the binaries
      * @return            state space explorer results
      */
-    private StateSpaceExplorer.StateSpaceExplorerResults processBinaryResults(StateReader stateReader, Path transitions)
+    private StateSpaceExplorer.StateSpaceExplorerResults processBinaryResults(StateSpaceReader stateReader, Path transitions,
+                                                                              ExplorationProgress progress)
             throws IOException, StateSpaceLoaderException {
         try (InputStream inputStream = Files.newInputStream(transitions);
              Input transitionInput = new Input(inputStream)) {
             try {
-                Collection<Record> records = readResults(stateReader, transitionInput);
-                int transitionCount = getTransitionCount(records);
-                return new StateSpaceExplorer.StateSpaceExplorerResults(transitionCount, records.size());
+                stateReader.skipHeader(transitionInput);
+                StreamingStateReader reader = new StreamingStateReader(stateReader);
+                int stateCount = 0;
+                int transitionCount = 0;
+                try (StreamingStateReader.RecordStream records = reader.iterateRecords(transitionInput)) {
+                    while (records.hasNext()) {
+                        transitionCount += records.next().successors.size();
+                        stateCount++;
+                        progress.stateExplored();
+                    }
+                }
+                return new StateSpaceExplorer.StateSpaceExplorerResults(transitionCount, stateCount);
             } catch (IOException e) {
                 throw new StateSpaceLoaderException(
                         "Could not parse binaries.\nAre you sure they were generated using the PIPE 5 state space explorer module?",
                         e);
+            } catch (StateStreamException e) {
+                throw new StateSpaceLoaderException(
+                        "Could not parse binaries.\nAre you sure they were generated using the PIPE 5 state space explorer module?",
+                        e.getCause());
             }
         }
     }
 
     /**
-     * Writes the petriNet state space out to a temporary file which is referenced by the objectOutputStream
+     * Sets the number of states each thread expands per round when exploring with more than one thread
      *
-     * @param stateWriter       format in which to write the results to
-     * @param transitionOutput  stream to write state space to
-     * @param stateOutput       stream to write state integer mappings to
-     * @param petriNet          petri net we are working on
-     * @param explorerUtilites  explorer utilities
-     * @param vanishingExplorer vanishing explorer
-     * @param threads           number of worker threads to use
-     * @throws TimelessTrapException if the state space cannot be generated due to cyclic vanishing states
-     */
-    private StateSpaceExplorer.StateSpaceExplorerResults writeStateSpace(StateWriter stateWriter,
-                                                                         Output transitionOutput, Output stateOutput,
-                                                                         PetriNet petriNet,
-                                                                         ExplorerUtilities explorerUtilites,
-                                                                         VanishingExplorer vanishingExplorer, int threads)
-            throws TimelessTrapException, ExecutionException, InterruptedException, IOException, InvalidRateException {
-        StateProcessor processor = new StateIOProcessor(stateWriter, transitionOutput, stateOutput);
-        StateSpaceExplorer stateSpaceExplorer = getStateSpaceExplorer(explorerUtilites, vanishingExplorer, processor, threads);
-        return stateSpaceExplorer.generate(explorerUtilites.getCurrentState());
-    }
-
-    private StateSpaceExplorer getStateSpaceExplorer( ExplorerUtilities explorerUtilites, VanishingExplorer vanishingExplorer, StateProcessor stateProcessor, int threads) {
-        if (threads == 1) {
-            return new SequentialStateSpaceExplorer(explorerUtilites, vanishingExplorer, stateProcessor);
-        }
-        return new  MassiveParallelStateSpaceExplorer(explorerUtilites, vanishingExplorer, stateProcessor, threads, STATES_PER_THREAD);
+     * @param batchSize batch size, or {@link #ADAPTIVE_BATCH_SIZE} to tune it from the measured expansion cost
+     */
+    public void setBatchSize(int batchSize) {
+        pipeline.setBatchSize(batchSize);
     }
 
     /**
-     * Reads results of steady state exploration into a collection of records
+     * Sets whether explorations keep their visited states and frontier on disk once they outgrow memory,
+     * so that state spaces larger than the heap can be explored
      *
-     * @param stateReader  state reader
-     * @param input        ?
-     * @return             state transitions with rates
+     * @param spillToDisk true to spill to disk
      */
-    private Collection<Record> readResults(StateReader stateReader, Input input) throws IOException {
-        MultiStateReader reader = new EntireStateReader(stateReader);
-        return reader.readRecords(input);
+    public void setSpillToDisk(boolean spillToDisk) {
+        pipeline.setSpillToDisk(spillToDisk);
     }
 
     /**
-     * @param records records of states and which other states they can transition to
-     * @return        the number of transitions in the state space
+     * Sets a property to check whilst exploring a Petri net. Exploration stops with a
+     * {@link SafetyViolationException} at the first state violating it, so these explorations
+     * are never cached.
+     *
+     * @param safetyProperty property to check, null to explore the whole state space
      */
-    private int getTransitionCount(Iterable<Record> records) {
-        int sum = 0;
-        for (Record record : records) {
-            sum += record.successors.size();
-        }
-        return sum;
+    public void setSafetyProperty(SafetyProperty safetyProperty) {
+        pipeline.setSafetyProperty(safetyProperty);
     }
 
     /**
-     * Loads and processes state space
+     * Loads and processes state space. The transition records are streamed from the binaries
+     * straight into a compact sparse representation rather than being held as records.
+     * If the binaries were written with an index the states are also read on demand,
+     * otherwise the whole state mapping is read into memory. A compact state space
+     * already read by another module for the same cached binaries is reused.
+     * Binaries loaded from files are only returned once their checksums have been verified.
      *
-     * @return result with records of states and which other states they can transition to, and a state map
+     * @return result with the transitions between states, and a state map
+     * @throws StateSpaceLoaderException if the binaries cannot be read or their checksums do not match
      */
     public Results loadStateSpace() throws StateSpaceLoaderException, IOException {
-        KryoStateIO stateReader = new KryoStateIO();
-        try (InputStream inputStream = Files.newInputStream(temporaryTransitions);
-             InputStream stateInputStream = Files.newInputStream(temporaryStates);
-             Input transitionInput = new Input(inputStream);
+        StateSpaceReader stateReader = getStateSpaceReader();
+        CompactStateSpace stateSpace = cacheEntry == null ? null : cacheEntry.getStateSpace();
+        if (stateSpace == null) {
+            stateSpace = readStateSpace(stateReader);
+            if (cacheEntry != null) {
+                StateSpaceCache.getInstance().setStateSpace(cacheEntry, stateSpace);
+            }
+        }
+        awaitVerification();
+        StateSpaceIndex index = getStateSpaceIndex();
+        if (index != null) {
+            return new Results(stateSpace, index.asMap());
+        }
+        try (InputStream stateInputStream = Files.newInputStream(temporaryStates);
              Input stateInput = new Input(stateInputStream)) {
-            Collection<Record> records = readResults(stateReader, transitionInput);
             Map<Integer, ClassifiedState> stateMap = readMappings(stateReader, stateInput);
-            return new Results(records, stateMap);
+            return new Results(stateSpace, stateMap);
+        }
+    }
+
+    /**
+     * Streams the transition binaries into a compact state space
+     *
+     * @param stateReader state reader
+     * @return compact state space of the transitions
+     */
+    private CompactStateSpace readStateSpace(StateSpaceReader stateReader) throws StateSpaceLoaderException {
+        try (StreamingStateReader.RecordFile records =
+                     new StreamingStateReader(stateReader).readRecords(temporaryTransitions)) {
+            return CompactStateSpaceBuilder.build(records);
+        } catch (StateStreamException e) {
+            throw new StateSpaceLoaderException("Could not read state space transitions", e.getCause());
+        }
+    }
+
+    /**
+     * Opens the index of the most recently generated or loaded binaries, allowing single
+     * states and successor lists to be read in constant time.
+     *
+     * @return index into the state space binaries, or null if they were written without one
+     */
+    public StateSpaceIndex getStateSpaceIndex() throws IOException {
+        if (stateSpaceIndex == null && StateSpaceIndex.exists(temporaryTransitions, temporaryStates)) {
+            stateSpaceIndex = new StateSpaceIndex(getStateSpaceReader(), temporaryTransitions, temporaryStates);
+        }
+        return stateSpaceIndex;
+    }
+
+    /**
+     * Closes the index of the previous state space since new binaries are about to be used
+     */
+    private void closeStateSpaceIndex() {
+        if (stateSpaceIndex != null) {
+            try {
+                stateSpaceIndex.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, e.getMessage());
+            }
+            stateSpaceIndex = null;
         }
     }
 
@@ -420,27 +741,42 @@ public class StateSpaceLoader {
      * the Classified State it represents
      *
      * @param stateReader     state reader
-     * @param input           ?
+     * @param input           input at the start of the states binary
      * @return                state mappings
      */
-    private Map<Integer, ClassifiedState> readMappings(StateReader stateReader, Input input) throws IOException {
-        MultiStateReader reader = new EntireStateReader(stateReader);
-        return reader.readStates(input);
+    private Map<Integer, ClassifiedState> readMappings(StateSpaceReader stateReader, Input input) throws IOException {
+        stateReader.skipHeader(input);
+        return stateReader.readStates(input);
     }
 
     public void saveBinaryFiles() {
+        saveBinaryFiles(false);
+    }
+
+    /**
+     * Saves the current binaries to locations chosen by the user
+     *
+     * @param compress true to deflate compact binaries, which makes them much smaller but means
+     *                 they are read in full rather than through their index when they are loaded
+     */
+    public void saveBinaryFiles(boolean compress) {
         if (temporaryStates != null && temporaryTransitions != null) {
-            copyFile(temporaryTransitions, "Select location for temporary transitions");
-            copyFile(temporaryStates, "Select location for temporary states");
+            copyFile(temporaryTransitions, "Select location for temporary transitions", compress);
+            copyFile(temporaryStates, "Select location for temporary states", compress);
         }
     }
 
 
     /**
+     * Copies the file and, if it has one, its index so that the saved
+     * binaries can be randomly accessed when they are loaded again.
+     * Compressed copies are saved without their index.
+     *
      * @param temporary path to copy to new location
      * @param message   displayed message in save file dialog pop up
+     * @param compress  true to deflate the copy if it is a compact binary
      */
-    private void copyFile(Path temporary, String message) {
+    private void copyFile(Path temporary, String message, boolean compress) {
         loadDialog.setMode(FileDialog.SAVE);
         loadDialog.setTitle(message);
         loadDialog.setVisible(true);
@@ -450,7 +786,15 @@ public class StateSpaceLoader {
             File file = files[0];
             Path path = Paths.get(file.toURI());
             try {
+                if (compress && CompactStateIO.isCompact(temporary)) {
+                    CompactStateIO.compress(temporary, path);
+                    return;
+                }
                 Files.copy(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+                if (OffsetIndex.exists(temporary)) {
+                    Files.copy(OffsetIndex.indexPath(temporary), OffsetIndex.indexPath(path),
+                            StandardCopyOption.REPLACE_EXISTING);
+                }
             } catch (IOException e) {
                 LOGGER.log(Level.SEVERE, e.getMessage());
             }
@@ -483,14 +827,70 @@ public class StateSpaceLoader {
         VanishingExplorer create(ExplorerUtilities utils);
     }
 
+    /**
+     * Load options chosen in the panel, captured on the event dispatch thread with
+     * {@link #getOptions()} so that an exploration in the background does not read the Swing components
+     */
+    public static final class Options {
+        /**
+         * True if the state space is loaded from binaries rather than explored
+         */
+        public final boolean loadFromBinaries;
+
+        /**
+         * True if the current Petri net is explored rather than one loaded from a file
+         */
+        public final boolean useExistingPetriNet;
+
+        /**
+         * True if the exploration is checkpointed and resumes from its last checkpoint
+         */
+        public final boolean resumeExploration;
+
+        /**
+         * Petri net to explore, null if none has been loaded
+         */
+        public final PetriNet petriNet;
+
+        /**
+         * Transitions binary to load, null if none has been chosen
+         */
+        public final Path binaryTransitions;
+
+        /**
+         * States binary to load, null if none has been chosen
+         */
+        public final Path binaryStates;
+
+        /**
+         * Constructor
+         *
+         * @param loadFromBinaries    true if the state space is loaded from binaries rather than explored
+         * @param useExistingPetriNet true if the current Petri net is explored rather than one loaded from a file
+         * @param resumeExploration   true if the exploration is checkpointed and resumes from its last checkpoint
+         * @param petriNet            Petri net to explore, null if none has been loaded
+         * @param binaryTransitions   transitions binary to load, null if none has been chosen
+         * @param binaryStates        states binary to load, null if none has been chosen
+         */
+        public Options(boolean loadFromBinaries, boolean useExistingPetriNet, boolean resumeExploration,
+                       PetriNet petriNet, Path binaryTransitions, Path binaryStates) {
+            this.loadFromBinaries = loadFromBinaries;
+            this.useExistingPetriNet = useExistingPetriNet;
+            this.resumeExploration = resumeExploration;
+            this.petriNet = petriNet;
+            this.binaryTransitions = binaryTransitions;
+            this.binaryStates = binaryStates;
+        }
+    }
+
     /**
      * State space exploration results
      */
     public class Results {
         /**
-         * Transition records
+         * Transitions between states in compact sparse form
          */
-        public final Collection<Record> records;
+        public final CompactStateSpace stateSpace;
 
         /**
          * Classified state mappings
@@ -500,11 +900,11 @@ public class StateSpaceLoader {
         /**
          * Constructor
          *
-         * @param records       records of states, and which states they can transition to
+         * @param stateSpace    transitions between states in compact sparse form
          * @param stateMappings state mappings
          */
-        public Results(Collection<Record> records, Map<Integer, ClassifiedState> stateMappings) {
-            this.records = records;
+        public Results(CompactStateSpace stateSpace, Map<Integer, ClassifiedState> stateMappings) {
+            this.stateSpace = stateSpace;
             this.stateMappings = stateMappings;
         }
     }
@@ -0,0 +1,164 @@
+package pipe.gui.widget;
+
+import uk.ac.imperial.state.ClassifiedState;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Table of the explored states, showing each state's id, its steady state probability and its
+ * marking of every token on every place.
+ * <p>
+ * States are read from the state mappings when their row is shown, so when the mappings are
+ * backed by the state space index only the rows on screen are read from the binaries. The most
+ * recently shown states are kept so that scrolling back does not read them again.
+ * </p>
+ */
+public final class StateTableModel extends VirtualTableModel {
+    /**
+     * Number of recently read states kept in memory
+     */
+    private static final int CACHE_SIZE = 1024;
+
+    /**
+     * Marking of each state id
+     */
+    private final Map<Integer, ClassifiedState> stateMappings;
+
+    /**
+     * Number of states, whose ids run from 0
+     */
+    private final int stateCount;
+
+    /**
+     * Probability of each state id, null if the steady state was not solved
+     */
+    private final double[] steadyState;
+
+    /**
+     * Place shown in each marking column
+     */
+    private final List<String> places = new ArrayList<>();
+
+    /**
+     * Token shown in each marking column
+     */
+    private final List<String> tokens = new ArrayList<>();
+
+    /**
+     * Name of each column
+     */
+    private final List<String> columnNames = new ArrayList<>();
+
+    /**
+     * Recently read states in the order they were last used, also serialises the reads
+     * since the readers of the state binaries are not thread safe
+     */
+    private final Map<Integer, ClassifiedState> cache = new LinkedHashMap<Integer, ClassifiedState>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, ClassifiedState> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    /**
+     * @param stateMappings marking of each state id
+     * @param stateCount    number of states, whose ids run from 0
+     * @param steadyState   probability of each state id, null if the steady state was not solved
+     */
+    public StateTableModel(Map<Integer, ClassifiedState> stateMappings, int stateCount, double[] steadyState) {
+        this.stateMappings = stateMappings;
+        this.stateCount = stateCount;
+        this.steadyState = steadyState;
+        columnNames.add("State");
+        if (steadyState != null) {
+            columnNames.add("Probability");
+        }
+        if (stateCount > 0) {
+            addMarkingColumns(getState(0));
+        }
+    }
+
+    /**
+     * Adds a column for each token on each place, named after the place alone if there is only one token
+     *
+     * @param state any state of the state space
+     */
+    private void addMarkingColumns(ClassifiedState state) {
+        List<String> statePlaces = new ArrayList<>(state.getPlaces());
+        Collections.sort(statePlaces);
+        if (statePlaces.isEmpty()) {
+            return;
+        }
+        List<String> stateTokens = new ArrayList<>(state.getTokens(statePlaces.get(0)).keySet());
+        Collections.sort(stateTokens);
+        for (String token : stateTokens) {
+            for (String place : statePlaces) {
+                places.add(place);
+                tokens.add(token);
+                columnNames.add(stateTokens.size() == 1 ? place : place + " (" + token + ")");
+            }
+        }
+    }
+
+    @Override
+    public int getSourceRowCount() {
+        return stateCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.size();
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames.get(column);
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return isProbability(column) ? Double.class : Integer.class;
+    }
+
+    @Override
+    public Object getSourceValue(int row, int column) {
+        if (column == 0) {
+            return row;
+        }
+        if (isProbability(column)) {
+            return steadyState[row];
+        }
+        int marking = column - (steadyState == null ? 1 : 2);
+        ClassifiedState state = getState(row);
+        return state == null ? null : state.getTokens(places.get(marking)).get(tokens.get(marking));
+    }
+
+    /**
+     * @param column column index
+     * @return true if the column holds the steady state probabilities
+     */
+    private boolean isProbability(int column) {
+        return steadyState != null && column == 1;
+    }
+
+    /**
+     * @param id state id
+     * @return marking of the state, or null if it has none
+     */
+    private ClassifiedState getState(int id) {
+        synchronized (cache) {
+            ClassifiedState state = cache.get(id);
+            if (state == null) {
+                state = stateMappings.get(id);
+                if (state != null) {
+                    cache.put(id, state);
+                }
+            }
+            return state;
+        }
+    }
+}
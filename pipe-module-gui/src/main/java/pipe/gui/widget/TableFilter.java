@@ -0,0 +1,212 @@
+package pipe.gui.widget;
+
+import javax.swing.table.TableModel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rows of a result table to show, written as comma separated conditions on its columns that a
+ * row must all meet, e.g. {@code Probability >= 0.001, P0 > 2}.
+ * <p>
+ * Numeric columns are compared with {@code <, <=, =, !=, >=, >}. Text columns are compared with
+ * {@code =} and {@code !=}, or {@code ~} which matches text containing the value ignoring case.
+ * </p>
+ */
+public final class TableFilter {
+    /**
+     * Filter showing every row
+     */
+    public static final TableFilter NONE = new TableFilter(Collections.<Condition>emptyList(), "");
+
+    /**
+     * Column name, operator and value of a condition
+     */
+    private static final Pattern CONDITION = Pattern.compile("(.+?)\\s*(<=|>=|!=|=|<|>|~)\\s*(.+)");
+
+    /**
+     * Conditions a row must all meet
+     */
+    private final List<Condition> conditions;
+
+    /**
+     * Text the filter was parsed from
+     */
+    private final String expression;
+
+    /**
+     * @param conditions conditions a row must all meet
+     * @param expression text the filter was parsed from
+     */
+    private TableFilter(List<Condition> conditions, String expression) {
+        this.conditions = conditions;
+        this.expression = expression;
+    }
+
+    /**
+     * @param expression comma separated conditions, empty to show every row
+     * @param model      table the filter applies to
+     * @return filter for the table
+     * @throws IllegalArgumentException if a condition is not valid for the table's columns
+     */
+    public static TableFilter parse(String expression, TableModel model) {
+        String trimmed = expression.trim();
+        if (trimmed.isEmpty()) {
+            return NONE;
+        }
+        List<Condition> conditions = new ArrayList<>();
+        for (String part : trimmed.split(",")) {
+            Matcher matcher = CONDITION.matcher(part.trim());
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException("Condition must be a column, operator and value: " + part.trim());
+            }
+            int column = findColumn(model, matcher.group(1));
+            String operator = matcher.group(2);
+            String value = matcher.group(3).trim();
+            if (Number.class.isAssignableFrom(model.getColumnClass(column))) {
+                if (operator.equals("~")) {
+                    throw new IllegalArgumentException("Column " + model.getColumnName(column) + " is numeric, " +
+                            "it cannot be matched with ~");
+                }
+                try {
+                    conditions.add(new Condition(column, operator, Double.parseDouble(value), null));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Column " + model.getColumnName(column) + " is numeric, " +
+                            value + " is not a number", e);
+                }
+            } else {
+                if (!operator.equals("=") && !operator.equals("!=") && !operator.equals("~")) {
+                    throw new IllegalArgumentException("Column " + model.getColumnName(column) + " is text, " +
+                            "it can only be compared with =, != or ~");
+                }
+                conditions.add(new Condition(column, operator, 0, value));
+            }
+        }
+        return new TableFilter(conditions, trimmed);
+    }
+
+    /**
+     * @param model table to search
+     * @param name  column name, ignoring case
+     * @return index of the column
+     * @throws IllegalArgumentException if the table has no such column
+     */
+    private static int findColumn(TableModel model, String name) {
+        for (int column = 0; column < model.getColumnCount(); column++) {
+            if (model.getColumnName(column).equalsIgnoreCase(name.trim())) {
+                return column;
+            }
+        }
+        throw new IllegalArgumentException("Unknown column: " + name.trim());
+    }
+
+    /**
+     * @return true if the filter shows every row
+     */
+    public boolean isEmpty() {
+        return conditions.isEmpty();
+    }
+
+    /**
+     * @param model table the filter applies to
+     * @param row   source row
+     * @return true if the row meets every condition
+     */
+    public boolean accept(VirtualTableModel model, int row) {
+        for (Condition condition : conditions) {
+            if (!condition.accept(model.getSourceValue(row, condition.column))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    /**
+     * Comparison of one column with a value
+     */
+    private static final class Condition {
+        /**
+         * Column compared
+         */
+        private final int column;
+
+        /**
+         * Comparison operator
+         */
+        private final String operator;
+
+        /**
+         * Value numeric columns are compared with
+         */
+        private final double number;
+
+        /**
+         * Value text columns are compared with, null for numeric columns
+         */
+        private final String text;
+
+        /**
+         * @param column   column compared
+         * @param operator comparison operator
+         * @param number   value numeric columns are compared with
+         * @param text     value text columns are compared with, null for numeric columns
+         */
+        private Condition(int column, String operator, double number, String text) {
+            this.column = column;
+            this.operator = operator;
+            this.number = number;
+            this.text = text;
+        }
+
+        /**
+         * @param value value of the column in a row
+         * @return true if the value meets the condition
+         */
+        private boolean accept(Object value) {
+            if (value == null) {
+                return false;
+            }
+            if (text != null) {
+                return acceptText(value.toString());
+            }
+            int comparison = Double.compare(((Number) value).doubleValue(), number);
+            switch (operator) {
+                case "<":
+                    return comparison < 0;
+                case "<=":
+                    return comparison <= 0;
+                case "=":
+                    return comparison == 0;
+                case "!=":
+                    return comparison != 0;
+                case ">=":
+                    return comparison >= 0;
+                default:
+                    return comparison > 0;
+            }
+        }
+
+        /**
+         * @param value text of the column in a row
+         * @return true if the text meets the condition
+         */
+        private boolean acceptText(String value) {
+            switch (operator) {
+                case "=":
+                    return value.equals(text);
+                case "!=":
+                    return !value.equals(text);
+                default:
+                    return value.toLowerCase(Locale.ENGLISH).contains(text.toLowerCase(Locale.ENGLISH));
+            }
+        }
+    }
+}
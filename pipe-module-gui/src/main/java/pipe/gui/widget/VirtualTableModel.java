@@ -0,0 +1,229 @@
+package pipe.gui.widget;
+
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.TableModel;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Table model whose rows are read on demand from the analysis results, so that a table of
+ * millions of rows costs no more than the rows on screen.
+ * <p>
+ * Sorting and filtering do not use a {@link javax.swing.RowSorter}, which compares boxed values
+ * on the event dispatch thread. Instead {@link #arrange(TableFilter, int, boolean)} computes the
+ * order of the rows in the background as an array of source rows, which is then shown with
+ * {@link #setOrder(int[])}.
+ * </p>
+ */
+public abstract class VirtualTableModel extends AbstractTableModel {
+    /**
+     * Source rows checked between tests for cancellation
+     */
+    private static final int CANCELLATION_CHECK = 4096;
+
+    /**
+     * Source row shown in each table row, null if every source row is shown in order
+     */
+    private volatile int[] order;
+
+    /**
+     * @return number of rows in the results, before filtering
+     */
+    public abstract int getSourceRowCount();
+
+    /**
+     * Reads a value of the results, may be called from any thread
+     *
+     * @param row    source row
+     * @param column column index
+     * @return value of the cell
+     */
+    public abstract Object getSourceValue(int row, int column);
+
+    @Override
+    public int getRowCount() {
+        int[] rows = order;
+        return rows == null ? getSourceRowCount() : rows.length;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        return getSourceValue(getSourceRow(row), column);
+    }
+
+    /**
+     * @param row table row
+     * @return source row shown in the table row
+     */
+    public int getSourceRow(int row) {
+        int[] rows = order;
+        return rows == null ? row : rows[row];
+    }
+
+    /**
+     * Shows the source rows in the given order, called on the event dispatch thread
+     *
+     * @param order source row shown in each table row, null to show every source row in order
+     */
+    public void setOrder(int[] order) {
+        this.order = order;
+        fireTableDataChanged();
+    }
+
+    /**
+     * @return read only view of the rows as they are currently shown, which later sorting and
+     * filtering do not change, so that it can be read whilst the table is rearranged
+     */
+    public TableModel getShownRows() {
+        final int[] rows = order;
+        return new AbstractTableModel() {
+            @Override
+            public int getRowCount() {
+                return rows == null ? getSourceRowCount() : rows.length;
+            }
+
+            @Override
+            public int getColumnCount() {
+                return VirtualTableModel.this.getColumnCount();
+            }
+
+            @Override
+            public String getColumnName(int column) {
+                return VirtualTableModel.this.getColumnName(column);
+            }
+
+            @Override
+            public Class<?> getColumnClass(int column) {
+                return VirtualTableModel.this.getColumnClass(column);
+            }
+
+            @Override
+            public Object getValueAt(int row, int column) {
+                return getSourceValue(rows == null ? row : rows[row], column);
+            }
+        };
+    }
+
+    /**
+     * Computes the rows shown for a filter and sort column. Reads every source row so should be
+     * called in the background, stops with a {@link CancellationException} if its thread is interrupted.
+     *
+     * @param filter     rows to show
+     * @param sortColumn column to sort by, or -1 to keep the source order
+     * @param ascending  true to sort in ascending order
+     * @return source row shown in each table row, null if every source row is shown in order
+     */
+    public int[] arrange(TableFilter filter, int sortColumn, boolean ascending) {
+        int count = getSourceRowCount();
+        if (filter.isEmpty() && sortColumn < 0) {
+            return null;
+        }
+        int[] rows = new int[count];
+        int size = 0;
+        for (int row = 0; row < count; row++) {
+            checkCancelled(row);
+            if (filter.accept(this, row)) {
+                rows[size++] = row;
+            }
+        }
+        rows = Arrays.copyOf(rows, size);
+        if (sortColumn >= 0) {
+            if (Number.class.isAssignableFrom(getColumnClass(sortColumn))) {
+                sortByNumber(rows, sortColumn, ascending);
+            } else {
+                sortByText(rows, sortColumn, ascending);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Sorts the rows on primitive keys, without boxing a row or key
+     *
+     * @param rows      source rows to sort
+     * @param column    numeric column to sort by
+     * @param ascending true to sort in ascending order
+     */
+    private void sortByNumber(int[] rows, int column, boolean ascending) {
+        double[] keys = new double[rows.length];
+        for (int index = 0; index < rows.length; index++) {
+            checkCancelled(index);
+            Object value = getSourceValue(rows[index], column);
+            keys[index] = value == null ? Double.NaN : ((Number) value).doubleValue();
+        }
+        int[] rowBuffer = new int[rows.length];
+        double[] keyBuffer = new double[rows.length];
+        int[] fromRows = rows;
+        double[] fromKeys = keys;
+        for (int width = 1; width < rows.length; width *= 2) {
+            for (int low = 0; low < rows.length; low += 2 * width) {
+                int middle = Math.min(low + width, rows.length);
+                int high = Math.min(low + 2 * width, rows.length);
+                merge(fromRows, fromKeys, rowBuffer, keyBuffer, low, middle, high, ascending);
+            }
+            checkCancelled(0);
+            int[] swapRows = fromRows;
+            fromRows = rowBuffer;
+            rowBuffer = swapRows;
+            double[] swapKeys = fromKeys;
+            fromKeys = keyBuffer;
+            keyBuffer = swapKeys;
+        }
+        if (fromRows != rows) {
+            System.arraycopy(fromRows, 0, rows, 0, rows.length);
+        }
+    }
+
+    /**
+     * Merges two sorted runs, keeping rows with equal keys in their existing order
+     */
+    private static void merge(int[] rows, double[] keys, int[] toRows, double[] toKeys, int low, int middle,
+                              int high, boolean ascending) {
+        int left = low;
+        int right = middle;
+        for (int index = low; index < high; index++) {
+            boolean takeLeft = right >= high || left < middle &&
+                    (ascending ? Double.compare(keys[left], keys[right]) : Double.compare(keys[right], keys[left])) <= 0;
+            int from = takeLeft ? left++ : right++;
+            toRows[index] = rows[from];
+            toKeys[index] = keys[from];
+        }
+    }
+
+    /**
+     * Sorts the rows on the text of a column, which are only used by tables small enough to box
+     *
+     * @param rows      source rows to sort
+     * @param column    column to sort by
+     * @param ascending true to sort in ascending order
+     */
+    private void sortByText(int[] rows, final int column, boolean ascending) {
+        Integer[] boxed = new Integer[rows.length];
+        for (int index = 0; index < rows.length; index++) {
+            boxed[index] = rows[index];
+        }
+        Comparator<Integer> comparator = new Comparator<Integer>() {
+            @Override
+            public int compare(Integer first, Integer second) {
+                return String.valueOf(getSourceValue(first, column)).compareTo(
+                        String.valueOf(getSourceValue(second, column)));
+            }
+        };
+        Arrays.sort(boxed, ascending ? comparator : Collections.reverseOrder(comparator));
+        for (int index = 0; index < rows.length; index++) {
+            rows[index] = boxed[index];
+        }
+    }
+
+    /**
+     * @param index position in the rows being arranged
+     * @throws CancellationException if the thread has been interrupted
+     */
+    private static void checkCancelled(int index) {
+        if (index % CANCELLATION_CHECK == 0 && Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Arranging the table was cancelled");
+        }
+    }
+}
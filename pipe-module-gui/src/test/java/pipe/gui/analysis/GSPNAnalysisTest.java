@@ -0,0 +1,26 @@
+package pipe.gui.analysis;
+
+import org.junit.Test;
+import pipe.gui.solver.SteadyStateSolvers;
+import pipe.gui.statespace.PetriNetHash;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class GSPNAnalysisTest {
+
+    @Test
+    public void storesTheResultsOfEachSolverUnderItsOwnKey() {
+        String stateSpaceKey = PetriNetHash.derive("state-space", "bounded");
+        List<String> solvers = SteadyStateSolvers.getNames();
+        Set<String> keys = new HashSet<>();
+        for (String solver : solvers) {
+            keys.add(PetriNetHash.derive(stateSpaceKey, GSPNAnalysis.getSolverOptions(solver)));
+        }
+        assertEquals(solvers.size(), keys.size());
+        assertFalse(keys.contains(stateSpaceKey));
+    }
+}
@@ -0,0 +1,229 @@
+package pipe.gui.executor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class AnalysisExecutorTest {
+
+    private static final long TIMEOUT_SECONDS = 10;
+
+    /**
+     * Time given to tasks that should not start to show that they do not
+     */
+    private static final long SETTLE_MILLIS = 100;
+
+    private AnalysisExecutor executor;
+
+    /**
+     * Released to let the blocking tasks finish
+     */
+    private CountDownLatch release;
+
+    private final AtomicInteger running = new AtomicInteger();
+
+    private final AtomicInteger maxRunning = new AtomicInteger();
+
+    private final AtomicInteger started = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        executor = new AnalysisExecutor(4);
+        release = new CountDownLatch(1);
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+    }
+
+    @Test
+    public void runsAtMostTheConcurrencyLimitOfAJobsTasksAtOnce() throws Exception {
+        AnalysisJob job = executor.newJob("limited", 2);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            results.add(job.submit(blocking(i)));
+        }
+        awaitStarted(2);
+        Thread.sleep(SETTLE_MILLIS);
+
+        assertEquals(2, started.get());
+        assertEquals(2, job.getActiveTasks());
+        assertEquals(3, job.getPendingTasks());
+        assertEquals(3, executor.getQueueDepth());
+
+        release.countDown();
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).get(TIMEOUT_SECONDS, TimeUnit.SECONDS).intValue());
+        }
+        assertEquals(2, maxRunning.get());
+        job.shutdown();
+        assertTrue(job.awaitTermination(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(5, job.getCompletedTasks());
+    }
+
+    @Test
+    public void jobsShareTheThreadsOfThePool() throws Exception {
+        executor = new AnalysisExecutor(2);
+        AnalysisJob first = executor.newJob("first", 2);
+        AnalysisJob second = executor.newJob("second", 2);
+        for (int i = 0; i < 2; i++) {
+            first.submit(blocking(i));
+            second.submit(blocking(i));
+        }
+        awaitStarted(2);
+        Thread.sleep(SETTLE_MILLIS);
+
+        assertEquals(2, started.get());
+        assertEquals(2, executor.getActiveThreads());
+        assertEquals(2, executor.getQueueDepth());
+        assertEquals(4, first.getActiveTasks() + second.getActiveTasks());
+
+        release.countDown();
+        first.shutdown();
+        second.shutdown();
+        assertTrue(first.awaitTermination(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(second.awaitTermination(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(2, maxRunning.get());
+        assertTrue(executor.getActiveJobs().isEmpty());
+    }
+
+    @Test
+    public void shutdownFinishesSubmittedTasksButRejectsNewOnes() throws Exception {
+        AnalysisJob job = executor.newJob("shut down", 1);
+        Future<Integer> first = job.submit(blocking(1));
+        Future<Integer> second = job.submit(blocking(2));
+        job.shutdown();
+
+        assertTrue(job.isShutdown());
+        assertFalse(job.isTerminated());
+        assertEquals(1, executor.getActiveJobs().size());
+        try {
+            job.execute(new Runnable() {
+                @Override
+                public void run() {
+                }
+            });
+            fail("The job accepted a task after it was shut down");
+        } catch (RejectedExecutionException e) {
+            assertFalse(job.awaitTermination(SETTLE_MILLIS, TimeUnit.MILLISECONDS));
+        }
+
+        release.countDown();
+        assertEquals(1, first.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).intValue());
+        assertEquals(2, second.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).intValue());
+        assertTrue(job.awaitTermination(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(executor.getActiveJobs().isEmpty());
+    }
+
+    @Test
+    public void shutdownNowCancelsWaitingTasksAndInterruptsRunningOnes() throws Exception {
+        AnalysisJob job = executor.newJob("stopped", 1);
+        final AtomicBoolean interrupted = new AtomicBoolean();
+        final CountDownLatch firstStarted = new CountDownLatch(1);
+        Future<?> first = job.submit(new Runnable() {
+            @Override
+            public void run() {
+                firstStarted.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    interrupted.set(true);
+                }
+            }
+        });
+        Future<Integer> second = job.submit(blocking(2));
+        Future<Integer> third = job.submit(blocking(3));
+        assertTrue(firstStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        List<Runnable> dropped = job.shutdownNow();
+
+        assertEquals(2, dropped.size());
+        assertTrue(second.isCancelled());
+        assertTrue(third.isCancelled());
+        assertTrue(job.awaitTermination(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(interrupted.get());
+        assertTrue(first.isDone());
+        assertEquals(0, job.getPendingTasks());
+        assertEquals(0, job.getActiveTasks());
+        assertTrue(executor.getActiveJobs().isEmpty());
+        assertEquals(0, started.get());
+    }
+
+    @Test
+    public void shutdownNowCancelsTasksWaitingInThePool() throws Exception {
+        executor = new AnalysisExecutor(1);
+        AnalysisJob busy = executor.newJob("busy", 1);
+        AnalysisJob stopped = executor.newJob("stopped", 2);
+        busy.submit(blocking(0));
+        awaitStarted(1);
+        Future<Integer> queued = stopped.submit(blocking(1));
+
+        assertTrue(stopped.shutdownNow().isEmpty());
+        assertFalse(stopped.isTerminated());
+
+        release.countDown();
+        assertTrue(stopped.awaitTermination(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(queued.isCancelled());
+        assertEquals(1, started.get());
+        busy.shutdown();
+        assertTrue(busy.awaitTermination(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsJobsWithoutConcurrency() {
+        executor.newJob("none", 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyPools() {
+        new AnalysisExecutor(0);
+    }
+
+    /**
+     * @param result value returned by the task
+     * @return task counting the tasks running at once until {@link #release} is released
+     */
+    private Callable<Integer> blocking(final int result) {
+        return new Callable<Integer>() {
+            @Override
+            public Integer call() throws InterruptedException {
+                started.incrementAndGet();
+                int now = running.incrementAndGet();
+                int max;
+                do {
+                    max = maxRunning.get();
+                } while (now > max && !maxRunning.compareAndSet(max, now));
+                try {
+                    release.await();
+                    return result;
+                } finally {
+                    running.decrementAndGet();
+                }
+            }
+        };
+    }
+
+    /**
+     * Waits for at least the given number of blocking tasks to start
+     */
+    private void awaitStarted(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (started.get() < count) {
+            assertTrue("Tasks did not start", System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+}
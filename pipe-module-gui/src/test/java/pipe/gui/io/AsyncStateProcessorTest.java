@@ -0,0 +1,130 @@
+package pipe.gui.io;
+
+import org.junit.Test;
+import pipe.gui.statespace.ExplorationProgress;
+import uk.ac.imperial.io.StateProcessor;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.HashedClassifiedState;
+import uk.ac.imperial.state.HashedStateBuilder;
+import uk.ac.imperial.utils.Pair;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AsyncStateProcessorTest {
+
+    private static final int CAPACITY = 4;
+
+    private static final int ENTRIES = 50;
+
+    @Test
+    public void writesEveryEntryInOrderWhenTheBuffersFill() throws IOException {
+        SlowProcessor delegate = new SlowProcessor();
+        ExplorationProgress progress = new ExplorationProgress();
+        AsyncStateProcessor processor = new AsyncStateProcessor(delegate, CAPACITY, progress);
+        for (int i = 0; i < ENTRIES; i++) {
+            processor.processTransitions(i, successor(i + 1));
+            processor.processState(state(i), i);
+        }
+        processor.close();
+
+        assertEquals(ENTRIES, delegate.transitions.size());
+        assertEquals(ENTRIES, delegate.states.size());
+        for (int i = 0; i < ENTRIES; i++) {
+            assertEquals(i, delegate.transitions.get(i).intValue());
+            assertEquals(i, delegate.states.get(i).intValue());
+        }
+        assertFalse(progress.getWriterSummary().isEmpty());
+    }
+
+    @Test
+    public void flushWaitsForTheEntriesProcessedSoFar() throws IOException {
+        SlowProcessor delegate = new SlowProcessor();
+        AsyncStateProcessor processor = new AsyncStateProcessor(delegate, CAPACITY, new ExplorationProgress());
+        for (int i = 0; i < CAPACITY; i++) {
+            processor.processTransitions(i, successor(i + 1));
+        }
+        processor.flush();
+        assertEquals(CAPACITY, delegate.transitions.size());
+        processor.close();
+    }
+
+    @Test
+    public void rethrowsErrorsOfTheWriterThreads() throws IOException {
+        StateProcessor failing = new StateProcessor() {
+            @Override
+            public void processTransitions(int state, Map<Integer, Pair<Double, Collection<String>>> successorRates) {
+                throw new OutOfMemoryError("Serialising the record");
+            }
+
+            @Override
+            public void processState(ClassifiedState state, int id) {
+            }
+        };
+        AsyncStateProcessor processor = new AsyncStateProcessor(failing, CAPACITY, new ExplorationProgress());
+        try {
+            for (int i = 0; i < ENTRIES * CAPACITY; i++) {
+                processor.processTransitions(i, successor(i + 1));
+            }
+            processor.flush();
+            fail("The writer failure was not rethrown");
+        } catch (StateStreamException e) {
+            assertTrue(e.getCause().getCause() instanceof OutOfMemoryError);
+        }
+        try {
+            processor.close();
+            fail("The writer failure was not rethrown on close");
+        } catch (StateStreamException e) {
+            assertTrue(e.getCause().getCause() instanceof OutOfMemoryError);
+        }
+    }
+
+    private static Map<Integer, Pair<Double, Collection<String>>> successor(int id) {
+        Map<Integer, Pair<Double, Collection<String>>> successors = new HashMap<>();
+        successors.put(id, new Pair<Double, Collection<String>>(1.0, Collections.singleton("T")));
+        return successors;
+    }
+
+    private static ClassifiedState state(int tokens) {
+        HashedStateBuilder builder = new HashedStateBuilder();
+        builder.placeWithToken("P", "Default", tokens);
+        return HashedClassifiedState.tangibleState(builder.build());
+    }
+
+    /**
+     * Records the ids it is given, taking a while over each so that the buffers fill
+     */
+    private static final class SlowProcessor implements StateProcessor {
+        private final List<Integer> transitions = Collections.synchronizedList(new ArrayList<Integer>());
+
+        private final List<Integer> states = Collections.synchronizedList(new ArrayList<Integer>());
+
+        @Override
+        public void processTransitions(int state, Map<Integer, Pair<Double, Collection<String>>> successorRates) {
+            pause();
+            transitions.add(state);
+        }
+
+        @Override
+        public void processState(ClassifiedState state, int id) {
+            pause();
+            states.add(id);
+        }
+
+        private static void pause() {
+            try {
+                TimeUnit.MILLISECONDS.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package pipe.gui.io;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.imperial.pipe.exceptions.PetriNetComponentException;
+import uk.ac.imperial.pipe.models.petrinet.ColoredToken;
+import uk.ac.imperial.pipe.models.petrinet.DiscretePlace;
+import uk.ac.imperial.pipe.models.petrinet.DiscreteTransition;
+import uk.ac.imperial.pipe.models.petrinet.PetriNet;
+import uk.ac.imperial.pipe.models.petrinet.Place;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.HashedClassifiedState;
+import uk.ac.imperial.state.HashedStateBuilder;
+import uk.ac.imperial.state.Record;
+import uk.ac.imperial.state.State;
+import uk.ac.imperial.utils.Pair;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import static org.junit.Assert.*;
+
+public class CompactStateIOTest {
+
+    private static final String TOKEN = "Default";
+
+    private static final int STATES = 50;
+
+    private CompactStateIO stateIO;
+
+    private Path transitions;
+
+    private Path states;
+
+    private Path compressed;
+
+    private Path decompressed;
+
+    @Before
+    public void setUp() throws IOException, PetriNetComponentException {
+        PetriNet petriNet = new PetriNet();
+        petriNet.addToken(new ColoredToken(TOKEN, Color.BLACK));
+        Place bounded = new DiscretePlace("P0", "P0");
+        bounded.setCapacity(3);
+        petriNet.add(bounded);
+        petriNet.add(new DiscretePlace("P1", "P1"));
+        petriNet.add(new DiscreteTransition("T0", "T0"));
+        petriNet.add(new DiscreteTransition("T1", "T1"));
+        stateIO = CompactStateIO.forPetriNet(petriNet, "test");
+
+        transitions = Files.createTempFile("transitions", ".bin");
+        states = Files.createTempFile("states", ".bin");
+        compressed = Files.createTempFile("compressed", ".bin");
+        decompressed = Files.createTempFile("decompressed", ".bin");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (Path file : Arrays.asList(transitions, states, compressed, decompressed)) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void readsWrittenRecords() throws IOException {
+        writeTransitions(true);
+        CompactStateIO reader = CompactStateIO.readHeader(transitions);
+        assertEquals(STATES, reader.getStateCount());
+        assertEquals(3 * STATES, reader.getTransitionCount());
+        assertEquals("test", reader.getExplorerOptions());
+
+        List<Record> records = new ArrayList<>();
+        try (InputStream stream = Files.newInputStream(transitions);
+             Input input = new Input(stream)) {
+            reader.skipHeader(input);
+            records.addAll(reader.readRecords(input));
+        }
+        assertEquals(STATES, records.size());
+        for (int state = 0; state < STATES; state++) {
+            Record record = records.get(state);
+            assertEquals(state, record.state);
+            Map<Integer, Pair<Double, Collection<String>>> expected = successors(state);
+            assertEquals(expected.keySet(), record.successors.keySet());
+            for (Map.Entry<Integer, Pair<Double, Collection<String>>> successor : expected.entrySet()) {
+                Pair<Double, Collection<String>> read = record.successors.get(successor.getKey());
+                assertEquals(successor.getValue().getLeft(), read.getLeft(), 0);
+                assertEquals(new ArrayList<>(successor.getValue().getRight()), new ArrayList<>(read.getRight()));
+            }
+        }
+    }
+
+    @Test
+    public void readsWrittenStates() throws IOException {
+        writeStates();
+        CompactStateIO reader = CompactStateIO.readHeader(states);
+        Map<Integer, ClassifiedState> read;
+        try (InputStream stream = Files.newInputStream(states);
+             Input input = new Input(stream)) {
+            reader.skipHeader(input);
+            read = reader.readStates(input);
+        }
+        assertEquals(STATES, read.size());
+        for (int id = 0; id < STATES; id++) {
+            ClassifiedState expected = state(id);
+            assertEquals(expected.asMap(), read.get(id).asMap());
+            assertEquals(expected.isTangible(), read.get(id).isTangible());
+        }
+        assertTrue(CompactStateIO.verify(states));
+    }
+
+    @Test
+    public void verifiesWrittenBinaries() throws IOException {
+        writeTransitions(true);
+        assertTrue(CompactStateIO.isCompact(transitions));
+        assertFalse(CompactStateIO.isCompressed(transitions));
+        assertTrue(CompactStateIO.verify(transitions));
+    }
+
+    @Test
+    public void rejectsBinariesWithoutASummary() throws IOException {
+        writeTransitions(false);
+        CompactStateIO reader = CompactStateIO.readHeader(transitions);
+        assertEquals(CompactStateIO.UNKNOWN_COUNT, reader.getStateCount());
+        assertFalse(reader.isComplete());
+        assertFalse(CompactStateIO.verify(transitions));
+    }
+
+    @Test
+    public void detectsCorruptedEntries() throws IOException {
+        writeTransitions(true);
+        byte[] bytes = Files.readAllBytes(transitions);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(transitions, bytes);
+        assertFalse(CompactStateIO.verify(transitions));
+    }
+
+    @Test
+    public void detectsTruncatedEntries() throws IOException {
+        writeTransitions(true);
+        byte[] bytes = Files.readAllBytes(transitions);
+        Files.write(transitions, Arrays.copyOf(bytes, bytes.length - 1));
+        assertFalse(CompactStateIO.verify(transitions));
+    }
+
+    @Test
+    public void appendedEntriesContinueTheChecksum() throws IOException {
+        writeTransitions(false);
+        CRC32 checksum = CompactStateIO.entryChecksum(transitions);
+        CompactStateIO.writeSummary(transitions, STATES, 3 * STATES, checksum.getValue());
+        assertTrue(CompactStateIO.readHeader(transitions).isComplete());
+        assertTrue(CompactStateIO.verify(transitions));
+    }
+
+    @Test
+    public void decompressesToTheOriginalBinary() throws IOException {
+        writeTransitions(true);
+        CompactStateIO.compress(transitions, compressed);
+        assertTrue(CompactStateIO.isCompact(compressed));
+        assertTrue(CompactStateIO.isCompressed(compressed));
+
+        CompactStateIO.decompress(compressed, decompressed);
+        assertArrayEquals(Files.readAllBytes(transitions), Files.readAllBytes(decompressed));
+        assertTrue(CompactStateIO.verify(decompressed));
+    }
+
+    @Test(expected = IOException.class)
+    public void refusesToReadCompressedBinaries() throws IOException {
+        writeTransitions(true);
+        CompactStateIO.compress(transitions, compressed);
+        CompactStateIO.readHeader(compressed);
+    }
+
+    /**
+     * Writes the transitions of every state, checksumming the entries as the explorers do
+     *
+     * @param summarise true if the summary should be filled in once the entries are written
+     */
+    private void writeTransitions(boolean summarise) throws IOException {
+        long checksum;
+        try (CheckedOutputStream stream = new CheckedOutputStream(Files.newOutputStream(transitions), new CRC32())) {
+            try (Output output = new Output(stream, 256)) {
+                stateIO.writeHeader(output);
+                output.flush();
+                stream.getChecksum().reset();
+                for (int state = 0; state < STATES; state++) {
+                    stateIO.transitionTo(output, state, successors(state));
+                }
+            }
+            checksum = stream.getChecksum().getValue();
+        }
+        if (summarise) {
+            CompactStateIO.writeSummary(transitions, STATES, 3 * STATES, checksum);
+        }
+    }
+
+    private void writeStates() throws IOException {
+        long checksum;
+        try (CheckedOutputStream stream = new CheckedOutputStream(Files.newOutputStream(states), new CRC32())) {
+            try (Output output = new Output(stream, 256)) {
+                stateIO.writeHeader(output);
+                output.flush();
+                stream.getChecksum().reset();
+                for (int id = 0; id < STATES; id++) {
+                    stateIO.outputState(output, state(id), id);
+                }
+            }
+            checksum = stream.getChecksum().getValue();
+        }
+        CompactStateIO.writeSummary(states, STATES, 3 * STATES, checksum);
+    }
+
+    /**
+     * @param state source state
+     * @return three successors, before and after the state so that the deltas are both signs, one of them
+     *         through a transition that is not in the dictionary
+     */
+    private static Map<Integer, Pair<Double, Collection<String>>> successors(int state) {
+        Map<Integer, Pair<Double, Collection<String>>> successors = new HashMap<>();
+        successors.put((state + 1) % STATES, new Pair<Double, Collection<String>>(1.5, Arrays.asList("T0")));
+        successors.put((state + STATES - 7) % STATES,
+                new Pair<Double, Collection<String>>(0.25, Arrays.asList("T0", "T1")));
+        successors.put((state + 13) % STATES, new Pair<Double, Collection<String>>(3.0 + state, Arrays.asList("T2")));
+        return successors;
+    }
+
+    /**
+     * @param id state id
+     * @return state with at most the capacity of the bounded place and any number on the other
+     */
+    private static ClassifiedState state(int id) {
+        State state = new HashedStateBuilder().placeWithToken("P0", TOKEN, id % 4)
+                .placeWithToken("P1", TOKEN, id * 1000).build();
+        return id % 2 == 0 ? HashedClassifiedState.tangibleState(state) : HashedClassifiedState.vanishingState(state);
+    }
+}
@@ -0,0 +1,71 @@
+package pipe.gui.io;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class OffsetIndexTest {
+
+    private Path index;
+
+    @Before
+    public void setUp() throws IOException {
+        index = Files.createTempFile("offsets", OffsetIndex.INDEX_SUFFIX);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(index);
+    }
+
+    @Test
+    public void readsEntriesWrittenOutOfOrder() throws IOException {
+        try (OffsetIndexWriter writer = new OffsetIndexWriter(index)) {
+            writer.write(3, 300, 30);
+            writer.write(0, 0, 10);
+            writer.write(1, 10, 20);
+        }
+        try (OffsetIndex read = new OffsetIndex(index)) {
+            assertEquals(3, read.size());
+            assertEquals(4, read.capacity());
+            assertTrue(read.contains(0));
+            assertFalse(read.contains(2));
+            assertEquals(300, read.offset(3));
+            assertEquals(30, read.length(3));
+            assertEquals(10, read.offset(1));
+        }
+    }
+
+    @Test
+    public void resumedIndexKeepsItsEntries() throws IOException {
+        try (OffsetIndexWriter writer = new OffsetIndexWriter(index)) {
+            writer.write(0, 0, 10);
+        }
+        try (OffsetIndexWriter writer = new OffsetIndexWriter(index, false)) {
+            writer.write(1, 10, 5);
+        }
+        try (OffsetIndex read = new OffsetIndex(index)) {
+            assertEquals(2, read.size());
+            assertEquals(10, read.length(0));
+            assertEquals(5, read.length(1));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void refusesFilesWithoutTheHeader() throws IOException {
+        Files.write(index, new byte[2 * OffsetIndex.ENTRY_SIZE]);
+        new OffsetIndex(index).close();
+    }
+
+    @Test(expected = IOException.class)
+    public void refusesToResumeFilesWithoutTheHeader() throws IOException {
+        Files.write(index, new byte[OffsetIndex.HEADER_SIZE + OffsetIndex.ENTRY_SIZE]);
+        new OffsetIndexWriter(index, false).close();
+    }
+}
@@ -0,0 +1,164 @@
+package pipe.gui.io;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import pipe.gui.statespace.PetriNetHash;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ResultStoreTest {
+
+    private static final String FILE = "steady-state";
+
+    /**
+     * Size of each stored file, much larger than the manifest so that the budget counts entries
+     */
+    private static final int FILE_SIZE = 10000;
+
+    private Path directory;
+
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("results");
+        file = Files.createTempFile("result", ".tmp");
+        byte[] contents = new byte[FILE_SIZE];
+        for (int i = 0; i < contents.length; i++) {
+            contents[i] = (byte) i;
+        }
+        Files.write(file, contents);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) throws IOException {
+                Files.delete(path);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Test
+    public void readsBackStoredFilesAndProperties() throws IOException {
+        ResultStore store = new ResultStore(directory, Long.MAX_VALUE);
+        store.put("key", files(), Collections.singletonMap("states", "42"));
+
+        ResultStore.StoredResult stored = new ResultStore(directory, Long.MAX_VALUE).get("key");
+        assertNotNull(stored);
+        assertEquals("42", stored.getProperty("states"));
+        assertNull(stored.getProperty("transitions"));
+        assertNull(stored.getFile("throughputs"));
+        assertArrayEquals(Files.readAllBytes(file), Files.readAllBytes(stored.getFile(FILE)));
+    }
+
+    @Test
+    public void missingEntriesAreNotFound() {
+        assertNull(new ResultStore(directory, Long.MAX_VALUE).get("key"));
+    }
+
+    @Test
+    public void replacesEntriesStoredUnderTheSameKey() throws IOException {
+        ResultStore store = new ResultStore(directory, Long.MAX_VALUE);
+        store.put("key", files(), Collections.singletonMap("states", "1"));
+        store.put("key", files(), Collections.singletonMap("states", "2"));
+        assertEquals("2", store.get("key").getProperty("states"));
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedEntriesOverBudget() throws IOException {
+        ResultStore store = new ResultStore(directory, 2 * FILE_SIZE + FILE_SIZE / 2);
+        store.put("first", files(), noProperties());
+        store.put("second", files(), noProperties());
+        lastUsed("first", 1000);
+        lastUsed("second", 2000);
+        assertNotNull(store.get("first"));
+
+        store.put("third", files(), noProperties());
+        assertNotNull(store.get("first"));
+        assertNull(store.get("second"));
+        assertNotNull(store.get("third"));
+        assertFalse(Files.exists(directory.resolve("second")));
+    }
+
+    @Test
+    public void keepsTheNewEntryEvenIfItIsOverBudget() throws IOException {
+        ResultStore store = new ResultStore(directory, FILE_SIZE / 2);
+        store.put("first", files(), noProperties());
+        store.put("second", files(), noProperties());
+        assertNull(store.get("first"));
+        assertNotNull(store.get("second"));
+    }
+
+    @Test
+    public void rejectsAndDeletesCorruptedEntries() throws IOException {
+        new ResultStore(directory, Long.MAX_VALUE).put("key", files(), noProperties());
+        Path stored = directory.resolve("key").resolve(FILE);
+        byte[] contents = Files.readAllBytes(stored);
+        contents[FILE_SIZE / 2] ^= 1;
+        Files.write(stored, contents);
+
+        assertNull(new ResultStore(directory, Long.MAX_VALUE).get("key"));
+        assertFalse(Files.exists(directory.resolve("key")));
+    }
+
+    @Test
+    public void rejectsTruncatedEntries() throws IOException {
+        new ResultStore(directory, Long.MAX_VALUE).put("key", files(), noProperties());
+        Path stored = directory.resolve("key").resolve(FILE);
+        Files.newByteChannel(stored, StandardOpenOption.WRITE).truncate(FILE_SIZE / 2).close();
+
+        assertNull(new ResultStore(directory, Long.MAX_VALUE).get("key"));
+        assertFalse(Files.exists(directory.resolve("key")));
+    }
+
+    @Test
+    public void keepsResultsDerivedWithDifferentOptionsApart() throws IOException {
+        String stateSpaceKey = PetriNetHash.derive("state-space", "bounded");
+        String first = PetriNetHash.derive(stateSpaceKey, "gauss-seidel");
+        String second = PetriNetHash.derive(stateSpaceKey, "jacobi");
+        assertFalse(first.equals(second));
+
+        ResultStore store = new ResultStore(directory, Long.MAX_VALUE);
+        store.put(first, files(), Collections.singletonMap("solver", "gauss-seidel"));
+        store.put(second, files(), Collections.singletonMap("solver", "jacobi"));
+        assertEquals("gauss-seidel", store.get(first).getProperty("solver"));
+        assertEquals("jacobi", store.get(second).getProperty("solver"));
+    }
+
+    private Map<String, Path> files() {
+        return Collections.singletonMap(FILE, file);
+    }
+
+    private static Map<String, String> noProperties() {
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Sets when the entry was last used, as recorded by the modification time of its manifest
+     */
+    private void lastUsed(String key, long millis) throws IOException {
+        Files.setLastModifiedTime(directory.resolve(key).resolve("manifest.properties"), FileTime.fromMillis(millis));
+    }
+}
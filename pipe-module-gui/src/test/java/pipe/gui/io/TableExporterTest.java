@@ -0,0 +1,146 @@
+package pipe.gui.io;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableModel;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class TableExporterTest {
+
+    private static final byte[] MAGIC = "PIPECOL1".getBytes(StandardCharsets.US_ASCII);
+
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("table", ".out");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Thread.interrupted();
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void writesCsvWithAHeaderAndQuotedText() throws IOException {
+        assertEquals(3, TableExporter.writeCsv(table(), file));
+        String expected = "State,Probability,\"Marking, P0\"\n" +
+                "0,0.25,P0=1\n" +
+                "1,0.5,\"P0=\"\"many\"\", P1=2\"\n" +
+                "2,,\n";
+        assertEquals(expected, new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void writesColumnarValuesColumnByColumn() throws IOException {
+        assertEquals(3, TableExporter.writeColumnar(table(), file));
+        try (InputStream stream = Files.newInputStream(file);
+             DataInputStream input = new DataInputStream(stream)) {
+            assertMagic(input);
+            assertEquals(3, input.readInt());
+            assertEquals("State", input.readUTF());
+            assertEquals(TableExporter.INT32, input.readByte());
+            assertEquals("Probability", input.readUTF());
+            assertEquals(TableExporter.FLOAT64, input.readByte());
+            assertEquals("Marking, P0", input.readUTF());
+            assertEquals(TableExporter.STRING, input.readByte());
+
+            assertEquals(3, input.readInt());
+            for (int state = 0; state < 3; state++) {
+                assertEquals(state, input.readInt());
+            }
+            assertEquals(0.25, input.readDouble(), 0);
+            assertEquals(0.5, input.readDouble(), 0);
+            assertTrue(Double.isNaN(input.readDouble()));
+            assertEquals("P0=1", input.readUTF());
+            assertEquals("P0=\"many\", P1=2", input.readUTF());
+            assertEquals("", input.readUTF());
+
+            assertEquals(1, input.readInt());
+            input.readLong();
+            assertEquals(3, input.readLong());
+            input.readLong();
+            assertMagic(input);
+            assertEquals(-1, input.read());
+        }
+    }
+
+    @Test
+    public void footerLocatesEachGroupOfRows() throws IOException {
+        TableExporter.writeColumnar(table(), file);
+        try (RandomAccessFile input = new RandomAccessFile(file.toFile(), "r")) {
+            input.seek(input.length() - MAGIC.length - 16);
+            assertEquals(3, input.readLong());
+            long footer = input.readLong();
+            input.seek(footer);
+            assertEquals(1, input.readInt());
+            input.seek(input.readLong());
+            assertEquals(3, input.readInt());
+            assertEquals(0, input.readInt());
+        }
+    }
+
+    @Test
+    public void writesTheHeaderOfAnEmptyTable() throws IOException {
+        DefaultTableModel empty = new DefaultTableModel(new Object[]{"State"}, 0);
+        assertEquals(0, TableExporter.writeCsv(empty, file));
+        assertEquals("State\n", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+
+        assertEquals(0, TableExporter.writeColumnar(empty, file));
+        try (RandomAccessFile input = new RandomAccessFile(file.toFile(), "r")) {
+            input.seek(input.length() - MAGIC.length - 16);
+            assertEquals(0, input.readLong());
+            input.seek(input.readLong());
+            assertEquals(0, input.readInt());
+        }
+    }
+
+    @Test(expected = InterruptedIOException.class)
+    public void csvExportStopsWhenInterrupted() throws IOException {
+        Thread.currentThread().interrupt();
+        TableExporter.writeCsv(table(), file);
+    }
+
+    @Test(expected = InterruptedIOException.class)
+    public void columnarExportStopsWhenInterrupted() throws IOException {
+        Thread.currentThread().interrupt();
+        TableExporter.writeColumnar(table(), file);
+    }
+
+    private static void assertMagic(DataInputStream input) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        input.readFully(magic);
+        assertArrayEquals(MAGIC, magic);
+    }
+
+    /**
+     * @return table of integer, number and text columns, with text that must be quoted and missing values
+     */
+    private static TableModel table() {
+        DefaultTableModel model = new DefaultTableModel(new Object[]{"State", "Probability", "Marking, P0"}, 0) {
+            private final Class<?>[] classes = {Integer.class, Double.class, String.class};
+
+            @Override
+            public Class<?> getColumnClass(int column) {
+                return classes[column];
+            }
+        };
+        model.addRow(new Object[]{0, 0.25, "P0=1"});
+        model.addRow(new Object[]{1, 0.5, "P0=\"many\", P1=2"});
+        model.addRow(new Object[]{2, null, null});
+        return model;
+    }
+}
@@ -0,0 +1,192 @@
+package pipe.gui.solver;
+
+import org.junit.Test;
+import pipe.gui.statespace.CompactStateSpaceBuilder;
+import uk.ac.imperial.state.Record;
+import uk.ac.imperial.utils.Pair;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GeneratorMatrixTest {
+
+    private static final double DELTA = 1e-9;
+
+    private static final int STATES = 40;
+
+    /**
+     * Chance of a transition between any two states
+     */
+    private static final double DENSITY = 0.15;
+
+    private static final long SEED = 42;
+
+    @Test
+    public void multipliesLikeTheDenseGenerator() {
+        double[][] rates = randomRates();
+        double[] x = randomVector();
+        double[] expected = denseProduct(rates, x);
+        for (GeneratorMatrix matrix : matrices(rates)) {
+            double[] result = new double[STATES];
+            matrix.multiply(x, result, 0, STATES);
+            assertArrayEquals(expected, result, DELTA);
+        }
+    }
+
+    @Test
+    public void multipliesOnlyTheRequestedStates() {
+        double[][] rates = randomRates();
+        double[] x = randomVector();
+        double[] expected = denseProduct(rates, x);
+        GeneratorMatrix matrix = GeneratorMatrixBuilder.build(records(rates));
+        double[] result = new double[STATES];
+        matrix.multiply(x, result, 10, 25);
+        for (int index = 0; index < STATES; index++) {
+            assertEquals("state " + index, index >= 10 && index < 25 ? expected[index] : 0, result[index], DELTA);
+        }
+    }
+
+    @Test
+    public void dropsSelfLoopsFromTheExitRates() {
+        double[][] rates = randomRates();
+        for (GeneratorMatrix matrix : matrices(rates)) {
+            double max = 0;
+            for (int state = 0; state < STATES; state++) {
+                double exit = 0;
+                for (int successor = 0; successor < STATES; successor++) {
+                    if (successor != state) {
+                        exit += rates[state][successor];
+                    }
+                }
+                assertEquals(exit, matrix.getExitRate(state), DELTA);
+                assertEquals(exit > 0 ? 1 / exit : 0, matrix.getInverseExitRate(state), DELTA);
+                max = Math.max(max, exit);
+            }
+            assertEquals(max, matrix.getMaxExitRate(), DELTA);
+            assertEquals(offDiagonalTransitions(rates), matrix.getTransitionCount());
+        }
+    }
+
+    @Test
+    public void residualIsTheLargestScaledEntryOfTheDenseProduct() {
+        double[][] rates = randomRates();
+        double[] x = randomVector();
+        double[] product = denseProduct(rates, x);
+        GeneratorMatrix matrix = GeneratorMatrixBuilder.build(records(rates));
+        double expected = 0;
+        for (int state = 0; state < STATES; state++) {
+            expected = Math.max(expected, Math.abs(product[state]) / matrix.getResidualScale(state));
+        }
+        assertEquals(expected, matrix.residual(x), DELTA);
+    }
+
+    @Test
+    public void countsStatesThatAreOnlyEverReached() {
+        double[][] rates = new double[3][3];
+        rates[0][2] = 2;
+        List<Record> records = records(rates).subList(0, 1);
+        GeneratorMatrix matrix = GeneratorMatrixBuilder.build(records);
+        double[] result = new double[3];
+        matrix.multiply(new double[]{1, 1, 1}, result, 0, 3);
+
+        assertEquals(3, matrix.getStateCount());
+        assertEquals(0, matrix.getExitRate(2), 0);
+        assertArrayEquals(new double[]{-2, 0, 2}, result, DELTA);
+    }
+
+    /**
+     * @return generators built from the records and from the compact state space of the same rates
+     */
+    private static List<GeneratorMatrix> matrices(double[][] rates) {
+        List<GeneratorMatrix> matrices = new ArrayList<>();
+        matrices.add(GeneratorMatrixBuilder.build(records(rates)));
+        matrices.add(GeneratorMatrixBuilder.build(CompactStateSpaceBuilder.build(records(rates))));
+        return matrices;
+    }
+
+    /**
+     * Computes {@code x Q} with Q built densely from the rates, ignoring self loops
+     */
+    private static double[] denseProduct(double[][] rates, double[] x) {
+        int n = rates.length;
+        double[][] generator = new double[n][n];
+        for (int state = 0; state < n; state++) {
+            for (int successor = 0; successor < n; successor++) {
+                if (successor != state) {
+                    generator[state][successor] = rates[state][successor];
+                    generator[state][state] -= rates[state][successor];
+                }
+            }
+        }
+        double[] product = new double[n];
+        for (int column = 0; column < n; column++) {
+            for (int row = 0; row < n; row++) {
+                product[column] += x[row] * generator[row][column];
+            }
+        }
+        return product;
+    }
+
+    /**
+     * @return sparse rates with self loops and an absorbing state
+     */
+    private static double[][] randomRates() {
+        Random random = new Random(SEED);
+        double[][] rates = new double[STATES][STATES];
+        for (int state = 0; state < STATES - 1; state++) {
+            for (int successor = 0; successor < STATES; successor++) {
+                if (random.nextDouble() < DENSITY) {
+                    rates[state][successor] = 0.01 + random.nextDouble() * 100;
+                }
+            }
+        }
+        return rates;
+    }
+
+    private static double[] randomVector() {
+        Random random = new Random(SEED + 1);
+        double[] x = new double[STATES];
+        for (int state = 0; state < STATES; state++) {
+            x[state] = random.nextDouble();
+        }
+        return x;
+    }
+
+    private static int offDiagonalTransitions(double[][] rates) {
+        int count = 0;
+        for (int state = 0; state < rates.length; state++) {
+            for (int successor = 0; successor < rates.length; successor++) {
+                if (successor != state && rates[state][successor] > 0) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param rates rate from each state to each other state
+     * @return transition record of each state
+     */
+    private static List<Record> records(double[][] rates) {
+        List<Record> records = new ArrayList<>();
+        for (int state = 0; state < rates.length; state++) {
+            Map<Integer, Pair<Double, Collection<String>>> successors = new HashMap<>();
+            for (int successor = 0; successor < rates.length; successor++) {
+                if (rates[state][successor] > 0) {
+                    successors.put(successor,
+                            new Pair<Double, Collection<String>>(rates[state][successor], Collections.singleton("T")));
+                }
+            }
+            records.add(new Record(state, successors));
+        }
+        return records;
+    }
+}
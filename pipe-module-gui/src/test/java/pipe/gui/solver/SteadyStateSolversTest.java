@@ -0,0 +1,240 @@
+package pipe.gui.solver;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import pipe.gui.statespace.CompactStateSpace;
+import pipe.gui.statespace.CompactStateSpaceBuilder;
+import uk.ac.imperial.state.Record;
+import uk.ac.imperial.utils.Pair;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SteadyStateSolversTest {
+
+    private static final double DELTA = 1e-6;
+
+    private static final int THREADS = 2;
+
+    private ExecutorService executorService;
+
+    @Before
+    public void setUp() {
+        executorService = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void registersTheDefaultSolver() {
+        assertTrue(SteadyStateSolvers.getNames().contains(SteadyStateSolvers.DEFAULT));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownSolvers() {
+        SteadyStateSolvers.create("Unknown", THREADS, executorService);
+    }
+
+    /**
+     * Birth death chain whose steady state is proportional to (birth / death) to the power of the state
+     */
+    @Test
+    public void solversAgreeOnBirthDeathChain() {
+        int states = 6;
+        double[][] rates = new double[states][states];
+        double[] expected = new double[states];
+        for (int i = 0; i < states; i++) {
+            if (i + 1 < states) {
+                rates[i][i + 1] = 2;
+            }
+            if (i > 0) {
+                rates[i][i - 1] = 3;
+            }
+            expected[i] = Math.pow(2.0 / 3, i);
+        }
+        assertSolversAgree(rates, normalise(expected));
+    }
+
+    /**
+     * Cycle that is not reversible, whose steady state is proportional to the mean time spent in each state
+     */
+    @Test
+    public void solversAgreeOnCycle() {
+        double[][] rates = {
+                {0, 1, 0, 0},
+                {0, 0, 2, 0},
+                {0, 0, 0, 4},
+                {8, 0, 0, 0}};
+        assertSolversAgree(rates, normalise(new double[]{1, 1.0 / 2, 1.0 / 4, 1.0 / 8}));
+    }
+
+    /**
+     * Chain with rates several orders of magnitude apart, which slows the iterative solvers down
+     */
+    @Test
+    public void solversAgreeOnStiffChain() {
+        double[][] rates = {
+                {0, 1000, 0},
+                {0.01, 0, 1},
+                {1, 0, 0}};
+        assertSolversAgree(rates, exact(rates));
+    }
+
+    @Test
+    public void iterativeSolversStopWhenInterrupted() {
+        CompactStateSpace stateSpace = CompactStateSpaceBuilder.build(records(cycle(10)));
+        for (String name : SteadyStateSolvers.getNames()) {
+            MonitoredSolver solver = SteadyStateSolvers.create(name, THREADS, executorService);
+            if (!(solver instanceof IterativeSolver)) {
+                continue;
+            }
+            Thread.currentThread().interrupt();
+            try {
+                solver.solve(stateSpace);
+                fail(name + " solved the steady state whilst interrupted");
+            } catch (IllegalStateException e) {
+                assertTrue(name, Thread.currentThread().isInterrupted());
+            } finally {
+                Thread.interrupted();
+            }
+        }
+    }
+
+    /**
+     * Cancels a solve that would otherwise run until its iterations run out
+     */
+    @Test
+    public void cancellingStopsTheSolve() throws Exception {
+        final CompactStateSpace stateSpace = CompactStateSpaceBuilder.build(records(cycle(1000)));
+        final MonitoredSolver solver = new SorSolver(0, Integer.MAX_VALUE, 1, false);
+        ExecutorService solving = Executors.newSingleThreadExecutor();
+        Future<double[]> future = solving.submit(new Callable<double[]>() {
+            @Override
+            public double[] call() {
+                return solver.solve(stateSpace);
+            }
+        });
+        Thread.sleep(100);
+        future.cancel(true);
+        solving.shutdown();
+        assertTrue(solving.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    private void assertSolversAgree(double[][] rates, double[] expected) {
+        CompactStateSpace stateSpace = CompactStateSpaceBuilder.build(records(rates));
+        for (String name : SteadyStateSolvers.getNames()) {
+            MonitoredSolver solver = SteadyStateSolvers.create(name, THREADS, executorService);
+            double[] steadyState = solver.solve(stateSpace);
+            assertArrayEquals(name, expected, steadyState, DELTA);
+            assertNotNull(name, solver.getTelemetry());
+            assertTrue(name, solver.getTelemetry().isConverged());
+        }
+    }
+
+    /**
+     * @param states number of states
+     * @return rates of a cycle with a different rate out of each state
+     */
+    private static double[][] cycle(int states) {
+        double[][] rates = new double[states][states];
+        for (int state = 0; state < states; state++) {
+            rates[state][(state + 1) % states] = state + 1;
+        }
+        return rates;
+    }
+
+    /**
+     * @param rates rate from each state to each other state
+     * @return transition record of each state
+     */
+    private static List<Record> records(double[][] rates) {
+        List<Record> records = new ArrayList<>();
+        for (int state = 0; state < rates.length; state++) {
+            Map<Integer, Pair<Double, Collection<String>>> successors = new HashMap<>();
+            for (int successor = 0; successor < rates.length; successor++) {
+                if (rates[state][successor] > 0) {
+                    successors.put(successor,
+                            new Pair<Double, Collection<String>>(rates[state][successor], Collections.singleton("T")));
+                }
+            }
+            records.add(new Record(state, successors));
+        }
+        return records;
+    }
+
+    /**
+     * Solves the balance equations directly, replacing the first with the normalisation condition
+     *
+     * @param rates rate from each state to each other state
+     * @return steady state probability of each state
+     */
+    private static double[] exact(double[][] rates) {
+        int n = rates.length;
+        double[][] system = new double[n][n + 1];
+        for (int state = 0; state < n; state++) {
+            double exit = 0;
+            for (int successor = 0; successor < n; successor++) {
+                if (successor != state) {
+                    exit += rates[state][successor];
+                    system[successor][state] = rates[state][successor];
+                }
+            }
+            system[state][state] = -exit;
+        }
+        for (int state = 0; state < n; state++) {
+            system[0][state] = 1;
+        }
+        system[0][n] = 1;
+        for (int column = 0; column < n; column++) {
+            int pivot = column;
+            for (int row = column + 1; row < n; row++) {
+                if (Math.abs(system[row][column]) > Math.abs(system[pivot][column])) {
+                    pivot = row;
+                }
+            }
+            double[] swap = system[column];
+            system[column] = system[pivot];
+            system[pivot] = swap;
+            for (int row = 0; row < n; row++) {
+                if (row != column) {
+                    double factor = system[row][column] / system[column][column];
+                    for (int k = column; k <= n; k++) {
+                        system[row][k] -= factor * system[column][k];
+                    }
+                }
+            }
+        }
+        double[] steadyState = new double[n];
+        for (int state = 0; state < n; state++) {
+            steadyState[state] = system[state][n] / system[state][state];
+        }
+        return steadyState;
+    }
+
+    private static double[] normalise(double[] weights) {
+        double total = 0;
+        for (double weight : weights) {
+            total += weight;
+        }
+        double[] normalised = new double[weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            normalised[i] = weights[i] / total;
+        }
+        return normalised;
+    }
+}
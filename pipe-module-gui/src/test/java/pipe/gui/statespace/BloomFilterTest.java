@@ -0,0 +1,77 @@
+package pipe.gui.statespace;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BloomFilterTest {
+
+    private static final int STATES = 10000;
+
+    @Test
+    public void hasNoFalseNegatives() {
+        List<PackedState> states = randomStates(new Random(1), STATES, 2);
+        BloomFilter filter = new BloomFilter(STATES, 10);
+        for (PackedState state : states) {
+            filter.add(state);
+        }
+        for (PackedState state : states) {
+            assertTrue(filter.mightContain(state));
+        }
+    }
+
+    @Test
+    public void hasNoFalseNegativesWhenOverfilled() {
+        List<PackedState> states = randomStates(new Random(2), STATES, 1);
+        BloomFilter filter = new BloomFilter(1, 10);
+        for (PackedState state : states) {
+            filter.add(state);
+        }
+        for (PackedState state : states) {
+            assertTrue(filter.mightContain(state));
+        }
+    }
+
+    @Test
+    public void hasNoFalseNegativesForSimilarStates() {
+        BloomFilter filter = new BloomFilter(STATES, 10);
+        for (int i = 0; i < STATES; i++) {
+            filter.add(new PackedState(new long[]{2L * i + 1}));
+        }
+        for (int i = 0; i < STATES; i++) {
+            assertTrue(filter.mightContain(new PackedState(new long[]{2L * i + 1})));
+        }
+    }
+
+    @Test
+    public void rejectsMostStatesNotAdded() {
+        Random random = new Random(3);
+        BloomFilter filter = new BloomFilter(STATES, 10);
+        for (PackedState state : randomStates(random, STATES, 2)) {
+            filter.add(state);
+        }
+        int falsePositives = 0;
+        for (PackedState state : randomStates(random, STATES, 2)) {
+            if (filter.mightContain(state)) {
+                falsePositives++;
+            }
+        }
+        assertTrue("False positive rate " + falsePositives / (double) STATES, falsePositives < STATES / 20);
+    }
+
+    private static List<PackedState> randomStates(Random random, int count, int words) {
+        List<PackedState> states = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long[] state = new long[words];
+            for (int word = 0; word < words; word++) {
+                state[word] = random.nextLong();
+            }
+            states.add(new PackedState(state));
+        }
+        return states;
+    }
+}
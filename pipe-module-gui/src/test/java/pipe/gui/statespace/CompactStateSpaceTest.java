@@ -0,0 +1,204 @@
+package pipe.gui.statespace;
+
+import com.esotericsoftware.kryo.io.Output;
+import org.junit.Test;
+import pipe.gui.io.CompactStateIO;
+import pipe.gui.io.OffsetIndex;
+import pipe.gui.io.StreamingStateReader;
+import uk.ac.imperial.pipe.exceptions.PetriNetComponentException;
+import uk.ac.imperial.pipe.models.petrinet.PetriNet;
+import uk.ac.imperial.state.Record;
+import uk.ac.imperial.utils.Pair;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import static org.junit.Assert.*;
+import static pipe.gui.statespace.ExampleNets.*;
+
+public class CompactStateSpaceTest {
+
+    private static final int STATES = 50;
+
+    /**
+     * Successors of every state in {@link #records()}
+     */
+    private static final int SUCCESSORS = 3;
+
+    /**
+     * Distinct labels that fit in the unsigned short label ids
+     */
+    private static final int MAX_LABELS = 1 << 16;
+
+    @Test
+    public void returnsTheRecordsItWasBuiltFrom() {
+        List<Record> records = records();
+        CompactStateSpace stateSpace = CompactStateSpaceBuilder.build(records);
+
+        assertEquals(STATES, stateSpace.getStateCount());
+        assertEquals(STATES, stateSpace.getExploredStateCount());
+        assertEquals(SUCCESSORS * STATES, stateSpace.getTransitionCount());
+        assertRecordsEqual(records, stateSpace.asRecordList());
+    }
+
+    @Test
+    public void sharesLabelIdsBetweenEdgesFiringTheSameTransitions() {
+        CompactStateSpace stateSpace = CompactStateSpaceBuilder.build(records());
+
+        assertEquals(3, stateSpace.getLabelTable().size());
+        assertEquals(new HashSet<>(Arrays.<Collection<String>>asList(Arrays.asList("T0"), Arrays.asList("T0", "T1"),
+                Arrays.asList("T2"))), new HashSet<>(stateSpace.getLabelTable()));
+        for (int edge = 0; edge < stateSpace.getTransitionCount(); edge++) {
+            int id = stateSpace.getLabelId(edge);
+            assertSame(stateSpace.getLabelTable().get(id), stateSpace.getLabel(edge));
+        }
+    }
+
+    @Test
+    public void ignoresTheOrderOfTheTransitionsInALabel() {
+        Map<Integer, Pair<Double, Collection<String>>> successors = new HashMap<>();
+        successors.put(1, new Pair<Double, Collection<String>>(1.0, Arrays.asList("T1", "T0")));
+        successors.put(2, new Pair<Double, Collection<String>>(2.0, Arrays.asList("T0", "T1")));
+        CompactStateSpace stateSpace =
+                CompactStateSpaceBuilder.build(Collections.singletonList(new Record(0, successors)));
+
+        assertEquals(stateSpace.getLabelId(0), stateSpace.getLabelId(1));
+        assertEquals(Collections.singletonList(Arrays.asList("T0", "T1")), stateSpace.getLabelTable());
+    }
+
+    @Test
+    public void readsLabelIdsAboveTheSignedShortRangeAsUnsigned() {
+        List<Record> records = new ArrayList<>();
+        for (int state = 0; state < MAX_LABELS; state++) {
+            records.add(new Record(state, Collections.singletonMap(state + 1,
+                    new Pair<Double, Collection<String>>(1.0, Collections.singleton("T" + state)))));
+        }
+        CompactStateSpace stateSpace = CompactStateSpaceBuilder.build(records);
+
+        assertEquals(MAX_LABELS, stateSpace.getLabelTable().size());
+        for (int edge : new int[]{0, Short.MAX_VALUE, Short.MAX_VALUE + 1, MAX_LABELS - 1}) {
+            assertEquals(edge, stateSpace.getLabelId(edge));
+            assertEquals(Collections.singletonList("T" + edge), stateSpace.getLabel(edge));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsMoreLabelsThanFitInTheIds() {
+        List<Record> records = new ArrayList<>();
+        for (int state = 0; state <= MAX_LABELS; state++) {
+            records.add(new Record(state, Collections.singletonMap(state + 1,
+                    new Pair<Double, Collection<String>>(1.0, Collections.singleton("T" + state)))));
+        }
+        CompactStateSpaceBuilder.build(records);
+    }
+
+    @Test
+    public void countsSuccessorsThatWereNeverExplored() {
+        Map<Integer, Pair<Double, Collection<String>>> successors = new HashMap<>();
+        successors.put(4, new Pair<Double, Collection<String>>(1.0, Collections.singleton("T0")));
+        CompactStateSpace stateSpace = CompactStateSpaceBuilder.build(Arrays.asList(new Record(0, successors),
+                new Record(2, new HashMap<Integer, Pair<Double, Collection<String>>>())));
+
+        assertEquals(5, stateSpace.getStateCount());
+        assertEquals(2, stateSpace.getExploredStateCount());
+        assertTrue(stateSpace.isExplored(2));
+        assertFalse(stateSpace.isExplored(4));
+        assertTrue(stateSpace.getRecord(4).successors.isEmpty());
+        assertArrayEquals(new int[]{0, 1, 1, 1, 1, 1}, stateSpace.getRowOffsets());
+        List<Record> explored = stateSpace.asRecordList();
+        assertEquals(2, explored.size());
+        assertEquals(0, explored.get(0).state);
+        assertEquals(2, explored.get(1).state);
+    }
+
+    @Test
+    public void buildsTheSameStateSpaceFromTheTransitionsBinary() throws IOException, PetriNetComponentException {
+        List<Record> records = records();
+        Path transitions = Files.createTempFile("transitions", ".bin");
+        try {
+            write(transitions, records);
+            CompactStateSpace stateSpace;
+            try (StreamingStateReader.RecordFile file =
+                         new StreamingStateReader(CompactStateIO.readHeader(transitions)).readRecords(transitions)) {
+                stateSpace = CompactStateSpaceBuilder.build(file);
+            }
+            assertRecordsEqual(records, stateSpace.asRecordList());
+            assertEquals(CompactStateSpaceBuilder.build(records).getLabelTable().size(),
+                    stateSpace.getLabelTable().size());
+        } finally {
+            Files.deleteIfExists(transitions);
+            Files.deleteIfExists(OffsetIndex.indexPath(transitions));
+        }
+    }
+
+    /**
+     * Writes the records to a transitions binary, checksumming the entries as the explorers do
+     */
+    private static void write(Path transitions, List<Record> records) throws IOException, PetriNetComponentException {
+        PetriNet petriNet = net();
+        for (String id : Arrays.asList("T0", "T1", "T2")) {
+            timed(petriNet, id, "1");
+        }
+        CompactStateIO stateIO = CompactStateIO.forPetriNet(petriNet, "test");
+        long checksum;
+        try (CheckedOutputStream stream = new CheckedOutputStream(Files.newOutputStream(transitions), new CRC32())) {
+            try (Output output = new Output(stream, 256)) {
+                stateIO.writeHeader(output);
+                output.flush();
+                stream.getChecksum().reset();
+                for (Record record : records) {
+                    stateIO.transitionTo(output, record.state, record.successors);
+                }
+            }
+            checksum = stream.getChecksum().getValue();
+        }
+        CompactStateIO.writeSummary(transitions, records.size(), SUCCESSORS * records.size(), checksum);
+    }
+
+    /**
+     * Compares the successors, rates and transitions of each record, ignoring the order of the transitions
+     */
+    private static void assertRecordsEqual(List<Record> expected, List<Record> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Record record = actual.get(i);
+            assertEquals(expected.get(i).state, record.state);
+            assertEquals(expected.get(i).successors.keySet(), record.successors.keySet());
+            for (Map.Entry<Integer, Pair<Double, Collection<String>>> successor :
+                    expected.get(i).successors.entrySet()) {
+                Pair<Double, Collection<String>> read = record.successors.get(successor.getKey());
+                assertEquals(successor.getValue().getLeft(), read.getLeft(), 0);
+                assertEquals(new HashSet<>(successor.getValue().getRight()), new HashSet<>(read.getRight()));
+            }
+        }
+    }
+
+    /**
+     * @return records of states with three successors each, before and after the state,
+     *         reached through three distinct labels
+     */
+    private static List<Record> records() {
+        List<Record> records = new ArrayList<>();
+        for (int state = 0; state < STATES; state++) {
+            Map<Integer, Pair<Double, Collection<String>>> successors = new HashMap<>();
+            successors.put((state + 1) % STATES, new Pair<Double, Collection<String>>(1.5, Arrays.asList("T0")));
+            successors.put((state + STATES - 7) % STATES,
+                    new Pair<Double, Collection<String>>(0.25, Arrays.asList("T1", "T0")));
+            successors.put((state + 13) % STATES,
+                    new Pair<Double, Collection<String>>(3.0 + state, Arrays.asList("T2")));
+            records.add(new Record(state, successors));
+        }
+        return records;
+    }
+}
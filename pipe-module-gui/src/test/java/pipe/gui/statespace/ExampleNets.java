@@ -0,0 +1,180 @@
+package pipe.gui.statespace;
+
+import pipe.gui.solver.SorSolver;
+import pipe.reachability.algorithm.ExplorerUtilities;
+import pipe.reachability.algorithm.OnTheFlyVanishingExplorer;
+import pipe.reachability.algorithm.StateSpaceExplorer;
+import uk.ac.imperial.io.StateProcessor;
+import uk.ac.imperial.pipe.exceptions.PetriNetComponentException;
+import uk.ac.imperial.pipe.models.petrinet.ColoredToken;
+import uk.ac.imperial.pipe.models.petrinet.DiscretePlace;
+import uk.ac.imperial.pipe.models.petrinet.DiscreteTransition;
+import uk.ac.imperial.pipe.models.petrinet.InboundNormalArc;
+import uk.ac.imperial.pipe.models.petrinet.NormalRate;
+import uk.ac.imperial.pipe.models.petrinet.OutboundNormalArc;
+import uk.ac.imperial.pipe.models.petrinet.PetriNet;
+import uk.ac.imperial.pipe.models.petrinet.Place;
+import uk.ac.imperial.pipe.models.petrinet.Transition;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.Record;
+import uk.ac.imperial.utils.Pair;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builds small Petri nets with a single token type and records the state spaces explored from them,
+ * shared by the state space tests
+ */
+final class ExampleNets {
+
+    static final String TOKEN = "Default";
+
+    /**
+     * Threads exploring each state space, more than one so that the batches are merged
+     */
+    private static final int THREADS = 2;
+
+    private ExampleNets() {
+    }
+
+    /**
+     * @return net with the default token and nothing else
+     */
+    static PetriNet net() {
+        PetriNet petriNet = new PetriNet();
+        petriNet.addToken(new ColoredToken(TOKEN, Color.BLACK));
+        return petriNet;
+    }
+
+    static Place place(PetriNet petriNet, String id, int tokens) throws PetriNetComponentException {
+        Place place = new DiscretePlace(id, id);
+        place.setTokenCount(TOKEN, tokens);
+        petriNet.add(place);
+        return place;
+    }
+
+    static Transition timed(PetriNet petriNet, String id, String rate) throws PetriNetComponentException {
+        Transition transition = new DiscreteTransition(id, id);
+        transition.setTimed(true);
+        transition.setRate(new NormalRate(rate));
+        petriNet.add(transition);
+        return transition;
+    }
+
+    static Transition immediate(PetriNet petriNet, String id) throws PetriNetComponentException {
+        Transition transition = new DiscreteTransition(id, id);
+        transition.setTimed(false);
+        transition.setRate(new NormalRate("1"));
+        petriNet.add(transition);
+        return transition;
+    }
+
+    /**
+     * Adds an arc taking tokens from the place when the transition fires
+     */
+    static void arc(PetriNet petriNet, Place place, Transition transition, String weight)
+            throws PetriNetComponentException {
+        petriNet.add(new InboundNormalArc(place, transition, Collections.singletonMap(TOKEN, weight)));
+    }
+
+    /**
+     * Adds an arc putting tokens on the place when the transition fires
+     */
+    static void arc(PetriNet petriNet, Transition transition, Place place, String weight)
+            throws PetriNetComponentException {
+        petriNet.add(new OutboundNormalArc(transition, place, Collections.singletonMap(TOKEN, weight)));
+    }
+
+    /**
+     * Explores the state space reachable from the current marking of the explorer utilities
+     *
+     * @param explorerUtilities utilities generating the successors of each state
+     * @param processor         processor the states and transitions are written to
+     * @param spillToDisk       true to keep the visited states and frontier in spilling structures
+     * @return number of states and transitions explored
+     */
+    static StateSpaceExplorer.StateSpaceExplorerResults explore(ExplorerUtilities explorerUtilities,
+                                                                 StateProcessor processor, boolean spillToDisk)
+            throws Exception {
+        BatchedParallelStateSpaceExplorer explorer = new BatchedParallelStateSpaceExplorer(explorerUtilities,
+                new OnTheFlyVanishingExplorer(explorerUtilities), processor, THREADS, BatchSizer.fixed(2),
+                new ExplorationProgress(), spillToDisk, null);
+        return explorer.generate(explorerUtilities.getCurrentState());
+    }
+
+    /**
+     * @param explorerUtilities utilities generating the successors of each state
+     * @return recorded state space reachable from the current marking
+     */
+    static RecordedStateSpace explore(ExplorerUtilities explorerUtilities) throws Exception {
+        RecordedStateSpace stateSpace = new RecordedStateSpace();
+        explore(explorerUtilities, stateSpace, false);
+        return stateSpace;
+    }
+
+    /**
+     * Holds every state and transition record written by an explorer
+     */
+    static final class RecordedStateSpace implements StateProcessor {
+        final Map<Integer, ClassifiedState> states = new HashMap<>();
+
+        final List<Record> records = new ArrayList<>();
+
+        @Override
+        public void processTransitions(int state, Map<Integer, Pair<Double, Collection<String>>> successorRates) {
+            records.add(new Record(state, new HashMap<>(successorRates)));
+        }
+
+        @Override
+        public void processState(ClassifiedState state, int id) {
+            states.put(id, state);
+        }
+
+        /**
+         * @return token counts of every state
+         */
+        Set<Map<String, Map<String, Integer>>> markings() {
+            Set<Map<String, Map<String, Integer>>> markings = new HashSet<>();
+            for (ClassifiedState state : states.values()) {
+                markings.add(state.asMap());
+            }
+            return markings;
+        }
+
+        /**
+         * @return token counts of the states without successors
+         */
+        Set<Map<String, Map<String, Integer>>> deadlocks() {
+            Set<Map<String, Map<String, Integer>>> deadlocks = new HashSet<>();
+            for (Record record : records) {
+                if (record.successors.isEmpty()) {
+                    deadlocks.add(states.get(record.state).asMap());
+                }
+            }
+            return deadlocks;
+        }
+
+        /**
+         * @return steady state probability of each state id
+         */
+        double[] solve() {
+            List<Record> sorted = new ArrayList<>(records);
+            Collections.sort(sorted, new Comparator<Record>() {
+                @Override
+                public int compare(Record first, Record second) {
+                    return Integer.compare(first.state, second.state);
+                }
+            });
+            return new SorSolver(1e-12, 100000, 1, false).solve(CompactStateSpaceBuilder.build(sorted));
+        }
+    }
+}
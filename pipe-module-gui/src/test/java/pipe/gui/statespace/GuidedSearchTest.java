@@ -0,0 +1,210 @@
+package pipe.gui.statespace;
+
+import org.junit.Test;
+import pipe.reachability.algorithm.ExplorerUtilities;
+import pipe.reachability.algorithm.UnboundedExplorerUtilities;
+import uk.ac.imperial.pipe.exceptions.PetriNetComponentException;
+import uk.ac.imperial.pipe.models.petrinet.PetriNet;
+import uk.ac.imperial.pipe.models.petrinet.Place;
+import uk.ac.imperial.pipe.models.petrinet.Transition;
+import uk.ac.imperial.state.ClassifiedState;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static pipe.gui.statespace.ExampleNets.*;
+
+public class GuidedSearchTest {
+
+    @Test
+    public void findsAShortestSequenceToTheTarget() throws PetriNetComponentException {
+        PetriNet petriNet = shortcut();
+        Map<String, Map<String, Integer>> target = GuidedSearch.parseMarking(petriNet, "P3=1");
+        GuidedSearch search = GuidedSearch.forPetriNet(petriNet, target);
+        List<String> sequence = search.search(new ExplorationProgress());
+
+        assertEquals(Collections.singletonList("Shortcut"), sequence);
+        assertTarget(target, replay(petriNet, sequence));
+        assertFalse(search.isMaxStatesReached());
+    }
+
+    @Test
+    public void firesTheSameTransitionRepeatedly() throws PetriNetComponentException {
+        PetriNet petriNet = queue(3);
+        Map<String, Map<String, Integer>> target = GuidedSearch.parseMarking(petriNet, "P0=0, P1=3");
+        List<String> sequence = GuidedSearch.forPetriNet(petriNet, target).search(new ExplorationProgress());
+
+        assertEquals(Arrays.asList("T0", "T0", "T0"), sequence);
+        assertTarget(target, replay(petriNet, sequence));
+    }
+
+    @Test
+    public void reachesTheTargetWithoutMarkingEquationBoundsOrWithAGreedierWeight()
+            throws PetriNetComponentException {
+        PetriNet petriNet = shortcut();
+        Map<String, Map<String, Integer>> target = GuidedSearch.parseMarking(petriNet, "P2=1");
+        GuidedSearch unbounded = GuidedSearch.forPetriNet(petriNet, target);
+        unbounded.setMarkingEquationBounds(false);
+        GuidedSearch greedy = GuidedSearch.forPetriNet(petriNet, target);
+        greedy.setHeuristicWeight(3);
+
+        assertEquals(Arrays.asList("T0", "T1"), unbounded.search(new ExplorationProgress()));
+        assertTarget(target, replay(petriNet, greedy.search(new ExplorationProgress())));
+    }
+
+    @Test
+    public void reportsAnUnreachableTargetAfterExploringEveryState() throws PetriNetComponentException {
+        PetriNet petriNet = cycle();
+        GuidedSearch search = GuidedSearch.forPetriNet(petriNet, GuidedSearch.parseMarking(petriNet, "P0=1, P1=1"));
+        search.setMarkingEquationBounds(false);
+
+        assertNull(search.search(new ExplorationProgress()));
+        assertFalse(search.isMaxStatesReached());
+        assertEquals(2, search.getStatesExplored());
+    }
+
+    @Test
+    public void prunesTargetsNoTransitionMovesTowards() throws PetriNetComponentException {
+        PetriNet petriNet = shortcut();
+        GuidedSearch search = GuidedSearch.forPetriNet(petriNet, GuidedSearch.parseMarking(petriNet, "P0=2"));
+
+        assertNull(search.search(new ExplorationProgress()));
+        assertFalse(search.isMaxStatesReached());
+        assertEquals(0, search.getStatesExplored());
+    }
+
+    @Test
+    public void givesUpAfterTheMaximumNumberOfStates() throws PetriNetComponentException {
+        PetriNet petriNet = net();
+        Transition produce = timed(petriNet, "Produce", "1");
+        arc(petriNet, produce, place(petriNet, "P0", 0), "1");
+        GuidedSearch search = GuidedSearch.forPetriNet(petriNet, GuidedSearch.parseMarking(petriNet, "P0=50"));
+        search.setMaxStates(10);
+
+        assertNull(search.search(new ExplorationProgress()));
+        assertTrue(search.isMaxStatesReached());
+        assertEquals(10, search.getStatesExplored());
+    }
+
+    @Test(expected = ExplorationCancelledException.class)
+    public void stopsWhenCancelled() throws PetriNetComponentException {
+        PetriNet petriNet = queue(3);
+        ExplorationProgress progress = new ExplorationProgress();
+        progress.cancel();
+        GuidedSearch.forPetriNet(petriNet, GuidedSearch.parseMarking(petriNet, "P1=3")).search(progress);
+    }
+
+    @Test
+    public void parsesTargetMarkings() throws PetriNetComponentException {
+        Map<String, Map<String, Integer>> expected = new HashMap<>();
+        expected.put("P0", Collections.singletonMap(TOKEN, 1));
+        expected.put("P2", Collections.singletonMap(TOKEN, 0));
+        assertEquals(expected, GuidedSearch.parseMarking(shortcut(), " P0 = 1,P2[Default]=0 , "));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownPlaces() throws PetriNetComponentException {
+        GuidedSearch.parseMarking(shortcut(), "Missing=1");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownTokens() throws PetriNetComponentException {
+        GuidedSearch.parseMarking(shortcut(), "P0[Red]=1");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeCounts() throws PetriNetComponentException {
+        GuidedSearch.parseMarking(shortcut(), "P0=-1");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyMarkings() throws PetriNetComponentException {
+        GuidedSearch.parseMarking(shortcut(), " , ");
+    }
+
+    /**
+     * Fires the transitions in order from the initial marking
+     *
+     * @return state reached
+     */
+    private static ClassifiedState replay(PetriNet petriNet, List<String> sequence) {
+        assertNotNull("The target was not found", sequence);
+        ExplorerUtilities explorerUtilities = new UnboundedExplorerUtilities(petriNet);
+        ClassifiedState state = explorerUtilities.getCurrentState();
+        for (String id : sequence) {
+            ClassifiedState next = null;
+            for (Map.Entry<ClassifiedState, Collection<Transition>> successor :
+                    explorerUtilities.getSuccessorsWithTransitions(state).entrySet()) {
+                for (Transition transition : successor.getValue()) {
+                    if (transition.getId().equals(id)) {
+                        next = successor.getKey();
+                    }
+                }
+            }
+            assertNotNull(id + " is not enabled", next);
+            state = next;
+        }
+        return state;
+    }
+
+    private static void assertTarget(Map<String, Map<String, Integer>> target, ClassifiedState state) {
+        for (Map.Entry<String, Map<String, Integer>> place : target.entrySet()) {
+            for (Map.Entry<String, Integer> token : place.getValue().entrySet()) {
+                int count = state.getTokens(place.getKey()).get(token.getKey());
+                assertEquals(token.getValue().intValue(), count);
+            }
+        }
+    }
+
+    /**
+     * @return net moving a token from P0 to P3 through P1 and P2, or directly by firing Shortcut
+     */
+    private static PetriNet shortcut() throws PetriNetComponentException {
+        PetriNet petriNet = net();
+        Place[] places = new Place[4];
+        for (int i = 0; i < places.length; i++) {
+            places[i] = place(petriNet, "P" + i, i == 0 ? 1 : 0);
+        }
+        for (int i = 0; i < 3; i++) {
+            Transition transition = timed(petriNet, "T" + i, "1");
+            arc(petriNet, places[i], transition, "1");
+            arc(petriNet, transition, places[i + 1], "1");
+        }
+        Transition shortcut = timed(petriNet, "Shortcut", "1");
+        arc(petriNet, places[0], shortcut, "1");
+        arc(petriNet, shortcut, places[3], "1");
+        return petriNet;
+    }
+
+    /**
+     * @return net serving tokens one at a time from P0 to P1
+     */
+    private static PetriNet queue(int tokens) throws PetriNetComponentException {
+        PetriNet petriNet = net();
+        Transition serve = timed(petriNet, "T0", "1");
+        arc(petriNet, place(petriNet, "P0", tokens), serve, "1");
+        arc(petriNet, serve, place(petriNet, "P1", 0), "1");
+        return petriNet;
+    }
+
+    /**
+     * @return net moving a single token between P0 and P1 forever
+     */
+    private static PetriNet cycle() throws PetriNetComponentException {
+        PetriNet petriNet = net();
+        Place first = place(petriNet, "P0", 1);
+        Place second = place(petriNet, "P1", 0);
+        Transition forward = timed(petriNet, "T0", "1");
+        Transition back = timed(petriNet, "T1", "1");
+        arc(petriNet, first, forward, "1");
+        arc(petriNet, forward, second, "1");
+        arc(petriNet, second, back, "1");
+        arc(petriNet, back, first, "1");
+        return petriNet;
+    }
+}
@@ -0,0 +1,174 @@
+package pipe.gui.statespace;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.junit.Test;
+import uk.ac.imperial.pipe.exceptions.PetriNetComponentException;
+import uk.ac.imperial.pipe.models.petrinet.ColoredToken;
+import uk.ac.imperial.pipe.models.petrinet.DiscretePlace;
+import uk.ac.imperial.pipe.models.petrinet.PetriNet;
+import uk.ac.imperial.pipe.models.petrinet.Place;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.HashedClassifiedState;
+import uk.ac.imperial.state.HashedStateBuilder;
+import uk.ac.imperial.state.State;
+
+import java.awt.Color;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class MarkingCodecTest {
+
+    private static final String TOKEN = "Default";
+
+    /**
+     * Capacities either side of the bit width boundaries, 0 being unbounded
+     */
+    private static final int[] CAPACITIES = {1, 3, 4, 7, 8, 255, 256, 0};
+
+    @Test
+    public void capacityOnePlacesTakeOneBit() throws PetriNetComponentException {
+        MarkingCodec codec = MarkingCodec.forPetriNet(net(1, 1, 1));
+        assertEquals(4, codec.getBitsPerState());
+        assertEquals(1, codec.getWordCount());
+    }
+
+    @Test
+    public void fieldWidthsFollowCapacities() throws PetriNetComponentException {
+        MarkingCodec codec = MarkingCodec.forPetriNet(net(CAPACITIES));
+        assertEquals(1 + 1 + 2 + 3 + 3 + 4 + 8 + 9 + MarkingCodec.UNBOUNDED_WIDTH, codec.getBitsPerState());
+    }
+
+    @Test
+    public void packsEmptyPlaces() throws PetriNetComponentException {
+        MarkingCodec codec = MarkingCodec.forPetriNet(net(CAPACITIES));
+        assertRoundTrip(codec, state(true, new int[CAPACITIES.length]));
+    }
+
+    @Test
+    public void packsPlacesAtCapacity() throws PetriNetComponentException {
+        MarkingCodec codec = MarkingCodec.forPetriNet(net(CAPACITIES));
+        int[] counts = CAPACITIES.clone();
+        counts[counts.length - 1] = Integer.MAX_VALUE;
+        assertRoundTrip(codec, state(true, counts));
+    }
+
+    @Test
+    public void packsSingleTokens() throws PetriNetComponentException {
+        MarkingCodec codec = MarkingCodec.forPetriNet(net(CAPACITIES));
+        for (int place = 0; place < CAPACITIES.length; place++) {
+            int[] counts = new int[CAPACITIES.length];
+            counts[place] = 1;
+            assertRoundTrip(codec, state(false, counts));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTokensBeyondTheFieldWidth() throws PetriNetComponentException {
+        MarkingCodec codec = MarkingCodec.forPetriNet(net(3));
+        codec.pack(state(true, 4));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsPlacesWithoutAField() throws PetriNetComponentException {
+        MarkingCodec codec = MarkingCodec.forPetriNet(net(1));
+        codec.pack(state(true, 1, 1));
+    }
+
+    @Test
+    public void keepsTheTangibleFlag() throws PetriNetComponentException {
+        MarkingCodec codec = MarkingCodec.forPetriNet(net(1));
+        assertTrue(codec.isTangible(codec.pack(state(true, 1))));
+        assertFalse(codec.isTangible(codec.pack(state(false, 1))));
+    }
+
+    @Test
+    public void unboundedFieldsStartNewWordsRatherThanStraddlingThem() {
+        ClassifiedState state = state(true, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        MarkingCodec codec = MarkingCodec.forState(state);
+        assertEquals(2, codec.getWordCount());
+        assertRoundTrip(codec, state);
+    }
+
+    @Test
+    public void fullWordsOfUnboundedFields() {
+        ClassifiedState state = state(false, Integer.MAX_VALUE, 1, 0, Integer.MAX_VALUE, 1);
+        MarkingCodec codec = MarkingCodec.forState(state);
+        assertEquals(3, codec.getWordCount());
+        assertRoundTrip(codec, state);
+    }
+
+    @Test
+    public void readsWrittenLayoutAndStates() throws PetriNetComponentException {
+        MarkingCodec codec = MarkingCodec.forPetriNet(net(CAPACITIES));
+        ClassifiedState state = state(true, 1, 2, 4, 0, 8, 200, 256, 70000);
+        Output output = new Output(256, -1);
+        codec.writeLayout(output);
+        codec.writeState(output, codec.pack(state));
+
+        Input input = new Input(output.toBytes());
+        MarkingCodec read = MarkingCodec.readLayout(input);
+        PackedState packed = read.readState(input);
+        assertEquals(codec.getBitsPerState(), read.getBitsPerState());
+        assertEquals(codec.pack(state), packed);
+        assertEquals(state.asMap(), read.unpack(packed));
+    }
+
+    /**
+     * Checks that the state unpacks to the same token counts and repacks to the same words
+     */
+    private static void assertRoundTrip(MarkingCodec codec, ClassifiedState state) {
+        PackedState packed = codec.pack(state);
+        Map<String, Map<String, Integer>> unpacked = codec.unpack(packed);
+        assertEquals(state.asMap(), unpacked);
+        assertEquals(state.isTangible(), codec.isTangible(packed));
+        assertEquals(packed, codec.pack(state(state.isTangible(), unpacked)));
+    }
+
+    /**
+     * @param capacities capacity of each place, 0 for unbounded
+     * @return net with a place for each capacity and a single token
+     */
+    private static PetriNet net(int... capacities) throws PetriNetComponentException {
+        PetriNet petriNet = new PetriNet();
+        petriNet.addToken(new ColoredToken(TOKEN, Color.BLACK));
+        for (int i = 0; i < capacities.length; i++) {
+            Place place = new DiscretePlace(placeId(i), placeId(i));
+            place.setCapacity(capacities[i]);
+            petriNet.add(place);
+        }
+        return petriNet;
+    }
+
+    /**
+     * @param tangible true for a tangible state
+     * @param counts   number of tokens on each place
+     * @return state of the places created by {@link #net(int...)}
+     */
+    private static ClassifiedState state(boolean tangible, int... counts) {
+        HashedStateBuilder builder = new HashedStateBuilder();
+        for (int i = 0; i < counts.length; i++) {
+            builder.placeWithToken(placeId(i), TOKEN, counts[i]);
+        }
+        return classified(tangible, builder.build());
+    }
+
+    private static ClassifiedState state(boolean tangible, Map<String, Map<String, Integer>> marking) {
+        HashedStateBuilder builder = new HashedStateBuilder();
+        for (Map.Entry<String, Map<String, Integer>> place : marking.entrySet()) {
+            for (Map.Entry<String, Integer> token : place.getValue().entrySet()) {
+                builder.placeWithToken(place.getKey(), token.getKey(), token.getValue());
+            }
+        }
+        return classified(tangible, builder.build());
+    }
+
+    private static ClassifiedState classified(boolean tangible, State state) {
+        return tangible ? HashedClassifiedState.tangibleState(state) : HashedClassifiedState.vanishingState(state);
+    }
+
+    private static String placeId(int index) {
+        return "P" + index;
+    }
+}
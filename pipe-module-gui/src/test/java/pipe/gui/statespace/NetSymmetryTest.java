@@ -0,0 +1,105 @@
+package pipe.gui.statespace;
+
+import org.junit.Test;
+import pipe.gui.solver.SteadyStateVectors;
+import pipe.reachability.algorithm.BoundedExplorerUtilities;
+import pipe.reachability.algorithm.ExplorerUtilities;
+import pipe.steadystate.metrics.TransitionMetrics;
+import uk.ac.imperial.pipe.exceptions.PetriNetComponentException;
+import uk.ac.imperial.pipe.models.petrinet.PetriNet;
+import uk.ac.imperial.pipe.models.petrinet.Place;
+import uk.ac.imperial.pipe.models.petrinet.Transition;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static pipe.gui.statespace.ExampleNets.*;
+
+public class NetSymmetryTest {
+
+    private static final double DELTA = 1e-6;
+
+    private static final int MAX_STATES = 1000;
+
+    @Test
+    public void detectsReplicatedServers() throws PetriNetComponentException {
+        NetSymmetry symmetry = NetSymmetry.detect(servers(1, 1, 1));
+        assertFalse(symmetry.isEmpty());
+    }
+
+    @Test
+    public void reducedMetricsMatchTheFullStateSpace() throws Exception {
+        PetriNet petriNet = servers(1, 1, 1);
+        NetSymmetry symmetry = NetSymmetry.detect(petriNet);
+        ExplorerUtilities full = new BoundedExplorerUtilities(petriNet, MAX_STATES);
+        RecordedStateSpace fullStateSpace = explore(full);
+        RecordedStateSpace reducedStateSpace = explore(new SymmetricExplorerUtilities(full, symmetry));
+        assertTrue(reducedStateSpace.states.size() < fullStateSpace.states.size());
+
+        double[] fullSteadyState = fullStateSpace.solve();
+        double[] reducedSteadyState = reducedStateSpace.solve();
+        Map<String, Map<String, Double>> expectedTokens =
+                SteadyStateVectors.averageTokensOnPlace(fullStateSpace.states, fullSteadyState);
+        Map<String, Map<String, Double>> tokens = symmetry.averageTokens(
+                SteadyStateVectors.averageTokensOnPlace(reducedStateSpace.states, reducedSteadyState));
+        assertEquals(expectedTokens.keySet(), tokens.keySet());
+        for (String place : expectedTokens.keySet()) {
+            assertEquals(place, expectedTokens.get(place).get(TOKEN), tokens.get(place).get(TOKEN), DELTA);
+        }
+
+        Map<String, Double> expectedThroughputs = TransitionMetrics.getTransitionThroughput(fullStateSpace.states,
+                SteadyStateVectors.asMap(fullSteadyState), petriNet);
+        Map<String, Double> throughputs = symmetry.averageThroughputs(TransitionMetrics.getTransitionThroughput(
+                reducedStateSpace.states, SteadyStateVectors.asMap(reducedSteadyState), petriNet));
+        assertEquals(expectedThroughputs.keySet(), throughputs.keySet());
+        for (String transition : expectedThroughputs.keySet()) {
+            assertEquals(transition, expectedThroughputs.get(transition), throughputs.get(transition), DELTA);
+        }
+    }
+
+    @Test
+    public void doesNotDetectCopiesStartingWithDifferentTokens() throws PetriNetComponentException {
+        assertTrue(NetSymmetry.detect(servers(1, 0)).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsDeclaredCopiesStartingWithDifferentTokens() throws PetriNetComponentException {
+        NetSymmetry.declare(servers(1, 0), "Idle0 Busy0 | Idle1 Busy1");
+    }
+
+    @Test
+    public void keepsTheCopiesThatStartAlike() throws PetriNetComponentException {
+        NetSymmetry symmetry = NetSymmetry.detect(servers(1, 1, 0));
+        assertFalse(symmetry.isEmpty());
+        assertFalse(symmetry.toString().contains("Idle2"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsRotatingRingsStartingWithDifferentTokens() throws PetriNetComponentException {
+        NetSymmetry.declare(servers(1, 1, 0), "ring: Idle0 Busy0 | Idle1 Busy1 | Idle2 Busy2");
+    }
+
+    /**
+     * Servers taking jobs from a shared queue, each server idle or busy with one job
+     *
+     * @param idle initial tokens on the idle place of each server
+     * @return net with a copy of the server for each count
+     */
+    private static PetriNet servers(int... idle) throws PetriNetComponentException {
+        PetriNet petriNet = net();
+        Place jobs = place(petriNet, "Jobs", 2);
+        for (int i = 0; i < idle.length; i++) {
+            Place idlePlace = place(petriNet, "Idle" + i, idle[i]);
+            Place busy = place(petriNet, "Busy" + i, 0);
+            Transition start = timed(petriNet, "Start" + i, "1");
+            arc(petriNet, jobs, start, "1");
+            arc(petriNet, idlePlace, start, "1");
+            arc(petriNet, start, busy, "1");
+            Transition end = timed(petriNet, "End" + i, "2");
+            arc(petriNet, busy, end, "1");
+            arc(petriNet, end, idlePlace, "1");
+            arc(petriNet, end, jobs, "1");
+        }
+        return petriNet;
+    }
+}
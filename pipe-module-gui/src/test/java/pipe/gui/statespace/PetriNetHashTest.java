@@ -0,0 +1,93 @@
+package pipe.gui.statespace;
+
+import org.junit.Test;
+import uk.ac.imperial.pipe.exceptions.PetriNetComponentException;
+import uk.ac.imperial.pipe.models.petrinet.Arc;
+import uk.ac.imperial.pipe.models.petrinet.DiscretePlace;
+import uk.ac.imperial.pipe.models.petrinet.PetriNet;
+import uk.ac.imperial.pipe.models.petrinet.Place;
+import uk.ac.imperial.pipe.models.petrinet.Transition;
+
+import static org.junit.Assert.*;
+import static pipe.gui.statespace.ExampleNets.*;
+
+public class PetriNetHashTest {
+
+    @Test
+    public void ignoresTheOrderComponentsWereAddedIn() throws PetriNetComponentException {
+        assertEquals(PetriNetHash.of(queue(false, 2, "2", "1")), PetriNetHash.of(queue(true, 2, "2", "1")));
+    }
+
+    @Test
+    public void ignoresArcIdsAndLayout() throws PetriNetComponentException {
+        PetriNet petriNet = queue(false, 2, "2", "1");
+        String hash = PetriNetHash.of(petriNet);
+        for (Arc<?, ?> arc : petriNet.getArcs()) {
+            arc.setId("Renamed " + arc.getId());
+        }
+        for (Place place : petriNet.getPlaces()) {
+            place.setX(place.getX() + 100);
+            place.setY(place.getY() + 50);
+        }
+        assertEquals(hash, PetriNetHash.of(petriNet));
+    }
+
+    @Test
+    public void ignoresComponentNames() throws PetriNetComponentException {
+        PetriNet petriNet = net();
+        Place waiting = new DiscretePlace("Waiting", "Queue");
+        waiting.setTokenCount(TOKEN, 2);
+        petriNet.add(waiting);
+        Transition serve = timed(petriNet, "Serve", "2");
+        arc(petriNet, waiting, serve, "1");
+        arc(petriNet, serve, place(petriNet, "Served", 0), "1");
+        assertEquals(PetriNetHash.of(queue(false, 2, "2", "1")), PetriNetHash.of(petriNet));
+    }
+
+    @Test
+    public void changesWithTheRate() throws PetriNetComponentException {
+        assertFalse(PetriNetHash.of(queue(false, 2, "2", "1")).equals(PetriNetHash.of(queue(false, 2, "3", "1"))));
+    }
+
+    @Test
+    public void changesWithTheArcWeight() throws PetriNetComponentException {
+        assertFalse(PetriNetHash.of(queue(false, 2, "2", "1")).equals(PetriNetHash.of(queue(false, 2, "2", "2"))));
+    }
+
+    @Test
+    public void changesWithTheInitialMarking() throws PetriNetComponentException {
+        assertFalse(PetriNetHash.of(queue(false, 2, "2", "1")).equals(PetriNetHash.of(queue(false, 3, "2", "1"))));
+    }
+
+    @Test
+    public void changesWithTheOptions() throws PetriNetComponentException {
+        PetriNet petriNet = queue(false, 2, "2", "1");
+        assertFalse(PetriNetHash.of(petriNet, "bounded").equals(PetriNetHash.of(petriNet, "unbounded")));
+        assertFalse(PetriNetHash.derive(PetriNetHash.of(petriNet), "jacobi")
+                .equals(PetriNetHash.derive(PetriNetHash.of(petriNet), "bicgstab")));
+    }
+
+    /**
+     * @param reversed true to add the components in the reverse order
+     * @param tokens   tokens initially waiting
+     * @param rate     rate tokens are served at
+     * @param weight   tokens taken by each service
+     * @return net serving tokens from Waiting to Served
+     */
+    private static PetriNet queue(boolean reversed, int tokens, String rate, String weight)
+            throws PetriNetComponentException {
+        PetriNet petriNet = net();
+        if (reversed) {
+            Transition serve = timed(petriNet, "Serve", rate);
+            arc(petriNet, serve, place(petriNet, "Served", 0), "1");
+            arc(petriNet, place(petriNet, "Waiting", tokens), serve, weight);
+        } else {
+            Place waiting = place(petriNet, "Waiting", tokens);
+            Place served = place(petriNet, "Served", 0);
+            Transition serve = timed(petriNet, "Serve", rate);
+            arc(petriNet, waiting, serve, weight);
+            arc(petriNet, serve, served, "1");
+        }
+        return petriNet;
+    }
+}
@@ -0,0 +1,213 @@
+package pipe.gui.statespace;
+
+import org.junit.Test;
+import pipe.reachability.algorithm.BoundedExplorerUtilities;
+import uk.ac.imperial.io.StateProcessor;
+import uk.ac.imperial.pipe.exceptions.PetriNetComponentException;
+import uk.ac.imperial.pipe.models.petrinet.PetriNet;
+import uk.ac.imperial.pipe.models.petrinet.Place;
+import uk.ac.imperial.pipe.models.petrinet.Transition;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.HashedClassifiedState;
+import uk.ac.imperial.state.HashedStateBuilder;
+import uk.ac.imperial.utils.Pair;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static pipe.gui.statespace.ExampleNets.*;
+
+public class SafetyCheckerTest {
+
+    private static final int MAX_STATES = 1000;
+
+    @Test
+    public void reportsThePathToAReachableBadState() throws Exception {
+        PetriNet petriNet = chain(3);
+        SafetyChecker checker = new SafetyChecker(SafetyProperties.expression(petriNet, "#(P2) > 0"));
+        try {
+            check(petriNet, checker);
+            fail("The bad state was not reported");
+        } catch (SafetyViolationException e) {
+            assertSame(checker.getProperty(), e.getProperty());
+            assertArrayEquals(new int[]{0, 1, 2}, e.getPath());
+            assertEquals(2, e.getViolatingState());
+            assertEquals(labels("T0", "T1"), names(e.getTransitions()));
+        }
+    }
+
+    @Test
+    public void reportsAnInitialBadStateWithoutTransitions() throws Exception {
+        PetriNet petriNet = chain(3);
+        SafetyChecker checker = new SafetyChecker(SafetyProperties.expression(petriNet, "#(P0) == 1"));
+        try {
+            check(petriNet, checker);
+            fail("The bad state was not reported");
+        } catch (SafetyViolationException e) {
+            assertArrayEquals(new int[]{0}, e.getPath());
+            assertTrue(e.getTransitions().isEmpty());
+        }
+    }
+
+    @Test
+    public void reportsThePathToADeadlock() throws Exception {
+        SafetyChecker checker = new SafetyChecker(SafetyProperties.deadlockFree());
+        try {
+            check(chain(3), checker);
+            fail("The deadlock was not reported");
+        } catch (SafetyViolationException e) {
+            assertArrayEquals(new int[]{0, 1, 2, 3}, e.getPath());
+            assertEquals(3, e.getViolatingState());
+            assertEquals(labels("T0", "T1", "T2"), names(e.getTransitions()));
+        }
+    }
+
+    @Test
+    public void reportsNoViolationOnASafeNet() throws Exception {
+        PetriNet petriNet = cycle();
+        RecordedStateSpace deadlockFree = check(petriNet, new SafetyChecker(SafetyProperties.deadlockFree()));
+        RecordedStateSpace bounded = check(petriNet, new SafetyChecker(SafetyProperties.placeBound(1)));
+        RecordedStateSpace expression =
+                check(petriNet, new SafetyChecker(SafetyProperties.expression(petriNet, "#(P0) + #(P1) != 1")));
+
+        assertEquals(2, deadlockFree.states.size());
+        assertEquals(2, bounded.states.size());
+        assertEquals(2, expression.states.size());
+        assertTrue(deadlockFree.deadlocks().isEmpty());
+    }
+
+    @Test
+    public void keepsTheFirstStateEachStateWasDiscoveredFrom() {
+        SafetyChecker checker = new SafetyChecker(SafetyProperties.expression(chain(3), "#(P2) > 0"));
+        StateProcessor processor = checker.monitor(new RecordedStateSpace());
+        processor.processState(state(0), 0);
+        processor.processState(state(1), 1);
+        processor.processState(state(0), 2);
+        processor.processTransitions(0, successors(1, "A", 2, "B"));
+        processor.processTransitions(1, successors(2, "C"));
+        processor.processState(state(2), 3);
+        try {
+            processor.processTransitions(2, successors(3, "D", 0, "E"));
+            fail("The bad state was not reported");
+        } catch (SafetyViolationException e) {
+            assertArrayEquals(new int[]{0, 2, 3}, e.getPath());
+            assertEquals(labels("B", "D"), names(e.getTransitions()));
+        }
+    }
+
+    @Test
+    public void reportsABadStateWhoseTransitionsWereNeverProcessed() {
+        SafetyChecker checker = new SafetyChecker(SafetyProperties.expression(chain(3), "#(P1) > 0"));
+        StateProcessor processor = checker.monitor(new RecordedStateSpace());
+        processor.processState(state(0), 0);
+        processor.processState(state(1), 1);
+        try {
+            checker.finish();
+            fail("The bad state was not reported");
+        } catch (SafetyViolationException e) {
+            assertArrayEquals(new int[]{1}, e.getPath());
+        }
+    }
+
+    /**
+     * Explores the net whilst checking it, finishing the checker as the exploration pipeline does
+     *
+     * @return recorded state space if no violation was found
+     */
+    private static RecordedStateSpace check(PetriNet petriNet, SafetyChecker checker) throws Exception {
+        RecordedStateSpace stateSpace = new RecordedStateSpace();
+        explore(new BoundedExplorerUtilities(petriNet, MAX_STATES), checker.monitor(stateSpace), false);
+        checker.finish();
+        return stateSpace;
+    }
+
+    /**
+     * @param length number of transitions
+     * @return net moving a single token from P0 through each Ti to Pi+1, ending in a deadlock
+     */
+    private static PetriNet chain(int length) {
+        try {
+            PetriNet petriNet = net();
+            Place from = place(petriNet, "P0", 1);
+            for (int i = 0; i < length; i++) {
+                Transition transition = timed(petriNet, "T" + i, "1");
+                Place to = place(petriNet, "P" + (i + 1), 0);
+                arc(petriNet, from, transition, "1");
+                arc(petriNet, transition, to, "1");
+                from = to;
+            }
+            return petriNet;
+        } catch (PetriNetComponentException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return net moving a single token between P0 and P1 forever
+     */
+    private static PetriNet cycle() throws PetriNetComponentException {
+        PetriNet petriNet = net();
+        Place first = place(petriNet, "P0", 1);
+        Place second = place(petriNet, "P1", 0);
+        Transition forward = timed(petriNet, "T0", "1");
+        Transition back = timed(petriNet, "T1", "2");
+        arc(petriNet, first, forward, "1");
+        arc(petriNet, forward, second, "1");
+        arc(petriNet, second, back, "1");
+        arc(petriNet, back, first, "1");
+        return petriNet;
+    }
+
+    /**
+     * @return state of the chain with its token on Pi
+     */
+    private static ClassifiedState state(int i) {
+        HashedStateBuilder builder = new HashedStateBuilder();
+        for (int place = 0; place <= 3; place++) {
+            builder.placeWithToken("P" + place, TOKEN, place == i ? 1 : 0);
+        }
+        return HashedClassifiedState.tangibleState(builder.build());
+    }
+
+    /**
+     * @param successorsAndTransitions pairs of a successor id and the transition fired to reach it
+     * @return successors reached at rate 1
+     */
+    private static Map<Integer, Pair<Double, Collection<String>>> successors(Object... successorsAndTransitions) {
+        Map<Integer, Pair<Double, Collection<String>>> successors = new HashMap<>();
+        for (int i = 0; i < successorsAndTransitions.length; i += 2) {
+            successors.put((Integer) successorsAndTransitions[i], new Pair<Double, Collection<String>>(1.0,
+                    Collections.singleton((String) successorsAndTransitions[i + 1])));
+        }
+        return successors;
+    }
+
+    /**
+     * @return label of each step firing a single transition
+     */
+    private static List<List<String>> labels(String... transitions) {
+        List<List<String>> labels = new ArrayList<>();
+        for (String transition : transitions) {
+            labels.add(Collections.singletonList(transition));
+        }
+        return labels;
+    }
+
+    /**
+     * @return sorted transitions fired at each step of a path
+     */
+    private static List<List<String>> names(List<Collection<String>> transitions) {
+        List<List<String>> names = new ArrayList<>();
+        for (Collection<String> step : transitions) {
+            List<String> sorted = new ArrayList<>(step);
+            Collections.sort(sorted);
+            names.add(sorted);
+        }
+        return names;
+    }
+}
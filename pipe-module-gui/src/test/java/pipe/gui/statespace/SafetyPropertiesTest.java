@@ -0,0 +1,122 @@
+package pipe.gui.statespace;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.imperial.pipe.exceptions.PetriNetComponentException;
+import uk.ac.imperial.pipe.models.petrinet.PetriNet;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.HashedClassifiedState;
+import uk.ac.imperial.state.HashedStateBuilder;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+import static pipe.gui.statespace.ExampleNets.*;
+
+public class SafetyPropertiesTest {
+
+    private PetriNet petriNet;
+
+    @Before
+    public void setUp() throws PetriNetComponentException {
+        petriNet = net();
+        place(petriNet, "P0", 0);
+        place(petriNet, "P1", 0);
+        place(petriNet, "P2", 0);
+    }
+
+    @Test
+    public void multipliesBeforeAdding() {
+        SafetyProperty property = SafetyProperties.expression(petriNet, "#(P0) + #(P1) * 2 == 6");
+        assertTrue(property.isViolatedBy(state(2, 2)));
+        assertFalse(property.isViolatedBy(state(1, 2)));
+    }
+
+    @Test
+    public void evaluatesParenthesesFirst() {
+        SafetyProperty property = SafetyProperties.expression(petriNet, "(#(P0) + #(P1)) * 2 == 6");
+        assertTrue(property.isViolatedBy(state(1, 2)));
+        assertFalse(property.isViolatedBy(state(1, 1)));
+    }
+
+    @Test
+    public void comparesBothSidesOfTheExpression() {
+        SafetyProperty property = SafetyProperties.expression(petriNet, "#(P0) > #(P1) + 1");
+        assertTrue(property.isViolatedBy(state(3, 1)));
+        assertFalse(property.isViolatedBy(state(2, 1)));
+    }
+
+    @Test
+    public void distinguishesLessThanOrEqualFromLessThan() {
+        SafetyProperty lessOrEqual = SafetyProperties.expression(petriNet, "#(P0) <= 1");
+        SafetyProperty less = SafetyProperties.expression(petriNet, "#(P0) < 1");
+        assertTrue(lessOrEqual.isViolatedBy(state(1, 0)));
+        assertFalse(less.isViolatedBy(state(1, 0)));
+        assertTrue(less.isViolatedBy(state(0, 0)));
+        assertFalse(lessOrEqual.isViolatedBy(state(2, 0)));
+    }
+
+    @Test
+    public void distinguishesGreaterThanOrEqualFromGreaterThan() {
+        assertTrue(SafetyProperties.expression(petriNet, "#(P0) >= 2").isViolatedBy(state(2, 0)));
+        assertFalse(SafetyProperties.expression(petriNet, "#(P0) > 2").isViolatedBy(state(2, 0)));
+    }
+
+    @Test
+    public void comparesForInequality() {
+        SafetyProperty property = SafetyProperties.expression(petriNet, "#(P0) != #(P1)");
+        assertTrue(property.isViolatedBy(state(1, 2)));
+        assertFalse(property.isViolatedBy(state(2, 2)));
+    }
+
+    @Test
+    public void readsOnlyTheReferencedPlaces() {
+        SafetyProperty property = SafetyProperties.expression(petriNet, "#(P0) + #(P1) > 1");
+        assertEquals(new HashSet<>(Arrays.asList("P0", "P1")), new HashSet<>(property.getPlaces()));
+        assertFalse(property.forbidsDeadlock());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownPlaces() {
+        SafetyProperties.expression(petriNet, "#(Missing) > 0");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsExpressionsWithoutAComparison() {
+        SafetyProperties.expression(petriNet, "#(P0) + 1");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMalformedSides() {
+        SafetyProperties.expression(petriNet, "#(P0) + > 1");
+    }
+
+    @Test
+    public void boundsTheTokensOfEveryPlace() {
+        SafetyProperty property = SafetyProperties.placeBound(2);
+        assertFalse(property.isViolatedBy(state(2, 2)));
+        assertTrue(property.isViolatedBy(state(0, 3)));
+        assertNull(property.getPlaces());
+    }
+
+    @Test
+    public void deadlockFreedomOnlyForbidsDeadlocks() {
+        SafetyProperty property = SafetyProperties.deadlockFree();
+        assertTrue(property.forbidsDeadlock());
+        assertFalse(property.isViolatedBy(state(0, 0)));
+        assertEquals(Collections.emptySet(), property.getPlaces());
+    }
+
+    /**
+     * @return state with the tokens on P0 and P1 and none on P2
+     */
+    private static ClassifiedState state(int first, int second) {
+        HashedStateBuilder builder = new HashedStateBuilder();
+        builder.placeWithToken("P0", TOKEN, first);
+        builder.placeWithToken("P1", TOKEN, second);
+        builder.placeWithToken("P2", TOKEN, 0);
+        return HashedClassifiedState.tangibleState(builder.build());
+    }
+}
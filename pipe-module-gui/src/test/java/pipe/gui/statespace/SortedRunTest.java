@@ -0,0 +1,154 @@
+package pipe.gui.statespace;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.HashedClassifiedState;
+import uk.ac.imperial.state.HashedStateBuilder;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SortedRunTest {
+
+    private static final String TOKEN = "Default";
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("sorted-run-test");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void findsEveryStateInEveryBlock() throws IOException {
+        List<PackedState> states = evenStates(5 * SortedRun.INDEX_INTERVAL + 3);
+        try (SortedRun run = write(states, "run")) {
+            assertEquals(states.size(), run.size());
+            for (int id = 0; id < states.size(); id++) {
+                assertEquals(id, run.get(states.get(id)));
+            }
+        }
+    }
+
+    @Test
+    public void missesStatesNotInTheRun() throws IOException {
+        List<PackedState> states = evenStates(3 * SortedRun.INDEX_INTERVAL);
+        try (SortedRun run = write(states, "run")) {
+            assertEquals(VisitedStates.NOT_VISITED, run.get(new PackedState(new long[]{1})));
+            for (int i = 0; i < states.size(); i++) {
+                assertEquals(VisitedStates.NOT_VISITED, run.get(new PackedState(new long[]{2L * i + 3})));
+            }
+        }
+    }
+
+    @Test
+    public void cursorReadsEntriesInOrder() throws IOException {
+        List<PackedState> states = evenStates(SortedRun.INDEX_INTERVAL + 1);
+        try (SortedRun run = write(states, "run");
+             SortedRun.Cursor cursor = run.cursor()) {
+            for (int id = 0; id < states.size(); id++) {
+                assertEquals(states.get(id), cursor.state());
+                assertEquals(id, cursor.id());
+                cursor.advance();
+            }
+            assertNull(cursor.state());
+        }
+    }
+
+    @Test
+    public void mergedRunsKeepEveryStateAndId() throws IOException {
+        int hotCapacity = 16;
+        int count = hotCapacity * SpillingVisitedStates.MERGE_FAN_IN * SpillingVisitedStates.MERGE_FAN_IN + 5;
+        MarkingCodec codec = MarkingCodec.forState(state(0, 0));
+        try (SpillingVisitedStates visited = new SpillingVisitedStates(codec, directory, hotCapacity)) {
+            for (int id = 0; id < count; id++) {
+                visited.put(state(id, 2 * id), id);
+            }
+            assertEquals(count, visited.size());
+            assertTrue(visited.getRunCount() < count / hotCapacity);
+            for (int id = 0; id < count; id++) {
+                assertEquals(id, visited.get(state(id, 2 * id)));
+            }
+            for (int id = 0; id < count; id++) {
+                assertEquals(VisitedStates.NOT_VISITED, visited.get(state(id, 2 * id + 1)));
+            }
+        }
+    }
+
+    @Test
+    public void mergesRunsOfShuffledStatesAndDeletesThemOnClose() throws IOException {
+        int hotCapacity = 8;
+        MarkingCodec codec = MarkingCodec.forState(state(0, 0));
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 0; id < hotCapacity * SpillingVisitedStates.MERGE_FAN_IN; id++) {
+            ids.add(id);
+        }
+        Collections.shuffle(ids, new Random(1));
+        try (SpillingVisitedStates visited = new SpillingVisitedStates(codec, directory, hotCapacity)) {
+            for (int id : ids) {
+                visited.put(state(id, id), id);
+            }
+            assertEquals(1, visited.getRunCount());
+            for (int id : ids) {
+                assertEquals(id, visited.get(state(id, id)));
+            }
+        }
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        assertTrue(files.isEmpty());
+    }
+
+    /**
+     * @param count number of states
+     * @return states with even words in increasing order
+     */
+    private static List<PackedState> evenStates(int count) {
+        List<PackedState> states = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            states.add(new PackedState(new long[]{2L * i + 2}));
+        }
+        return states;
+    }
+
+    /**
+     * @param states states in increasing order
+     * @param name   name of the run file
+     * @return run with the id of each state being its index
+     */
+    private SortedRun write(List<PackedState> states, String name) throws IOException {
+        SortedRun.Writer writer = new SortedRun.Writer(directory.resolve(name), states.size());
+        for (int id = 0; id < states.size(); id++) {
+            writer.add(states.get(id), id);
+        }
+        return writer.finish();
+    }
+
+    private static ClassifiedState state(int first, int second) {
+        return HashedClassifiedState.tangibleState(new HashedStateBuilder()
+                .placeWithToken("P0", TOKEN, first).placeWithToken("P1", TOKEN, second).build());
+    }
+}
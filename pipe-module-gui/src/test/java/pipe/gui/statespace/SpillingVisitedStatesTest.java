@@ -0,0 +1,145 @@
+package pipe.gui.statespace;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import pipe.reachability.algorithm.BoundedExplorerUtilities;
+import pipe.reachability.algorithm.ExplorerUtilities;
+import pipe.reachability.algorithm.OnTheFlyVanishingExplorer;
+import pipe.reachability.algorithm.StateSpaceExplorer;
+import uk.ac.imperial.pipe.exceptions.PetriNetComponentException;
+import uk.ac.imperial.pipe.models.petrinet.PetriNet;
+import uk.ac.imperial.pipe.models.petrinet.Place;
+import uk.ac.imperial.pipe.models.petrinet.Transition;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.HashedClassifiedState;
+import uk.ac.imperial.state.HashedStateBuilder;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+import static pipe.gui.statespace.ExampleNets.*;
+
+public class SpillingVisitedStatesTest {
+
+    /**
+     * States held in memory before they are spilled, small enough for a few dozen states to spill many times
+     */
+    private static final int HOT_CAPACITY = 4;
+
+    private static final int STATES = 100;
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("spilling-visited-states-test");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void findsStatesInMemoryAndOnDisk() throws IOException {
+        try (SpillingVisitedStates visited = new SpillingVisitedStates(codec(), directory, HOT_CAPACITY)) {
+            for (int id = 0; id < STATES; id++) {
+                visited.put(state(id), id);
+            }
+            assertEquals(STATES, visited.size());
+            assertTrue(visited.getRunCount() > 0);
+            for (int id = 0; id < STATES; id++) {
+                assertEquals(id, visited.get(state(id)));
+            }
+            assertEquals(VisitedStates.NOT_VISITED, visited.get(state(STATES)));
+        }
+    }
+
+    @Test
+    public void keepsIdsAcrossSpillsAndMerges() throws IOException {
+        try (SpillingVisitedStates visited = new SpillingVisitedStates(codec(), directory, HOT_CAPACITY)) {
+            for (int id = 0; id < STATES; id++) {
+                assertEquals(VisitedStates.NOT_VISITED, visited.get(state(id)));
+                visited.put(state(id), id);
+                for (int previous = 0; previous <= id; previous++) {
+                    assertEquals(previous, visited.get(state(previous)));
+                }
+            }
+            assertTrue(visited.getRunCount() < STATES / HOT_CAPACITY);
+        }
+    }
+
+    @Test
+    public void spilledFrontierKeepsItsOrder() throws IOException {
+        try (StateQueue frontier = new StateQueue(directory, HOT_CAPACITY)) {
+            for (int id = 0; id < STATES; id++) {
+                frontier.add(state(id), id);
+            }
+            assertEquals(STATES, frontier.size());
+            for (int id = 0; id < STATES; id++) {
+                assertEquals(id, frontier.peekId());
+                assertEquals(state(id).asMap(), frontier.remove().asMap());
+            }
+            assertTrue(frontier.isEmpty());
+        }
+    }
+
+    @Test
+    public void spillingExplorationFindsTheSameStates() throws Exception {
+        PetriNet petriNet = independent(6);
+        RecordedStateSpace inMemory = explore(new BoundedExplorerUtilities(petriNet, 10000));
+
+        ExplorerUtilities explorerUtilities = new BoundedExplorerUtilities(petriNet, 10000);
+        RecordedStateSpace spilled = new RecordedStateSpace();
+        BatchedParallelStateSpaceExplorer explorer = new BatchedParallelStateSpaceExplorer(explorerUtilities,
+                new OnTheFlyVanishingExplorer(explorerUtilities), spilled, 2, BatchSizer.fixed(2),
+                new ExplorationProgress(), true, null);
+        explorer.setSpillCapacities(HOT_CAPACITY, HOT_CAPACITY);
+        StateSpaceExplorer.StateSpaceExplorerResults results = explorer.generate(explorerUtilities.getCurrentState());
+
+        assertEquals(1 << 6, results.numberOfStates);
+        assertEquals(inMemory.states.size(), results.numberOfStates);
+        assertEquals(inMemory.markings(), spilled.markings());
+        assertEquals(inMemory.records.size(), spilled.records.size());
+        for (int id : spilled.states.keySet()) {
+            assertEquals(inMemory.states.get(id).asMap(), spilled.states.get(id).asMap());
+        }
+    }
+
+    private static MarkingCodec codec() {
+        return MarkingCodec.forState(state(0));
+    }
+
+    /**
+     * @return state with the id spread over two places
+     */
+    private static ClassifiedState state(int id) {
+        HashedStateBuilder builder = new HashedStateBuilder();
+        builder.placeWithToken("P0", TOKEN, id % 10);
+        builder.placeWithToken("P1", TOKEN, id / 10);
+        return HashedClassifiedState.tangibleState(builder.build());
+    }
+
+    /**
+     * @return net of components each moving a token from Pi to Qi, with a state for each subset moved
+     */
+    private static PetriNet independent(int components) throws PetriNetComponentException {
+        PetriNet petriNet = net();
+        for (int i = 0; i < components; i++) {
+            Transition transition = timed(petriNet, "T" + i, "1");
+            Place from = place(petriNet, "P" + i, 1);
+            arc(petriNet, from, transition, "1");
+            arc(petriNet, transition, place(petriNet, "Q" + i, 0), "1");
+        }
+        return petriNet;
+    }
+}
@@ -0,0 +1,143 @@
+package pipe.gui.statespace;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import pipe.reachability.algorithm.StateSpaceExplorer;
+import uk.ac.imperial.state.Record;
+import uk.ac.imperial.utils.Pair;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class StateSpaceCacheTest {
+
+    /**
+     * Size of each binary file, so that an entry of temporary binaries takes twice this on disk
+     */
+    private static final int FILE_SIZE = 1000;
+
+    private static final StateSpaceExplorer.StateSpaceExplorerResults RESULTS =
+            new StateSpaceExplorer.StateSpaceExplorerResults(1, 2);
+
+    private final List<Path> files = new ArrayList<>();
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("cache");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (Path file : files) {
+            Files.deleteIfExists(file);
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void findsCachedEntries() throws IOException {
+        StateSpaceCache cache = new StateSpaceCache(Long.MAX_VALUE, Long.MAX_VALUE);
+        StateSpaceCache.Entry entry = put(cache, "key", true);
+        assertSame(entry, cache.get("key"));
+        assertSame(RESULTS, cache.get("key").results);
+        assertNull(cache.get("other"));
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedEntriesOverTheDiskBudget() throws IOException {
+        StateSpaceCache cache = new StateSpaceCache(5 * FILE_SIZE, Long.MAX_VALUE);
+        StateSpaceCache.Entry first = put(cache, "first", true);
+        StateSpaceCache.Entry second = put(cache, "second", true);
+        assertNotNull(cache.get("first"));
+
+        put(cache, "third", true);
+        assertNotNull(cache.get("first"));
+        assertNull(cache.get("second"));
+        assertNotNull(cache.get("third"));
+        assertFalse(Files.exists(second.transitions));
+        assertFalse(Files.exists(second.states));
+        assertTrue(Files.exists(first.transitions));
+    }
+
+    @Test
+    public void neverDeletesBinariesItDoesNotOwn() throws IOException {
+        StateSpaceCache cache = new StateSpaceCache(0, Long.MAX_VALUE);
+        StateSpaceCache.Entry saved = put(cache, "saved", false);
+        put(cache, "first", true);
+        put(cache, "second", true);
+        assertNull(cache.get("saved"));
+        assertNull(cache.get("first"));
+        assertTrue(Files.exists(saved.transitions));
+        assertTrue(Files.exists(saved.states));
+    }
+
+    @Test
+    public void dropsTheLeastRecentlyUsedStateSpacesOverTheHeapBudget() throws IOException {
+        CompactStateSpace stateSpace = stateSpace();
+        StateSpaceCache cache = new StateSpaceCache(Long.MAX_VALUE, stateSpace.getEstimatedBytes() * 3 / 2);
+        StateSpaceCache.Entry first = put(cache, "first", true);
+        StateSpaceCache.Entry second = put(cache, "second", true);
+        cache.setStateSpace(first, stateSpace);
+        cache.setStateSpace(second, stateSpace());
+
+        assertNull(first.getStateSpace());
+        assertNotNull(second.getStateSpace());
+        assertSame(first, cache.get("first"));
+    }
+
+    @Test
+    public void dropsAStateSpaceLargerThanTheHeapBudget() throws IOException {
+        CompactStateSpace stateSpace = stateSpace();
+        StateSpaceCache cache = new StateSpaceCache(Long.MAX_VALUE, stateSpace.getEstimatedBytes() - 1);
+        StateSpaceCache.Entry entry = put(cache, "key", true);
+        cache.setStateSpace(entry, stateSpace);
+        assertNull(entry.getStateSpace());
+        assertSame(entry, cache.get("key"));
+    }
+
+    @Test
+    public void discardsEntriesWhoseBinariesWereDeleted() throws IOException {
+        StateSpaceCache cache = new StateSpaceCache(Long.MAX_VALUE, Long.MAX_VALUE);
+        StateSpaceCache.Entry entry = put(cache, "key", false);
+        Files.delete(entry.states);
+        assertNull(cache.get("key"));
+    }
+
+    /**
+     * Adds an entry of newly written binaries to the cache
+     */
+    private StateSpaceCache.Entry put(StateSpaceCache cache, String key, boolean temporary) throws IOException {
+        return cache.put(key, binary(key + "-transitions"), binary(key + "-states"), RESULTS, temporary);
+    }
+
+    private Path binary(String name) throws IOException {
+        Path file = Files.write(directory.resolve(name), new byte[FILE_SIZE]);
+        files.add(file);
+        return file;
+    }
+
+    /**
+     * @return compact state space of a cycle of two states
+     */
+    private static CompactStateSpace stateSpace() {
+        List<Record> records = new ArrayList<>();
+        for (int state = 0; state < 2; state++) {
+            Map<Integer, Pair<Double, Collection<String>>> successors = new HashMap<>();
+            successors.put(1 - state, new Pair<Double, Collection<String>>(1.0, Collections.singleton("T")));
+            records.add(new Record(state, successors));
+        }
+        return CompactStateSpaceBuilder.build(records);
+    }
+}
@@ -0,0 +1,203 @@
+package pipe.gui.statespace;
+
+import org.junit.Test;
+import pipe.reachability.algorithm.BoundedExplorerUtilities;
+import pipe.reachability.algorithm.ExplorerUtilities;
+import uk.ac.imperial.pipe.exceptions.PetriNetComponentException;
+import uk.ac.imperial.pipe.models.petrinet.PetriNet;
+import uk.ac.imperial.pipe.models.petrinet.Place;
+import uk.ac.imperial.pipe.models.petrinet.Transition;
+import uk.ac.imperial.state.ClassifiedState;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+import static pipe.gui.statespace.ExampleNets.*;
+
+public class StubbornSetExplorerUtilitiesTest {
+
+    private static final int MAX_STATES = 10000;
+
+    private static final int COMPONENTS = 4;
+
+    @Test
+    public void reducesIndependentTransitions() throws Exception {
+        PetriNet petriNet = independent(COMPONENTS);
+        RecordedStateSpace full = explore(new BoundedExplorerUtilities(petriNet, MAX_STATES));
+        RecordedStateSpace reduced = explore(reduce(petriNet, null));
+        assertEquals(1 << COMPONENTS, full.states.size());
+        assertEquals(COMPONENTS + 1, reduced.states.size());
+        assertEquals(full.deadlocks(), reduced.deadlocks());
+    }
+
+    @Test
+    public void keepsEveryDeadlock() throws Exception {
+        PetriNet petriNet = choices();
+        RecordedStateSpace full = explore(new BoundedExplorerUtilities(petriNet, MAX_STATES));
+        RecordedStateSpace reduced = explore(reduce(petriNet, null));
+        assertEquals(4, full.deadlocks().size());
+        assertEquals(full.deadlocks(), reduced.deadlocks());
+        assertTrue(reduced.states.size() < full.states.size());
+    }
+
+    @Test
+    public void findsTheSameDeadlockViolation() throws Exception {
+        PetriNet petriNet = choices();
+        SafetyProperty property = SafetyProperties.deadlockFree();
+        assertViolated(petriNet, property, new BoundedExplorerUtilities(petriNet, MAX_STATES));
+        assertViolated(petriNet, property, reduce(petriNet, property));
+    }
+
+    @Test
+    public void keepsStatesViolatingAnExpression() throws Exception {
+        PetriNet petriNet = independent(COMPONENTS);
+        SafetyProperty property = SafetyProperties.expression(petriNet, "#(Q0) + #(Q1) == 2");
+        Set<Map<String, Map<String, Integer>>> violations =
+                violations(explore(new BoundedExplorerUtilities(petriNet, MAX_STATES)), property);
+        Set<Map<String, Map<String, Integer>>> reducedViolations =
+                violations(explore(reduce(petriNet, property)), property);
+        assertFalse(violations.isEmpty());
+        assertFalse(reducedViolations.isEmpty());
+        assertTrue(violations.containsAll(reducedViolations));
+
+        assertViolated(petriNet, property, new BoundedExplorerUtilities(petriNet, MAX_STATES));
+        assertViolated(petriNet, property, reduce(petriNet, property));
+    }
+
+    @Test
+    public void findsNoViolationWhereTheFullStateSpaceHasNone() throws Exception {
+        PetriNet petriNet = independent(COMPONENTS);
+        SafetyProperty property = SafetyProperties.expression(petriNet, "#(P0) + #(Q0) != 1");
+        assertTrue(violations(explore(new BoundedExplorerUtilities(petriNet, MAX_STATES)), property).isEmpty());
+        SafetyChecker checker = new SafetyChecker(property);
+        RecordedStateSpace reduced = new RecordedStateSpace();
+        explore(reduce(petriNet, property), checker.monitor(reduced), false);
+        checker.finish();
+        assertTrue(violations(reduced, property).isEmpty());
+    }
+
+    @Test
+    public void interleavesTransitionsVisibleToTheProperty() throws Exception {
+        PetriNet petriNet = independent(COMPONENTS);
+        SafetyProperty property = SafetyProperties.expression(petriNet, "#(Q0) + #(Q1) == 2");
+        RecordedStateSpace reduced = explore(reduce(petriNet, property));
+        RecordedStateSpace unobserved = explore(reduce(petriNet, null));
+        assertTrue(reduced.states.size() > unobserved.states.size());
+    }
+
+    @Test
+    public void exploresNetsWithFunctionalWeightsInFull() throws Exception {
+        PetriNet petriNet = independent(COMPONENTS);
+        arc(petriNet, place(petriNet, "Extra", 1), timed(petriNet, "Functional", "1"), "#(P0)");
+        assertFullExploration(petriNet, null);
+    }
+
+    @Test
+    public void exploresNetsWithMixedPrioritiesInFull() throws Exception {
+        PetriNet petriNet = independent(COMPONENTS);
+        Transition transition = timed(petriNet, "Prioritised", "1");
+        transition.setPriority(transition.getPriority() + 1);
+        arc(petriNet, place(petriNet, "Extra", 1), transition, "1");
+        assertFullExploration(petriNet, null);
+    }
+
+    @Test
+    public void exploresNetsWithMixedTimingInFull() throws Exception {
+        PetriNet petriNet = independent(COMPONENTS);
+        Place extra = place(petriNet, "Extra", 0);
+        Transition fill = timed(petriNet, "Fill", "1");
+        arc(petriNet, fill, extra, "1");
+        arc(petriNet, extra, immediate(petriNet, "Drain"), "1");
+        arc(petriNet, place(petriNet, "Limit", 1), fill, "1");
+        assertFullExploration(petriNet, null);
+    }
+
+    @Test
+    public void exploresInFullForPropertiesReadingEveryPlace() throws Exception {
+        PetriNet petriNet = independent(COMPONENTS);
+        assertFullExploration(petriNet, SafetyProperties.placeBound(1));
+    }
+
+    /**
+     * Checks that the stubborn set utilities explore as many states as the full utilities
+     */
+    private static void assertFullExploration(PetriNet petriNet, SafetyProperty property) throws Exception {
+        RecordedStateSpace full = explore(new BoundedExplorerUtilities(petriNet, MAX_STATES));
+        RecordedStateSpace reduced = explore(reduce(petriNet, property));
+        assertEquals(full.states.size(), reduced.states.size());
+        assertEquals(full.markings(), reduced.markings());
+    }
+
+    /**
+     * Checks that the safety checker reports a path ending in a state violating the property
+     */
+    private static void assertViolated(PetriNet petriNet, SafetyProperty property,
+                                       ExplorerUtilities explorerUtilities) throws Exception {
+        SafetyChecker checker = new SafetyChecker(property);
+        RecordedStateSpace stateSpace = new RecordedStateSpace();
+        try {
+            explore(explorerUtilities, checker.monitor(stateSpace), false);
+            checker.finish();
+            fail("No violation of " + property.getDescription() + " found");
+        } catch (SafetyViolationException e) {
+            assertSame(property, e.getProperty());
+            ClassifiedState violating = stateSpace.states.get(e.getViolatingState());
+            if (property.forbidsDeadlock()) {
+                assertTrue(stateSpace.deadlocks().contains(violating.asMap()));
+            } else {
+                assertTrue(property.isViolatedBy(violating));
+            }
+        }
+    }
+
+    private static StubbornSetExplorerUtilities reduce(PetriNet petriNet, SafetyProperty property) {
+        return new StubbornSetExplorerUtilities(new BoundedExplorerUtilities(petriNet, MAX_STATES), petriNet,
+                property);
+    }
+
+    private static Set<Map<String, Map<String, Integer>>> violations(RecordedStateSpace stateSpace,
+                                                                   SafetyProperty property) {
+        Set<Map<String, Map<String, Integer>>> violations = new HashSet<>();
+        for (ClassifiedState state : stateSpace.states.values()) {
+            if (property.isViolatedBy(state)) {
+                violations.add(state.asMap());
+            }
+        }
+        return violations;
+    }
+
+    /**
+     * @param components number of components
+     * @return net of components each moving a token from Pi to Qi, independent of the others
+     */
+    private static PetriNet independent(int components) throws PetriNetComponentException {
+        PetriNet petriNet = net();
+        for (int i = 0; i < components; i++) {
+            Transition transition = timed(petriNet, "T" + i, "1");
+            arc(petriNet, place(petriNet, "P" + i, 1), transition, "1");
+            arc(petriNet, transition, place(petriNet, "Q" + i, 0), "1");
+        }
+        return petriNet;
+    }
+
+    /**
+     * @return net of two independent choices between two transitions, each way of resolving both a deadlock
+     */
+    private static PetriNet choices() throws PetriNetComponentException {
+        PetriNet petriNet = net();
+        for (int i = 0; i < 2; i++) {
+            Place choice = place(petriNet, "Choice" + i, 1);
+            for (String branch : new String[]{"A", "B"}) {
+                Transition transition = timed(petriNet, branch + i, "1");
+                arc(petriNet, choice, transition, "1");
+                arc(petriNet, transition, place(petriNet, branch + "Done" + i, 0), "1");
+            }
+        }
+        Transition independent = timed(petriNet, "Independent", "1");
+        arc(petriNet, place(petriNet, "Before", 1), independent, "1");
+        arc(petriNet, independent, place(petriNet, "After", 0), "1");
+        return petriNet;
+    }
+}
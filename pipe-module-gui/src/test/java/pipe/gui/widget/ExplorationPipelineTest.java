@@ -0,0 +1,284 @@
+package pipe.gui.widget;
+
+import com.esotericsoftware.kryo.io.Input;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import pipe.gui.io.CompactStateIO;
+import pipe.gui.io.ExplorationCheckpoint;
+import pipe.gui.io.OffsetIndex;
+import pipe.gui.io.StreamingStateReader;
+import pipe.gui.statespace.ExplorationCancelledException;
+import pipe.gui.statespace.ExplorationProgress;
+import pipe.reachability.algorithm.BoundedExplorerUtilities;
+import pipe.reachability.algorithm.ExplorerUtilities;
+import pipe.reachability.algorithm.OnTheFlyVanishingExplorer;
+import pipe.reachability.algorithm.StateSpaceExplorer;
+import uk.ac.imperial.pipe.exceptions.PetriNetComponentException;
+import uk.ac.imperial.pipe.models.petrinet.ColoredToken;
+import uk.ac.imperial.pipe.models.petrinet.DiscretePlace;
+import uk.ac.imperial.pipe.models.petrinet.DiscreteTransition;
+import uk.ac.imperial.pipe.models.petrinet.InboundNormalArc;
+import uk.ac.imperial.pipe.models.petrinet.NormalRate;
+import uk.ac.imperial.pipe.models.petrinet.OutboundNormalArc;
+import uk.ac.imperial.pipe.models.petrinet.PetriNet;
+import uk.ac.imperial.pipe.models.petrinet.Place;
+import uk.ac.imperial.pipe.models.petrinet.Transition;
+import uk.ac.imperial.state.ClassifiedState;
+import uk.ac.imperial.state.Record;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ExplorationPipelineTest {
+
+    private static final String TOKEN = "Default";
+
+    private static final String OPTIONS = "bounded";
+
+    private static final int THREADS = 2;
+
+    private static final int MAX_STATES = 10000;
+
+    /**
+     * Number of independent components, each doubling the number of states
+     */
+    private static final int COMPONENTS = 7;
+
+    /**
+     * Number of states expanded before the exploration is cancelled
+     */
+    private static final int EXPANSIONS_BEFORE_CANCEL = 40;
+
+    private final List<Path> files = new ArrayList<>();
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("checkpoint");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (Path file : files) {
+            Files.deleteIfExists(file);
+        }
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Test
+    public void writesCompleteBinaries() throws Exception {
+        PetriNet petriNet = independent();
+        ExplorationPipeline.Binaries binaries = ExplorationPipeline.Binaries.temporary();
+        StateSpaceExplorer.StateSpaceExplorerResults results = explore(binaries, petriNet, false);
+
+        assertEquals(1 << COMPONENTS, results.numberOfStates);
+        assertTrue(CompactStateIO.verify(binaries.getTransitions()));
+        assertTrue(CompactStateIO.verify(binaries.getStates()));
+        assertEquals(results.numberOfStates, states(binaries).size());
+        assertEquals(results.numberOfStates, transitions(binaries).size());
+    }
+
+    @Test
+    public void resumedExplorationMatchesAnUninterruptedOne() throws Exception {
+        PetriNet petriNet = independent();
+        ExplorationPipeline.Binaries uninterrupted = ExplorationPipeline.Binaries.temporary();
+        StateSpaceExplorer.StateSpaceExplorerResults expected = explore(uninterrupted, petriNet, false);
+
+        ExplorationPipeline.Binaries cancelled =
+                ExplorationPipeline.Binaries.checkpointed(new ExplorationCheckpoint(directory));
+        try {
+            explore(cancelled, petriNet, true);
+            fail("The exploration was not cancelled");
+        } catch (ExplorationCancelledException e) {
+            assertTrue(new ExplorationCheckpoint(directory).exists());
+        }
+
+        ExplorationCheckpoint checkpoint = new ExplorationCheckpoint(directory);
+        assertTrue(checkpoint.getExplored() > 0);
+        assertTrue(checkpoint.getExplored() < expected.numberOfStates);
+        ExplorationPipeline.Binaries resumed = ExplorationPipeline.Binaries.checkpointed(checkpoint);
+        StateSpaceExplorer.StateSpaceExplorerResults results = explore(resumed, petriNet, false);
+
+        assertEquals(expected.numberOfStates, results.numberOfStates);
+        assertEquals(expected.processedTransitions, results.processedTransitions);
+        assertFalse(new ExplorationCheckpoint(directory).exists());
+        assertTrue(CompactStateIO.verify(resumed.getTransitions()));
+        assertTrue(CompactStateIO.verify(resumed.getStates()));
+
+        assertEquals(states(uninterrupted), states(resumed));
+        assertEquals(transitions(uninterrupted), transitions(resumed));
+    }
+
+    /**
+     * Explores the Petri net into the binaries with a checkpoint after every round
+     *
+     * @param cancel true to cancel the exploration after {@link #EXPANSIONS_BEFORE_CANCEL} states have been expanded
+     */
+    private StateSpaceExplorer.StateSpaceExplorerResults explore(ExplorationPipeline.Binaries binaries,
+                                                                 PetriNet petriNet, boolean cancel) throws Exception {
+        ExplorationPipeline pipeline = new ExplorationPipeline(0);
+        pipeline.setBatchSize(2);
+        ExplorationProgress progress = new ExplorationProgress();
+        ExplorerUtilities explorerUtilities = new BoundedExplorerUtilities(petriNet, MAX_STATES);
+        if (cancel) {
+            explorerUtilities = new CancellingExplorerUtilities(explorerUtilities, progress);
+        }
+        try {
+            return pipeline.explore(binaries, petriNet, OPTIONS, explorerUtilities,
+                    new OnTheFlyVanishingExplorer(explorerUtilities), THREADS, progress);
+        } finally {
+            for (Path binary : new Path[]{binaries.getTransitions(), binaries.getStates()}) {
+                files.add(binary);
+                files.add(OffsetIndex.indexPath(binary));
+            }
+        }
+    }
+
+    /**
+     * @return token counts of every state in the states binary by id
+     */
+    private static Map<Integer, Map<String, Map<String, Integer>>> states(ExplorationPipeline.Binaries binaries)
+            throws IOException {
+        CompactStateIO reader = CompactStateIO.readHeader(binaries.getStates());
+        Map<Integer, Map<String, Map<String, Integer>>> states = new HashMap<>();
+        try (InputStream stream = Files.newInputStream(binaries.getStates());
+             Input input = new Input(stream)) {
+            reader.skipHeader(input);
+            for (Map.Entry<Integer, ClassifiedState> entry : reader.readStates(input).entrySet()) {
+                states.put(entry.getKey(), entry.getValue().asMap());
+            }
+        }
+        return states;
+    }
+
+    /**
+     * @return rate and transitions of every successor of each state in the transitions binary
+     */
+    private static Map<Integer, Map<Integer, String>> transitions(ExplorationPipeline.Binaries binaries)
+            throws IOException {
+        Map<Integer, Map<Integer, String>> transitions = new HashMap<>();
+        try (StreamingStateReader.RecordFile records = new StreamingStateReader(
+                CompactStateIO.readHeader(binaries.getTransitions())).readRecords(binaries.getTransitions())) {
+            for (Record record : records) {
+                Map<Integer, String> successors = new HashMap<>();
+                for (Integer successor : record.successors.keySet()) {
+                    List<String> fired = new ArrayList<>(record.successors.get(successor).getRight());
+                    Collections.sort(fired);
+                    successors.put(successor, record.successors.get(successor).getLeft() + " " + fired);
+                }
+                assertNull(transitions.put(record.state, successors));
+            }
+        }
+        return transitions;
+    }
+
+    /**
+     * @return net of components each moving a token from Pi to Qi, with a state for each subset moved
+     */
+    private static PetriNet independent() throws PetriNetComponentException {
+        PetriNet petriNet = new PetriNet();
+        petriNet.addToken(new ColoredToken(TOKEN, Color.BLACK));
+        for (int i = 0; i < COMPONENTS; i++) {
+            Place from = new DiscretePlace("P" + i, "P" + i);
+            from.setTokenCount(TOKEN, 1);
+            Place to = new DiscretePlace("Q" + i, "Q" + i);
+            Transition transition = new DiscreteTransition("T" + i, "T" + i);
+            transition.setTimed(true);
+            transition.setRate(new NormalRate(Integer.toString(i + 1)));
+            petriNet.add(from);
+            petriNet.add(to);
+            petriNet.add(transition);
+            petriNet.add(new InboundNormalArc(from, transition, Collections.singletonMap(TOKEN, "1")));
+            petriNet.add(new OutboundNormalArc(transition, to, Collections.singletonMap(TOKEN, "1")));
+        }
+        return petriNet;
+    }
+
+    /**
+     * Cancels the exploration once enough states have been expanded
+     */
+    private static final class CancellingExplorerUtilities implements ExplorerUtilities {
+        private final ExplorerUtilities explorerUtilities;
+
+        private final ExplorationProgress progress;
+
+        private int expanded;
+
+        private CancellingExplorerUtilities(ExplorerUtilities explorerUtilities, ExplorationProgress progress) {
+            this.explorerUtilities = explorerUtilities;
+            this.progress = progress;
+        }
+
+        @Override
+        public synchronized Map<ClassifiedState, Collection<Transition>> getSuccessorsWithTransitions(
+                ClassifiedState state) {
+            if (++expanded == EXPANSIONS_BEFORE_CANCEL) {
+                progress.cancel();
+            }
+            return explorerUtilities.getSuccessorsWithTransitions(state);
+        }
+
+        @Override
+        public Collection<ClassifiedState> getSuccessors(ClassifiedState state) {
+            return explorerUtilities.getSuccessors(state);
+        }
+
+        @Override
+        public double rate(ClassifiedState state, ClassifiedState successor) {
+            return explorerUtilities.rate(state, successor);
+        }
+
+        @Override
+        public ClassifiedState getCurrentState() {
+            return explorerUtilities.getCurrentState();
+        }
+
+        @Override
+        public Collection<Transition> getAllEnabledTransitions(ClassifiedState state) {
+            return explorerUtilities.getAllEnabledTransitions(state);
+        }
+
+        @Override
+        public double getWeightOfTransitions(ClassifiedState state, Iterable<Transition> transitions) {
+            return explorerUtilities.getWeightOfTransitions(state, transitions);
+        }
+
+        @Override
+        public Collection<Transition> getTransitions(ClassifiedState state, ClassifiedState successor) {
+            return explorerUtilities.getTransitions(state, successor);
+        }
+
+        @Override
+        public boolean canExploreMore(int stateCount) {
+            return explorerUtilities.canExploreMore(stateCount);
+        }
+    }
+}